@@ -1,3 +1,15 @@
+DROP TABLE IF EXISTS orderitem_archive CASCADE;
+DROP TABLE IF EXISTS order_archive CASCADE;
+DROP TABLE IF EXISTS shard_info CASCADE;
+DROP TABLE IF EXISTS medicine_price CASCADE;
+DROP TABLE IF EXISTS catalog_state CASCADE;
+DROP TABLE IF EXISTS catalog_change CASCADE;
+DROP TABLE IF EXISTS order_journal_reject CASCADE;
+DROP TABLE IF EXISTS order_journal_state CASCADE;
+DROP TABLE IF EXISTS forecast_state CASCADE;
+DROP TABLE IF EXISTS medicine_forecast CASCADE;
+DROP TABLE IF EXISTS daily_sales_rollup CASCADE;
+DROP TABLE IF EXISTS sales_rollup_state CASCADE;
 DROP TABLE IF EXISTS orderitem CASCADE;
 DROP TABLE IF EXISTS suppliermedicine CASCADE;
 DROP TABLE IF EXISTS "order" CASCADE;
@@ -123,4 +135,127 @@ CREATE UNIQUE INDEX uix_supplier_name ON supplier(name);
 CREATE INDEX idx_orderitem_medicine_id ON orderitem(medicine_id);
 
 -- Faster access to order items by order id
-CREATE INDEX idx_orderitem_order_id ON orderitem(order_id);
\ No newline at end of file
+CREATE INDEX idx_orderitem_order_id ON orderitem(order_id);
+
+-- Faster access to a client's orders
+CREATE INDEX idx_order_client_id ON "order"(client_id);
+
+-- Pre-aggregated sales per day and medicine. Holds closed days only (up to
+-- sales_rollup_state.rolled_through); more recent days are read live from "order"/orderitem.
+CREATE TABLE daily_sales_rollup(
+    sales_date DATE NOT NULL,
+    medicine_id BIGINT NOT NULL,
+    units BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14, 2) NOT NULL DEFAULT 0.00,
+    order_lines BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY(sales_date, medicine_id)
+);
+
+-- Single-row table: the last day folded into daily_sales_rollup
+CREATE TABLE sales_rollup_state(
+    id INT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    rolled_through DATE NOT NULL
+);
+
+INSERT INTO sales_rollup_state(id, rolled_through) VALUES (1, '-infinity');
+
+-- Scheduled selling prices (org.pharmacy.pricing.PriceSchedule). Order items are priced from the
+-- latest row in effect at the start of their transaction, falling back to medicine.unit_price;
+-- rows are copied into medicine.unit_price and deleted shortly after they take effect.
+CREATE TABLE medicine_price(
+    medicine_id BIGINT NOT NULL REFERENCES medicine(medicine_id) ON DELETE CASCADE,
+    effective_from TIMESTAMPTZ NOT NULL,
+    unit_price DECIMAL(10, 2) NOT NULL CHECK (unit_price > 0),
+    PRIMARY KEY(medicine_id, effective_from)
+);
+
+CREATE INDEX idx_medicine_price_effective_from ON medicine_price(effective_from);
+
+-- Demand forecast per medicine (org.pharmacy.forecast.DemandForecaster), smoothed from daily_sales_rollup.
+-- daily_demand and demand_variance are the smoothing state carried from one run to the next.
+CREATE TABLE medicine_forecast(
+    medicine_id BIGINT PRIMARY KEY REFERENCES medicine(medicine_id) ON DELETE CASCADE,
+    daily_demand DOUBLE PRECISION NOT NULL,
+    demand_variance DOUBLE PRECISION NOT NULL,
+    safety_stock INT NOT NULL,
+    reorder_point INT NOT NULL,
+    forecast_through DATE NOT NULL
+);
+
+-- Single-row table: the last rollup day folded into medicine_forecast, and the earliest rolled-up
+-- day changed since by a deleted order (NULL if none), which makes the next run start over
+CREATE TABLE forecast_state(
+    id INT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    processed_through DATE NOT NULL,
+    recompute_from DATE
+);
+
+INSERT INTO forecast_state(id, processed_through) VALUES (1, '-infinity');
+
+-- Local order journals (org.pharmacy.journal): the last journal entry applied to the database,
+-- advanced in the same transaction as the applied orders
+CREATE TABLE order_journal_state(
+    journal_id VARCHAR(36) PRIMARY KEY,
+    applied_sequence BIGINT NOT NULL
+);
+
+-- Journaled orders that were acknowledged but rejected when applied (e.g. stock sold elsewhere meanwhile)
+CREATE TABLE order_journal_reject(
+    journal_id VARCHAR(36) NOT NULL,
+    sequence BIGINT NOT NULL,
+    client_id BIGINT NOT NULL,
+    items TEXT NOT NULL,
+    reason TEXT NOT NULL,
+    accepted_at TIMESTAMP NOT NULL,
+    PRIMARY KEY(journal_id, sequence)
+);
+
+-- Change log of the catalog (medicine names and prices, suppliers, supplier links), filled by triggers.
+-- A catalog snapshot loads only the rows changed since it was taken (org.pharmacy.catalog).
+CREATE TABLE catalog_change(
+    change_id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    table_name VARCHAR(20) NOT NULL,
+    row_id BIGINT NOT NULL,
+    medicine_id BIGINT,
+    xid XID8 NOT NULL DEFAULT pg_current_xact_id()
+);
+
+-- Changes committed after a snapshot have a transaction ID at or above the snapshot's xmin
+CREATE INDEX idx_catalog_change_xid ON catalog_change(xid);
+
+-- Single-row table: identifies this database, so a snapshot taken from another (or a recreated) one is not reused.
+-- pruned_below: catalog_change rows with a lower xid have been deleted; older snapshots need a full read.
+CREATE TABLE catalog_state(
+    id INT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    epoch UUID NOT NULL DEFAULT gen_random_uuid(),
+    pruned_below XID8 NOT NULL DEFAULT '0'
+);
+
+INSERT INTO catalog_state(id) VALUES (1);
+
+-- Orders and order items removed by the retention purge (org.pharmacy.retention.OrderPurge) when it
+-- archives them. No foreign keys: archived rows may outlive their clients and medicines.
+CREATE TABLE order_archive(
+    order_id BIGINT PRIMARY KEY,
+    client_id BIGINT NOT NULL,
+    order_date DATE NOT NULL,
+    total_price DECIMAL(10, 2) NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE orderitem_archive(
+    orderitem_id BIGINT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    medicine_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    unit_price DECIMAL(10, 2) NOT NULL
+);
+
+CREATE INDEX idx_orderitem_archive_order_id ON orderitem_archive(order_id);
+
+-- Single-row table: this database's place in a sharded deployment (org.pharmacy.repository.sharding); empty otherwise
+CREATE TABLE shard_info(
+    id INT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    shard_index INT NOT NULL,
+    shard_count INT NOT NULL
+);
@@ -1,5 +1,6 @@
 DROP FUNCTION IF EXISTS update_order_total_price() CASCADE;
 DROP FUNCTION IF EXISTS set_orderitem_unit_price() CASCADE;
+DROP FUNCTION IF EXISTS record_catalog_change() CASCADE;
 
 -- Function that recalculates and updates the order's total price
 CREATE OR REPLACE FUNCTION update_order_total_price()
@@ -26,20 +27,31 @@ $$ LANGUAGE plpgsql;
 CREATE OR REPLACE FUNCTION set_orderitem_unit_price()
 RETURNS TRIGGER AS $$
 BEGIN
-    -- Read the current selling price from the medicine table
-    SELECT unit_price
+    -- Read the selling price in effect when the transaction started: the latest scheduled
+    -- price already in effect, otherwise the price in the medicine table. now() is fixed for the
+    -- transaction, so all lines of an order see the same price version.
+    SELECT COALESCE(
+        (SELECT p.unit_price
+         FROM medicine_price p
+         WHERE p.medicine_id = NEW.medicine_id AND p.effective_from <= now()
+         ORDER BY p.effective_from DESC
+         LIMIT 1),
+        m.unit_price)
     INTO NEW.unit_price
-    FROM medicine
-    WHERE medicine_id = NEW.medicine_id;
+    FROM medicine m
+    WHERE m.medicine_id = NEW.medicine_id;
 
     RETURN NEW;
 END;
 $$ LANGUAGE plpgsql;
 
--- Trigger that updates total order price after insert, update, or delete
+-- Trigger that updates total order price after insert, update, or delete.
+-- Skipped while pharmacy.bypass_total_recalc is 'on' (set locally by jobs that delete whole orders,
+-- see org.pharmacy.retention.OrderPurge); the condition is checked without calling the function.
 CREATE TRIGGER trg_update_order_total
 AFTER INSERT OR UPDATE OR DELETE ON orderitem
 FOR EACH ROW
+WHEN (current_setting('pharmacy.bypass_total_recalc', true) IS DISTINCT FROM 'on')
 EXECUTE FUNCTION update_order_total_price();
 
 -- Trigger that sets unit_price before inserting or updating an order item
@@ -47,3 +59,42 @@ CREATE TRIGGER trg_set_orderitem_unit_price
 BEFORE INSERT OR UPDATE ON orderitem
 FOR EACH ROW
 EXECUTE FUNCTION set_orderitem_unit_price();
+
+-- Function that records a catalog row change in catalog_change (old and new key if the key changed)
+CREATE OR REPLACE FUNCTION record_catalog_change()
+RETURNS TRIGGER AS $$
+DECLARE
+    key_column TEXT := CASE WHEN TG_TABLE_NAME = 'medicine' THEN 'medicine_id' ELSE 'supplier_id' END;
+    old_row JSONB := CASE WHEN TG_OP <> 'INSERT' THEN to_jsonb(OLD) END;
+    new_row JSONB := CASE WHEN TG_OP <> 'DELETE' THEN to_jsonb(NEW) END;
+BEGIN
+    IF old_row IS NOT NULL THEN
+        INSERT INTO catalog_change(table_name, row_id, medicine_id)
+        VALUES (TG_TABLE_NAME, (old_row ->> key_column)::BIGINT,
+                CASE WHEN TG_TABLE_NAME = 'suppliermedicine' THEN (old_row ->> 'medicine_id')::BIGINT END);
+    END IF;
+    IF new_row IS NOT NULL AND (old_row IS NULL OR new_row ->> key_column <> old_row ->> key_column
+            OR new_row ->> 'medicine_id' <> old_row ->> 'medicine_id') THEN
+        INSERT INTO catalog_change(table_name, row_id, medicine_id)
+        VALUES (TG_TABLE_NAME, (new_row ->> key_column)::BIGINT,
+                CASE WHEN TG_TABLE_NAME = 'suppliermedicine' THEN (new_row ->> 'medicine_id')::BIGINT END);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Triggers that log catalog changes; stock updates are not part of the catalog
+CREATE TRIGGER trg_medicine_catalog_change
+AFTER INSERT OR DELETE OR UPDATE OF medicine_id, name, unit_price ON medicine
+FOR EACH ROW
+EXECUTE FUNCTION record_catalog_change();
+
+CREATE TRIGGER trg_supplier_catalog_change
+AFTER INSERT OR UPDATE OR DELETE ON supplier
+FOR EACH ROW
+EXECUTE FUNCTION record_catalog_change();
+
+CREATE TRIGGER trg_suppliermedicine_catalog_change
+AFTER INSERT OR UPDATE OR DELETE ON suppliermedicine
+FOR EACH ROW
+EXECUTE FUNCTION record_catalog_change();
@@ -0,0 +1,114 @@
+package org.pharmacy.bench;
+
+import org.pharmacy.db.DBConnector;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Access to the benchmark database: connecting, recreating the schema and loading a {@link Dataset}
+ * with the {@link DataGenerator}.
+ * <p>
+ * Benchmarks never run against the application database. The URL is taken from the
+ * {@code pharmacy.bench.url} system property (default {@value #DEFAULT_URL}); credentials are the
+ * usual {@code pharmacy.db.user}/{@code pharmacy.db.password}. The schema is loaded from the SQL
+ * scripts in {@code pharmacy.bench.sqlDir} (default {@code Lab2}, relative to the repository root).
+ * </p>
+ */
+public final class BenchmarkDatabase {
+
+    public static final String DEFAULT_URL = "jdbc:postgresql://localhost:5432/pharmacy_bench";
+
+    private static final String URL = System.getProperty("pharmacy.bench.url", DEFAULT_URL);
+    private static final Path SQL_DIR = Path.of(System.getProperty("pharmacy.bench.sqlDir", "Lab2"));
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Opens a new connection to the benchmark database.
+     */
+    public static Connection connect() throws SQLException {
+        return DBConnector.getConnection(URL);
+    }
+
+    /**
+     * Opens a connection to the benchmark database that is never instrumented, for tools that
+     * inspect statements without being observed themselves.
+     */
+    public static Connection connectUninstrumented() throws SQLException {
+        return DBConnector.getUninstrumentedConnection(URL);
+    }
+
+    /**
+     * Discards repository console output (each call prints a status line) for the rest of the JVM,
+     * so printing does not dominate the measurement. JMH reports through its own channel.
+     */
+    public static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Makes sure the database holds exactly the given dataset. The schema is recreated and the data
+     * loaded only if the current row counts differ, so consecutive benchmark forks reuse the data.
+     *
+     * @param conn An open connection to the benchmark database.
+     * @param dataset The dataset to load.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static void ensureDataset(Connection conn, Dataset dataset) throws SQLException {
+        if (matches(conn, dataset)) {
+            return;
+        }
+        recreateSchema(conn);
+        try {
+            new DataGenerator(dataset).generate();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading the benchmark dataset.", e);
+        }
+    }
+
+    /**
+     * Drops and recreates all tables, views and triggers from the SQL scripts.
+     */
+    public static void recreateSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(readScript("schema.sql"));
+            stmt.execute(readScript("triggers.sql"));
+        }
+    }
+
+    private static boolean matches(Connection conn, Dataset dataset) {
+        final String SQLQuery = "SELECT (SELECT count(*) FROM client), (SELECT count(*) FROM medicine), " +
+                "(SELECT count(*) FROM supplier), (SELECT count(*) FROM \"order\")";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQLQuery)) {
+            rs.next();
+            return rs.getLong(1) == dataset.clients()
+                    && rs.getLong(2) == dataset.medicines()
+                    && rs.getLong(3) == dataset.suppliers()
+                    && rs.getLong(4) == dataset.orders();
+        } catch (SQLException e) {
+            // Missing tables: the schema has never been created in this database
+            return false;
+        }
+    }
+
+    private static String readScript(String name) {
+        try {
+            return Files.readString(SQL_DIR.resolve(name));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + SQL_DIR.resolve(name).toAbsolutePath()
+                    + " (set -Dpharmacy.bench.sqlDir to the Lab2 directory)", e);
+        }
+    }
+}
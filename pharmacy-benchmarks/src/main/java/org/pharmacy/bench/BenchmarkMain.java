@@ -0,0 +1,63 @@
+package org.pharmacy.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the usual JMH command line, but writes results as
+ * JSON to {@value #DEFAULT_RESULT_FILE} unless {@code -rf}/{@code -rff} say otherwise, so every run
+ * leaves a machine-readable record that can be compared with an earlier one.
+ * <p>
+ * System properties given to this JVM ({@code pharmacy.bench.url}, {@code pharmacy.bench.sqlDir},
+ * {@code pharmacy.db.user}, {@code pharmacy.db.password}) are passed on to the forked benchmark JVMs.
+ * </p>
+ */
+public final class BenchmarkMain {
+
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private static final String[] FORWARDED_PROPERTIES = {
+            "pharmacy.bench.url", "pharmacy.bench.sqlDir", "pharmacy.db.user", "pharmacy.db.password"
+    };
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions cmd;
+        try {
+            cmd = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+                || cmd.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            options.result(DEFAULT_RESULT_FILE);
+        }
+        for (String name : FORWARDED_PROPERTIES) {
+            String value = System.getProperty(name);
+            if (value != null) {
+                options.jvmArgsAppend("-D" + name + "=" + value);
+            }
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,436 @@
+package org.pharmacy.bench;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Deterministic generator of large synthetic datasets for the pharmacy schema.
+ * <p>
+ * Every table is streamed with {@code COPY ... FROM STDIN} over several connections in parallel.
+ * Orders are produced in fixed chunks of {@value #ORDER_CHUNK} orders, each with its own random
+ * generator derived from the seed and the chunk number, so the same seed produces the same rows
+ * (including IDs) whatever the number of threads. Distributions aim to look like real traffic:
+ * Zipf-distributed medicine popularity, mildly skewed client activity, a winter peak and quieter
+ * weekends in order dates, and mostly short orders.
+ * </p>
+ * <p>
+ * The per-row triggers on {@code orderitem} are disabled during the load (which requires owning the
+ * table): unit prices are written directly and {@code "order".total_price} is filled in afterwards
+ * with one set-based UPDATE. The triggers are re-enabled even if the load fails.
+ * </p>
+ */
+public class DataGenerator {
+
+    /** Orders per COPY stream; also the unit of work distributed over the threads. */
+    public static final int ORDER_CHUNK = 50_000;
+
+    /** Orders get item IDs {@code order_id * LINE_ID_STRIDE + line}, so item IDs are deterministic too. */
+    private static final int LINE_ID_STRIDE = 16;
+
+    private static final int CLIENT_CHUNK = 200_000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final double CLIENT_ACTIVITY_EXPONENT = 0.5;
+
+    private static final String[] FIRST_NAMES = {
+            "Jonas", "Tomas", "Lukas", "Mantas", "Darius", "Paulius", "Andrius", "Marius", "Karolis", "Domantas",
+            "Ieva", "Rūta", "Laura", "Agnė", "Greta", "Austėja", "Gabija", "Eglė", "Monika", "Justė"
+    };
+    private static final String[] LAST_NAMES = {
+            "Kazlauskas", "Jankauskas", "Petrauskas", "Stankevičius", "Vasiliauskas", "Žukauskas", "Butkus",
+            "Paulauskas", "Urbonas", "Kavaliauskas", "Navickas", "Ramanauskas", "Savickas", "Rimkus", "Baranauskas"
+    };
+    private static final String[][] CITIES = {
+            {"Vilnius", "01"}, {"Kaunas", "44"}, {"Klaipėda", "91"}, {"Šiauliai", "76"}, {"Panevėžys", "35"},
+            {"Alytus", "62"}, {"Marijampolė", "68"}, {"Mažeikiai", "89"}, {"Jonava", "55"}, {"Utena", "28"}
+    };
+    private static final String[] STREETS = {
+            "Gedimino pr.", "Laisvės al.", "Vilniaus g.", "Taikos pr.", "Savanorių pr.", "Žalgirio g.",
+            "Basanavičiaus g.", "Kęstučio g.", "Maironio g.", "Tilžės g."
+    };
+    private static final String[] MEDICINE_BASES = {
+            "Paracetamol", "Ibuprofen", "Aspirin", "Amoxicillin", "Cetirizine", "Loratadine", "Omeprazole",
+            "Metformin", "Atorvastatin", "Amlodipine", "Vitamin C", "Vitamin D3", "Magnesium", "Xylometazoline",
+            "Ambroxol", "Diclofenac", "Pantoprazole", "Bisoprolol", "Lisinopril", "Levothyroxine"
+    };
+    private static final int[] STRENGTHS_MG = {5, 10, 20, 25, 50, 100, 200, 250, 400, 500, 1000};
+
+    private final Dataset dataset;
+    private final double medicineZipfExponent;
+    private final int historyDays;
+    private final LocalDate lastOrderDate;
+    private final int threads;
+
+    private int[] medicinePriceCents;
+    private long[] medicineIdsByPopularity;
+    private ZipfSampler medicinePopularity;
+    private ZipfSampler clientActivity;
+    private double[] orderDateCumulative;
+
+    /**
+     * @param dataset Table sizes and seed (lines per order must not exceed {@value #LINE_ID_STRIDE}).
+     * @param medicineZipfExponent Skew of medicine popularity.
+     * @param historyDays Number of days of order history, ending at {@code lastOrderDate}.
+     * @param lastOrderDate Date of the newest orders.
+     * @param threads Number of parallel COPY streams.
+     * @throws IllegalArgumentException If a parameter is out of range.
+     */
+    public DataGenerator(Dataset dataset, double medicineZipfExponent, int historyDays, LocalDate lastOrderDate, int threads) {
+        if (dataset.maxLinesPerOrder() > LINE_ID_STRIDE) {
+            throw new IllegalArgumentException("At most " + LINE_ID_STRIDE + " lines per order are supported.");
+        }
+        if (historyDays <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("History length and thread count must be positive.");
+        }
+        this.dataset = dataset;
+        this.medicineZipfExponent = medicineZipfExponent;
+        this.historyDays = historyDays;
+        this.lastOrderDate = lastOrderDate;
+        this.threads = threads;
+    }
+
+    /**
+     * Generator with the defaults used by the benchmarks: Zipf exponent 1.1, two years of history
+     * ending today, one stream per processor.
+     */
+    public DataGenerator(Dataset dataset) {
+        this(dataset, 1.1, 730, LocalDate.now(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = 100_000;
+        int medicines = 5_000;
+        int suppliers = 200;
+        int orders = 1_000_000;
+        int maxLines = 8;
+        long seed = Dataset.DEFAULT_SEED;
+        double zipf = 1.1;
+        int days = 730;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--clients" -> clients = Integer.parseInt(value);
+                case "--medicines" -> medicines = Integer.parseInt(value);
+                case "--suppliers" -> suppliers = Integer.parseInt(value);
+                case "--orders" -> orders = Integer.parseInt(value);
+                case "--max-lines" -> maxLines = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--zipf" -> zipf = Double.parseDouble(value);
+                case "--days" -> days = Integer.parseInt(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                default -> {
+                    System.err.println("Unknown option " + args[i] + ". Options: --clients --medicines --suppliers "
+                            + "--orders --max-lines --seed --zipf --days --threads");
+                    System.exit(2);
+                }
+            }
+        }
+
+        Dataset dataset = new Dataset(clients, medicines, suppliers, orders, maxLines, seed);
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            BenchmarkDatabase.recreateSchema(conn);
+        }
+        new DataGenerator(dataset, zipf, days, LocalDate.now(), threads).generate();
+    }
+
+    /**
+     * Loads the dataset into the (empty) schema of the benchmark database.
+     *
+     * @throws SQLException If a database access error occurs or a row is rejected.
+     * @throws InterruptedException If interrupted while waiting for the load streams.
+     */
+    public void generate() throws SQLException, InterruptedException {
+        long start = System.nanoTime();
+        prepareDistributions();
+
+        try (Connection conn = BenchmarkDatabase.connect();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE orderitem DISABLE TRIGGER USER");
+            try {
+                load();
+                stmt.execute("UPDATE \"order\" o SET total_price = t.total " +
+                        "FROM (SELECT order_id, SUM(quantity * unit_price) AS total FROM orderitem GROUP BY order_id) t " +
+                        "WHERE o.order_id = t.order_id");
+            } finally {
+                stmt.execute("ALTER TABLE orderitem ENABLE TRIGGER USER");
+            }
+
+            for (String table : new String[]{"client", "supplier", "medicine", "\"order\"", "orderitem"}) {
+                String idColumn = table.replace("\"", "") + "_id";
+                stmt.execute("SELECT setval(pg_get_serial_sequence('" + table + "', '" + idColumn + "'), " +
+                        "GREATEST((SELECT max(" + idColumn + ") FROM " + table + "), 1))");
+            }
+            stmt.execute("VACUUM ANALYZE");
+        }
+
+        System.out.printf("Generated %d clients, %d medicines, %d suppliers and %d orders in %.1f s.%n",
+                dataset.clients(), dataset.medicines(), dataset.suppliers(), dataset.orders(),
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Loads the tables in two parallel waves: parents first, then the tables that reference them.
+     */
+    private void load() throws SQLException, InterruptedException {
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            List<Callable<Long>> parents = new ArrayList<>();
+            parents.add(() -> copy("COPY supplier(supplier_id, name, country, city, street, postal_code) FROM STDIN WITH (FORMAT csv)",
+                    this::writeSuppliers));
+            parents.add(() -> copy("COPY medicine(medicine_id, name, unit_price, stock) FROM STDIN WITH (FORMAT csv)",
+                    this::writeMedicines));
+            for (int first = 1; first <= dataset.clients(); first += CLIENT_CHUNK) {
+                int from = first;
+                int to = Math.min(dataset.clients(), first + CLIENT_CHUNK - 1);
+                parents.add(() -> copy("COPY client(client_id, first_name, last_name, country, city, street, postal_code) " +
+                        "FROM STDIN WITH (FORMAT csv)", out -> writeClients(out, from, to)));
+            }
+            runAll(pool, parents);
+
+            List<Callable<Long>> children = new ArrayList<>();
+            children.add(() -> copy("COPY suppliermedicine(supplier_id, medicine_id, supply_price) FROM STDIN WITH (FORMAT csv)",
+                    this::writeSupplierLinks));
+            for (long chunk = 0; chunk * ORDER_CHUNK < dataset.orders(); chunk++) {
+                long index = chunk;
+                children.add(() -> copyOrderChunk(index));
+            }
+            runAll(pool, children);
+        }
+    }
+
+    private void prepareDistributions() {
+        SplittableRandom random = random(0, 0);
+
+        medicinePriceCents = new int[dataset.medicines()];
+        for (int i = 0; i < medicinePriceCents.length; i++) {
+            // Log-uniform between 1 and 100 EUR: many cheap medicines, a few expensive ones
+            medicinePriceCents[i] = (int) Math.round(100 * Math.pow(100, random.nextDouble()));
+        }
+
+        medicineIdsByPopularity = new long[dataset.medicines()];
+        for (int i = 0; i < medicineIdsByPopularity.length; i++) {
+            medicineIdsByPopularity[i] = i + 1;
+        }
+        for (int i = medicineIdsByPopularity.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long swap = medicineIdsByPopularity[i];
+            medicineIdsByPopularity[i] = medicineIdsByPopularity[j];
+            medicineIdsByPopularity[j] = swap;
+        }
+        medicinePopularity = new ZipfSampler(dataset.medicines(), medicineZipfExponent);
+        clientActivity = new ZipfSampler(dataset.clients(), CLIENT_ACTIVITY_EXPONENT);
+
+        // Seasonal weight per day: a winter peak (cold and flu season) and quieter weekends
+        orderDateCumulative = new double[historyDays];
+        double sum = 0;
+        for (int day = 0; day < historyDays; day++) {
+            LocalDate date = lastOrderDate.minusDays(day);
+            double weight = 1 + 0.35 * Math.cos(2 * Math.PI * (date.getDayOfYear() - 20) / 365.0);
+            if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                weight *= 0.6;
+            }
+            sum += weight;
+            orderDateCumulative[day] = sum;
+        }
+        for (int day = 0; day < historyDays; day++) {
+            orderDateCumulative[day] /= sum;
+        }
+    }
+
+    private void writeSuppliers(Writer out) throws IOException {
+        SplittableRandom random = random(1, 0);
+        for (int id = 1; id <= dataset.suppliers(); id++) {
+            String[] city = CITIES[random.nextInt(CITIES.length)];
+            out.write(id + ",UAB Supplier " + id + ",Lithuania," + city[0] + ","
+                    + STREETS[random.nextInt(STREETS.length)] + " " + (1 + random.nextInt(200)) + ","
+                    + postalCode(city, random) + "\n");
+        }
+    }
+
+    private void writeMedicines(Writer out) throws IOException {
+        SplittableRandom random = random(2, 0);
+        for (int id = 1; id <= dataset.medicines(); id++) {
+            out.write(id + "," + MEDICINE_BASES[random.nextInt(MEDICINE_BASES.length)] + " "
+                    + STRENGTHS_MG[random.nextInt(STRENGTHS_MG.length)] + " mg #" + id + ","
+                    + money(medicinePriceCents[id - 1]) + "," + random.nextInt(5000) + "\n");
+        }
+    }
+
+    private void writeClients(Writer out, int from, int to) throws IOException {
+        SplittableRandom random = random(3, from);
+        for (int id = from; id <= to; id++) {
+            String[] city = CITIES[random.nextInt(CITIES.length)];
+            out.write(id + "," + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + ","
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + ",Lithuania," + city[0] + ","
+                    + STREETS[random.nextInt(STREETS.length)] + " " + (1 + random.nextInt(200)) + ","
+                    + postalCode(city, random) + "\n");
+        }
+    }
+
+    /**
+     * Every medicine gets 1-4 distinct suppliers, with a supply price 50-90% of its selling price.
+     */
+    private void writeSupplierLinks(Writer out) throws IOException {
+        SplittableRandom random = random(4, 0);
+        int linksPerMedicine = Math.min(4, dataset.suppliers());
+        long[] chosen = new long[linksPerMedicine];
+        for (int medicineId = 1; medicineId <= dataset.medicines(); medicineId++) {
+            int links = 1 + random.nextInt(linksPerMedicine);
+            for (int i = 0; i < links; i++) {
+                long supplierId;
+                do {
+                    supplierId = 1 + random.nextInt(dataset.suppliers());
+                } while (contains(chosen, i, supplierId));
+                chosen[i] = supplierId;
+                int supplyCents = Math.max(1, (int) (medicinePriceCents[medicineId - 1] * (0.5 + 0.4 * random.nextDouble())));
+                out.write(supplierId + "," + medicineId + "," + money(supplyCents) + "\n");
+            }
+        }
+    }
+
+    /**
+     * Loads one chunk of orders and then their lines, in one transaction on one connection, so the
+     * lines' foreign keys see the chunk's orders without waiting for other streams.
+     */
+    private long copyOrderChunk(long chunk) throws SQLException, IOException {
+        long firstOrder = chunk * ORDER_CHUNK + 1;
+        long lastOrder = Math.min(dataset.orders(), firstOrder + ORDER_CHUNK - 1);
+
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            conn.setAutoCommit(false);
+            long rows = copy(conn, "COPY \"order\"(order_id, client_id, order_date) FROM STDIN WITH (FORMAT csv)",
+                    out -> writeOrders(out, chunk, firstOrder, lastOrder));
+            rows += copy(conn, "COPY orderitem(orderitem_id, order_id, medicine_id, quantity, unit_price) FROM STDIN WITH (FORMAT csv)",
+                    out -> writeOrderItems(out, chunk, firstOrder, lastOrder));
+            conn.commit();
+            return rows;
+        }
+    }
+
+    private void writeOrders(Writer out, long chunk, long firstOrder, long lastOrder) throws IOException {
+        SplittableRandom random = random(5, chunk);
+        for (long id = firstOrder; id <= lastOrder; id++) {
+            long clientId = 1 + clientActivity.sample(random);
+            int day = Arrays.binarySearch(orderDateCumulative, random.nextDouble());
+            day = Math.min(day >= 0 ? day : -day - 1, historyDays - 1);
+            out.write(id + "," + clientId + "," + lastOrderDate.minusDays(day) + "\n");
+        }
+    }
+
+    private void writeOrderItems(Writer out, long chunk, long firstOrder, long lastOrder) throws IOException {
+        SplittableRandom random = random(6, chunk);
+        int maxLines = Math.min(dataset.maxLinesPerOrder(), dataset.medicines());
+        long[] medicines = new long[maxLines];
+        for (long orderId = firstOrder; orderId <= lastOrder; orderId++) {
+            int lines = Math.min(maxLines, 1 + geometric(random, 0.45));
+            for (int line = 0; line < lines; line++) {
+                long medicineId;
+                do {
+                    medicineId = medicineIdsByPopularity[medicinePopularity.sample(random)];
+                } while (contains(medicines, line, medicineId));
+                medicines[line] = medicineId;
+                int quantity = 1 + Math.min(9, geometric(random, 0.6));
+                out.write((orderId * LINE_ID_STRIDE + line) + "," + orderId + "," + medicineId + "," + quantity + ","
+                        + money(medicinePriceCents[(int) medicineId - 1]) + "\n");
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(Writer out) throws IOException;
+    }
+
+    /**
+     * Runs one COPY on its own auto-commit connection.
+     */
+    private long copy(String copySQL, RowWriter rows) throws SQLException, IOException {
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            return copy(conn, copySQL, rows);
+        }
+    }
+
+    private static long copy(Connection conn, String copySQL, RowWriter rows) throws SQLException, IOException {
+        PGCopyOutputStream copyStream = new PGCopyOutputStream(conn.unwrap(PGConnection.class), copySQL, COPY_BUFFER_SIZE);
+        Writer out = new BufferedWriter(new OutputStreamWriter(copyStream, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+        try {
+            rows.write(out);
+            out.flush();
+            return copyStream.endCopy();
+        } catch (IOException | SQLException | RuntimeException e) {
+            if (copyStream.isActive()) {
+                copyStream.cancelCopy();
+            }
+            throw e;
+        }
+    }
+
+    private static void runAll(ExecutorService pool, List<Callable<Long>> tasks) throws SQLException, InterruptedException {
+        List<Future<Long>> futures = pool.invokeAll(tasks);
+        for (Future<Long> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SQLException sqlException) {
+                    throw sqlException;
+                }
+                // PGCopyOutputStream reports server-side COPY failures as IOExceptions wrapping the SQLException
+                if (e.getCause() != null && e.getCause().getCause() instanceof SQLException sqlException) {
+                    throw sqlException;
+                }
+                throw new SQLException("Data generation failed: " + e.getCause(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * An independent random stream per (table, chunk), so the output does not depend on thread scheduling.
+     */
+    private SplittableRandom random(int stream, long chunk) {
+        return new SplittableRandom(dataset.seed() ^ (stream * 0x9E3779B97F4A7C15L) ^ (chunk * 0xC2B2AE3D27D4EB4FL));
+    }
+
+    /**
+     * Number of failures before the first success in Bernoulli trials with the given success probability.
+     */
+    private static int geometric(SplittableRandom random, double p) {
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    private static boolean contains(long[] values, int length, long value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String postalCode(String[] city, SplittableRandom random) {
+        return "LT-" + city[1] + String.format("%03d", random.nextInt(1000));
+    }
+
+    private static String money(int cents) {
+        return cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100;
+    }
+}
@@ -0,0 +1,38 @@
+package org.pharmacy.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Per-thread connection to the benchmark database, loaded with a dataset of {@link #orders} orders.
+ */
+@State(Scope.Thread)
+public class DatabaseState {
+
+    /** Dataset size; see {@link Dataset#ofOrders(int)} for the other table sizes. */
+    @Param({"10000", "100000"})
+    public int orders;
+
+    public Dataset dataset;
+    public Connection conn;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        dataset = Dataset.ofOrders(orders);
+        conn = BenchmarkDatabase.connect();
+        BenchmarkDatabase.ensureDataset(conn, dataset);
+        BenchmarkDatabase.silenceStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        conn.close();
+    }
+}
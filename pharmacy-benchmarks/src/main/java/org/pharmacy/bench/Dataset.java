@@ -0,0 +1,40 @@
+package org.pharmacy.bench;
+
+/**
+ * Size and seed of a synthetic benchmark dataset. The same dataset always produces the same rows.
+ *
+ * @param clients Number of clients.
+ * @param medicines Number of medicines.
+ * @param suppliers Number of suppliers.
+ * @param orders Number of orders.
+ * @param maxLinesPerOrder Upper bound of order lines per order (at least 1).
+ * @param seed Seed of the random generator.
+ */
+public record Dataset(
+        int clients,
+        int medicines,
+        int suppliers,
+        int orders,
+        int maxLinesPerOrder,
+        long seed
+) {
+
+    public static final long DEFAULT_SEED = 42L;
+
+    public Dataset {
+        if (clients <= 0 || medicines <= 0 || suppliers <= 0 || orders < 0) {
+            throw new IllegalArgumentException("Dataset sizes must be positive.");
+        }
+        if (maxLinesPerOrder <= 0 || maxLinesPerOrder > medicines) {
+            throw new IllegalArgumentException("Lines per order must be between 1 and the number of medicines.");
+        }
+    }
+
+    /**
+     * The standard benchmark shape for a given order count: one client per 10 orders,
+     * 500 medicines, 50 suppliers and 1-5 lines per order.
+     */
+    public static Dataset ofOrders(int orders) {
+        return new Dataset(Math.max(1, orders / 10), 500, 50, orders, 5, DEFAULT_SEED);
+    }
+}
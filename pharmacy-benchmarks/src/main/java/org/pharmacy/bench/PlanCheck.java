@@ -0,0 +1,292 @@
+package org.pharmacy.bench;
+
+import org.pharmacy.json.JsonParser;
+import org.pharmacy.metrics.QueryEvent;
+import org.pharmacy.metrics.QueryInstrumentation;
+import org.pharmacy.metrics.QueryListener;
+import org.pharmacy.model.Address;
+import org.pharmacy.model.Client;
+import org.pharmacy.model.Medicine;
+import org.pharmacy.model.OrderRequest;
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.repository.JdbcClientRepository;
+import org.pharmacy.repository.JdbcMedicineRepository;
+import org.pharmacy.repository.JdbcOrderRepository;
+import org.pharmacy.repository.JdbcSupplierRepository;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Query-plan regression check for the repository SQL.
+ * <p>
+ * Loads a scaled dataset into the benchmark database, calls every repository method once inside a
+ * transaction that is rolled back, and records each distinct statement they issue (through
+ * {@link QueryInstrumentation}, so the check always sees the SQL the code really runs). Each
+ * statement is then planned with {@code EXPLAIN (FORMAT JSON)} using the recorded bind parameters,
+ * without executing it. The check fails when a plan contains a sequential scan of a table with at
+ * least {@code --seq-scan-rows} rows, or its estimated total cost exceeds {@code --cost-budget}.
+ * Methods that read a whole table by design ({@link #FULL_SCAN_METHODS}) are reported but exempt.
+ * </p>
+ * Exits with status 1 if any statement fails, so it can gate a deploy pipeline.
+ */
+public class PlanCheck {
+
+    /**
+     * Repository methods whose purpose is to return or stream an entire table.
+     */
+    static final Set<String> FULL_SCAN_METHODS = Set.of(
+            "JdbcClientRepository.getAllCLients", "JdbcClientRepository.forEachClient", "JdbcClientRepository.scanClientsByPostalCode",
+            "JdbcMedicineRepository.getAllMedicines", "JdbcMedicineRepository.forEachMedicine",
+            "JdbcOrderRepository.getAllOrders", "JdbcOrderRepository.getAllDetailedOrders", "JdbcOrderRepository.forEachDetailedOrder",
+            "JdbcSupplierRepository.getAllSuppliers", "JdbcSupplierRepository.forEachSupplier");
+
+    @FunctionalInterface
+    private interface Probe {
+        void run(Connection conn) throws SQLException;
+    }
+
+    private record Finding(String origin, String sql, double cost, List<String> violations, boolean exempt) {
+        boolean failed() {
+            return !exempt && !violations.isEmpty();
+        }
+    }
+
+    private final long seqScanRows;
+    private final double costBudget;
+
+    public PlanCheck(long seqScanRows, double costBudget) {
+        this.seqScanRows = seqScanRows;
+        this.costBudget = costBudget;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int orders = 100_000;
+        long seqScanRows = 10_000;
+        double costBudget = 10_000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--orders" -> orders = Integer.parseInt(args[i + 1]);
+                case "--seq-scan-rows" -> seqScanRows = Long.parseLong(args[i + 1]);
+                case "--cost-budget" -> costBudget = Double.parseDouble(args[i + 1]);
+                default -> {
+                    System.err.println("Usage: PlanCheck [--orders 100000] [--seq-scan-rows 10000] [--cost-budget 10000]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        try (Connection conn = BenchmarkDatabase.connectUninstrumented()) {
+            BenchmarkDatabase.ensureDataset(conn, Dataset.ofOrders(orders));
+        }
+        boolean passed = new PlanCheck(seqScanRows, costBudget).run(System.out);
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Captures and plans all repository statements and prints one line per statement.
+     *
+     * @return True if no statement violated the rules.
+     * @throws SQLException If a database access error occurs outside the probed methods.
+     */
+    public boolean run(PrintStream out) throws SQLException {
+        Map<String, QueryEvent> statements = captureStatements();
+        List<Finding> findings = new ArrayList<>();
+        try (Connection conn = BenchmarkDatabase.connectUninstrumented()) {
+            Map<String, Long> tableRows = tableRows(conn);
+            for (QueryEvent statement : statements.values()) {
+                findings.add(check(conn, statement, tableRows));
+            }
+        }
+
+        int failures = 0;
+        for (Finding finding : findings) {
+            String status = finding.failed() ? "FAIL" : finding.violations().isEmpty() ? "OK" : "EXEMPT";
+            out.printf("%-6s %-45s cost=%10.1f  %s%n", status, finding.origin(), finding.cost(), abbreviate(finding.sql()));
+            for (String violation : finding.violations()) {
+                out.println("         - " + violation);
+            }
+            if (finding.failed()) {
+                failures++;
+            }
+        }
+        out.printf("%d statements checked, %d failed.%n", findings.size(), failures);
+        return failures == 0;
+    }
+
+    /**
+     * Calls every repository method once on an instrumented connection, inside a transaction that is
+     * rolled back, and returns the first execution of each distinct (method, SQL) pair.
+     */
+    private Map<String, QueryEvent> captureStatements() throws SQLException {
+        Map<String, QueryEvent> statements = new LinkedHashMap<>();
+        QueryListener recorder = event -> {
+            if (event.name().contains("Repository.")) {
+                synchronized (statements) {
+                    statements.putIfAbsent(event.name() + "\n" + event.sql(), event);
+                }
+            }
+        };
+
+        PrintStream console = System.out;
+        QueryInstrumentation.addListener(recorder);
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            Map<String, Long> ids = sampleIds(conn);
+            BenchmarkDatabase.silenceStdout();
+            conn.setAutoCommit(false);
+            for (Probe probe : probes(ids)) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    probe.run(conn);
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException | RuntimeException e) {
+                    // Rejections (e.g. a delete blocked by a foreign key) still issued their SQL
+                    conn.rollback(savepoint);
+                }
+            }
+            conn.rollback();
+        } finally {
+            System.setOut(console);
+            QueryInstrumentation.removeListener(recorder);
+        }
+        return statements;
+    }
+
+    private static List<Probe> probes(Map<String, Long> ids) {
+        long clientId = ids.get("client");
+        long medicineId = ids.get("medicine");
+        long supplierId = ids.get("supplier");
+        long orderId = ids.get("order");
+        Address address = new Address("Lithuania", "Vilnius", "Plan g. 1", "LT-01001");
+
+        List<Probe> probes = new ArrayList<>();
+        probes.add(conn -> new JdbcClientRepository(conn).addClient(new Client(0, "Plan", "Check", address)));
+        probes.add(conn -> new JdbcClientRepository(conn).addClients(List.of(new Client(0, "Plan", "Batch", address))));
+        probes.add(conn -> new JdbcClientRepository(conn).updateClientAddress(clientId, address));
+        probes.add(conn -> new JdbcClientRepository(conn).getAllCLients());
+        probes.add(conn -> new JdbcClientRepository(conn).forEachClient(client -> { }));
+        probes.add(conn -> new JdbcClientRepository(conn).scanClientsByPostalCode(client -> { }));
+        probes.add(conn -> new JdbcClientRepository(conn).deleteClient(clientId));
+
+        probes.add(conn -> new JdbcMedicineRepository(conn).getAllMedicines());
+        probes.add(conn -> new JdbcMedicineRepository(conn).forEachMedicine(medicine -> { }));
+        probes.add(conn -> new JdbcMedicineRepository(conn).addMedicine(new Medicine(0, "Plan Check 10 mg", 1.5, 10)));
+        probes.add(conn -> new JdbcMedicineRepository(conn).updateMedicineStock(medicineId, 1000));
+        probes.add(conn -> new JdbcMedicineRepository(conn).updateMedicineStocks(Map.of(medicineId, 1000)));
+        probes.add(conn -> new JdbcMedicineRepository(conn).deleteMedicine(medicineId));
+
+        probes.add(conn -> new JdbcOrderRepository(conn).getOrderById(orderId));
+        probes.add(conn -> new JdbcOrderRepository(conn).getOrdersByClient(clientId));
+        probes.add(conn -> new JdbcOrderRepository(conn).getOrderItemsByOrderId(orderId));
+        probes.add(conn -> new JdbcOrderRepository(conn).getClientOrderSummaries(clientId));
+        probes.add(conn -> new JdbcOrderRepository(conn).getAllOrders());
+        probes.add(conn -> new JdbcOrderRepository(conn).getAllDetailedOrders());
+        probes.add(conn -> new JdbcOrderRepository(conn).forEachDetailedOrder(summary -> { }));
+        probes.add(conn -> new JdbcOrderRepository(conn).createOrder(clientId, Map.of(medicineId, 1)));
+        probes.add(conn -> new JdbcOrderRepository(conn).createOrders(List.of(new OrderRequest(clientId, Map.of(medicineId, 1)))));
+        probes.add(conn -> new JdbcOrderRepository(conn).deleteOrder(orderId));
+
+        probes.add(conn -> new JdbcSupplierRepository(conn).getAllSuppliers());
+        probes.add(conn -> new JdbcSupplierRepository(conn).forEachSupplier(supplier -> { }));
+        probes.add(conn -> new JdbcSupplierRepository(conn).addSupplier(new Supplier(0, "Plan Check UAB", address)));
+        probes.add(conn -> new JdbcSupplierRepository(conn).getMedicineBySupplierId(supplierId));
+        probes.add(conn -> new JdbcSupplierRepository(conn).addMedicineToSupplier(new SupplierMedicine(supplierId, medicineId, 1.0)));
+        probes.add(conn -> new JdbcSupplierRepository(conn).addMedicinesToSupplier(List.of(new SupplierMedicine(supplierId, medicineId, 1.0))));
+        probes.add(conn -> new JdbcSupplierRepository(conn).deleteSupplier(supplierId));
+        return probes;
+    }
+
+    /**
+     * IDs of existing rows to call the repository methods with: a client with orders, its latest
+     * order, a medicine and a supplier.
+     */
+    private static Map<String, Long> sampleIds(Connection conn) throws SQLException {
+        final String SQLQuery = "SELECT (SELECT client_id FROM \"order\" ORDER BY order_id DESC LIMIT 1), " +
+                "(SELECT max(order_id) FROM \"order\"), (SELECT min(medicine_id) FROM medicine), " +
+                "(SELECT min(supplier_id) FROM supplier)";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQLQuery)) {
+            rs.next();
+            Map<String, Long> ids = new HashMap<>();
+            ids.put("client", rs.getLong(1));
+            ids.put("order", rs.getLong(2));
+            ids.put("medicine", rs.getLong(3));
+            ids.put("supplier", rs.getLong(4));
+            return ids;
+        }
+    }
+
+    private static Map<String, Long> tableRows(Connection conn) throws SQLException {
+        final String SQLQuery = "SELECT relname, reltuples::bigint FROM pg_class c " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE n.nspname = 'public' AND c.relkind IN ('r', 'm')";
+        Map<String, Long> rows = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQLQuery)) {
+            while (rs.next()) {
+                rows.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Finding check(Connection conn, QueryEvent statement, Map<String, Long> tableRows) throws SQLException {
+        boolean exempt = FULL_SCAN_METHODS.contains(statement.name());
+        List<String> violations = new ArrayList<>();
+        double cost;
+
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.sql())) {
+            for (int i = 0; i < statement.parameters().size(); i++) {
+                pstmt.setObject(i + 1, statement.parameters().get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                List<Object> root = (List<Object>) JsonParser.parse(rs.getString(1));
+                Map<String, Object> plan = (Map<String, Object>) ((Map<String, Object>) root.get(0)).get("Plan");
+                cost = ((BigDecimal) plan.get("Total Cost")).doubleValue();
+                collectSeqScans(plan, tableRows, violations);
+            }
+        } catch (SQLException e) {
+            return new Finding(statement.name(), statement.sql(), 0, List.of("cannot be planned: " + e.getMessage()), false);
+        }
+
+        if (cost > costBudget) {
+            violations.add(String.format("estimated cost %.1f exceeds budget %.1f", cost, costBudget));
+        }
+        return new Finding(statement.name(), statement.sql(), cost, violations, exempt);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collectSeqScans(Map<String, Object> node, Map<String, Long> tableRows, List<String> violations) {
+        if ("Seq Scan".equals(node.get("Node Type")) && node.get("Relation Name") instanceof String table) {
+            long rows = tableRows.getOrDefault(table, 0L);
+            if (rows >= seqScanRows) {
+                violations.add("sequential scan on " + table + " (" + rows + " rows)");
+            }
+        }
+        if (node.get("Plans") instanceof List<?> children) {
+            for (Object child : children) {
+                collectSeqScans((Map<String, Object>) child, tableRows, violations);
+            }
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        String flat = sql.replaceAll("\\s+", " ");
+        return flat.length() > 90 ? flat.substring(0, 87) + "..." : flat;
+    }
+}
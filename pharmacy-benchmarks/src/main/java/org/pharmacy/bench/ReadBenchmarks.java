@@ -0,0 +1,79 @@
+package org.pharmacy.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pharmacy.model.Medicine;
+import org.pharmacy.model.OrderSummary;
+import org.pharmacy.repository.JdbcMedicineRepository;
+import org.pharmacy.repository.JdbcOrderRepository;
+import org.pharmacy.repository.MedicineRepository;
+import org.pharmacy.repository.OrderRepository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of the repositories: the full order listing, a single client's order history
+ * and the medicine catalog.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmarks {
+
+    @State(Scope.Thread)
+    public static class Repositories {
+        OrderRepository orderRepo;
+        MedicineRepository medicineRepo;
+        SplittableRandom random;
+        long[] clientsWithOrders;
+
+        @Setup(Level.Trial)
+        public void create(DatabaseState db) throws SQLException {
+            orderRepo = new JdbcOrderRepository(db.conn);
+            medicineRepo = new JdbcMedicineRepository(db.conn);
+            random = new SplittableRandom(db.dataset.seed());
+            // getClientOrderSummaries rejects clients without orders, and not every generated client has one
+            List<Long> ids = new ArrayList<>();
+            try (Statement stmt = db.conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT DISTINCT client_id FROM \"order\" ORDER BY client_id")) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+            clientsWithOrders = ids.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    @Benchmark
+    public List<OrderSummary> getAllDetailedOrders(Repositories repos) throws SQLException {
+        return repos.orderRepo.getAllDetailedOrders();
+    }
+
+    @Benchmark
+    public List<OrderSummary> getClientOrderSummaries(Repositories repos) throws SQLException {
+        long clientId = repos.clientsWithOrders[repos.random.nextInt(repos.clientsWithOrders.length)];
+        return repos.orderRepo.getClientOrderSummaries(clientId);
+    }
+
+    @Benchmark
+    public List<Medicine> getAllMedicines(Repositories repos) throws SQLException {
+        return repos.medicineRepo.getAllMedicines();
+    }
+}
@@ -0,0 +1,104 @@
+package org.pharmacy.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.repository.JdbcOrderRepository;
+import org.pharmacy.repository.JdbcSupplierRepository;
+import org.pharmacy.repository.OrderRepository;
+import org.pharmacy.repository.SupplierRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write paths of the repositories: creating an order with a varying number of lines and the
+ * supplier/medicine UPSERT. Orders created during a trial are deleted again at its end, so the
+ * order history stays the same for the next benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmarks {
+
+    @State(Scope.Thread)
+    public static class OrderShape {
+
+        /** Number of order lines per created order. */
+        @Param({"1", "5", "20"})
+        public int lines;
+    }
+
+    @State(Scope.Thread)
+    public static class Repositories {
+        OrderRepository orderRepo;
+        SupplierRepository supplierRepo;
+        SplittableRandom random;
+        long lastSeededOrderId;
+
+        @Setup(Level.Trial)
+        public void create(DatabaseState db) throws SQLException {
+            orderRepo = new JdbcOrderRepository(db.conn);
+            supplierRepo = new JdbcSupplierRepository(db.conn);
+            random = new SplittableRandom(db.dataset.seed());
+            try (Statement stmt = db.conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(max(order_id), 0) FROM \"order\"")) {
+                    rs.next();
+                    lastSeededOrderId = rs.getLong(1);
+                }
+                // Generated stock levels are realistic; top them up so createOrder never runs out mid-trial
+                stmt.executeUpdate("UPDATE medicine SET stock = 1000000000");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void removeCreatedOrders(DatabaseState db) throws SQLException {
+            try (PreparedStatement pstmt = db.conn.prepareStatement("DELETE FROM \"order\" WHERE order_id > ?")) {
+                pstmt.setLong(1, lastSeededOrderId);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    @Benchmark
+    public long createOrder(DatabaseState db, Repositories repos, OrderShape shape) throws SQLException {
+        Dataset dataset = db.dataset;
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        int firstMedicine = repos.random.nextInt(dataset.medicines());
+        for (int line = 0; line < Math.min(shape.lines, dataset.medicines()); line++) {
+            items.put(1L + (firstMedicine + line) % dataset.medicines(), 1 + repos.random.nextInt(5));
+        }
+        long clientId = 1 + repos.random.nextInt(dataset.clients());
+        return repos.orderRepo.createOrder(clientId, items);
+    }
+
+    @Benchmark
+    public void upsertSupplierMedicine(DatabaseState db, Repositories repos) throws SQLException {
+        Dataset dataset = db.dataset;
+        // Mostly updates of existing links, as in a price-list refresh
+        SupplierMedicine link = new SupplierMedicine(
+                1 + repos.random.nextInt(dataset.suppliers()),
+                1 + repos.random.nextInt(dataset.medicines()),
+                0.5 + repos.random.nextInt(5000) / 100.0);
+        repos.supplierRepo.addMedicineToSupplier(link);
+    }
+}
@@ -0,0 +1,59 @@
+package org.pharmacy.bench;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Draws ranks from a Zipf distribution: rank {@code k} (0-based) is chosen with probability
+ * proportional to {@code 1 / (k + 1)^exponent}. With an exponent around 1 a few ranks receive most
+ * of the draws, which is how medicine popularity behaves and what produces hot-row contention.
+ * <p>
+ * The cumulative distribution is precomputed once ({@code 8 * n} bytes), after which each draw is a
+ * binary search. Instances are immutable and can be shared between threads; each thread passes its
+ * own random generator.
+ * </p>
+ */
+public final class ZipfSampler {
+
+    private final double[] cumulative;
+
+    /**
+     * @param n Number of ranks (must be positive).
+     * @param exponent Skew of the distribution (0 is uniform; must not be negative).
+     * @throws IllegalArgumentException If n is not positive or the exponent is negative.
+     */
+    public ZipfSampler(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Number of ranks must be positive.");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Zipf exponent cannot be negative.");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    /**
+     * @return A rank between 0 (most popular) and {@code n - 1}.
+     */
+    public int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // A miss returns (-(insertion point) - 1); the insertion point is the first rank above the draw
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+
+    /**
+     * @return The number of ranks.
+     */
+    public int size() {
+        return cumulative.length;
+    }
+}
@@ -0,0 +1,44 @@
+package org.pharmacy.bench.workload;
+
+/**
+ * The kinds of requests issued by the {@link WorkloadDriver}.
+ */
+public enum Operation {
+
+    /** {@code OrderRepository.createOrder} with 1-5 lines of Zipf-distributed medicines. */
+    CREATE_ORDER("create"),
+
+    /** {@code OrderRepository.getOrdersByClient} for a uniformly chosen client. */
+    CLIENT_LOOKUP("lookup"),
+
+    /** {@code MedicineRepository.updateMedicineStock} (restock) of a Zipf-distributed medicine. */
+    STOCK_UPDATE("stock"),
+
+    /** {@code SupplierRepository.addMedicineToSupplier} (price change) of a Zipf-distributed medicine. */
+    SUPPLIER_PRICE("price");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return The short name used in the {@code --mix} option and in reports.
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * @throws IllegalArgumentException If no operation has the given short name.
+     */
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "'. Expected one of: create, lookup, stock, price.");
+    }
+}
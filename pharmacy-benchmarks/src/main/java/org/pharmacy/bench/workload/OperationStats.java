@@ -0,0 +1,119 @@
+package org.pharmacy.bench.workload;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.metrics.LatencyHistogram;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome counters and latency histogram of one {@link Operation}. Safe for concurrent recording.
+ */
+public class OperationStats {
+
+    /** SQLSTATE of a detected deadlock. */
+    static final String DEADLOCK = "40P01";
+
+    /** SQLSTATE of a serialization failure. */
+    static final String SERIALIZATION_FAILURE = "40001";
+
+    /** SQLSTATE used by the connection pool when no connection became free in time. */
+    static final String POOL_TIMEOUT = "08001";
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder deadlocks = new LongAdder();
+    private final LongAdder serializationFailures = new LongAdder();
+    private final LongAdder poolTimeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Records a successful call and its latency.
+     */
+    void success(long nanos) {
+        latency.record(nanos);
+    }
+
+    /**
+     * Classifies and counts a failed call. Business-rule rejections (insufficient stock, unknown
+     * rows) are counted apart from database failures.
+     */
+    void failure(Exception e) {
+        if (e instanceof DataIntegrityViolationException || e instanceof DataNotFoundException) {
+            rejected.increment();
+            return;
+        }
+        String sqlState = sqlState(e);
+        if (DEADLOCK.equals(sqlState)) {
+            deadlocks.increment();
+        } else if (SERIALIZATION_FAILURE.equals(sqlState)) {
+            serializationFailures.increment();
+        } else if (POOL_TIMEOUT.equals(sqlState)) {
+            poolTimeouts.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    void reset() {
+        latency.reset();
+        rejected.reset();
+        deadlocks.reset();
+        serializationFailures.reset();
+        poolTimeouts.reset();
+        errors.reset();
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    public long successes() {
+        return latency.count();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long deadlocks() {
+        return deadlocks.sum();
+    }
+
+    public long serializationFailures() {
+        return serializationFailures.sum();
+    }
+
+    public long poolTimeouts() {
+        return poolTimeouts.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * @return All calls, whatever their outcome.
+     */
+    public long attempts() {
+        return successes() + rejected() + deadlocks() + serializationFailures() + poolTimeouts() + errors();
+    }
+
+    /**
+     * Finds the SQLSTATE of the first {@link SQLException} in the cause chain (including chained
+     * batch exceptions), or null if there is none.
+     */
+    static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                for (SQLException next = sqlException; next != null; next = next.getNextException()) {
+                    if (next.getSQLState() != null) {
+                        return next.getSQLState();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,112 @@
+package org.pharmacy.bench.workload;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a workload run.
+ *
+ * @param workers Number of concurrent virtual-thread workers.
+ * @param poolSize Number of database connections shared by the workers.
+ * @param warmup Time to run before measuring.
+ * @param duration Measured run time.
+ * @param mix Relative weight of each operation (operations with weight 0 are not issued).
+ * @param zipfExponent Skew of medicine popularity (0 = uniform).
+ * @param seed Seed of the per-worker random generators.
+ * @param jsonReport File to write the report to as JSON, or null for the console only.
+ */
+public record WorkloadConfig(
+        int workers,
+        int poolSize,
+        Duration warmup,
+        Duration duration,
+        Map<Operation, Integer> mix,
+        double zipfExponent,
+        long seed,
+        String jsonReport
+) {
+
+    public static final String USAGE = """
+            Usage: WorkloadDriver [--workers 200] [--pool 32] [--warmup 10] [--duration 60]
+                                  [--mix create=40,lookup=40,stock=10,price=10] [--zipf 1.1]
+                                  [--seed 42] [--json report.json]
+            Durations are in seconds. The database is -Dpharmacy.bench.url (see BenchmarkDatabase).""";
+
+    public WorkloadConfig {
+        if (workers <= 0 || poolSize <= 0) {
+            throw new IllegalArgumentException("Workers and pool size must be positive.");
+        }
+        if (warmup.isNegative() || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive and warmup cannot be negative.");
+        }
+        if (zipfExponent < 0) {
+            throw new IllegalArgumentException("Zipf exponent cannot be negative.");
+        }
+        mix = Collections.unmodifiableMap(new EnumMap<>(mix));
+        if (mix.values().stream().anyMatch(weight -> weight < 0)
+                || mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Mix weights cannot be negative and at least one must be positive.");
+        }
+    }
+
+    /**
+     * Parses command-line options; anything not given keeps the default shown in {@link #USAGE}.
+     *
+     * @throws IllegalArgumentException If an option is unknown or has an invalid value.
+     */
+    public static WorkloadConfig parse(String[] args) {
+        int workers = 200;
+        int poolSize = 32;
+        long warmup = 10;
+        long duration = 60;
+        Map<Operation, Integer> mix = parseMix("create=40,lookup=40,stock=10,price=10");
+        double zipf = 1.1;
+        long seed = 42;
+        String json = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Option " + option + " needs a value.");
+            }
+            String value = args[++i];
+            try {
+                switch (option) {
+                    case "--workers" -> workers = Integer.parseInt(value);
+                    case "--pool" -> poolSize = Integer.parseInt(value);
+                    case "--warmup" -> warmup = Long.parseLong(value);
+                    case "--duration" -> duration = Long.parseLong(value);
+                    case "--mix" -> mix = parseMix(value);
+                    case "--zipf" -> zipf = Double.parseDouble(value);
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--json" -> json = value;
+                    default -> throw new IllegalArgumentException("Unknown option " + option + ".");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Option " + option + " needs a number but was '" + value + "'.");
+            }
+        }
+        return new WorkloadConfig(workers, poolSize, Duration.ofSeconds(warmup), Duration.ofSeconds(duration),
+                mix, zipf, seed, json);
+    }
+
+    /**
+     * Parses a mix such as {@code create=40,lookup=40}. Operations not listed get weight 0.
+     */
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            mix.put(operation, 0);
+        }
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mix entries must look like name=weight but got '" + part + "'.");
+            }
+            mix.put(Operation.fromKey(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,299 @@
+package org.pharmacy.bench.workload;
+
+import org.pharmacy.bench.BenchmarkDatabase;
+import org.pharmacy.bench.ZipfSampler;
+import org.pharmacy.db.ConnectionPool;
+import org.pharmacy.json.JsonWriter;
+import org.pharmacy.metrics.LatencyHistogram;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.repository.JdbcMedicineRepository;
+import org.pharmacy.repository.JdbcOrderRepository;
+import org.pharmacy.repository.JdbcSupplierRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator that simulates pharmacy traffic against the real repositories.
+ * <p>
+ * Many virtual-thread workers share a {@link ConnectionPool} and each repeatedly picks an
+ * {@link Operation} according to the configured mix. Medicines are chosen with a Zipf distribution,
+ * so a handful of popular medicines receive most orders, restocks and price changes and their rows
+ * become contended, as they are in production. After a warm-up the run is measured for a fixed time
+ * and a report with throughput, p50/p99/p99.9 latency and rejection, deadlock, serialization-failure,
+ * pool-timeout and error counts per operation is printed (and optionally written as JSON).
+ * </p>
+ * <p>
+ * Runs against the database named by {@code -Dpharmacy.bench.url}, which must already hold data
+ * (for example the dataset loaded by the JMH benchmarks). Latency includes waiting for a pooled connection.
+ * </p>
+ */
+public class WorkloadDriver {
+
+    private static final int MAX_LINES_PER_ORDER = 5;
+    private static final int POOL_BORROW_TIMEOUT_MILLIS = 5000;
+    private static final int RESTOCK_BASE = 100_000;
+
+    private final WorkloadConfig config;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Operation[] operationByTicket;
+    private long[] clientIds;
+    private long[] supplierIds;
+    private long[] medicineIdsByPopularity;
+    private ZipfSampler medicinePopularity;
+
+    private volatile boolean running = true;
+    private volatile boolean measuring;
+
+    public WorkloadDriver(WorkloadConfig config) {
+        this.config = config;
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+        // One slot per unit of weight: picking an operation is a single array lookup
+        List<Operation> tickets = new ArrayList<>();
+        config.mix().forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                tickets.add(operation);
+            }
+        });
+        operationByTicket = tickets.toArray(new Operation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        WorkloadConfig config;
+        try {
+            config = WorkloadConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(WorkloadConfig.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        PrintStream console = System.out;
+        WorkloadDriver driver = new WorkloadDriver(config);
+        try (Connection conn = BenchmarkDatabase.connect()) {
+            driver.loadIds(conn);
+        }
+        BenchmarkDatabase.silenceStdout();
+        // Rejected orders print to stderr; under load that would be most of the output. They are counted instead.
+        PrintStream errors = System.err;
+        System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        long measuredNanos;
+        try {
+            measuredNanos = driver.run();
+        } finally {
+            System.setErr(errors);
+        }
+        driver.printReport(console, measuredNanos);
+        if (config.jsonReport() != null) {
+            driver.writeJsonReport(Path.of(config.jsonReport()), measuredNanos);
+            console.println("Report written to " + config.jsonReport());
+        }
+    }
+
+    /**
+     * Reads the IDs of existing clients, suppliers and medicines. Medicine popularity ranks are
+     * assigned by a seeded shuffle, so the hottest medicines are not simply the lowest IDs.
+     *
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalStateException If a table the workload needs is empty.
+     */
+    void loadIds(Connection conn) throws SQLException {
+        clientIds = readIds(conn, "SELECT client_id FROM client ORDER BY client_id");
+        supplierIds = readIds(conn, "SELECT supplier_id FROM supplier ORDER BY supplier_id");
+        medicineIdsByPopularity = readIds(conn, "SELECT medicine_id FROM medicine ORDER BY medicine_id");
+        if (clientIds.length == 0 || supplierIds.length == 0 || medicineIdsByPopularity.length == 0) {
+            throw new IllegalStateException("The benchmark database needs clients, suppliers and medicines; load a dataset first.");
+        }
+
+        SplittableRandom random = new SplittableRandom(config.seed());
+        for (int i = medicineIdsByPopularity.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long swap = medicineIdsByPopularity[i];
+            medicineIdsByPopularity[i] = medicineIdsByPopularity[j];
+            medicineIdsByPopularity[j] = swap;
+        }
+        medicinePopularity = new ZipfSampler(medicineIdsByPopularity.length, config.zipfExponent());
+    }
+
+    /**
+     * Runs the warm-up and the measured phase.
+     *
+     * @return The length of the measured phase in nanoseconds.
+     */
+    long run() throws InterruptedException, SQLException {
+        try (ConnectionPool pool = new ConnectionPool(BenchmarkDatabase::connect, config.poolSize(), POOL_BORROW_TIMEOUT_MILLIS);
+             ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            SplittableRandom seeds = new SplittableRandom(config.seed());
+            for (int i = 0; i < config.workers(); i++) {
+                SplittableRandom random = seeds.split();
+                workers.submit(() -> work(pool, random));
+            }
+
+            Thread.sleep(config.warmup().toMillis());
+            stats.values().forEach(OperationStats::reset);
+            measuring = true;
+            long start = System.nanoTime();
+            Thread.sleep(config.duration().toMillis());
+            measuring = false;
+            long measured = System.nanoTime() - start;
+
+            running = false;
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            return measured;
+        }
+    }
+
+    private void work(ConnectionPool pool, SplittableRandom random) {
+        while (running) {
+            Operation operation = operationByTicket[random.nextInt(operationByTicket.length)];
+            long start = System.nanoTime();
+            try {
+                execute(pool, operation, random);
+                if (measuring) {
+                    stats.get(operation).success(System.nanoTime() - start);
+                }
+            } catch (Exception e) {
+                if (measuring) {
+                    stats.get(operation).failure(e);
+                }
+            }
+        }
+    }
+
+    private void execute(ConnectionPool pool, Operation operation, SplittableRandom random) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            switch (operation) {
+                case CREATE_ORDER -> new JdbcOrderRepository(conn).createOrder(randomClient(random), randomOrderLines(random));
+                case CLIENT_LOOKUP -> new JdbcOrderRepository(conn).getOrdersByClient(randomClient(random));
+                case STOCK_UPDATE -> new JdbcMedicineRepository(conn).updateMedicineStock(
+                        randomMedicine(random), RESTOCK_BASE + random.nextInt(RESTOCK_BASE));
+                case SUPPLIER_PRICE -> new JdbcSupplierRepository(conn).addMedicineToSupplier(new SupplierMedicine(
+                        supplierIds[random.nextInt(supplierIds.length)],
+                        randomMedicine(random),
+                        0.5 + random.nextInt(5000) / 100.0));
+            }
+        }
+    }
+
+    private long randomClient(SplittableRandom random) {
+        return clientIds[random.nextInt(clientIds.length)];
+    }
+
+    private long randomMedicine(SplittableRandom random) {
+        return medicineIdsByPopularity[medicinePopularity.sample(random)];
+    }
+
+    /**
+     * 1-5 distinct Zipf-distributed medicines with quantities 1-3.
+     */
+    private Map<Long, Integer> randomOrderLines(SplittableRandom random) {
+        int lines = Math.min(1 + random.nextInt(MAX_LINES_PER_ORDER), medicineIdsByPopularity.length);
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        while (items.size() < lines) {
+            items.putIfAbsent(randomMedicine(random), 1 + random.nextInt(3));
+        }
+        return items;
+    }
+
+    void printReport(PrintStream out, long measuredNanos) {
+        double seconds = measuredNanos / 1e9;
+        out.printf("%nWorkload: %d workers, %d connections, %.0f s measured, Zipf exponent %.2f%n",
+                config.workers(), config.poolSize(), seconds, config.zipfExponent());
+        out.printf("%-8s %10s %10s %10s %10s %10s %10s %9s %9s %9s %9s %9s%n",
+                "op", "ok", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms",
+                "rejected", "deadlock", "serial", "timeout", "error");
+        long totalOk = 0;
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats s = entry.getValue();
+            if (config.mix().get(entry.getKey()) == 0) {
+                continue;
+            }
+            LatencyHistogram latency = s.latency();
+            out.printf("%-8s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %9d %9d %9d %9d %9d%n",
+                    entry.getKey().key(), s.successes(), s.successes() / seconds,
+                    millis(latency.percentile(50)), millis(latency.percentile(99)), millis(latency.percentile(99.9)),
+                    millis(latency.max()), s.rejected(), s.deadlocks(), s.serializationFailures(),
+                    s.poolTimeouts(), s.errors());
+            totalOk += s.successes();
+        }
+        out.printf("Total throughput: %.1f ops/s%n", totalOk / seconds);
+    }
+
+    void writeJsonReport(Path file, long measuredNanos) throws IOException {
+        double seconds = measuredNanos / 1e9;
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject()
+                    .field("workers", config.workers())
+                    .field("poolSize", config.poolSize())
+                    .field("measuredSeconds", seconds)
+                    .field("zipfExponent", config.zipfExponent())
+                    .field("seed", config.seed());
+            json.name("operations").beginObject();
+            for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+                OperationStats s = entry.getValue();
+                LatencyHistogram latency = s.latency();
+                json.name(entry.getKey().key()).beginObject()
+                        .field("weight", config.mix().get(entry.getKey()))
+                        .field("attempts", s.attempts())
+                        .field("ok", s.successes())
+                        .field("opsPerSecond", s.successes() / seconds)
+                        .field("p50Millis", millis(latency.percentile(50)))
+                        .field("p99Millis", millis(latency.percentile(99)))
+                        .field("p999Millis", millis(latency.percentile(99.9)))
+                        .field("maxMillis", millis(latency.max()))
+                        .field("rejected", s.rejected())
+                        .field("deadlocks", s.deadlocks())
+                        .field("deadlockRate", rate(s.deadlocks(), s.attempts()))
+                        .field("serializationFailures", s.serializationFailures())
+                        .field("poolTimeouts", s.poolTimeouts())
+                        .field("errors", s.errors())
+                        .field("errorRate", rate(s.errors() + s.deadlocks() + s.serializationFailures() + s.poolTimeouts(), s.attempts()))
+                        .endObject();
+            }
+            json.endObject().endObject();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static double rate(long part, long total) {
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+    private static long[] readIds(Connection conn, String sql) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
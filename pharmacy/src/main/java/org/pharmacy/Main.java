@@ -1,13 +1,40 @@
 package org.pharmacy;
 
+import org.pharmacy.api.ApiServer;
+import org.pharmacy.archive.OrderArchive;
+import org.pharmacy.archive.OrderArchiver;
+import org.pharmacy.catalog.CatalogCache;
+import org.pharmacy.cli.BatchRunner;
+import org.pharmacy.clients.ClientCsvReader;
+import org.pharmacy.clients.DuplicateClientDetector;
 import org.pharmacy.exceptions.*;
+import org.pharmacy.export.DataExporter;
+import org.pharmacy.export.ExportTable;
+import org.pharmacy.forecast.DemandForecaster;
+import org.pharmacy.journal.OrderJournal;
+import org.pharmacy.db.ConnectionPool;
 import org.pharmacy.db.DBConnector;
+import org.pharmacy.db.ReplicaRouter;
+import org.pharmacy.drafts.OrderDrafts;
 import org.pharmacy.model.*;
 import org.pharmacy.repository.*;
-
+import org.pharmacy.pricing.PriceSchedule;
+import org.pharmacy.retention.OrderPurge;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
@@ -20,21 +47,83 @@ import java.util.Scanner;
 public class Main {
     private static final Scanner SCANNER = new Scanner(System.in);
 
+    /**
+     * The work of a command line mode, given the arguments after its flag.
+     */
+    @FunctionalInterface
+    private interface Command {
+        void run(List<String> args) throws SQLException, IOException;
+    }
+
+    /**
+     * The work of a command line mode that runs on a single connection, opened and closed around it.
+     */
+    @FunctionalInterface
+    private interface ConnectionCommand {
+        void run(Connection conn, List<String> args) throws SQLException, IOException;
+    }
+
+    /**
+     * A command line mode selected by its flag.
+     *
+     * @param minArgs The fewest arguments it takes after the flag.
+     * @param maxArgs The most arguments it takes after the flag.
+     * @param errorLabel The label of its non-database errors, e.g. {@code EXPORT}.
+     * @param command The work it runs.
+     */
+    private record CommandLineMode(int minArgs, int maxArgs, String errorLabel, Command command) {
+
+        boolean accepts(int argCount) {
+            return argCount >= minArgs && argCount <= maxArgs;
+        }
+    }
+
+    private static final Map<String, CommandLineMode> COMMAND_LINE_MODES = Map.of(
+            "--serve", new CommandLineMode(0, 1, "SERVER",
+                    args -> runServer(args.isEmpty() ? 8080 : Integer.parseInt(args.get(0)))),
+            "--export", new CommandLineMode(1, Integer.MAX_VALUE, "EXPORT", Main::runExport),
+            "--purge-orders", new CommandLineMode(1, Integer.MAX_VALUE, "PURGE", withConnection(Main::runPurge)),
+            "--archive-orders", new CommandLineMode(1, 1, "ARCHIVE",
+                    withConnection((conn, args) -> runArchive(conn, Path.of(args.get(0))))),
+            "--forecast", new CommandLineMode(0, 0, "FORECAST", withConnection((conn, args) -> runForecast(conn))),
+            "--apply-prices", new CommandLineMode(0, 0, "PRICING", withConnection((conn, args) -> runApplyPrices(conn))));
+
     /**
      * Main entry point of the application.
-     * Initializes the database connection and runs the main menu loop.
+     * Initializes the database connection and runs the main menu loop, or, when started with
+     * {@code --batch <file>} ({@code --batch -} reads stdin), executes a command script without prompting.
+     * {@code --serve [port]} starts the HTTP/JSON API instead (default port 8080),
+     * {@code --export <dir> [from] [to] [--gzip]} dumps orders, order items and medicines as CSV files,
+     * {@code --purge-orders <date> [--archive]} deletes (or archives) orders dated before the given day,
+     * {@code --archive-orders <dir>} writes closed months of orders into the columnar archive,
+     * {@code --forecast} updates the demand forecasts and lists the medicines due for reordering, and
+     * {@code --apply-prices} copies scheduled prices that are in effect into the medicine table.
      *
-     * @param args Command line arguments (unused).
+     * @param args Command line arguments: empty for the interactive menu, {@code --batch <file>},
+     * {@code --serve [port]}, {@code --export <dir> [from] [to] [--gzip]},
+     * {@code --purge-orders <date> [--archive]}, {@code --archive-orders <dir>}, {@code --forecast}
+     * or {@code --apply-prices}.
      */
     public static void main(String[] args) {
 
+        CommandLineMode mode = args.length == 0 ? null : COMMAND_LINE_MODES.get(args[0]);
+        if (mode != null && mode.accepts(args.length - 1)) {
+            runCommandLineMode(mode, Arrays.asList(args).subList(1, args.length));
+            return;
+        }
+
         try (Connection conn = DBConnector.getConnection()) {
 
             // Initialize Repositories
-            ClientRepository clientRepo = new ClientRepository(conn);
-            OrderRepository orderRepo = new OrderRepository(conn);
-            MedicineRepository medicineRepo = new MedicineRepository(conn);
-            SupplierRepository supplierRepo = new SupplierRepository(conn);
+            ClientRepository clientRepo = new JdbcClientRepository(conn);
+            OrderRepository orderRepo = new JdbcOrderRepository(conn);
+            MedicineRepository medicineRepo = new JdbcMedicineRepository(conn);
+            SupplierRepository supplierRepo = new JdbcSupplierRepository(conn);
+
+            if (args.length == 2 && "--batch".equals(args[0])) {
+                runBatch(args[1], conn, clientRepo, orderRepo, medicineRepo, supplierRepo);
+                return;
+            }
 
             System.out.println("--- PHARMACY DB MANAGEMENT SYSTEM ---");
             runMenu(clientRepo, orderRepo, medicineRepo, supplierRepo);
@@ -42,6 +131,9 @@ public class Main {
         } catch (SQLException e) {
             System.err.println("\n### DATABASE ERROR OCCURRED: ###");
             System.err.printf("SQL State: %s\nMessage: %s\n", e.getSQLState(), e.getMessage());
+        } catch (IOException e) {
+            System.err.println("\n### INPUT ERROR: ###");
+            System.err.println(e.getMessage());
         } catch (IllegalArgumentException e) {
             System.err.println("\n### APPLICATION ERROR: ###");
             System.err.println(e.getMessage());
@@ -53,6 +145,203 @@ public class Main {
         }
     }
 
+    /**
+     * Runs a command line mode and reports its errors.
+     *
+     * @param mode The mode selected by the first argument.
+     * @param args The arguments after its flag.
+     */
+    private static void runCommandLineMode(CommandLineMode mode, List<String> args) {
+        try {
+            mode.command().run(args);
+        } catch (SQLException e) {
+            System.err.println("\n### DATABASE ERROR OCCURRED: ###");
+            System.err.printf("SQL State: %s\nMessage: %s\n", e.getSQLState(), e.getMessage());
+        } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+            System.err.printf("\n### %s ERROR: ###\n", mode.errorLabel());
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static Command withConnection(ConnectionCommand command) {
+        return args -> {
+            try (Connection conn = DBConnector.getConnection()) {
+                command.run(conn, args);
+            }
+        };
+    }
+
+    /**
+     * Starts the HTTP/JSON API backed by a connection pool. The pool size can be set with the
+     * {@code pharmacy.db.poolSize} system property. With {@code pharmacy.journal.dir} set, new orders
+     * are accepted through an {@link OrderJournal} in that directory. With {@code pharmacy.catalog.snapshot}
+     * set, the medicine catalog is loaded through that snapshot file and served from memory
+     * (see {@link CatalogCache}). With {@code pharmacy.db.replicas} set, reads go to those read
+     * replicas while they keep up (see {@link ReplicaRouter}). With {@code pharmacy.archive.dir} set, the
+     * columnar order archive in that directory is served under {@code /archive}. The server runs until the process is stopped.
+     *
+     * @param port The TCP port to listen on.
+     * @throws IOException Thrown if the port cannot be bound or the journal, snapshot or archive cannot be opened.
+     * @throws SQLException Thrown if the journal or catalog cannot be read from the database.
+     */
+    private static void runServer(int port) throws IOException, SQLException {
+        String catalogSnapshot = System.getProperty("pharmacy.catalog.snapshot");
+        CatalogCache catalog = catalogSnapshot == null ? null : CatalogCache.open(Path.of(catalogSnapshot),
+                DBConnector::getConnection, Long.getLong("pharmacy.catalog.refreshMillis", CatalogCache.DEFAULT_REFRESH_MILLIS),
+                Long.getLong("pharmacy.catalog.pruneMillis", CatalogCache.DEFAULT_PRUNE_MILLIS));
+        String journalDir = System.getProperty("pharmacy.journal.dir");
+        OrderJournal journal = journalDir == null ? null : OrderJournal.open(Path.of(journalDir), DBConnector::getConnection);
+        ConnectionPool pool = new ConnectionPool(Integer.getInteger("pharmacy.db.poolSize", 16), 5_000);
+        ReplicaRouter replicas = ReplicaRouter.configured(pool);
+        String archiveDir = System.getProperty("pharmacy.archive.dir");
+        OrderArchive archive = archiveDir == null ? null : OrderArchive.open(Path.of(archiveDir));
+        ApiServer server = new ApiServer(port, replicas, journal, catalog, archive);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (archive != null) {
+                archive.close();
+            }
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (catalog != null) {
+                try {
+                    catalog.close();
+                } catch (IOException e) {
+                    System.err.println("Could not save the catalog snapshot: " + e.getMessage());
+                }
+            }
+            replicas.close();
+            pool.close();
+        }));
+        server.start();
+    }
+
+    /**
+     * Exports orders, order items and the medicine catalog to CSV files in parallel.
+     *
+     * @param args The export arguments: {@code <dir> [from] [to] [--gzip]}, dates as {@code yyyy-MM-dd}.
+     * @throws SQLException Thrown if a database error occurs.
+     * @throws IOException Thrown if a file cannot be written.
+     */
+    private static void runExport(List<String> args) throws SQLException, IOException {
+        List<String> positional = new ArrayList<>(args);
+        boolean gzip = positional.remove("--gzip");
+        Path directory = Path.of(positional.get(0));
+        LocalDate from = positional.size() > 1 ? LocalDate.parse(positional.get(1)) : null;
+        LocalDate to = positional.size() > 2 ? LocalDate.parse(positional.get(2)) : null;
+
+        long started = System.nanoTime();
+        DataExporter exporter = new DataExporter(DBConnector::getConnection);
+        Map<ExportTable, Long> rows = exporter.exportAll(List.of(ExportTable.values()), from, to, directory, gzip);
+
+        rows.forEach((table, count) -> System.out.printf("%-12s %,d rows\n", table.fileName(), count));
+        System.out.printf("Export to %s finished in %.2f s.\n", directory, (System.nanoTime() - started) / 1_000_000_000.0);
+    }
+
+    /**
+     * Deletes orders dated before a day, and their items, in batches (see {@link OrderPurge}).
+     * The batch size, the pause between batches and the replication lag limit are read from
+     * {@code pharmacy.purge.batchSize}, {@code pharmacy.purge.pauseMillis} and {@code pharmacy.purge.maxLagBytes}.
+     *
+     * @param conn The connection the purge runs on.
+     * @param args The cutoff day ({@code yyyy-MM-dd}, exclusive) and optionally {@code --archive}
+     * to copy the rows to the archive tables first.
+     * @throws SQLException Thrown if a database error stops the purge; committed batches stay purged.
+     */
+    private static void runPurge(Connection conn, List<String> args) throws SQLException {
+        List<String> positional = new ArrayList<>(args);
+        boolean archive = positional.remove("--archive");
+        if (positional.isEmpty()) {
+            throw new IllegalArgumentException("Usage: --purge-orders <yyyy-MM-dd> [--archive]");
+        }
+        LocalDate cutoff = LocalDate.parse(positional.get(0));
+
+        OrderPurge.Result result = OrderPurge.configured(conn, archive).purgeOrdersBefore(cutoff);
+        System.out.printf("Purge finished in %.2f s.\n", result.elapsedNanos() / 1_000_000_000.0);
+    }
+
+    /**
+     * Writes every closed month of orders that is not archived yet into the columnar archive
+     * (see {@link OrderArchiver}).
+     *
+     * @param conn The connection the orders are read from.
+     * @param directory The archive directory.
+     * @throws SQLException Thrown if the orders cannot be read.
+     * @throws IOException Thrown if an archive file cannot be written.
+     */
+    private static void runArchive(Connection conn, Path directory) throws SQLException, IOException {
+        long started = System.nanoTime();
+        List<YearMonth> months = new OrderArchiver(conn, directory).archiveClosedMonths();
+        System.out.printf("Archived %d months to %s in %.2f s.\n",
+                months.size(), directory, (System.nanoTime() - started) / 1_000_000_000.0);
+    }
+
+    /**
+     * Folds the days sold since the last run into the demand forecasts (see {@link DemandForecaster})
+     * and prints the medicines whose stock is at or below their reorder point.
+     *
+     * @param conn The connection the forecasts are computed on.
+     * @throws SQLException Thrown if the forecasts cannot be computed or written.
+     */
+    private static void runForecast(Connection conn) throws SQLException {
+        DemandForecaster forecaster = DemandForecaster.configured(conn);
+        forecaster.updateForecasts();
+        List<MedicineForecast> reorder = forecaster.getForecasts(true);
+        System.out.printf("%d medicines at or below their reorder point.\n", reorder.size());
+        for (MedicineForecast forecast : reorder) {
+            System.out.printf("  [%d] %-30s stock %5d, reorder point %5d, %.2f units/day\n", forecast.medicineId(),
+                    forecast.medicineName(), forecast.stock(), forecast.reorderPoint(), forecast.dailyDemand());
+        }
+    }
+
+    /**
+     * Copies the scheduled prices that have been in effect long enough into the medicine table
+     * (see {@link PriceSchedule}) and prints how many medicines were repriced.
+     *
+     * @param conn The connection the prices are applied on.
+     * @throws SQLException Thrown if the prices cannot be applied.
+     */
+    private static void runApplyPrices(Connection conn) throws SQLException {
+        long started = System.nanoTime();
+        int repriced = PriceSchedule.configured(conn).applyDuePrices();
+        System.out.printf("Applied scheduled prices to %d medicines in %.2f s.\n",
+                repriced, (System.nanoTime() - started) / 1_000_000_000.0);
+    }
+
+    /**
+     * Executes a batch command script (see {@link BatchRunner} for the command syntax).
+     *
+     * @param source The path of the script, or {@code -} to read from standard input.
+     * @param conn The connection shared by the repositories.
+     * @param clientRepo The repository for client operations.
+     * @param orderRepo The repository for order operations.
+     * @param medicineRepo The repository for medicine operations.
+     * @param supplierRepo The repository for supplier operations.
+     * @throws IOException Thrown if the script cannot be read.
+     * @throws SQLException Thrown if a database error aborts the batch.
+     */
+    private static void runBatch(
+            String source,
+            Connection conn,
+            ClientRepository clientRepo,
+            OrderRepository orderRepo,
+            MedicineRepository medicineRepo,
+            SupplierRepository supplierRepo) throws IOException, SQLException {
+        BatchRunner runner = new BatchRunner(conn, clientRepo, orderRepo, medicineRepo, supplierRepo,
+                System.out, BatchRunner.DEFAULT_BATCH_SIZE);
+
+        try (Reader input = "-".equals(source)
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            runner.run(input);
+        }
+    }
+
     /**
      * Runs the main interactive menu loop, directing control to specific interactive methods
      * based on user input.
@@ -108,6 +397,10 @@ public class Main {
                     case 16: getMedicineBySupplierInteractive(supplierRepo); break;
                     case 17: readAllSuppliersInteractive(supplierRepo); break;
 
+                    // BULK CLIENT OPERATIONS (18-19)
+                    case 18: importClientsInteractive(clientRepo); break;
+                    case 19: findDuplicateClientsInteractive(clientRepo); break;
+
                     case 20: // Exit
                         running = false;
                         System.out.println("Exiting application. Goodbye.");
@@ -157,6 +450,11 @@ public class Main {
         System.out.println("16. View Medicines by Supplier ID");
         System.out.println("17. View All Suppliers");
 
+        System.out.println("-------------------------------------------");
+        System.out.println("--- BULK CLIENT OPERATIONS ---");
+        System.out.println("18. Import Clients from CSV");
+        System.out.println("19. Find Duplicate Clients");
+
         System.out.println("-------------------------------------------");
         System.out.println("20. Exit");
         System.out.println("-------------------------------------------");
@@ -391,6 +689,7 @@ public class Main {
      *
      * @param clientRepo The repository for client operations.
      * @throws SQLException Thrown if a database access error occurs.
+     * @throws DataNotFoundException Thrown if the client ID is not found.
      */
     private static void updateClientAddressInteractive(ClientRepository clientRepo) throws SQLException {
         System.out.print("Enter Client ID to update: ");
@@ -425,6 +724,45 @@ public class Main {
         clientRepo.deleteClient(clientId);
     }
 
+    /**
+     * Interactively prompts the user for a CSV file path and bulk-imports the clients it contains.
+     * The file must have the columns first_name, last_name, country, city, street, postal_code.
+     *
+     * @param clientRepo The repository for client operations.
+     * @throws SQLException Thrown if a database access error occurs or a row is rejected.
+     */
+    private static void importClientsInteractive(ClientRepository clientRepo) throws SQLException {
+        System.out.print("Enter path of the client CSV file: ");
+        String path = SCANNER.nextLine().trim();
+
+        try (ClientCsvReader reader = new ClientCsvReader(Path.of(path))) {
+            long imported = clientRepo.importClients(reader);
+            System.out.printf("SUCCESS: %d clients imported.\n", imported);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Could not read file '" + path + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs duplicate detection over all clients and prints every merge candidate found.
+     *
+     * @param clientRepo The repository for client operations.
+     * @throws SQLException Thrown if a database access error occurs.
+     */
+    private static void findDuplicateClientsInteractive(ClientRepository clientRepo) throws SQLException {
+        System.out.printf("%-12s | %-12s | %-6s\n", "Client ID", "Duplicate ID", "Score");
+        System.out.println("--------------------------------------");
+
+        DuplicateClientDetector detector = new DuplicateClientDetector(clientRepo);
+        DuplicateClientDetector.Result result = detector.detect(candidate ->
+                System.out.printf("%-12d | %-12d | %-6.3f\n",
+                        candidate.clientId(), candidate.duplicateId(), candidate.score()));
+
+        System.out.println("--------------------------------------");
+        System.out.printf("Scanned %d clients in %d blocks (%d comparisons). Merge candidates: %d.\n",
+                result.clientsScanned(), result.blocks(), result.comparisons(), result.candidates());
+    }
+
     /**
      * Retrieves and displays a list of all client records currently in the database.
      *
@@ -449,56 +787,64 @@ public class Main {
 
     /**
      * Interactively guides the user through creating a new order.
-     * This operation is handled as a database transaction (all-or-nothing).
+     * Each item is checked and its stock held as soon as it is entered (see {@link OrderDrafts}), so
+     * an unknown medicine or insufficient stock is reported for that item right away. The order itself
+     * is then created as one database transaction (all-or-nothing).
      *
      * @param orderRepo The repository for order operations.
      * @param clientRepo The repository for client operations (for display).
-     * @param medicineRepo The repository for medicine operations (for display).
+     * @param medicineRepo The repository for medicine operations (for display and stock checks).
      * @throws SQLException Thrown if a database access error occurs.
      * @throws DataIntegrityViolationException Thrown if the transaction fails (e.g., insufficient stock).
      */
     private static void createOrderInteractive(OrderRepository orderRepo, ClientRepository clientRepo, MedicineRepository medicineRepo) throws SQLException {
-        // ... (metodo turinys - iškviečia orderRepo.createOrder) ...
         readAllClientsInteractive(clientRepo);
         System.out.print("Enter Client ID for the order: ");
         long clientId = SCANNER.nextLong();
 
-        Map<Long, Integer> items = new HashMap<>();
-        boolean addingItems = true;
+        try (OrderDrafts drafts = new OrderDrafts(medicineRepo, OrderDrafts.DEFAULT_HOLD_MILLIS, OrderDrafts.DEFAULT_IDLE_MILLIS)) {
+            long draftId = drafts.create(clientId);
+            boolean addingItems = true;
+
+            readAllMedicinesInteractive(medicineRepo);
+            while (addingItems) {
+                System.out.print("Enter Medicine ID (or 0 to finish): ");
+                long medicineId = SCANNER.nextLong();
+                if (medicineId == 0) {
+                    addingItems = false;
+                    continue;
+                }
+                System.out.print("Enter Quantity for Medicine " + medicineId + ": ");
+                int quantity = SCANNER.nextInt();
 
-        readAllMedicinesInteractive(medicineRepo);
-        while (addingItems) {
-            System.out.print("Enter Medicine ID (or 0 to finish): ");
-            long medicineId = SCANNER.nextLong();
-            if (medicineId == 0) {
-                addingItems = false;
-                continue;
+                if (quantity <= 0) {
+                    System.out.println("Quantity must be positive. Item skipped.");
+                    continue;
+                }
+                try {
+                    drafts.setLine(draftId, medicineId, quantity);
+                    System.out.printf("Item added: %d x Medicine %d (stock held).\n", quantity, medicineId);
+                } catch (DataNotFoundException | DataIntegrityViolationException e) {
+                    System.out.println("Item skipped: " + e.getMessage());
+                }
             }
-            System.out.print("Enter Quantity for Medicine " + medicineId + ": ");
-            int quantity = SCANNER.nextInt();
+            SCANNER.nextLine();
 
-            if (quantity > 0) {
-                items.put(medicineId, quantity);
-            } else {
-                System.out.println("Quantity must be positive. Item skipped.");
-            }
-        }
-        SCANNER.nextLine();
+            if (!drafts.get(draftId).lines().isEmpty()) {
+                try {
+                    long newOrderId = drafts.checkout(draftId, orderRepo);
+                    System.out.printf("SUCCESS: New Order created with ID %d.\n", newOrderId);
+                } catch (Exception e){
+                    // Šis catch blokas ignoruos klaidas, kurios atskirai apdorojamos runMenu metode,
+                    // bet geresnė praktika būtų perduoti DataIntegrityViolationException aukštyn.
+                    // Atnaujinu jį, kad bent išvestų klaidos pranešimą, jei runMenu negali pilnai apdoroti.
+                    System.err.println("\n### ORDER TRANSACTION FAILED ###");
+                    System.err.println("Reason: " + e.getMessage());
+                }
 
-        if (!items.isEmpty()) {
-            try {
-                long newOrderId = orderRepo.createOrder(clientId, items);
-                System.out.printf("SUCCESS: New Order created with ID %d.\n", newOrderId);
-            } catch (Exception e){
-                // Šis catch blokas ignoruos klaidas, kurios atskirai apdorojamos runMenu metode,
-                // bet geresnė praktika būtų perduoti DataIntegrityViolationException aukštyn.
-                // Atnaujinu jį, kad bent išvestų klaidos pranešimą, jei runMenu negali pilnai apdoroti.
-                System.err.println("\n### ORDER TRANSACTION FAILED ###");
-                System.err.println("Reason: " + e.getMessage());
+            } else {
+                System.out.println("Order cancelled: No items were added.");
             }
-
-        } else {
-            System.out.println("Order cancelled: No items were added.");
         }
     }
 
@@ -596,7 +942,10 @@ public class Main {
         long orderId = SCANNER.nextLong();
         SCANNER.nextLine();
 
-        orderRepo.deleteOrder(orderId);
-        System.out.printf("SUCCESS: Order ID %d deleted.\n", orderId);
+        if (orderRepo.deleteOrder(orderId)) {
+            System.out.printf("SUCCESS: Order ID %d deleted.\n", orderId);
+        } else {
+            System.out.printf("Order with ID %d was not found.\n", orderId);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package org.pharmacy.analytics;
+
+import org.pharmacy.model.ClientRevenue;
+import org.pharmacy.model.DailyRevenue;
+import org.pharmacy.model.MedicineSales;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sales analytics over arbitrary date ranges, answered from the {@code daily_sales_rollup} table.
+ * <p>
+ * The rollup holds one row per (day, medicine) for every day up to
+ * {@code sales_rollup_state.rolled_through}. Days after that (at least the last {@value #LIVE_DAYS} days) are
+ * read live from {@code "order"} and {@code orderitem} and merged into the result in the same
+ * statement, so answers are always current while the expensive part of the range is pre-aggregated.
+ * Every query first calls {@link #rollUpClosedDays()}, which folds newly closed days incrementally
+ * and is a single cheap read when the rollup is already up to date. On a read-only connection (a
+ * streaming replica), or in the API server, the analytics are created without that step and the rollup
+ * is advanced on the primary separately; the range queries stay correct either way, since they split at the
+ * {@code rolled_through} the connection sees. Deleted orders are subtracted
+ * from the rollup by {@link org.pharmacy.repository.JdbcOrderRepository#deleteOrder}.
+ * </p>
+ */
+public class SalesAnalytics {
+
+    /**
+     * Number of most recent days (including today) that are always read live. Keeping yesterday live
+     * as well means an order that commits just after midnight is never missed by the roll-up.
+     */
+    public static final int LIVE_DAYS = 2;
+
+    /**
+     * Sales lines in the range: closed days from the rollup plus recent days computed live.
+     * Parameters: from, to, from, to.
+     */
+    private static final String SALES_CTE = "WITH state AS (SELECT rolled_through FROM sales_rollup_state), " +
+            "sales AS (" +
+            "  SELECT r.sales_date, r.medicine_id, r.units, r.revenue FROM daily_sales_rollup r " +
+            "  WHERE r.sales_date BETWEEN ? AND ? AND r.sales_date <= (SELECT rolled_through FROM state) " +
+            "  UNION ALL " +
+            "  SELECT o.order_date, oi.medicine_id, oi.quantity, oi.quantity * oi.unit_price " +
+            "  FROM \"order\" o JOIN orderitem oi ON oi.order_id = o.order_id " +
+            "  WHERE o.order_date BETWEEN ? AND ? " +
+            "    AND o.order_date > COALESCE((SELECT rolled_through FROM state), '-infinity'::date)" +
+            ") ";
+
+    private final Connection conn;
+    private final boolean rollUpFirst;
+
+    /**
+     * Initializes the analytics with a database connection.
+     * @param conn The active SQL connection object.
+     */
+    public SalesAnalytics(Connection conn) {
+        this(conn, true);
+    }
+
+    /**
+     * Initializes the analytics with a database connection.
+     * @param conn The active SQL connection object.
+     * @param rollUpFirst Whether queries bring the rollup up to date first; false for read-only
+     * connections, or when {@link #rollUpClosedDays()} is run on the primary separately.
+     */
+    public SalesAnalytics(Connection conn, boolean rollUpFirst) {
+        this.conn = conn;
+        this.rollUpFirst = rollUpFirst;
+    }
+
+    /**
+     * Folds every closed day not yet in the rollup (up to today minus {@value #LIVE_DAYS} days)
+     * into {@code daily_sales_rollup} with one set-based INSERT, then advances the state.
+     * Concurrent callers are serialized by a row lock on the state row.
+     *
+     * @return The number of (day, medicine) rows written, or 0 if the rollup was up to date.
+     * @throws SQLException If a database access error occurs.
+     */
+    public int rollUpClosedDays() throws SQLException {
+        final String checkSQL = "SELECT rolled_through < CURRENT_DATE - ? FROM sales_rollup_state";
+        try (PreparedStatement pstmt = conn.prepareStatement(checkSQL)) {
+            pstmt.setInt(1, LIVE_DAYS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("sales_rollup_state is empty; run Lab2/schema.sql to initialize it.");
+                }
+                if (!rs.getBoolean(1)) {
+                    return 0;
+                }
+            }
+        }
+
+        final String lockSQL = "SELECT rolled_through FROM sales_rollup_state FOR UPDATE";
+        final String foldSQL = "INSERT INTO daily_sales_rollup(sales_date, medicine_id, units, revenue, order_lines) " +
+                "SELECT o.order_date, oi.medicine_id, SUM(oi.quantity), SUM(oi.quantity * oi.unit_price), COUNT(*) " +
+                "FROM \"order\" o JOIN orderitem oi ON oi.order_id = o.order_id " +
+                "WHERE o.order_date > (SELECT rolled_through FROM sales_rollup_state) AND o.order_date <= CURRENT_DATE - ? " +
+                "GROUP BY o.order_date, oi.medicine_id " +
+                "ON CONFLICT (sales_date, medicine_id) DO UPDATE SET " +
+                "units = daily_sales_rollup.units + EXCLUDED.units, " +
+                "revenue = daily_sales_rollup.revenue + EXCLUDED.revenue, " +
+                "order_lines = daily_sales_rollup.order_lines + EXCLUDED.order_lines";
+        final String advanceSQL = "UPDATE sales_rollup_state SET rolled_through = CURRENT_DATE - ?";
+
+        boolean ownsTransaction = conn.getAutoCommit();
+        if (ownsTransaction) {
+            conn.setAutoCommit(false);
+        }
+        try {
+            try (PreparedStatement pstmt = conn.prepareStatement(lockSQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+            }
+
+            int rows;
+            try (PreparedStatement pstmt = conn.prepareStatement(foldSQL)) {
+                pstmt.setInt(1, LIVE_DAYS);
+                rows = pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(advanceSQL)) {
+                pstmt.setInt(1, LIVE_DAYS);
+                pstmt.executeUpdate();
+            }
+            if (ownsTransaction) {
+                conn.commit();
+            }
+            System.out.println("Sales rollup updated. Rows written: " + rows);
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            if (ownsTransaction) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownsTransaction) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the revenue and units sold for each day in the range that had sales.
+     *
+     * @param from The first day (inclusive).
+     * @param to The last day (inclusive).
+     * @return One entry per day with sales, in date order.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the range is invalid.
+     */
+    public List<DailyRevenue> dailyRevenue(LocalDate from, LocalDate to) throws SQLException {
+        final String SQLQuery = SALES_CTE +
+                "SELECT sales_date, SUM(units), SUM(revenue) FROM sales GROUP BY sales_date ORDER BY sales_date";
+
+        List<DailyRevenue> days = new ArrayList<>();
+        try (PreparedStatement pstmt = prepareRangeQuery(SQLQuery, from, to);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                days.add(new DailyRevenue(rs.getDate(1).toLocalDate(), rs.getLong(2), rs.getDouble(3)));
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Retrieves units and revenue per medicine over the range, best sellers first.
+     *
+     * @param from The first day (inclusive).
+     * @param to The last day (inclusive).
+     * @return One entry per medicine with sales, ordered by units sold descending.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the range is invalid.
+     */
+    public List<MedicineSales> unitsPerMedicine(LocalDate from, LocalDate to) throws SQLException {
+        return medicineSales(from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves the N best-selling medicines (by units) over the range.
+     *
+     * @param from The first day (inclusive).
+     * @param to The last day (inclusive).
+     * @param limit The maximum number of medicines to return (must be positive).
+     * @return Up to {@code limit} medicines, ordered by units sold descending.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the range is invalid or the limit is not positive.
+     */
+    public List<MedicineSales> topMedicines(LocalDate from, LocalDate to, int limit) throws SQLException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        return medicineSales(from, to, limit);
+    }
+
+    /**
+     * Retrieves the number of orders and total spending per client over the range, highest first.
+     * <p>This is answered from {@code "order"} (using {@code idx_order_date}) rather than the rollup,
+     * which has no client dimension.</p>
+     *
+     * @param from The first day (inclusive).
+     * @param to The last day (inclusive).
+     * @return One entry per client with orders in the range.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the range is invalid.
+     */
+    public List<ClientRevenue> revenuePerClient(LocalDate from, LocalDate to) throws SQLException {
+        validateRange(from, to);
+        final String SQLQuery = "SELECT c.client_id, c.first_name, c.last_name, t.orders, t.revenue " +
+                "FROM (SELECT client_id, COUNT(*) AS orders, SUM(total_price) AS revenue FROM \"order\" " +
+                "      WHERE order_date BETWEEN ? AND ? GROUP BY client_id) t " +
+                "JOIN client c ON c.client_id = t.client_id " +
+                "ORDER BY t.revenue DESC, c.client_id";
+
+        List<ClientRevenue> clients = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setDate(1, Date.valueOf(from));
+            pstmt.setDate(2, Date.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    clients.add(new ClientRevenue(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4), rs.getDouble(5)));
+                }
+            }
+        }
+        return clients;
+    }
+
+    private List<MedicineSales> medicineSales(LocalDate from, LocalDate to, int limit) throws SQLException {
+        final String SQLQuery = SALES_CTE +
+                "SELECT s.medicine_id, m.name, SUM(s.units) AS units, SUM(s.revenue) AS revenue " +
+                "FROM sales s LEFT JOIN medicine m ON m.medicine_id = s.medicine_id " +
+                "GROUP BY s.medicine_id, m.name ORDER BY units DESC, s.medicine_id LIMIT ?";
+
+        List<MedicineSales> medicines = new ArrayList<>();
+        try (PreparedStatement pstmt = prepareRangeQuery(SQLQuery, from, to)) {
+            pstmt.setInt(5, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    medicines.add(new MedicineSales(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getDouble(4)));
+                }
+            }
+        }
+        return medicines;
+    }
+
+    /**
+     * Brings the rollup up to date (unless disabled) and prepares a query built on {@link #SALES_CTE}.
+     */
+    private PreparedStatement prepareRangeQuery(String sql, LocalDate from, LocalDate to) throws SQLException {
+        validateRange(from, to);
+        if (rollUpFirst) {
+            rollUpClosedDays();
+        }
+
+        PreparedStatement pstmt = conn.prepareStatement(sql);
+        pstmt.setDate(1, Date.valueOf(from));
+        pstmt.setDate(2, Date.valueOf(to));
+        pstmt.setDate(3, Date.valueOf(from));
+        pstmt.setDate(4, Date.valueOf(to));
+        return pstmt;
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Both range dates are required.");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Range start cannot be after its end.");
+        }
+    }
+}
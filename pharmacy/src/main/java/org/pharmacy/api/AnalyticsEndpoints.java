@@ -0,0 +1,61 @@
+package org.pharmacy.api;
+
+import org.pharmacy.analytics.SalesAnalytics;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * HTTP endpoints for {@link SalesAnalytics}. Every endpoint takes an optional {@code from}/{@code to}
+ * range ({@code yyyy-MM-dd}, inclusive); it defaults to the last {@value #DEFAULT_RANGE_DAYS} days.
+ */
+final class AnalyticsEndpoints {
+
+    private static final int DEFAULT_RANGE_DAYS = 30;
+    private static final int DEFAULT_TOP_LIMIT = 10;
+
+    @FunctionalInterface
+    private interface Query<T> {
+        List<T> run(SalesAnalytics analytics, LocalDate from, LocalDate to) throws Exception;
+    }
+
+    private final Repositories repositories;
+
+    AnalyticsEndpoints(Repositories repositories) {
+        this.repositories = repositories;
+    }
+
+    void register(Router router) {
+        router.add("GET", "/analytics/daily-revenue",
+                        exchange -> respond(exchange, SalesAnalytics::dailyRevenue, ModelJson::write))
+                .add("GET", "/analytics/medicines",
+                        exchange -> respond(exchange, SalesAnalytics::unitsPerMedicine, ModelJson::write))
+                .add("GET", "/analytics/top-medicines", this::topMedicines)
+                .add("GET", "/analytics/clients",
+                        exchange -> respond(exchange, SalesAnalytics::revenuePerClient, ModelJson::write));
+    }
+
+    private void topMedicines(ApiExchange exchange) throws Exception {
+        int limit = exchange.queryInt("limit", DEFAULT_TOP_LIMIT);
+        respond(exchange, (analytics, from, to) -> analytics.topMedicines(from, to, limit), ModelJson::write);
+    }
+
+    private <T> void respond(ApiExchange exchange, Query<T> query, ApiExchange.RowWriter<T> writer) throws Exception {
+        LocalDate to = exchange.queryDate("to", LocalDate.now());
+        LocalDate from = exchange.queryDate("from", to.minusDays(DEFAULT_RANGE_DAYS - 1));
+
+        // The rollup is advanced by the server's daily task, so the request only reads and can go to a replica
+        List<T> rows;
+        try (Connection conn = repositories.readConnection(exchange)) {
+            rows = query.run(new SalesAnalytics(conn, false), from, to);
+        }
+        exchange.respond(200, json -> {
+            json.beginArray();
+            for (T row : rows) {
+                writer.write(json, row);
+            }
+            json.endArray();
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package org.pharmacy.api;
+
+/**
+ * Signals a request error that maps directly to an HTTP status code (e.g. 404 for an unknown route).
+ */
+public class ApiException extends RuntimeException {
+    private final int status;
+
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * @return The HTTP status code to respond with.
+     */
+    public int status() {
+        return status;
+    }
+}
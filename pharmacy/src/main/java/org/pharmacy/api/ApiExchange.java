@@ -0,0 +1,306 @@
+package org.pharmacy.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.pharmacy.db.RoutingSession;
+import org.pharmacy.json.JsonParser;
+import org.pharmacy.json.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * One HTTP request/response pair, with helpers for path parameters and JSON bodies.
+ */
+public class ApiExchange {
+
+    /**
+     * Writes a JSON document to the response.
+     */
+    @FunctionalInterface
+    public interface JsonBody {
+        void write(JsonWriter json) throws IOException, SQLException;
+    }
+
+    /**
+     * Writes one row of a streamed list.
+     */
+    @FunctionalInterface
+    public interface RowWriter<T> {
+        void write(JsonWriter json, T row) throws IOException;
+    }
+
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    /** Request header with the WAL position the request's reads must see (from an earlier {@link #WRITE_LSN_HEADER}). */
+    static final String READ_AFTER_LSN_HEADER = "X-Read-After-LSN";
+
+    /** Response header with the WAL position after the request's writes (only when read replicas are in use). */
+    static final String WRITE_LSN_HEADER = "X-Write-LSN";
+
+    private final HttpExchange exchange;
+    private final Map<String, String> pathParams;
+    private Map<String, String> queryParams;
+    private RoutingSession session;
+    private int status;
+
+    ApiExchange(HttpExchange exchange, Map<String, String> pathParams) {
+        this.exchange = exchange;
+        this.pathParams = pathParams;
+    }
+
+    /**
+     * Returns a numeric path parameter, such as {@code id} in {@code /clients/{id}}.
+     *
+     * @throws ApiException (400) If the parameter is not a valid number.
+     */
+    public long pathLong(String name) {
+        String value = pathParams.get(name);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Path parameter '" + name + "' must be a number but was '" + value + "'.");
+        }
+    }
+
+    /**
+     * Returns a query parameter as a date ({@code yyyy-MM-dd}), or the default if it is absent.
+     *
+     * @throws ApiException (400) If the parameter is not a valid date.
+     */
+    public LocalDate queryDate(String name, LocalDate defaultValue) {
+        String value = queryParams().get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Query parameter '" + name + "' must be a date (yyyy-MM-dd) but was '" + value + "'.");
+        }
+    }
+
+    /**
+     * Returns a numeric query parameter, or the default if it is absent.
+     *
+     * @throws ApiException (400) If the parameter is not a valid number.
+     */
+    public int queryInt(String name, int defaultValue) {
+        String value = queryParams().get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Query parameter '" + name + "' must be a number but was '" + value + "'.");
+        }
+    }
+
+    /**
+     * Returns a numeric query parameter as a long, or the default if it is absent.
+     *
+     * @throws ApiException (400) If the parameter is not a valid number.
+     */
+    public long queryLong(String name, long defaultValue) {
+        String value = queryParams().get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Query parameter '" + name + "' must be a number but was '" + value + "'.");
+        }
+    }
+
+    private Map<String, String> queryParams() {
+        if (queryParams == null) {
+            queryParams = new HashMap<>();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    int eq = pair.indexOf('=');
+                    String key = eq < 0 ? pair : pair.substring(0, eq);
+                    String value = eq < 0 ? "" : pair.substring(eq + 1);
+                    queryParams.putIfAbsent(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                            URLDecoder.decode(value, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return queryParams;
+    }
+
+    /**
+     * Returns the replica routing session of this request. It starts at the WAL position of the
+     * {@value #READ_AFTER_LSN_HEADER} header, so a client that passes back the {@value #WRITE_LSN_HEADER}
+     * of its last write reads that write even from a replica.
+     *
+     * @throws ApiException (400) If the header is not a valid WAL position.
+     */
+    public RoutingSession session() {
+        if (session == null) {
+            String readAfter = exchange.getRequestHeaders().getFirst(READ_AFTER_LSN_HEADER);
+            try {
+                session = readAfter == null ? new RoutingSession() : new RoutingSession(RoutingSession.parseLsn(readAfter.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "Header " + READ_AFTER_LSN_HEADER + ": " + e.getMessage());
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Reads and parses the request body as a JSON object.
+     *
+     * @throws ApiException (400) If the body is not a valid JSON object.
+     */
+    public Map<String, Object> jsonBody() throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return JsonParser.parseObject(body);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, e.getMessage());
+        }
+    }
+
+    /**
+     * Sends a complete JSON response with a known length.
+     *
+     * @param status The HTTP status code.
+     * @param body Writes the response document.
+     */
+    public void respond(int status, JsonBody body) throws IOException, SQLException {
+        StringWriter buffer = new StringWriter();
+        body.write(new JsonWriter(buffer));
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+
+        setHeaders();
+        exchange.sendResponseHeaders(status, bytes.length);
+        this.status = status;
+        exchange.getResponseBody().write(bytes);
+        exchange.getResponseBody().close();
+    }
+
+    /**
+     * Sends a JSON response using chunked transfer encoding, writing it while it is produced.
+     * Used for list endpoints so that rows go to the client as they are read from the database.
+     * {@link UncheckedIOException}s thrown by the body (e.g. from inside a row callback) are unwrapped.
+     *
+     * @param status The HTTP status code.
+     * @param body Writes the response document.
+     */
+    public void stream(int status, JsonBody body) throws IOException, SQLException {
+        setHeaders();
+        exchange.sendResponseHeaders(status, 0);
+        this.status = status;
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), STREAM_BUFFER_SIZE)) {
+            body.write(new JsonWriter(out));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Sends a small {@code {"status": ...}} response.
+     */
+    public void respondStatus(int status, String message) throws IOException, SQLException {
+        respond(status, json -> json.beginObject().field("status", message).endObject());
+    }
+
+    /**
+     * Sends an error response {@code {"error": ...}}, unless the response has already started.
+     */
+    void respondError(int status, String message) throws IOException, SQLException {
+        if (responseStarted()) {
+            return;
+        }
+        respond(status, json -> json.beginObject().field("error", message == null ? "" : message).endObject());
+    }
+
+    private void setHeaders() {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (session != null && session.wrote()) {
+            exchange.getResponseHeaders().set(WRITE_LSN_HEADER, RoutingSession.formatLsn(session.readAfterLsn()));
+        }
+    }
+
+    /**
+     * Adapts a row writer to a repository row callback. I/O errors are rethrown as
+     * {@link UncheckedIOException} and unwrapped again by {@link #stream(int, JsonBody)}.
+     */
+    static <T> Consumer<T> rows(JsonWriter json, RowWriter<T> writer) {
+        return row -> {
+            try {
+                writer.write(json, row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * @return The status code sent so far, or 0 if no response has started.
+     */
+    int status() {
+        return status;
+    }
+
+    boolean responseStarted() {
+        return status != 0;
+    }
+
+    // --- JSON body field helpers ---
+
+    static String requireString(Map<String, Object> body, String name) {
+        if (!(body.get(name) instanceof String value)) {
+            throw new ApiException(400, "Field '" + name + "' is required and must be a string.");
+        }
+        return value;
+    }
+
+    static BigDecimal requireNumber(Map<String, Object> body, String name) {
+        if (!(body.get(name) instanceof BigDecimal value)) {
+            throw new ApiException(400, "Field '" + name + "' is required and must be a number.");
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> requireObject(Map<String, Object> body, String name) {
+        if (!(body.get(name) instanceof Map)) {
+            throw new ApiException(400, "Field '" + name + "' is required and must be an object.");
+        }
+        return (Map<String, Object>) body.get(name);
+    }
+
+    static long requireLong(Map<String, Object> body, String name) {
+        try {
+            return requireNumber(body, name).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ApiException(400, "Field '" + name + "' must be an integer.");
+        }
+    }
+
+    static int requireInt(Map<String, Object> body, String name) {
+        try {
+            return requireNumber(body, name).intValueExact();
+        } catch (ArithmeticException e) {
+            throw new ApiException(400, "Field '" + name + "' must be an integer.");
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.pharmacy.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.pharmacy.analytics.SalesAnalytics;
+import org.pharmacy.archive.OrderArchive;
+import org.pharmacy.catalog.CatalogCache;
+import org.pharmacy.db.ConnectionPool;
+import org.pharmacy.db.ReplicaRouter;
+import org.pharmacy.db.RoutingSession;
+import org.pharmacy.drafts.OrderDrafts;
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.journal.OrderJournal;
+import org.pharmacy.metrics.QueryInstrumentation;
+import org.pharmacy.metrics.QueryMetrics;
+import org.pharmacy.repository.JdbcMedicineRepository;
+import org.pharmacy.repository.MedicineRepository;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded HTTP/JSON API over the four repositories.
+ * <p>
+ * Built on the JDK's {@code com.sun.net.httpserver}; every request runs on its own virtual thread,
+ * so blocking JDBC calls do not tie up platform threads and many terminals can be served at once.
+ * Each repository call borrows a connection from the {@link ConnectionPool} for its duration; with
+ * read replicas, reads are routed by a {@link ReplicaRouter} and a client keeps reading its own
+ * writes by passing the {@code X-Write-LSN} response header of a write back as the
+ * {@code X-Read-After-LSN} request header. List endpoints stream their rows as chunked JSON straight from a database cursor.
+ * Latency per route (and per repository query, when query metrics are enabled) is available at
+ * {@code GET /metrics}.
+ * </p>
+ * <p>
+ * The sales rollup behind {@code /analytics} is advanced on the primary when the server starts and
+ * again shortly after every midnight, so analytics requests only read and can all go to replicas.
+ * </p>
+ * Error mapping: validation errors give 400, {@link DataNotFoundException} 404,
+ * {@link DataIntegrityViolationException} 409, database errors 500 (503 if no connection was free).
+ */
+public class ApiServer implements AutoCloseable {
+
+    /** How long after midnight the daily rollup runs, so the day that just closed is complete. */
+    private static final long ROLLUP_DELAY_MILLIS = 5 * 60_000;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ConnectionPool pool;
+    private final ReplicaRouter replicas;
+    private final OrderDrafts drafts;
+    private final ScheduledExecutorService rollups;
+    private final Router router = new Router();
+    private final RequestMetrics metrics = new RequestMetrics();
+
+    /**
+     * Creates the server (not yet started).
+     *
+     * @param port The TCP port to listen on (0 picks a free port).
+     * @param pool The connection pool used by all requests.
+     * @throws IOException If the port cannot be bound.
+     */
+    public ApiServer(int port, ConnectionPool pool) throws IOException {
+        this(port, new ReplicaRouter(pool, List.of(), ReplicaRouter.DEFAULT_MAX_LAG_MILLIS), null, null);
+    }
+
+    /**
+     * Creates the server (not yet started).
+     *
+     * @param port The TCP port to listen on (0 picks a free port).
+     * @param replicas Routes repository calls to the primary's connection pool or a read replica.
+     * @param journal The journal that accepts new orders (see {@link OrderJournal}), or null.
+     * @param catalog The in-memory catalog served under {@code /catalog}, or null.
+     * @throws IOException If the port cannot be bound.
+     */
+    public ApiServer(int port, ReplicaRouter replicas, OrderJournal journal, CatalogCache catalog) throws IOException {
+        this(port, replicas, journal, catalog, null);
+    }
+
+    /**
+     * Creates the server (not yet started).
+     *
+     * @param port The TCP port to listen on (0 picks a free port).
+     * @param replicas Routes repository calls to the primary's connection pool or a read replica.
+     * @param journal The journal that accepts new orders (see {@link OrderJournal}), or null.
+     * @param catalog The in-memory catalog served under {@code /catalog}, or null.
+     * @param archive The columnar order archive served under {@code /archive}, or null.
+     * @throws IOException If the port cannot be bound.
+     */
+    public ApiServer(int port, ReplicaRouter replicas, OrderJournal journal, CatalogCache catalog,
+                     OrderArchive archive) throws IOException {
+        this.pool = replicas.primary();
+        this.replicas = replicas;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.rollups = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("sales-rollup").factory());
+
+        Repositories repositories = new Repositories(replicas);
+        this.drafts = OrderDrafts.configured(
+                replicas.repository(MedicineRepository.class, JdbcMedicineRepository::new, null));
+        new ClientEndpoints(repositories).register(router);
+        new OrderEndpoints(repositories, journal).register(router);
+        new DraftEndpoints(repositories, drafts).register(router);
+        new MedicineEndpoints(repositories).register(router);
+        new SupplierEndpoints(repositories).register(router);
+        new AnalyticsEndpoints(repositories).register(router);
+        new ForecastEndpoints(repositories).register(router);
+        new PriceEndpoints(repositories).register(router);
+        if (catalog != null) {
+            new CatalogEndpoints(catalog).register(router);
+        }
+        if (archive != null) {
+            new ArchiveEndpoints(archive).register(router);
+        }
+        router.add("GET", "/metrics", this::writeMetrics);
+
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        // A day closes at midnight; the first run catches up on the days closed while the server was down
+        LocalDateTime now = LocalDateTime.now();
+        long untilMidnight = Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay()).toMillis();
+        rollups.execute(this::rollUpQuietly);
+        rollups.scheduleAtFixedRate(this::rollUpQuietly, untilMidnight + ROLLUP_DELAY_MILLIS,
+                TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+        server.start();
+        System.out.printf("Pharmacy API listening on port %d.\n", port());
+    }
+
+    /**
+     * @return The port the server is bound to.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return The registered routes, so callers can add further endpoints before starting.
+     */
+    public Router router() {
+        return router;
+    }
+
+    /**
+     * Stops the server, waiting up to one second for in-flight requests.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+        rollups.shutdownNow();
+        drafts.close();
+    }
+
+    private void rollUpQuietly() {
+        try (Connection conn = pool.getConnection()) {
+            new SalesAnalytics(conn).rollUpClosedDays();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("[ANALYTICS] Sales rollup failed: " + e.getMessage());
+        }
+    }
+
+    private void handle(HttpExchange httpExchange) {
+        long started = System.nanoTime();
+        String path = httpExchange.getRequestURI().getPath();
+        String routeKey = httpExchange.getRequestMethod() + " (unmatched)";
+        ApiExchange exchange = new ApiExchange(httpExchange, Map.of());
+
+        try {
+            Router.Match match = router.match(httpExchange.getRequestMethod(), path);
+            routeKey = match.route().key();
+            exchange = new ApiExchange(httpExchange, match.pathParams());
+            match.route().handler().handle(exchange);
+        } catch (ApiException e) {
+            sendError(exchange, e.status(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (DataNotFoundException e) {
+            sendError(exchange, 404, e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            sendError(exchange, 409, e.getMessage());
+        } catch (SQLException e) {
+            // 08001: no connection could be established, or none became free in the pool in time
+            int status = "08001".equals(e.getSQLState()) ? 503 : 500;
+            sendError(exchange, status, "Database error (SQL state " + e.getSQLState() + "): " + e.getMessage());
+        } catch (Exception e) {
+            sendError(exchange, 500, e.toString());
+        } finally {
+            httpExchange.close();
+            metrics.record(routeKey, System.nanoTime() - started, exchange.status());
+        }
+    }
+
+    private void sendError(ApiExchange exchange, int status, String message) {
+        try {
+            exchange.respondError(status, message);
+        } catch (IOException | SQLException e) {
+            // The client has gone away; the exchange is closed by the caller
+        }
+    }
+
+    private void writeMetrics(ApiExchange exchange) throws IOException, SQLException {
+        exchange.respond(200, json -> {
+            json.beginObject()
+                    .name("pool").beginObject()
+                    .field("active", pool.activeCount())
+                    .field("maxSize", pool.maxSize())
+                    .endObject();
+            if (replicas.hasReplicas()) {
+                json.name("replicas").beginArray();
+                for (ReplicaRouter.ReplicaStatus replica : replicas.status()) {
+                    json.beginObject()
+                            .field("index", replica.index())
+                            .name("usable").value(replica.usable())
+                            .field("replayLsn", RoutingSession.formatLsn(replica.replayLsn()))
+                            .field("lagMillis", replica.lagMillis());
+                    if (replica.problem() != null) {
+                        json.field("problem", replica.problem());
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            json.field("openDrafts", drafts.size());
+            json.name("routes");
+            metrics.write(json);
+            QueryMetrics queryMetrics = QueryInstrumentation.metrics();
+            if (queryMetrics != null) {
+                json.name("queries");
+                queryMetrics.write(json);
+            }
+            json.endObject();
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package org.pharmacy.api;
+
+import org.pharmacy.archive.ArchiveFilter;
+import org.pharmacy.archive.OrderArchive;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * HTTP endpoints answered from the columnar {@link OrderArchive} instead of the database. Every
+ * endpoint takes optional {@code from}/{@code to} dates ({@code yyyy-MM-dd}, inclusive) and
+ * {@code clientId}/{@code medicineId} filters.
+ */
+final class ArchiveEndpoints {
+
+    private final OrderArchive archive;
+
+    ArchiveEndpoints(OrderArchive archive) {
+        this.archive = archive;
+    }
+
+    void register(Router router) {
+        router.add("GET", "/archive", this::status)
+                .add("GET", "/archive/lines", exchange -> respond(exchange, archive.scan(filter(exchange)), ModelJson::write))
+                .add("GET", "/archive/yearly-sales",
+                        exchange -> respond(exchange, archive.yearlySales(filter(exchange)), ModelJson::write));
+    }
+
+    private void status(ApiExchange exchange) throws Exception {
+        exchange.respond(200, json -> {
+            json.beginObject()
+                    .field("lines", archive.rows())
+                    .name("months")
+                    .beginArray();
+            for (YearMonth month : archive.months()) {
+                json.value(month.toString());
+            }
+            json.endArray().endObject();
+        });
+    }
+
+    private static ArchiveFilter filter(ApiExchange exchange) {
+        return ArchiveFilter.between(exchange.queryDate("from", null), exchange.queryDate("to", null))
+                .client(exchange.queryLong("clientId", 0))
+                .medicine(exchange.queryLong("medicineId", 0));
+    }
+
+    private static <T> void respond(ApiExchange exchange, List<T> rows, ApiExchange.RowWriter<T> writer) throws Exception {
+        exchange.respond(200, json -> {
+            json.beginArray();
+            for (T row : rows) {
+                writer.write(json, row);
+            }
+            json.endArray();
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package org.pharmacy.api;
+
+import org.pharmacy.catalog.Catalog;
+import org.pharmacy.catalog.CatalogCache;
+import org.pharmacy.catalog.CatalogMedicine;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.model.SupplierMedicine;
+
+/**
+ * HTTP endpoints answered from the in-memory {@link Catalog} instead of the database.
+ */
+final class CatalogEndpoints {
+
+    private final CatalogCache cache;
+
+    CatalogEndpoints(CatalogCache cache) {
+        this.cache = cache;
+    }
+
+    void register(Router router) {
+        router.add("GET", "/catalog", this::status)
+                .add("GET", "/catalog/medicines/{id}", this::medicine);
+    }
+
+    private void status(ApiExchange exchange) throws Exception {
+        Catalog catalog = cache.current();
+        exchange.respond(200, json -> json.beginObject()
+                .field("maxChangeId", catalog.maxChangeId())
+                .field("medicines", catalog.medicines().size())
+                .field("suppliers", catalog.suppliers().size())
+                .field("offers", catalog.offerCount())
+                .endObject());
+    }
+
+    /**
+     * A medicine with its supplier offers, cheapest first.
+     */
+    private void medicine(ApiExchange exchange) throws Exception {
+        long medicineId = exchange.pathLong("id");
+        Catalog catalog = cache.current();
+        CatalogMedicine medicine = catalog.medicine(medicineId);
+        if (medicine == null) {
+            throw new DataNotFoundException("Medicine with ID " + medicineId + " not found in the catalog.");
+        }
+        exchange.respond(200, json -> {
+            json.beginObject()
+                    .field("id", medicine.id())
+                    .field("name", medicine.name())
+                    .field("unitPrice", medicine.unitPrice())
+                    .name("offers")
+                    .beginArray();
+            for (SupplierMedicine offer : catalog.offers(medicineId)) {
+                json.beginObject()
+                        .field("supplierId", offer.supplierId())
+                        .field("supplierName", catalog.supplier(offer.supplierId()).name())
+                        .field("supplyPrice", offer.supplyPrice())
+                        .endObject();
+            }
+            json.endArray().endObject();
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package org.pharmacy.api;
+
+import org.pharmacy.model.Client;
+import org.pharmacy.model.OrderSummary;
+import org.pharmacy.repository.ClientRepository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP endpoints for {@link ClientRepository}.
+ */
+final class ClientEndpoints {
+
+    private final Repositories repositories;
+
+    ClientEndpoints(Repositories repositories) {
+        this.repositories = repositories;
+    }
+
+    void register(Router router) {
+        router.add("GET", "/clients", this::list)
+                .add("POST", "/clients", this::create)
+                .add("PUT", "/clients/{id}/address", this::updateAddress)
+                .add("DELETE", "/clients/{id}", this::delete)
+                .add("GET", "/clients/{id}/orders", this::orderSummaries);
+    }
+
+    private void list(ApiExchange exchange) throws Exception {
+        ClientRepository clientRepo = repositories.clients(exchange);
+        exchange.stream(200, json -> {
+            json.beginArray();
+            clientRepo.forEachClient(ApiExchange.rows(json, ModelJson::write));
+            json.endArray();
+        });
+    }
+
+    private void create(ApiExchange exchange) throws Exception {
+        Map<String, Object> body = exchange.jsonBody();
+        Client client = new Client(0,
+                ApiExchange.requireString(body, "firstName"),
+                ApiExchange.requireString(body, "lastName"),
+                ModelJson.readAddress(ApiExchange.requireObject(body, "address")));
+
+        long clientId = repositories.clients(exchange).addClient(client);
+        exchange.respond(201, json -> json.beginObject().field("id", clientId).endObject());
+    }
+
+    private void updateAddress(ApiExchange exchange) throws Exception {
+        long clientId = exchange.pathLong("id");
+        var address = ModelJson.readAddress(exchange.jsonBody());
+
+        repositories.clients(exchange).updateClientAddress(clientId, address);
+        exchange.respondStatus(200, "updated");
+    }
+
+    private void delete(ApiExchange exchange) throws Exception {
+        long clientId = exchange.pathLong("id");
+        repositories.clients(exchange).deleteClient(clientId);
+        exchange.respondStatus(200, "deleted");
+    }
+
+    private void orderSummaries(ApiExchange exchange) throws Exception {
+        long clientId = exchange.pathLong("id");
+        List<OrderSummary> summaries = repositories.orders(exchange).getClientOrderSummaries(clientId);
+        exchange.respond(200, json -> {
+            json.beginArray();
+            for (OrderSummary summary : summaries) {
+                ModelJson.write(json, summary);
+            }
+            json.endArray();
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package org.pharmacy.api;
+
+import org.pharmacy.drafts.OrderDrafts;
+import org.pharmacy.model.OrderDraft;
+
+/**
+ * HTTP endpoints for {@link OrderDrafts}. Checking out creates the order in the database directly,
+ * also when new orders are otherwise journaled.
+ */
+final class DraftEndpoints {
+
+    private final Repositories repositories;
+    private final OrderDrafts drafts;
+
+    DraftEndpoints(Repositories repositories, OrderDrafts drafts) {
+        this.repositories = repositories;
+        this.drafts = drafts;
+    }
+
+    void register(Router router) {
+        router.add("POST", "/drafts", this::create)
+                .add("GET", "/drafts/{id}", this::get)
+                .add("DELETE", "/drafts/{id}", this::discard)
+                .add("PUT", "/drafts/{id}/items/{medicineId}", this::setLine)
+                .add("DELETE", "/drafts/{id}/items/{medicineId}", this::removeLine)
+                .add("POST", "/drafts/{id}/checkout", this::checkout);
+    }
+
+    /**
+     * Starts a draft from {@code {"clientId": 1}}.
+     */
+    private void create(ApiExchange exchange) throws Exception {
+        long draftId = drafts.create(ApiExchange.requireLong(exchange.jsonBody(), "clientId"));
+        OrderDraft draft = drafts.get(draftId);
+        exchange.respond(201, json -> ModelJson.write(json, draft));
+    }
+
+    private void get(ApiExchange exchange) throws Exception {
+        OrderDraft draft = drafts.get(exchange.pathLong("id"));
+        exchange.respond(200, json -> ModelJson.write(json, draft));
+    }
+
+    private void discard(ApiExchange exchange) throws Exception {
+        drafts.discard(exchange.pathLong("id"));
+        exchange.respondStatus(200, "discarded");
+    }
+
+    /**
+     * Sets a line from {@code {"quantity": 3}} and holds its stock; 409 if the stock is not available.
+     */
+    private void setLine(ApiExchange exchange) throws Exception {
+        int quantity = ApiExchange.requireInt(exchange.jsonBody(), "quantity");
+        OrderDraft draft = drafts.setLine(exchange.pathLong("id"), exchange.pathLong("medicineId"), quantity);
+        exchange.respond(200, json -> ModelJson.write(json, draft));
+    }
+
+    private void removeLine(ApiExchange exchange) throws Exception {
+        OrderDraft draft = drafts.setLine(exchange.pathLong("id"), exchange.pathLong("medicineId"), 0);
+        exchange.respond(200, json -> ModelJson.write(json, draft));
+    }
+
+    private void checkout(ApiExchange exchange) throws Exception {
+        long orderId = drafts.checkout(exchange.pathLong("id"), repositories.orders(exchange));
+        exchange.respond(201, json -> json.beginObject().field("orderId", orderId).endObject());
+    }
+}
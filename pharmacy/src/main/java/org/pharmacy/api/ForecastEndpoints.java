@@ -0,0 +1,38 @@
+package org.pharmacy.api;
+
+import org.pharmacy.forecast.DemandForecaster;
+import org.pharmacy.model.MedicineForecast;
+
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * HTTP endpoints for the demand forecasts computed by {@link DemandForecaster}.
+ */
+final class ForecastEndpoints {
+
+    private final Repositories repositories;
+
+    ForecastEndpoints(Repositories repositories) {
+        this.repositories = repositories;
+    }
+
+    void register(Router router) {
+        router.add("GET", "/forecasts", exchange -> respond(exchange, false))
+                .add("GET", "/forecasts/reorder", exchange -> respond(exchange, true));
+    }
+
+    private void respond(ApiExchange exchange, boolean reorderOnly) throws Exception {
+        List<MedicineForecast> forecasts;
+        try (Connection conn = repositories.readConnection(exchange)) {
+            forecasts = DemandForecaster.configured(conn).getForecasts(reorderOnly);
+        }
+        exchange.respond(200, json -> {
+            json.beginArray();
+            for (MedicineForecast forecast : forecasts) {
+                ModelJson.write(json, forecast);
+            }
+            json.endArray();
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package org.pharmacy.api;
+
+import org.pharmacy.model.Medicine;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.repository.JdbcMedicineRepository;
+import org.pharmacy.repository.JdbcSupplierRepository;
+import org.pharmacy.repository.MedicineRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP endpoints for {@link MedicineRepository}.
+ */
+final class MedicineEndpoints {
+
+    /**
+     * A supplier's price for a medicine that does not exist yet.
+     */
+    private record Offer(long supplierId, double supplyPrice) {}
+
+    private final Repositories repositories;
+
+    MedicineEndpoints(Repositories repositories) {
+        this.repositories = repositories;
+    }
+
+    void register(Router router) {
+        router.add("GET", "/medicines", this::list)
+                .add("POST", "/medicines", this::create)
+                .add("PUT", "/medicines/{id}/stock", this::updateStock)
+                .add("DELETE", "/medicines/{id}", this::delete);
+    }
+
+    private void list(ApiExchange exchange) throws Exception {
+        MedicineRepository medicineRepo = repositories.medicines(exchange);
+        exchange.stream(200, json -> {
+            json.beginArray();
+            medicineRepo.forEachMedicine(ApiExchange.rows(json, ModelJson::write));
+            json.endArray();
+        });
+    }
+
+    /**
+     * Creates a medicine from {@code {"name": ..., "unitPrice": 4.5, "stock": 10}}. An optional
+     * {@code "suppliers": [{"supplierId": 3, "supplyPrice": 2.1}, ...]} links it to its suppliers in
+     * the same transaction, so an unknown supplier leaves no medicine behind.
+     */
+    @SuppressWarnings("unchecked")
+    private void create(ApiExchange exchange) throws Exception {
+        Map<String, Object> body = exchange.jsonBody();
+        Medicine medicine = new Medicine(0,
+                ApiExchange.requireString(body, "name"),
+                ApiExchange.requireNumber(body, "unitPrice").doubleValue(),
+                ApiExchange.requireInt(body, "stock"));
+
+        List<Offer> offers = new ArrayList<>();
+        if (body.get("suppliers") != null) {
+            if (!(body.get("suppliers") instanceof List<?> suppliers)) {
+                throw new ApiException(400, "Field 'suppliers' must be an array.");
+            }
+            for (Object offer : suppliers) {
+                if (!(offer instanceof Map)) {
+                    throw new ApiException(400, "Each supplier must be an object with 'supplierId' and 'supplyPrice'.");
+                }
+                Map<String, Object> fields = (Map<String, Object>) offer;
+                offers.add(new Offer(ApiExchange.requireLong(fields, "supplierId"),
+                        ApiExchange.requireNumber(fields, "supplyPrice").doubleValue()));
+            }
+        }
+
+        long medicineId;
+        if (offers.isEmpty()) {
+            medicineId = repositories.medicines(exchange).addMedicine(medicine);
+        } else {
+            medicineId = repositories.inTransaction(exchange, unit -> {
+                long id = unit.repository(JdbcMedicineRepository::new).addMedicine(medicine);
+                List<SupplierMedicine> links = new ArrayList<>();
+                for (Offer offer : offers) {
+                    links.add(new SupplierMedicine(offer.supplierId(), id, offer.supplyPrice()));
+                }
+                unit.repository(JdbcSupplierRepository::new).addMedicinesToSupplier(links);
+                return id;
+            });
+        }
+        exchange.respond(201, json -> json.beginObject().field("id", medicineId).endObject());
+    }
+
+    private void updateStock(ApiExchange exchange) throws Exception {
+        long medicineId = exchange.pathLong("id");
+        int stock = ApiExchange.requireInt(exchange.jsonBody(), "stock");
+
+        repositories.medicines(exchange).updateMedicineStock(medicineId, stock);
+        exchange.respondStatus(200, "updated");
+    }
+
+    private void delete(ApiExchange exchange) throws Exception {
+        long medicineId = exchange.pathLong("id");
+        repositories.medicines(exchange).deleteMedicine(medicineId);
+        exchange.respondStatus(200, "deleted");
+    }
+}
@@ -0,0 +1,219 @@
+package org.pharmacy.api;
+
+import org.pharmacy.json.JsonWriter;
+import org.pharmacy.model.Address;
+import org.pharmacy.model.ArchivedOrderLine;
+import org.pharmacy.model.Client;
+import org.pharmacy.model.ClientRevenue;
+import org.pharmacy.model.DailyRevenue;
+import org.pharmacy.model.DraftLine;
+import org.pharmacy.model.Medicine;
+import org.pharmacy.model.MedicineForecast;
+import org.pharmacy.model.MedicineSales;
+import org.pharmacy.model.Order;
+import org.pharmacy.model.OrderDraft;
+import org.pharmacy.model.OrderItem;
+import org.pharmacy.model.OrderSummary;
+import org.pharmacy.model.ScheduledPrice;
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.model.YearlySales;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * JSON representations of the model records used by the HTTP API.
+ */
+final class ModelJson {
+
+    private ModelJson() {
+    }
+
+    static void write(JsonWriter json, Address address) throws IOException {
+        json.beginObject()
+                .field("country", address.country())
+                .field("city", address.city())
+                .field("street", address.street())
+                .field("postalCode", address.postalCode())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, Client client) throws IOException {
+        json.beginObject()
+                .field("id", client.id())
+                .field("firstName", client.firstname())
+                .field("lastName", client.lastname())
+                .name("address");
+        write(json, client.address());
+        json.endObject();
+    }
+
+    static void write(JsonWriter json, Supplier supplier) throws IOException {
+        json.beginObject()
+                .field("id", supplier.id())
+                .field("name", supplier.name())
+                .name("address");
+        write(json, supplier.address());
+        json.endObject();
+    }
+
+    static void write(JsonWriter json, Medicine medicine) throws IOException {
+        json.beginObject()
+                .field("id", medicine.id())
+                .field("name", medicine.name())
+                .field("unitPrice", medicine.unitPrice())
+                .field("stock", medicine.stock())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, SupplierMedicine link) throws IOException {
+        json.beginObject()
+                .field("supplierId", link.supplierId())
+                .field("medicineId", link.medicineId())
+                .field("supplyPrice", link.supplyPrice())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, Order order) throws IOException {
+        json.beginObject()
+                .field("orderId", order.orderId())
+                .field("clientId", order.clientId())
+                .field("orderDate", formatDate(order.orderDate()))
+                .field("totalPrice", order.totalPrice())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, OrderItem item) throws IOException {
+        json.beginObject()
+                .field("orderId", item.orderId())
+                .field("medicineId", item.medicineId())
+                .field("quantity", item.quantity())
+                .field("unitPrice", item.priceAtPurchase())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, OrderSummary summary) throws IOException {
+        json.beginObject()
+                .field("orderId", summary.orderId())
+                .field("orderDate", formatDate(summary.orderDate()))
+                .field("clientFirstName", summary.clientFirstName())
+                .field("clientLastName", summary.clientLastName())
+                .field("totalPrice", summary.totalPrice())
+                .field("totalItemsCount", summary.totalItemsCount())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, OrderDraft draft) throws IOException {
+        json.beginObject()
+                .field("draftId", draft.id())
+                .field("clientId", draft.clientId())
+                .name("lines").beginArray();
+        for (DraftLine line : draft.lines()) {
+            json.beginObject()
+                    .field("medicineId", line.medicineId())
+                    .field("quantity", line.quantity())
+                    .name("held").value(line.held())
+                    .field("holdExpiresAt", Instant.ofEpochMilli(line.holdExpiresAtMillis()).toString())
+                    .endObject();
+        }
+        json.endArray().endObject();
+    }
+
+    static void write(JsonWriter json, DailyRevenue day) throws IOException {
+        json.beginObject()
+                .field("date", day.date().toString())
+                .field("units", day.units())
+                .field("revenue", day.revenue())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, MedicineSales sales) throws IOException {
+        json.beginObject()
+                .field("medicineId", sales.medicineId())
+                .field("name", sales.medicineName())
+                .field("units", sales.units())
+                .field("revenue", sales.revenue())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, ClientRevenue client) throws IOException {
+        json.beginObject()
+                .field("clientId", client.clientId())
+                .field("firstName", client.firstName())
+                .field("lastName", client.lastName())
+                .field("orders", client.orders())
+                .field("revenue", client.revenue())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, MedicineForecast forecast) throws IOException {
+        json.beginObject()
+                .field("medicineId", forecast.medicineId())
+                .field("name", forecast.medicineName())
+                .field("stock", forecast.stock())
+                .field("dailyDemand", forecast.dailyDemand())
+                .field("demandStdDev", forecast.demandStdDev())
+                .field("safetyStock", forecast.safetyStock())
+                .field("reorderPoint", forecast.reorderPoint())
+                .field("forecastThrough", forecast.forecastThrough().toString())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, ScheduledPrice price) throws IOException {
+        json.beginObject()
+                .field("medicineId", price.medicineId())
+                .field("name", price.medicineName())
+                .field("currentPrice", price.currentPrice())
+                .field("unitPrice", price.unitPrice())
+                .field("effectiveFrom", price.effectiveFrom().toString())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, ArchivedOrderLine line) throws IOException {
+        json.beginObject()
+                .field("orderId", line.orderId())
+                .field("clientId", line.clientId())
+                .field("orderDate", line.orderDate().toString())
+                .field("medicineId", line.medicineId())
+                .field("quantity", line.quantity())
+                .field("unitPrice", line.unitPrice())
+                .endObject();
+    }
+
+    static void write(JsonWriter json, YearlySales year) throws IOException {
+        json.beginObject()
+                .field("year", year.year())
+                .field("orders", year.orders())
+                .field("units", year.units())
+                .field("revenue", year.revenue())
+                .endObject();
+    }
+
+    /**
+     * Reads an address object: {@code {"country", "city", "street", "postalCode"}}.
+     *
+     * @throws ApiException (400) If a field is missing.
+     * @throws IllegalArgumentException If a field is blank.
+     */
+    static Address readAddress(Map<String, Object> body) {
+        return new Address(
+                ApiExchange.requireString(body, "country"),
+                ApiExchange.requireString(body, "city"),
+                ApiExchange.requireString(body, "street"),
+                ApiExchange.requireString(body, "postalCode"));
+    }
+
+    /**
+     * Formats a date as ISO-8601 ({@code yyyy-MM-dd}).
+     */
+    static String formatDate(Date date) {
+        if (date instanceof java.sql.Date sqlDate) {
+            return sqlDate.toLocalDate().toString();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toString();
+    }
+}
@@ -0,0 +1,125 @@
+package org.pharmacy.api;
+
+import org.pharmacy.journal.OrderJournal;
+import org.pharmacy.model.Order;
+import org.pharmacy.model.OrderItem;
+import org.pharmacy.model.OrderRequest;
+import org.pharmacy.repository.OrderRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP endpoints for {@link OrderRepository}. With an {@link OrderJournal}, new orders are
+ * journaled instead of written to the database directly.
+ */
+final class OrderEndpoints {
+
+    private final Repositories repositories;
+    private final OrderJournal journal;
+
+    /**
+     * @param journal The journal that accepts new orders, or null to create them in the database directly.
+     */
+    OrderEndpoints(Repositories repositories, OrderJournal journal) {
+        this.repositories = repositories;
+        this.journal = journal;
+    }
+
+    void register(Router router) {
+        router.add("GET", "/orders", this::list)
+                .add("POST", "/orders", this::create)
+                .add("GET", "/orders/{id}", this::get)
+                .add("DELETE", "/orders/{id}", this::delete)
+                .add("GET", "/orders/{id}/items", this::items);
+        if (journal != null) {
+            router.add("GET", "/journal", this::journalStatus);
+        }
+    }
+
+    private void list(ApiExchange exchange) throws Exception {
+        OrderRepository orderRepo = repositories.orders(exchange);
+        exchange.stream(200, json -> {
+            json.beginArray();
+            orderRepo.forEachDetailedOrder(ApiExchange.rows(json, ModelJson::write));
+            json.endArray();
+        });
+    }
+
+    /**
+     * Creates an order from {@code {"clientId": 1, "items": [{"medicineId": 2, "quantity": 3}, ...]}}.
+     * When journaling, answers 202 with the journal sequence number once the order is durable; the
+     * order ID is assigned when the order is applied to the database.
+     */
+    private void create(ApiExchange exchange) throws Exception {
+        OrderRequest request = readOrderRequest(exchange.jsonBody());
+        if (journal != null) {
+            long sequence = journal.accept(request);
+            exchange.respond(202, json -> json.beginObject().field("journalSequence", sequence).endObject());
+            return;
+        }
+
+        long orderId = repositories.orders(exchange).createOrder(request.clientId(), request.itemQuantities());
+        exchange.respond(201, json -> json.beginObject().field("orderId", orderId).endObject());
+    }
+
+    private void get(ApiExchange exchange) throws Exception {
+        long orderId = exchange.pathLong("id");
+        Order order = repositories.orders(exchange).getOrderById(orderId);
+        if (order == null) {
+            throw new ApiException(404, "Order with ID " + orderId + " was not found.");
+        }
+        exchange.respond(200, json -> ModelJson.write(json, order));
+    }
+
+    private void delete(ApiExchange exchange) throws Exception {
+        long orderId = exchange.pathLong("id");
+        if (!repositories.orders(exchange).deleteOrder(orderId)) {
+            throw new ApiException(404, "Order with ID " + orderId + " was not found.");
+        }
+        exchange.respondStatus(200, "deleted");
+    }
+
+    private void items(ApiExchange exchange) throws Exception {
+        long orderId = exchange.pathLong("id");
+        List<OrderItem> items = repositories.orders(exchange).getOrderItemsByOrderId(orderId);
+        exchange.respond(200, json -> {
+            json.beginArray();
+            for (OrderItem item : items) {
+                ModelJson.write(json, item);
+            }
+            json.endArray();
+        });
+    }
+
+    private void journalStatus(ApiExchange exchange) throws Exception {
+        long durable = journal.durableSequence();
+        long applied = journal.appliedSequence();
+        exchange.respond(200, json -> json.beginObject()
+                .field("appendedSequence", journal.appendedSequence())
+                .field("durableSequence", durable)
+                .field("appliedSequence", applied)
+                .field("backlog", Math.max(0, durable - applied))
+                .field("rejectedOrders", journal.rejectedOrders())
+                .endObject());
+    }
+
+    @SuppressWarnings("unchecked")
+    static OrderRequest readOrderRequest(Map<String, Object> body) {
+        long clientId = ApiExchange.requireLong(body, "clientId");
+        if (!(body.get("items") instanceof List<?> lines)) {
+            throw new ApiException(400, "Field 'items' is required and must be an array.");
+        }
+
+        Map<Long, Integer> items = new HashMap<>();
+        for (Object line : lines) {
+            if (!(line instanceof Map)) {
+                throw new ApiException(400, "Each item must be an object with 'medicineId' and 'quantity'.");
+            }
+            Map<String, Object> item = (Map<String, Object>) line;
+            items.merge(ApiExchange.requireLong(item, "medicineId"), ApiExchange.requireInt(item, "quantity"), Integer::sum);
+        }
+        return new OrderRequest(clientId, items);
+    }
+}
@@ -0,0 +1,88 @@
+package org.pharmacy.api;
+
+import org.pharmacy.model.ScheduledPrice;
+import org.pharmacy.pricing.PriceSchedule;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP endpoints for bulk repricing through {@link PriceSchedule}.
+ */
+final class PriceEndpoints {
+
+    private final Repositories repositories;
+
+    PriceEndpoints(Repositories repositories) {
+        this.repositories = repositories;
+    }
+
+    void register(Router router) {
+        router.add("POST", "/medicines/reprice", this::reprice)
+                .add("GET", "/medicines/prices", this::scheduled);
+    }
+
+    /**
+     * Schedules new prices from either {@code {"percent": 5, "namePattern": "%ibuprofen%"}} (pattern
+     * optional, whole catalog without it) or {@code {"marginPercent": 30, "supplierId": 3}} (supplier
+     * optional, cheapest offer without it). An optional {@code "effectiveFrom"} (ISO-8601 instant,
+     * e.g. {@code "2026-11-01T00:00:00Z"}) defers the change; it defaults to the earliest allowed moment.
+     */
+    private void reprice(ApiExchange exchange) throws Exception {
+        Map<String, Object> body = exchange.jsonBody();
+        boolean percentRule = body.get("percent") != null;
+        if (percentRule == (body.get("marginPercent") != null)) {
+            throw new ApiException(400, "Exactly one of 'percent' and 'marginPercent' is required.");
+        }
+        Instant effectiveFrom = optionalInstant(body, "effectiveFrom");
+
+        PriceSchedule.Result result;
+        // The schedule commits on its own, right after checking that the change is still ahead
+        try (Connection conn = repositories.primaryConnection()) {
+            if (percentRule) {
+                BigDecimal percent = ApiExchange.requireNumber(body, "percent");
+                String namePattern = body.get("namePattern") == null ? null : ApiExchange.requireString(body, "namePattern");
+                result = PriceSchedule.configured(conn).schedulePercentChange(namePattern, percent, effectiveFrom);
+            } else {
+                BigDecimal margin = ApiExchange.requireNumber(body, "marginPercent");
+                Long supplierId = body.get("supplierId") == null ? null : ApiExchange.requireLong(body, "supplierId");
+                result = PriceSchedule.configured(conn).scheduleCostPlusMargin(supplierId, margin, effectiveFrom);
+            }
+            repositories.recordWrite(conn, exchange);
+        }
+        exchange.respond(201, json -> json.beginObject()
+                .field("medicines", result.medicines())
+                .field("effectiveFrom", result.effectiveFrom().toString())
+                .endObject());
+    }
+
+    private void scheduled(ApiExchange exchange) throws Exception {
+        List<ScheduledPrice> prices;
+        try (Connection conn = repositories.readConnection(exchange)) {
+            prices = PriceSchedule.configured(conn).getScheduledPrices();
+        }
+        exchange.respond(200, json -> {
+            json.beginArray();
+            for (ScheduledPrice price : prices) {
+                ModelJson.write(json, price);
+            }
+            json.endArray();
+        });
+    }
+
+    private static Instant optionalInstant(Map<String, Object> body, String name) {
+        if (body.get(name) == null) {
+            return null;
+        }
+        String value = ApiExchange.requireString(body, name);
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, "Field '" + name + "' must be an ISO-8601 instant but was '" + value + "'.");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.pharmacy.api;
+
+import org.pharmacy.db.ReplicaRouter;
+import org.pharmacy.db.TransactionManager;
+import org.pharmacy.db.UnitOfWork;
+import org.pharmacy.repository.ClientRepository;
+import org.pharmacy.repository.JdbcClientRepository;
+import org.pharmacy.repository.JdbcMedicineRepository;
+import org.pharmacy.repository.JdbcOrderRepository;
+import org.pharmacy.repository.JdbcSupplierRepository;
+import org.pharmacy.repository.MedicineRepository;
+import org.pharmacy.repository.OrderRepository;
+import org.pharmacy.repository.SupplierRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The repositories of one request, routed by {@link ReplicaRouter}: every call borrows its own
+ * connection, reads may go to a replica that has seen the request's {@link ApiExchange#session()}.
+ * Workflows that make several changes run them on the primary in one {@link UnitOfWork} instead.
+ */
+final class Repositories {
+
+    private final ReplicaRouter replicas;
+    private final TransactionManager transactions;
+
+    Repositories(ReplicaRouter replicas) {
+        this.replicas = replicas;
+        this.transactions = new TransactionManager(replicas.primary());
+    }
+
+    ClientRepository clients(ApiExchange exchange) {
+        return replicas.repository(ClientRepository.class, JdbcClientRepository::new, exchange.session());
+    }
+
+    OrderRepository orders(ApiExchange exchange) {
+        return replicas.repository(OrderRepository.class, JdbcOrderRepository::new, exchange.session());
+    }
+
+    MedicineRepository medicines(ApiExchange exchange) {
+        return replicas.repository(MedicineRepository.class, JdbcMedicineRepository::new, exchange.session());
+    }
+
+    SupplierRepository suppliers(ApiExchange exchange) {
+        return replicas.repository(SupplierRepository.class, JdbcSupplierRepository::new, exchange.session());
+    }
+
+    /**
+     * Runs the work in one transaction on the primary and records the commit in the request's session.
+     */
+    <R> R inTransaction(ApiExchange exchange, TransactionManager.Work<R> work) throws SQLException {
+        try (UnitOfWork unit = transactions.begin()) {
+            R result = work.run(unit);
+            unit.commit();
+            replicas.recordWrite(unit.connection(), exchange.session());
+            return result;
+        }
+    }
+
+    /**
+     * Borrows a connection to the primary for a single write outside a unit of work.
+     */
+    Connection primaryConnection() throws SQLException {
+        return replicas.primary().getConnection();
+    }
+
+    /**
+     * Records a write committed on a connection from {@link #primaryConnection()} in the request's session.
+     */
+    void recordWrite(Connection conn, ApiExchange exchange) throws SQLException {
+        replicas.recordWrite(conn, exchange.session());
+    }
+
+    /**
+     * Borrows a connection for queries that only read.
+     */
+    Connection readConnection(ApiExchange exchange) throws SQLException {
+        return replicas.readConnection(exchange.session());
+    }
+}
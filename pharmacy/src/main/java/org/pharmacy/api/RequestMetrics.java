@@ -0,0 +1,64 @@
+package org.pharmacy.api;
+
+import org.pharmacy.json.JsonWriter;
+import org.pharmacy.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route request counters and latency histograms for the HTTP API.
+ */
+public class RequestMetrics {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private record RouteStats(LatencyHistogram latency, LongAdder clientErrors, LongAdder serverErrors) {
+        RouteStats() {
+            this(new LatencyHistogram(), new LongAdder(), new LongAdder());
+        }
+    }
+
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Records one completed request.
+     *
+     * @param route The route key (e.g. {@code GET /clients}).
+     * @param nanos The time from receiving the request until the response was finished.
+     * @param status The HTTP status that was sent.
+     */
+    public void record(String route, long nanos, int status) {
+        RouteStats stats = routes.computeIfAbsent(route, k -> new RouteStats());
+        stats.latency().record(nanos);
+        if (status >= 500) {
+            stats.serverErrors().increment();
+        } else if (status >= 400) {
+            stats.clientErrors().increment();
+        }
+    }
+
+    /**
+     * Writes all route statistics as a JSON object keyed by route, latencies in milliseconds.
+     */
+    public void write(JsonWriter json) throws IOException {
+        json.beginObject();
+        for (Map.Entry<String, RouteStats> entry : new TreeMap<>(routes).entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency();
+            json.name(entry.getKey()).beginObject()
+                    .field("count", latency.count())
+                    .field("clientErrors", entry.getValue().clientErrors().sum())
+                    .field("serverErrors", entry.getValue().serverErrors().sum())
+                    .field("meanMs", latency.mean() / NANOS_PER_MILLI)
+                    .field("p50Ms", latency.percentile(50) / NANOS_PER_MILLI)
+                    .field("p99Ms", latency.percentile(99) / NANOS_PER_MILLI)
+                    .field("p999Ms", latency.percentile(99.9) / NANOS_PER_MILLI)
+                    .field("maxMs", latency.max() / NANOS_PER_MILLI)
+                    .endObject();
+        }
+        json.endObject();
+    }
+}
@@ -0,0 +1,104 @@
+package org.pharmacy.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches a request method and path against registered route templates such as {@code /clients/{id}}.
+ */
+public class Router {
+
+    /**
+     * Handles a matched request.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(ApiExchange exchange) throws Exception;
+    }
+
+    /**
+     * A registered route.
+     *
+     * @param method The HTTP method.
+     * @param template The path template, e.g. {@code /orders/{id}/items}.
+     * @param handler The handler invoked for matching requests.
+     */
+    public record Route(String method, String template, Handler handler) {
+        /**
+         * @return The metric name of this route, e.g. {@code GET /orders/{id}}.
+         */
+        public String key() {
+            return method + " " + template;
+        }
+    }
+
+    /**
+     * The result of a successful match.
+     */
+    public record Match(Route route, Map<String, String> pathParams) {}
+
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * Registers a route.
+     *
+     * @param method The HTTP method (e.g. {@code GET}).
+     * @param template The path template; segments in braces are captured as path parameters.
+     * @param handler The handler to invoke.
+     * @return This router, for chaining.
+     */
+    public Router add(String method, String template, Handler handler) {
+        routes.add(new Route(method, template, handler));
+        return this;
+    }
+
+    /**
+     * Finds the route for a request.
+     *
+     * @param method The request method.
+     * @param path The request path (without query string).
+     * @return The matched route and its path parameters.
+     * @throws ApiException 404 if no template matches the path, 405 if only the method differs.
+     */
+    public Match match(String method, String path) {
+        String[] segments = split(path);
+        boolean pathMatched = false;
+
+        for (Route route : routes) {
+            Map<String, String> params = matchTemplate(split(route.template()), segments);
+            if (params == null) {
+                continue;
+            }
+            if (route.method().equals(method)) {
+                return new Match(route, params);
+            }
+            pathMatched = true;
+        }
+        if (pathMatched) {
+            throw new ApiException(405, "Method " + method + " is not allowed on " + path + ".");
+        }
+        throw new ApiException(404, "No resource at " + path + ".");
+    }
+
+    private static Map<String, String> matchTemplate(String[] template, String[] segments) {
+        if (template.length != segments.length) {
+            return null;
+        }
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i < template.length; i++) {
+            if (template[i].startsWith("{") && template[i].endsWith("}")) {
+                params.put(template[i].substring(1, template[i].length() - 1), segments[i]);
+            } else if (!template[i].equals(segments[i])) {
+                return null;
+            }
+        }
+        return params;
+    }
+
+    private static String[] split(String path) {
+        String trimmed = path.replaceAll("^/+|/+$", "");
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+    }
+}
@@ -0,0 +1,78 @@
+package org.pharmacy.api;
+
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.repository.SupplierRepository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP endpoints for {@link SupplierRepository}.
+ */
+final class SupplierEndpoints {
+
+    private final Repositories repositories;
+
+    SupplierEndpoints(Repositories repositories) {
+        this.repositories = repositories;
+    }
+
+    void register(Router router) {
+        router.add("GET", "/suppliers", this::list)
+                .add("POST", "/suppliers", this::create)
+                .add("DELETE", "/suppliers/{id}", this::delete)
+                .add("GET", "/suppliers/{id}/medicines", this::medicines)
+                .add("PUT", "/suppliers/{id}/medicines/{medicineId}", this::linkMedicine);
+    }
+
+    private void list(ApiExchange exchange) throws Exception {
+        SupplierRepository supplierRepo = repositories.suppliers(exchange);
+        exchange.stream(200, json -> {
+            json.beginArray();
+            supplierRepo.forEachSupplier(ApiExchange.rows(json, ModelJson::write));
+            json.endArray();
+        });
+    }
+
+    private void create(ApiExchange exchange) throws Exception {
+        Map<String, Object> body = exchange.jsonBody();
+        Supplier supplier = new Supplier(0,
+                ApiExchange.requireString(body, "name"),
+                ModelJson.readAddress(ApiExchange.requireObject(body, "address")));
+
+        repositories.suppliers(exchange).addSupplier(supplier);
+        exchange.respondStatus(201, "created");
+    }
+
+    private void delete(ApiExchange exchange) throws Exception {
+        long supplierId = exchange.pathLong("id");
+        repositories.suppliers(exchange).deleteSupplier(supplierId);
+        exchange.respondStatus(200, "deleted");
+    }
+
+    private void medicines(ApiExchange exchange) throws Exception {
+        long supplierId = exchange.pathLong("id");
+        List<SupplierMedicine> links = repositories.suppliers(exchange).getMedicineBySupplierId(supplierId);
+        exchange.respond(200, json -> {
+            json.beginArray();
+            for (SupplierMedicine link : links) {
+                ModelJson.write(json, link);
+            }
+            json.endArray();
+        });
+    }
+
+    /**
+     * Links a medicine to the supplier or updates its supply price, from {@code {"supplyPrice": 1.95}}.
+     */
+    private void linkMedicine(ApiExchange exchange) throws Exception {
+        SupplierMedicine link = new SupplierMedicine(
+                exchange.pathLong("id"),
+                exchange.pathLong("medicineId"),
+                ApiExchange.requireNumber(exchange.jsonBody(), "supplyPrice").doubleValue());
+
+        repositories.suppliers(exchange).addMedicineToSupplier(link);
+        exchange.respondStatus(200, "linked");
+    }
+}
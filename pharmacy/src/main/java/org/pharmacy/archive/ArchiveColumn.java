@@ -0,0 +1,16 @@
+package org.pharmacy.archive;
+
+/**
+ * Columns of an archive file, in the order their chunks are stored in each block. Every value is
+ * stored as a long: dates as epoch days, prices in cents.
+ */
+enum ArchiveColumn {
+    ORDER_ID,
+    CLIENT_ID,
+    ORDER_DATE,
+    MEDICINE_ID,
+    QUANTITY,
+    UNIT_PRICE_CENTS;
+
+    static final int COUNT = values().length;
+}
@@ -0,0 +1,148 @@
+package org.pharmacy.archive;
+
+import org.pharmacy.archive.ColumnCodec.Chunk;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * One month of archived order lines in a memory-mapped, column-oriented file.
+ * <p>
+ * Layout (big-endian): a header (magic, {@value #FORMAT_VERSION}, year, month), the column chunks
+ * of every block, a footer with the block index, and a trailer (footer offset, footer CRC32C,
+ * magic). The index holds each block's row and order counts and, for each column, the chunk's
+ * encoding, position, checksum and min/max values, so scans can skip blocks without reading them.
+ * Rows are sorted by order date and order ID, and an order never spans two blocks.
+ * </p>
+ */
+final class ArchiveFile {
+
+    static final int FORMAT_VERSION = 1;
+    static final int MAGIC = 0x50484f41; // "PHOA"
+    static final int HEADER_BYTES = 4 + 4 + 4 + 4;
+    static final int TRAILER_BYTES = 8 + 4 + 4;
+
+    /**
+     * A block of rows and its column chunks, indexed by {@link ArchiveColumn#ordinal()}.
+     */
+    record Block(int rows, int orders, Chunk[] chunks) {
+
+        static final int HEADER_BYTES = 4 + 4;
+
+        Chunk chunk(ArchiveColumn column) {
+            return chunks[column.ordinal()];
+        }
+    }
+
+    private final Path path;
+    private final YearMonth month;
+    private final MappedByteBuffer buffer;
+    private final List<Block> blocks;
+
+    private ArchiveFile(Path path, YearMonth month, MappedByteBuffer buffer, List<Block> blocks) {
+        this.path = path;
+        this.month = month;
+        this.buffer = buffer;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Memory-maps a file and reads its block index. Column chunks are checked against their
+     * checksums when they are decoded.
+     *
+     * @throws IOException If the file cannot be read or is not a valid archive file.
+     */
+    static ArchiveFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw invalid(path, "unexpected size");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt((int) size - 4) != MAGIC) {
+                throw invalid(path, "not an order archive file");
+            }
+            if (buffer.getInt(4) != FORMAT_VERSION) {
+                throw invalid(path, "format version " + buffer.getInt(4) + ", expected " + FORMAT_VERSION);
+            }
+            YearMonth month = YearMonth.of(buffer.getInt(8), buffer.getInt(12));
+
+            int trailer = (int) size - TRAILER_BYTES;
+            long footerOffset = buffer.getLong(trailer);
+            if (footerOffset < HEADER_BYTES || footerOffset > trailer) {
+                throw invalid(path, "footer offset out of range");
+            }
+            ByteBuffer footer = buffer.slice((int) footerOffset, trailer - (int) footerOffset);
+            CRC32C crc = new CRC32C();
+            crc.update(footer.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(trailer + 8)) {
+                throw invalid(path, "footer checksum mismatch");
+            }
+
+            int blockCount = footer.getInt();
+            List<Block> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                int rows = footer.getInt();
+                int orders = footer.getInt();
+                Chunk[] chunks = new Chunk[ArchiveColumn.COUNT];
+                for (int c = 0; c < chunks.length; c++) {
+                    chunks[c] = Chunk.read(footer);
+                    if (chunks[c].offset() < HEADER_BYTES || chunks[c].offset() + chunks[c].length() > footerOffset) {
+                        throw invalid(path, "chunk out of range");
+                    }
+                }
+                blocks.add(new Block(rows, orders, chunks));
+            }
+            return new ArchiveFile(path, month, buffer, List.copyOf(blocks));
+        } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            throw invalid(path, "malformed content");
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    YearMonth month() {
+        return month;
+    }
+
+    List<Block> blocks() {
+        return blocks;
+    }
+
+    long rows() {
+        long rows = 0;
+        for (Block block : blocks) {
+            rows += block.rows();
+        }
+        return rows;
+    }
+
+    /**
+     * Decodes one column of a block into {@code out[0..block.rows())}.
+     *
+     * @throws IllegalStateException If the chunk is damaged.
+     */
+    void decode(Block block, ArchiveColumn column, long[] out) {
+        try {
+            ColumnCodec.decode(buffer, block.chunk(column), block.rows(), out);
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("Archive file " + path + " is damaged: " + e.getMessage(), e);
+        }
+    }
+
+    private static IOException invalid(Path path, String reason) {
+        return new IOException("Invalid order archive file " + path + ": " + reason + ".");
+    }
+}
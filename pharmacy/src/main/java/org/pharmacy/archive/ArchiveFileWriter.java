@@ -0,0 +1,162 @@
+package org.pharmacy.archive;
+
+import org.pharmacy.archive.ColumnCodec.Chunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes an {@link ArchiveFile} row by row. Rows are buffered for one block at a time, so memory use
+ * does not depend on the size of the month. The file is written under a temporary name and moved
+ * into place by {@link #finish()}; closing an unfinished writer deletes it.
+ */
+final class ArchiveFileWriter implements AutoCloseable {
+
+    private final Path file;
+    private final Path temp;
+    private final FileChannel channel;
+    private final int blockRows;
+    private final long[][] columns = new long[ArchiveColumn.COUNT][];
+    private final List<ArchiveFile.Block> blocks = new ArrayList<>();
+    private long position;
+    private int rows;
+    private int orders;
+    private long rowsWritten;
+    private boolean finished;
+
+    /**
+     * Creates the temporary file and writes the header.
+     *
+     * @param file The archive file to write.
+     * @param month The month the rows belong to.
+     * @param blockRows The number of rows after which a block is closed at the next order boundary.
+     * @throws IOException If the file cannot be created.
+     */
+    ArchiveFileWriter(Path file, YearMonth month, int blockRows) throws IOException {
+        this.file = file;
+        this.blockRows = blockRows;
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = new long[blockRows];
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        this.temp = directory.resolve(file.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer header = ByteBuffer.allocate(ArchiveFile.HEADER_BYTES);
+        header.putInt(ArchiveFile.MAGIC).putInt(ArchiveFile.FORMAT_VERSION)
+                .putInt(month.getYear()).putInt(month.getMonthValue());
+        write(header.flip());
+    }
+
+    /**
+     * Appends one order line. Lines must arrive sorted by order date and order ID.
+     */
+    void append(long orderId, long clientId, long orderEpochDay, long medicineId, long quantity, long unitPriceCents)
+            throws IOException {
+        boolean newOrder = rows == 0 || columns[ArchiveColumn.ORDER_ID.ordinal()][rows - 1] != orderId;
+        if (newOrder && rows >= blockRows) {
+            flushBlock();
+        }
+        if (rows == columns[0].length) {
+            // One order longer than the rest of the block: grow the buffers instead of splitting it
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = Arrays.copyOf(columns[c], rows * 2);
+            }
+        }
+        columns[ArchiveColumn.ORDER_ID.ordinal()][rows] = orderId;
+        columns[ArchiveColumn.CLIENT_ID.ordinal()][rows] = clientId;
+        columns[ArchiveColumn.ORDER_DATE.ordinal()][rows] = orderEpochDay;
+        columns[ArchiveColumn.MEDICINE_ID.ordinal()][rows] = medicineId;
+        columns[ArchiveColumn.QUANTITY.ordinal()][rows] = quantity;
+        columns[ArchiveColumn.UNIT_PRICE_CENTS.ordinal()][rows] = unitPriceCents;
+        if (newOrder) {
+            orders++;
+        }
+        rows++;
+    }
+
+    /**
+     * @return The number of rows appended so far.
+     */
+    long rows() {
+        return rowsWritten + rows;
+    }
+
+    /**
+     * Writes the last block and the index, syncs the file and moves it into place atomically.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    void finish() throws IOException {
+        if (rows > 0) {
+            flushBlock();
+        }
+        ByteBuffer footer = ByteBuffer.allocate(4 + blocks.size() * (ArchiveFile.Block.HEADER_BYTES + ArchiveColumn.COUNT * Chunk.BYTES));
+        footer.putInt(blocks.size());
+        for (ArchiveFile.Block block : blocks) {
+            footer.putInt(block.rows()).putInt(block.orders());
+            for (Chunk chunk : block.chunks()) {
+                chunk.write(footer);
+            }
+        }
+        footer.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(footer.duplicate());
+
+        long footerOffset = position;
+        write(footer);
+        ByteBuffer trailer = ByteBuffer.allocate(ArchiveFile.TRAILER_BYTES);
+        trailer.putLong(footerOffset).putInt((int) crc.getValue()).putInt(ArchiveFile.MAGIC);
+        write(trailer.flip());
+        if (position > Integer.MAX_VALUE) {
+            throw new IOException("Archive file " + file + " would exceed 2 GB; archive smaller periods.");
+        }
+        channel.force(true);
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+    }
+
+    /**
+     * Discards the temporary file unless {@link #finish()} completed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        Chunk[] chunks = new Chunk[ArchiveColumn.COUNT];
+        for (int c = 0; c < chunks.length; c++) {
+            ColumnCodec.Encoded encoded = ColumnCodec.encode(columns[c], rows);
+            chunks[c] = encoded.at(position);
+            write(ByteBuffer.wrap(encoded.bytes()));
+        }
+        blocks.add(new ArchiveFile.Block(rows, orders, chunks));
+        rowsWritten += rows;
+        rows = 0;
+        orders = 0;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        position += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
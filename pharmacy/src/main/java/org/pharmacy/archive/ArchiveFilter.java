@@ -0,0 +1,55 @@
+package org.pharmacy.archive;
+
+import java.time.LocalDate;
+
+/**
+ * Rows selected by a scan of the {@link OrderArchive}.
+ *
+ * @param from The first order date (inclusive), or null for no lower bound.
+ * @param to The last order date (inclusive), or null for no upper bound.
+ * @param clientId Only orders of this client, or 0 for all clients.
+ * @param medicineId Only lines of this medicine, or 0 for all medicines.
+ */
+public record ArchiveFilter(LocalDate from, LocalDate to, long clientId, long medicineId) {
+
+    /**
+     * @throws IllegalArgumentException If {@code from} is after {@code to} or an ID is negative.
+     */
+    public ArchiveFilter {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("The start date must not be after the end date.");
+        }
+        if (clientId < 0 || medicineId < 0) {
+            throw new IllegalArgumentException("Client and medicine IDs cannot be negative.");
+        }
+    }
+
+    /**
+     * @return A filter for every archived line dated in the range (either bound may be null).
+     */
+    public static ArchiveFilter between(LocalDate from, LocalDate to) {
+        return new ArchiveFilter(from, to, 0, 0);
+    }
+
+    /**
+     * @return This filter, restricted to the orders of one client.
+     */
+    public ArchiveFilter client(long clientId) {
+        return new ArchiveFilter(from, to, clientId, medicineId);
+    }
+
+    /**
+     * @return This filter, restricted to the lines of one medicine.
+     */
+    public ArchiveFilter medicine(long medicineId) {
+        return new ArchiveFilter(from, to, clientId, medicineId);
+    }
+
+    long fromDay() {
+        return from == null ? Long.MIN_VALUE : from.toEpochDay();
+    }
+
+    long toDay() {
+        return to == null ? Long.MAX_VALUE : to.toEpochDay();
+    }
+}
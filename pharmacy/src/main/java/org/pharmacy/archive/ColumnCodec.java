@@ -0,0 +1,177 @@
+package org.pharmacy.archive;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Encodes one column of a block as a chunk of bit-packed longs.
+ * <p>
+ * Three encodings are used, whichever is smallest:
+ * </p>
+ * <ul>
+ *     <li>{@link #CONSTANT}: every value equals the block minimum; the chunk is empty.</li>
+ *     <li>{@link #PACKED}: frame of reference, each value minus the block minimum in {@code bitWidth} bits.</li>
+ *     <li>{@link #DELTA}: for non-decreasing columns (order IDs and dates, as rows are sorted by
+ *     date and order), the first value as base and each difference to the previous value in
+ *     {@code bitWidth} bits.</li>
+ * </ul>
+ * Bits are packed low to high into big-endian 64-bit words.
+ */
+final class ColumnCodec {
+
+    static final byte CONSTANT = 0;
+    static final byte PACKED = 1;
+    static final byte DELTA = 2;
+
+    /**
+     * Metadata of one stored chunk.
+     *
+     * @param encoding {@link #CONSTANT}, {@link #PACKED} or {@link #DELTA}.
+     * @param bitWidth Bits per packed value.
+     * @param base The frame of reference (PACKED: the minimum, DELTA: the first value).
+     * @param min The smallest value in the chunk.
+     * @param max The largest value in the chunk.
+     * @param offset The chunk's position in the file.
+     * @param length The chunk's size in bytes.
+     * @param crc CRC32C of the chunk's bytes.
+     */
+    record Chunk(byte encoding, int bitWidth, long base, long min, long max, long offset, int length, int crc) {
+
+        static final int BYTES = 1 + 1 + 8 + 8 + 8 + 8 + 4 + 4;
+
+        void write(ByteBuffer out) {
+            out.put(encoding).put((byte) bitWidth).putLong(base).putLong(min).putLong(max)
+                    .putLong(offset).putInt(length).putInt(crc);
+        }
+
+        static Chunk read(ByteBuffer in) {
+            return new Chunk(in.get(), in.get() & 0xFF, in.getLong(), in.getLong(), in.getLong(),
+                    in.getLong(), in.getInt(), in.getInt());
+        }
+    }
+
+    /**
+     * An encoded chunk before it is placed in a file.
+     */
+    record Encoded(byte encoding, int bitWidth, long base, long min, long max, byte[] bytes) {
+
+        Chunk at(long offset) {
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+            return new Chunk(encoding, bitWidth, base, min, max, offset, bytes.length, (int) crc.getValue());
+        }
+    }
+
+    private ColumnCodec() {
+    }
+
+    /**
+     * Encodes the first {@code count} values (at least one).
+     */
+    static Encoded encode(long[] values, int count) {
+        long min = values[0];
+        long max = values[0];
+        boolean nonDecreasing = true;
+        long maxDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long value = values[i];
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if (value < values[i - 1]) {
+                nonDecreasing = false;
+            } else {
+                maxDelta = Math.max(maxDelta, value - values[i - 1]);
+            }
+        }
+        if (min == max) {
+            return new Encoded(CONSTANT, 0, min, min, max, new byte[0]);
+        }
+
+        int packedWidth = bitWidth(max - min);
+        if (nonDecreasing && bitWidth(maxDelta) < packedWidth) {
+            int width = bitWidth(maxDelta);
+            long[] words = new long[words(count, width)];
+            for (int i = 1; i < count; i++) {
+                pack(words, i, width, values[i] - values[i - 1]);
+            }
+            return new Encoded(DELTA, width, values[0], min, max, toBytes(words));
+        }
+        long[] words = new long[words(count, packedWidth)];
+        for (int i = 0; i < count; i++) {
+            pack(words, i, packedWidth, values[i] - min);
+        }
+        return new Encoded(PACKED, packedWidth, min, min, max, toBytes(words));
+    }
+
+    /**
+     * Decodes a chunk of a memory-mapped file into {@code out[0..count)}. Only absolute reads are
+     * used, so several threads may decode from the same buffer.
+     *
+     * @throws IllegalStateException If the chunk's bytes do not match its checksum.
+     */
+    static void decode(ByteBuffer file, Chunk chunk, int count, long[] out) {
+        CRC32C crc = new CRC32C();
+        crc.update(file.slice((int) chunk.offset(), chunk.length()));
+        if ((int) crc.getValue() != chunk.crc()) {
+            throw new IllegalStateException("Checksum mismatch in archive chunk at offset " + chunk.offset() + ".");
+        }
+
+        int offset = (int) chunk.offset();
+        int width = chunk.bitWidth();
+        switch (chunk.encoding()) {
+            case CONSTANT -> Arrays.fill(out, 0, count, chunk.base());
+            case PACKED -> {
+                for (int i = 0; i < count; i++) {
+                    out[i] = chunk.base() + unpack(file, offset, i, width);
+                }
+            }
+            case DELTA -> {
+                long value = chunk.base();
+                out[0] = value;
+                for (int i = 1; i < count; i++) {
+                    value += unpack(file, offset, i, width);
+                    out[i] = value;
+                }
+            }
+            default -> throw new IllegalStateException("Unknown archive chunk encoding " + chunk.encoding() + ".");
+        }
+    }
+
+    private static int bitWidth(long range) {
+        return 64 - Long.numberOfLeadingZeros(range);
+    }
+
+    private static int words(int count, int width) {
+        return (int) (((long) count * width + 63) / 64);
+    }
+
+    private static void pack(long[] words, int index, int width, long value) {
+        long bit = (long) index * width;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        words[word] |= value << shift;
+        if (shift + width > 64) {
+            words[word + 1] |= value >>> (64 - shift);
+        }
+    }
+
+    private static long unpack(ByteBuffer file, int offset, int index, int width) {
+        long bit = (long) index * width;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = file.getLong(offset + word * 8) >>> shift;
+        if (shift + width > 64) {
+            value |= file.getLong(offset + (word + 1) * 8) << (64 - shift);
+        }
+        return width == 64 ? value : value & ((1L << width) - 1);
+    }
+
+    private static byte[] toBytes(long[] words) {
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * 8);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+}
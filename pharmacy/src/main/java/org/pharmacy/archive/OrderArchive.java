@@ -0,0 +1,308 @@
+package org.pharmacy.archive;
+
+import org.pharmacy.archive.ArchiveFile.Block;
+import org.pharmacy.archive.ColumnCodec.Chunk;
+import org.pharmacy.model.ArchivedOrderLine;
+import org.pharmacy.model.YearlySales;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Read side of the columnar order archive: one memory-mapped file per archived month, written by
+ * {@link OrderArchiver}.
+ * <p>
+ * A query first skips whole months and blocks whose min/max statistics cannot match the filter.
+ * The remaining blocks are scanned in parallel, one task per block on a pool with one thread per
+ * processor. A task first decodes only the columns the filter needs, and the other columns only
+ * if the block has matching rows, so looking up one client reads little more than the client column.
+ * Results come back in archive order (order date, then order ID).
+ * </p>
+ * <p>
+ * The files are mapped when the archive is opened. Months archived later are seen by archives
+ * opened after them.
+ * </p>
+ */
+public final class OrderArchive implements AutoCloseable {
+
+    private static final Pattern FILE_NAME = Pattern.compile("orders-\\d{4}-\\d{2}\\.pcol");
+
+    @FunctionalInterface
+    private interface BlockTask<R> {
+        R run(ArchiveFile file, Block block, int[] selected);
+    }
+
+    private final List<ArchiveFile> files;
+    private final ExecutorService executor;
+
+    private OrderArchive(List<ArchiveFile> files) {
+        this.files = files;
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                Thread.ofPlatform().name("archive-scan-", 0).daemon().factory());
+    }
+
+    /**
+     * Maps every archive file in a directory. A missing directory gives an empty archive.
+     *
+     * @param directory The directory {@link OrderArchiver} writes to.
+     * @return The archive; close it to stop its scan threads.
+     * @throws IOException If a file cannot be read or is not a valid archive file.
+     */
+    public static OrderArchive open(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    if (FILE_NAME.matcher(path.getFileName().toString()).matches()) {
+                        paths.add(path);
+                    }
+                }
+            }
+        }
+        paths.sort(null);
+        List<ArchiveFile> files = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            files.add(ArchiveFile.open(path));
+        }
+        return new OrderArchive(List.copyOf(files));
+    }
+
+    /**
+     * @return The file a month is archived in.
+     */
+    static Path fileFor(Path directory, YearMonth month) {
+        return directory.resolve(String.format("orders-%04d-%02d.pcol", month.getYear(), month.getMonthValue()));
+    }
+
+    /**
+     * @return The archived months, oldest first.
+     */
+    public List<YearMonth> months() {
+        List<YearMonth> months = new ArrayList<>(files.size());
+        for (ArchiveFile file : files) {
+            months.add(file.month());
+        }
+        return months;
+    }
+
+    /**
+     * @return The number of archived order lines.
+     */
+    public long rows() {
+        long rows = 0;
+        for (ArchiveFile file : files) {
+            rows += file.rows();
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the archived order lines that match the filter, e.g. everything one client bought in a year.
+     *
+     * @param filter The rows to return.
+     * @return The matching lines, ordered by order date and order ID.
+     * @throws IOException If an archive file turns out to be damaged.
+     */
+    public List<ArchivedOrderLine> scan(ArchiveFilter filter) throws IOException {
+        List<List<ArchivedOrderLine>> parts = forEachBlock(filter, (file, block, selected) -> {
+            long[][] columns = new long[ArchiveColumn.COUNT][];
+            for (ArchiveColumn column : ArchiveColumn.values()) {
+                columns[column.ordinal()] = decode(file, block, column);
+            }
+            int count = selected == null ? block.rows() : selected.length;
+            List<ArchivedOrderLine> lines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int row = selected == null ? i : selected[i];
+                lines.add(new ArchivedOrderLine(
+                        columns[ArchiveColumn.ORDER_ID.ordinal()][row],
+                        columns[ArchiveColumn.CLIENT_ID.ordinal()][row],
+                        LocalDate.ofEpochDay(columns[ArchiveColumn.ORDER_DATE.ordinal()][row]),
+                        columns[ArchiveColumn.MEDICINE_ID.ordinal()][row],
+                        (int) columns[ArchiveColumn.QUANTITY.ordinal()][row],
+                        columns[ArchiveColumn.UNIT_PRICE_CENTS.ordinal()][row] / 100.0));
+            }
+            return lines;
+        });
+
+        List<ArchivedOrderLine> lines = new ArrayList<>();
+        parts.forEach(lines::addAll);
+        return lines;
+    }
+
+    /**
+     * Totals the orders, units and revenue of the matching lines per year. With a medicine filter,
+     * an order counts once if it contains that medicine.
+     *
+     * @param filter The rows to total.
+     * @return One entry per year with matching lines, oldest first.
+     * @throws IOException If an archive file turns out to be damaged.
+     */
+    public List<YearlySales> yearlySales(ArchiveFilter filter) throws IOException {
+        List<long[]> parts = forEachBlock(filter, (file, block, selected) -> {
+            long[] quantities = decode(file, block, ArchiveColumn.QUANTITY);
+            long[] prices = decode(file, block, ArchiveColumn.UNIT_PRICE_CENTS);
+            long orders;
+            long units = 0;
+            long cents = 0;
+            if (selected == null) {
+                // Orders never span blocks, so the index already has the count
+                orders = block.orders();
+                for (int row = 0; row < block.rows(); row++) {
+                    units += quantities[row];
+                    cents += quantities[row] * prices[row];
+                }
+            } else {
+                long[] orderIds = decode(file, block, ArchiveColumn.ORDER_ID);
+                orders = 0;
+                for (int i = 0; i < selected.length; i++) {
+                    int row = selected[i];
+                    // An order's rows are adjacent, so a new ID among the selected rows is a new order
+                    if (i == 0 || orderIds[row] != orderIds[selected[i - 1]]) {
+                        orders++;
+                    }
+                    units += quantities[row];
+                    cents += quantities[row] * prices[row];
+                }
+            }
+            return new long[]{file.month().getYear(), orders, units, cents};
+        });
+
+        Map<Integer, long[]> years = new TreeMap<>();
+        for (long[] part : parts) {
+            long[] total = years.computeIfAbsent((int) part[0], year -> new long[3]);
+            total[0] += part[1];
+            total[1] += part[2];
+            total[2] += part[3];
+        }
+        List<YearlySales> sales = new ArrayList<>(years.size());
+        years.forEach((year, total) -> sales.add(new YearlySales(year, total[0], total[1], total[2] / 100.0)));
+        return sales;
+    }
+
+    /**
+     * Stops the scan threads. The mapped files are released once they are no longer referenced.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the task on every block that may match the filter, in parallel, and returns the results
+     * in archive order. Blocks without matching rows are skipped.
+     */
+    private <R> List<R> forEachBlock(ArchiveFilter filter, BlockTask<R> task) throws IOException {
+        List<Future<R>> running = new ArrayList<>();
+        for (ArchiveFile file : files) {
+            LocalDate firstDay = file.month().atDay(1);
+            LocalDate lastDay = file.month().atEndOfMonth();
+            if ((filter.to() != null && firstDay.isAfter(filter.to())) || (filter.from() != null && lastDay.isBefore(filter.from()))) {
+                continue;
+            }
+            for (Block block : file.blocks()) {
+                if (mayMatch(block, filter)) {
+                    running.add(executor.submit(() -> {
+                        int[] selected = select(file, block, filter);
+                        return selected != null && selected.length == 0 ? null : task.run(file, block, selected);
+                    }));
+                }
+            }
+        }
+
+        List<R> results = new ArrayList<>(running.size());
+        for (Future<R> future : running) {
+            try {
+                R result = future.get();
+                if (result != null) {
+                    results.add(result);
+                }
+            } catch (ExecutionException e) {
+                running.forEach(f -> f.cancel(true));
+                if (e.getCause() instanceof IllegalStateException damaged) {
+                    throw new IOException(damaged.getMessage(), damaged);
+                }
+                throw new IllegalStateException("Archive scan failed.", e.getCause());
+            } catch (InterruptedException e) {
+                running.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IOException("Archive scan interrupted.", e);
+            }
+        }
+        return results;
+    }
+
+    private static boolean mayMatch(Block block, ArchiveFilter filter) {
+        return overlaps(block.chunk(ArchiveColumn.ORDER_DATE), filter.fromDay(), filter.toDay())
+                && (filter.clientId() == 0 || overlaps(block.chunk(ArchiveColumn.CLIENT_ID), filter.clientId(), filter.clientId()))
+                && (filter.medicineId() == 0 || overlaps(block.chunk(ArchiveColumn.MEDICINE_ID), filter.medicineId(), filter.medicineId()));
+    }
+
+    private static boolean overlaps(Chunk chunk, long low, long high) {
+        return chunk.max() >= low && chunk.min() <= high;
+    }
+
+    /**
+     * @return The rows of the block that match the filter, or null if all of them do.
+     */
+    private static int[] select(ArchiveFile file, Block block, ArchiveFilter filter) {
+        int[] selected = null;
+        if (filter.clientId() != 0) {
+            selected = refine(file, block, ArchiveColumn.CLIENT_ID, filter.clientId(), filter.clientId(), selected);
+        }
+        if (filter.medicineId() != 0) {
+            selected = refine(file, block, ArchiveColumn.MEDICINE_ID, filter.medicineId(), filter.medicineId(), selected);
+        }
+        return refine(file, block, ArchiveColumn.ORDER_DATE, filter.fromDay(), filter.toDay(), selected);
+    }
+
+    /**
+     * Narrows a selection to the rows whose value in the column lies in [low, high]. The column is
+     * only decoded if its min/max statistics do not already decide the outcome for the whole block.
+     */
+    private static int[] refine(ArchiveFile file, Block block, ArchiveColumn column, long low, long high, int[] selected) {
+        Chunk chunk = block.chunk(column);
+        if (chunk.min() >= low && chunk.max() <= high) {
+            return selected;
+        }
+        if (selected != null && selected.length == 0) {
+            return selected;
+        }
+        long[] values = decode(file, block, column);
+        int[] matches = new int[selected == null ? block.rows() : selected.length];
+        int count = 0;
+        if (selected == null) {
+            for (int row = 0; row < block.rows(); row++) {
+                if (values[row] >= low && values[row] <= high) {
+                    matches[count++] = row;
+                }
+            }
+        } else {
+            for (int row : selected) {
+                if (values[row] >= low && values[row] <= high) {
+                    matches[count++] = row;
+                }
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private static long[] decode(ArchiveFile file, Block block, ArchiveColumn column) {
+        long[] values = new long[block.rows()];
+        file.decode(block, column, values);
+        return values;
+    }
+}
@@ -0,0 +1,160 @@
+package org.pharmacy.archive;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes closed months of orders into the columnar archive read by {@link OrderArchive}.
+ * <p>
+ * A month's lines are read from {@code "order"}/{@code orderitem} and from the
+ * {@code order_archive} tables filled by the order purge, in one statement through a server-side
+ * cursor, and written block by block into {@code orders-yyyy-MM.pcol}. A month is archived once it
+ * is over; its file is not rewritten by later runs, so orders of that month changed afterwards are
+ * not reflected. Orders without items are not archived.
+ * </p>
+ */
+public class OrderArchiver {
+
+    /**
+     * Rows per block; a block ends at the first order boundary after this many rows.
+     */
+    public static final int DEFAULT_BLOCK_ROWS = 64 * 1024;
+
+    /**
+     * Number of rows fetched per round trip.
+     */
+    private static final int FETCH_SIZE = 10_000;
+
+    private final Connection conn;
+    private final Path directory;
+    private final int blockRows;
+
+    /**
+     * @param conn The connection the orders are read with.
+     * @param directory The archive directory; created if missing.
+     */
+    public OrderArchiver(Connection conn, Path directory) {
+        this(conn, directory, DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * @param conn The connection the orders are read with.
+     * @param directory The archive directory; created if missing.
+     * @param blockRows The number of rows per block.
+     * @throws IllegalArgumentException If blockRows is not positive.
+     */
+    public OrderArchiver(Connection conn, Path directory, int blockRows) {
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        this.conn = conn;
+        this.directory = directory;
+        this.blockRows = blockRows;
+    }
+
+    /**
+     * Archives every closed month (before the current one) that has orders and no archive file yet.
+     *
+     * @return The months written by this call.
+     * @throws SQLException If the orders cannot be read.
+     * @throws IOException If a file cannot be written.
+     */
+    public List<YearMonth> archiveClosedMonths() throws SQLException, IOException {
+        final String SQLQuery = "SELECT MIN(first_day) FROM (" +
+                "SELECT MIN(order_date) AS first_day FROM \"order\" " +
+                "UNION ALL SELECT MIN(order_date) FROM order_archive) f";
+        LocalDate firstDay;
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            firstDay = rs.getObject(1, LocalDate.class);
+        }
+
+        List<YearMonth> written = new ArrayList<>();
+        if (firstDay == null) {
+            return written;
+        }
+        YearMonth current = YearMonth.now();
+        for (YearMonth month = YearMonth.from(firstDay); month.isBefore(current); month = month.plusMonths(1)) {
+            if (!Files.exists(OrderArchive.fileFor(directory, month)) && archiveMonth(month) > 0) {
+                written.add(month);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes one closed month to its archive file, replacing the file if it exists. No file is
+     * written for a month without orders.
+     *
+     * @param month The month to archive.
+     * @return The number of order lines archived.
+     * @throws SQLException If the orders cannot be read.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If the month is not over yet.
+     */
+    public long archiveMonth(YearMonth month) throws SQLException, IOException {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Only months that are over can be archived, not " + month + ".");
+        }
+        final String linesSQL = "SELECT o.order_id, o.client_id, o.order_date, oi.medicine_id, oi.quantity, oi.unit_price, oi.orderitem_id " +
+                "FROM \"order\" o JOIN orderitem oi ON oi.order_id = o.order_id " +
+                "WHERE o.order_date >= ? AND o.order_date < ? " +
+                "UNION ALL " +
+                "SELECT o.order_id, o.client_id, o.order_date, oi.medicine_id, oi.quantity, oi.unit_price, oi.orderitem_id " +
+                "FROM order_archive o JOIN orderitem_archive oi ON oi.order_id = o.order_id " +
+                "WHERE o.order_date >= ? AND o.order_date < ? " +
+                "ORDER BY 3, 1, 7";
+
+        long rows;
+        boolean ownsTransaction = conn.getAutoCommit();
+        if (ownsTransaction) {
+            // The driver only streams through a cursor inside a transaction
+            conn.setAutoCommit(false);
+        }
+        try (ArchiveFileWriter writer = new ArchiveFileWriter(OrderArchive.fileFor(directory, month), month, blockRows);
+             PreparedStatement pstmt = conn.prepareStatement(linesSQL)) {
+            pstmt.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < 2; i++) {
+                pstmt.setObject(2 * i + 1, month.atDay(1));
+                pstmt.setObject(2 * i + 2, month.plusMonths(1).atDay(1));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    writer.append(rs.getLong(1), rs.getLong(2), rs.getObject(3, LocalDate.class).toEpochDay(),
+                            rs.getLong(4), rs.getInt(5), rs.getBigDecimal(6).movePointRight(2).longValueExact());
+                }
+            }
+            rows = writer.rows();
+            if (rows > 0) {
+                writer.finish();
+            }
+            if (ownsTransaction) {
+                conn.commit();
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (ownsTransaction) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownsTransaction) {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        if (rows > 0) {
+            System.out.printf("Archived %s: %d order lines.\n", month, rows);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,111 @@
+package org.pharmacy.catalog;
+
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable in-memory copy of the medicine catalog: medicines with their selling prices, suppliers,
+ * and which supplier delivers which medicine at what price.
+ * <p>
+ * A catalog is consistent with one point in time of the database, identified by its
+ * {@linkplain #maxChangeId() change ID} and transaction horizon. {@link CatalogLoader} builds it,
+ * brings it up to date and saves it as a {@link CatalogSnapshot}.
+ * </p>
+ */
+public final class Catalog {
+
+    final UUID epoch;
+    final long maxChangeId;
+    final long horizon;
+    final Map<Long, CatalogMedicine> medicines;
+    final Map<Long, Supplier> suppliers;
+    /** Supplier links per medicine ID, cheapest first. */
+    final Map<Long, List<SupplierMedicine>> links;
+
+    /**
+     * @param epoch The {@code catalog_state.epoch} of the database the catalog was read from.
+     * @param maxChangeId The last {@code catalog_change} entry included.
+     * @param horizon The xmin of the database snapshot the catalog was read in; every change not
+     *                included belongs to a transaction at or above it.
+     */
+    Catalog(UUID epoch, long maxChangeId, long horizon, Map<Long, CatalogMedicine> medicines,
+            Map<Long, Supplier> suppliers, Map<Long, List<SupplierMedicine>> links) {
+        this.epoch = epoch;
+        this.maxChangeId = maxChangeId;
+        this.horizon = horizon;
+        this.medicines = Collections.unmodifiableMap(medicines);
+        this.suppliers = Collections.unmodifiableMap(suppliers);
+        this.links = Collections.unmodifiableMap(links);
+    }
+
+    /**
+     * @return The ID of the last catalog change reflected in this catalog.
+     */
+    public long maxChangeId() {
+        return maxChangeId;
+    }
+
+    /**
+     * @return All medicines, ordered by ID.
+     */
+    public Collection<CatalogMedicine> medicines() {
+        return medicines.values();
+    }
+
+    /**
+     * @param medicineId The ID of the medicine.
+     * @return The medicine, or null if it is not in the catalog.
+     */
+    public CatalogMedicine medicine(long medicineId) {
+        return medicines.get(medicineId);
+    }
+
+    /**
+     * @return All suppliers, ordered by ID.
+     */
+    public Collection<Supplier> suppliers() {
+        return suppliers.values();
+    }
+
+    /**
+     * @param supplierId The ID of the supplier.
+     * @return The supplier, or null if it is not in the catalog.
+     */
+    public Supplier supplier(long supplierId) {
+        return suppliers.get(supplierId);
+    }
+
+    /**
+     * @param medicineId The ID of the medicine.
+     * @return The suppliers' offers for the medicine, cheapest first; empty if none.
+     */
+    public List<SupplierMedicine> offers(long medicineId) {
+        return links.getOrDefault(medicineId, List.of());
+    }
+
+    /**
+     * @param medicineId The ID of the medicine.
+     * @return The cheapest supplier offer for the medicine, or null if no supplier delivers it.
+     */
+    public SupplierMedicine bestOffer(long medicineId) {
+        List<SupplierMedicine> offers = links.get(medicineId);
+        return offers == null ? null : offers.get(0);
+    }
+
+    /**
+     * @return The number of supplier links.
+     */
+    public int offerCount() {
+        int count = 0;
+        for (List<SupplierMedicine> offers : links.values()) {
+            count += offers.size();
+        }
+        return count;
+    }
+}
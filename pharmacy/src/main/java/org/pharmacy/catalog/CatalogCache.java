@@ -0,0 +1,158 @@
+package org.pharmacy.catalog;
+
+import org.pharmacy.db.ConnectionFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The current {@link Catalog} of a running application: loaded through a snapshot file at startup,
+ * refreshed with the latest changes in the background and saved back to the snapshot file whenever
+ * it changed, so a restart only has to read what changed since.
+ * <p>
+ * Every {@code pruneMillis} the change log is pruned below the horizon of the catalog this cache held
+ * at the previous pruning, so other processes refreshing more often than that still find their changes.
+ * A snapshot file older than that is loaded with a full read.
+ * </p>
+ */
+public final class CatalogCache implements AutoCloseable {
+
+    /** Default interval between background refreshes. */
+    public static final long DEFAULT_REFRESH_MILLIS = 30_000;
+
+    /** Default interval between prunings of the change log. */
+    public static final long DEFAULT_PRUNE_MILLIS = 60 * 60_000;
+
+    private final Path snapshot;
+    private final ConnectionFactory connections;
+    private final long pruneMillis;
+    private final ScheduledExecutorService refresher;
+    private volatile Catalog catalog;
+    private Catalog savedCatalog;
+    private Connection conn;
+    /** The catalog's position at the last pruning, pruned below at the next one. */
+    private UUID pruneEpoch;
+    private long pruneHorizon;
+    private long lastPruneMillis;
+
+    private CatalogCache(Path snapshot, ConnectionFactory connections, long pruneMillis, Catalog catalog) {
+        this.snapshot = snapshot;
+        this.connections = connections;
+        this.pruneMillis = pruneMillis;
+        this.catalog = catalog;
+        this.savedCatalog = catalog;
+        this.pruneEpoch = catalog.epoch;
+        this.pruneHorizon = catalog.horizon;
+        this.lastPruneMillis = System.currentTimeMillis();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("catalog-refresh").factory());
+    }
+
+    /**
+     * Loads the catalog (see {@link CatalogLoader#load}) and starts refreshing it every
+     * {@code refreshMillis}.
+     *
+     * @param snapshot The snapshot file (need not exist).
+     * @param connections Opens the connections used for loading and refreshing.
+     * @param refreshMillis The interval between refreshes.
+     * @param pruneMillis The interval between prunings of the change log.
+     * @return The running cache.
+     * @throws SQLException If the catalog cannot be read from the database.
+     * @throws IOException If the snapshot file cannot be read or written.
+     */
+    public static CatalogCache open(Path snapshot, ConnectionFactory connections, long refreshMillis, long pruneMillis)
+            throws SQLException, IOException {
+        Catalog catalog;
+        try (Connection conn = connections.connect()) {
+            catalog = CatalogLoader.load(conn, snapshot);
+        }
+        CatalogCache cache = new CatalogCache(snapshot, connections, pruneMillis, catalog);
+        cache.refresher.scheduleWithFixedDelay(cache::refreshQuietly, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        return cache;
+    }
+
+    /**
+     * @return The most recently loaded catalog.
+     */
+    public Catalog current() {
+        return catalog;
+    }
+
+    /**
+     * Reads the changes since the current catalog and saves the snapshot file if there were any.
+     * Prunes the change log when it is due.
+     *
+     * @return The updated catalog.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException If the snapshot file cannot be written.
+     */
+    public synchronized Catalog refresh() throws SQLException, IOException {
+        if (conn == null) {
+            conn = connections.connect();
+        }
+        try {
+            catalog = CatalogLoader.refresh(conn, catalog);
+        } catch (SQLException | RuntimeException e) {
+            closeConnection();
+            throw e;
+        }
+        if (catalog.maxChangeId != savedCatalog.maxChangeId || !catalog.epoch.equals(savedCatalog.epoch)) {
+            CatalogLoader.save(catalog, snapshot);
+            savedCatalog = catalog;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastPruneMillis >= pruneMillis) {
+            try {
+                int pruned = CatalogLoader.prune(conn, pruneEpoch, pruneHorizon);
+                if (pruned > 0) {
+                    System.out.printf("Catalog change log pruned: %d entries deleted.\n", pruned);
+                }
+            } catch (SQLException | RuntimeException e) {
+                closeConnection();
+                throw e;
+            }
+            pruneEpoch = catalog.epoch;
+            pruneHorizon = catalog.horizon;
+            lastPruneMillis = now;
+        }
+        return catalog;
+    }
+
+    /**
+     * Stops refreshing and saves the current catalog to the snapshot file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        refresher.shutdownNow();
+        closeConnection();
+        if (catalog != savedCatalog) {
+            CatalogLoader.save(catalog, snapshot);
+            savedCatalog = catalog;
+        }
+    }
+
+    private void closeConnection() {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                // The connection is discarded either way
+            }
+            conn = null;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (SQLException | IOException | RuntimeException e) {
+            System.err.println("[CATALOG] Refresh failed, keeping the current catalog: " + e.getMessage());
+        }
+    }
+}
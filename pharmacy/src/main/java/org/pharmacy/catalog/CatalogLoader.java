@@ -0,0 +1,315 @@
+package org.pharmacy.catalog;
+
+import org.pharmacy.model.Address;
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Reads the {@link Catalog} from PostgreSQL, either completely or as the rows changed since an
+ * earlier catalog.
+ * <p>
+ * Triggers log every change to {@code medicine} (except stock), {@code supplier} and
+ * {@code suppliermedicine} in {@code catalog_change}, tagged with the writing transaction's ID. A
+ * catalog remembers the xmin of the database snapshot it was read in: any change it does not include
+ * was made by a transaction at or above that xmin, so the rows named by those log entries are all
+ * that needs to be read again. Every read runs in one REPEATABLE READ transaction, so the catalog
+ * is consistent with a single point in time.
+ * </p>
+ * <p>
+ * {@link #prune} deletes log entries below a horizon and records it in {@code catalog_state.pruned_below};
+ * a catalog older than that is replaced by a full read.
+ * </p>
+ */
+public final class CatalogLoader {
+
+    private static final Comparator<SupplierMedicine> CHEAPEST_FIRST =
+            Comparator.comparingDouble(SupplierMedicine::supplyPrice).thenComparingLong(SupplierMedicine::supplierId);
+
+    private CatalogLoader() {
+    }
+
+    /**
+     * Loads the catalog at startup: from the snapshot file plus the changes since it was taken if
+     * the file is usable, otherwise completely from the database. The result is saved back to the
+     * file, so the next start has only newer changes to read.
+     *
+     * @param conn A connection in auto-commit mode.
+     * @param snapshot The snapshot file (need not exist).
+     * @return The current catalog.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException If the snapshot file exists but cannot be read, or cannot be written.
+     */
+    public static Catalog load(Connection conn, Path snapshot) throws SQLException, IOException {
+        long started = System.nanoTime();
+        Catalog saved = CatalogSnapshot.read(snapshot);
+        Catalog updated = saved == null ? null : readChanges(conn, saved);
+        Catalog catalog = updated != null ? updated : readFull(conn);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        if (updated != null) {
+            System.out.printf("Catalog loaded from snapshot (change %d) and updated to change %d in %d ms.\n",
+                    saved.maxChangeId, catalog.maxChangeId, elapsedMillis);
+        } else {
+            System.out.printf("Catalog loaded from the database (%d medicines, %d suppliers) in %d ms.\n",
+                    catalog.medicines.size(), catalog.suppliers.size(), elapsedMillis);
+        }
+        if (catalog != saved) {
+            CatalogSnapshot.write(catalog, snapshot);
+        }
+        return catalog;
+    }
+
+    /**
+     * Saves a catalog to a snapshot file, replacing it atomically.
+     *
+     * @param catalog The catalog to save.
+     * @param snapshot The snapshot file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void save(Catalog catalog, Path snapshot) throws IOException {
+        CatalogSnapshot.write(catalog, snapshot);
+    }
+
+    /**
+     * Reads the whole catalog.
+     *
+     * @param conn A connection in auto-commit mode.
+     * @return The catalog.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static Catalog readFull(Connection conn) throws SQLException {
+        return inSnapshot(conn, () -> {
+            Position position = readPosition(conn);
+            Map<Long, CatalogMedicine> medicines = new TreeMap<>();
+            readMedicines(conn, "SELECT medicine_id, name, unit_price FROM medicine", null, medicines);
+            Map<Long, Supplier> suppliers = new TreeMap<>();
+            readSuppliers(conn, "SELECT supplier_id, name, country, city, street, postal_code FROM supplier", null, suppliers);
+            Map<Long, List<SupplierMedicine>> links = new TreeMap<>();
+            readLinks(conn, "SELECT supplier_id, medicine_id, supply_price FROM suppliermedicine", null, links);
+            return new Catalog(position.epoch(), position.maxChangeId(), position.horizon(), medicines, suppliers, links);
+        });
+    }
+
+    /**
+     * Brings a catalog up to date by reading only the rows changed since it was read. A catalog from
+     * another database (a different {@code catalog_state.epoch}), or one whose changes have been
+     * pruned from the log, is replaced by a full read.
+     *
+     * @param conn A connection in auto-commit mode.
+     * @param catalog The catalog to update; it is not modified.
+     * @return The updated catalog, or {@code catalog} itself if nothing has changed.
+     * @throws SQLException If a database access error occurs.
+     */
+    public static Catalog refresh(Connection conn, Catalog catalog) throws SQLException {
+        Catalog refreshed = readChanges(conn, catalog);
+        return refreshed != null ? refreshed : readFull(conn);
+    }
+
+    /**
+     * Reads the rows changed since a catalog was read.
+     *
+     * @return The updated catalog, {@code catalog} itself if nothing has changed, or null if the
+     * catalog is from another database or its changes have been pruned.
+     */
+    private static Catalog readChanges(Connection conn, Catalog catalog) throws SQLException {
+        return inSnapshot(conn, () -> {
+            Position position = readPosition(conn);
+            if (!position.epoch().equals(catalog.epoch) || catalog.horizon < position.prunedBelow()) {
+                return null;
+            }
+            if (position.maxChangeId() == catalog.maxChangeId && position.horizon() == catalog.horizon) {
+                return catalog;
+            }
+
+            Set<Long> medicineIds = new HashSet<>();
+            Set<Long> supplierIds = new HashSet<>();
+            Set<Long> linkMedicineIds = new HashSet<>();
+            final String SQLQuery = "SELECT table_name, row_id, medicine_id FROM catalog_change WHERE xid >= ?::TEXT::XID8";
+            try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+                pstmt.setLong(1, catalog.horizon);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        switch (rs.getString(1)) {
+                            case "medicine" -> medicineIds.add(rs.getLong(2));
+                            case "supplier" -> supplierIds.add(rs.getLong(2));
+                            default -> linkMedicineIds.add(rs.getLong(3));
+                        }
+                    }
+                }
+            }
+
+            Map<Long, CatalogMedicine> medicines = catalog.medicines;
+            if (!medicineIds.isEmpty()) {
+                medicines = new TreeMap<>(medicines);
+                medicines.keySet().removeAll(medicineIds);
+                readMedicines(conn, "SELECT medicine_id, name, unit_price FROM medicine WHERE medicine_id = ANY(?)",
+                        medicineIds, medicines);
+            }
+            Map<Long, Supplier> suppliers = catalog.suppliers;
+            if (!supplierIds.isEmpty()) {
+                suppliers = new TreeMap<>(suppliers);
+                suppliers.keySet().removeAll(supplierIds);
+                readSuppliers(conn, "SELECT supplier_id, name, country, city, street, postal_code FROM supplier " +
+                        "WHERE supplier_id = ANY(?)", supplierIds, suppliers);
+            }
+            Map<Long, List<SupplierMedicine>> links = catalog.links;
+            if (!linkMedicineIds.isEmpty()) {
+                links = new TreeMap<>(links);
+                links.keySet().removeAll(linkMedicineIds);
+                readLinks(conn, "SELECT supplier_id, medicine_id, supply_price FROM suppliermedicine WHERE medicine_id = ANY(?)",
+                        linkMedicineIds, links);
+            }
+            return new Catalog(catalog.epoch, position.maxChangeId(), position.horizon(), medicines, suppliers, links);
+        });
+    }
+
+    /**
+     * Deletes the change log entries of transactions below a horizon, except the newest entry, which
+     * keeps the last change ID. Catalogs read before that horizon are refreshed by a full read afterwards.
+     *
+     * @param conn A connection in auto-commit mode.
+     * @param epoch The {@code catalog_state.epoch} the horizon belongs to; nothing is deleted in another database.
+     * @param horizon The horizon of a catalog; every change it does not include is kept.
+     * @return The number of entries deleted.
+     * @throws SQLException If a database access error occurs.
+     */
+    static int prune(Connection conn, UUID epoch, long horizon) throws SQLException {
+        final String advanceSQL = "UPDATE catalog_state SET pruned_below = GREATEST(pruned_below, ?::TEXT::XID8) WHERE epoch = ?";
+        final String deleteSQL = "DELETE FROM catalog_change WHERE xid < ?::TEXT::XID8 " +
+                "AND change_id < (SELECT MAX(change_id) FROM catalog_change)";
+
+        conn.setAutoCommit(false);
+        try {
+            int deleted = 0;
+            try (PreparedStatement pstmt = conn.prepareStatement(advanceSQL)) {
+                pstmt.setLong(1, horizon);
+                pstmt.setObject(2, epoch);
+                if (pstmt.executeUpdate() > 0) {
+                    try (PreparedStatement delete = conn.prepareStatement(deleteSQL)) {
+                        delete.setLong(1, horizon);
+                        deleted = delete.executeUpdate();
+                    }
+                }
+            }
+            conn.commit();
+            return deleted;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private record Position(UUID epoch, long maxChangeId, long horizon, long prunedBelow) {}
+
+    /**
+     * Must be the first statement of the transaction: the horizon is the xmin of its snapshot.
+     */
+    private static Position readPosition(Connection conn) throws SQLException {
+        final String SQLQuery = "SELECT epoch, " +
+                "(SELECT COALESCE(MAX(change_id), 0) FROM catalog_change), " +
+                "pg_snapshot_xmin(pg_current_snapshot())::TEXT::BIGINT, pruned_below::TEXT::BIGINT " +
+                "FROM catalog_state";
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("catalog_state is empty; the catalog tables are not set up.");
+            }
+            return new Position(rs.getObject(1, UUID.class), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+        }
+    }
+
+    private static void readMedicines(Connection conn, String SQLQuery, Set<Long> ids,
+                                      Map<Long, CatalogMedicine> medicines) throws SQLException {
+        try (PreparedStatement pstmt = prepare(conn, SQLQuery, ids);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                CatalogMedicine medicine = new CatalogMedicine(rs.getLong(1), rs.getString(2), rs.getDouble(3));
+                medicines.put(medicine.id(), medicine);
+            }
+        }
+    }
+
+    private static void readSuppliers(Connection conn, String SQLQuery, Set<Long> ids,
+                                      Map<Long, Supplier> suppliers) throws SQLException {
+        try (PreparedStatement pstmt = prepare(conn, SQLQuery, ids);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Address address = new Address(rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6));
+                Supplier supplier = new Supplier(rs.getLong(1), rs.getString(2), address);
+                suppliers.put(supplier.id(), supplier);
+            }
+        }
+    }
+
+    private static void readLinks(Connection conn, String SQLQuery, Set<Long> medicineIds,
+                                  Map<Long, List<SupplierMedicine>> links) throws SQLException {
+        Map<Long, List<SupplierMedicine>> read = new TreeMap<>();
+        try (PreparedStatement pstmt = prepare(conn, SQLQuery, medicineIds);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                SupplierMedicine link = new SupplierMedicine(rs.getLong(1), rs.getLong(2), rs.getDouble(3));
+                read.computeIfAbsent(link.medicineId(), id -> new ArrayList<>()).add(link);
+            }
+        }
+        for (Map.Entry<Long, List<SupplierMedicine>> offers : read.entrySet()) {
+            offers.getValue().sort(CHEAPEST_FIRST);
+            links.put(offers.getKey(), List.copyOf(offers.getValue()));
+        }
+    }
+
+    private static PreparedStatement prepare(Connection conn, String SQLQuery, Set<Long> ids) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+        if (ids != null) {
+            Array array = conn.createArrayOf("bigint", ids.toArray());
+            pstmt.setArray(1, array);
+        }
+        return pstmt;
+    }
+
+    private interface SnapshotWork {
+        Catalog run() throws SQLException;
+    }
+
+    /**
+     * Runs the work in a read-only REPEATABLE READ transaction and restores the connection afterwards.
+     */
+    private static Catalog inSnapshot(Connection conn, SnapshotWork work) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            throw new IllegalStateException("The catalog is read in its own transaction; the connection must be in auto-commit mode.");
+        }
+        int isolation = conn.getTransactionIsolation();
+        conn.setAutoCommit(false);
+        conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        conn.setReadOnly(true);
+        try {
+            Catalog catalog = work.run();
+            conn.commit();
+            return catalog;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setReadOnly(false);
+            conn.setTransactionIsolation(isolation);
+            conn.setAutoCommit(true);
+        }
+    }
+}
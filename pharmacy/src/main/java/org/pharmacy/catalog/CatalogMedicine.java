@@ -0,0 +1,32 @@
+package org.pharmacy.catalog;
+
+/**
+ * A medicine as held in the {@link Catalog}: its name and selling price, without the stock, which
+ * changes with every order and is always read from the database.
+ *
+ * @param id The unique identifier for the medicine.
+ * @param name The commercial name of the medicine (cannot be null or blank).
+ * @param unitPrice The selling price per unit (must be positive).
+ */
+public record CatalogMedicine(
+        long id,
+        String name,
+        double unitPrice
+) {
+    /**
+     * Compact constructor enforcing a positive ID and price and a present name.
+     *
+     * @throws IllegalArgumentException if ID or unitPrice is non-positive, or name is blank.
+     */
+    public CatalogMedicine {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Medicine ID must be positive.");
+        }
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Medicine name cannot be empty.");
+        }
+        if (unitPrice <= 0) {
+            throw new IllegalArgumentException("Unit price must be positive.");
+        }
+    }
+}
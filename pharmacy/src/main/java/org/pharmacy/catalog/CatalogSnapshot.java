@@ -0,0 +1,192 @@
+package org.pharmacy.catalog;
+
+import org.pharmacy.model.Address;
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary file holding a {@link Catalog}, so a restart reads the catalog from local disk
+ * instead of querying it.
+ * <p>
+ * Layout (big-endian): magic, {@value #SCHEMA_VERSION}, database epoch, max change ID, transaction
+ * horizon, the medicine, supplier and link counts, then the records (strings as an unsigned 16-bit
+ * byte length and UTF-8 bytes), and finally a CRC32C of everything before it. Files are replaced
+ * atomically, so a crash while saving leaves the previous snapshot intact.
+ * </p>
+ */
+final class CatalogSnapshot {
+
+    /** Version of the file layout and of the catalog tables it mirrors; bump on any change to either. */
+    static final int SCHEMA_VERSION = 1;
+
+    private static final int MAGIC = 0x50484353; // "PHCS"
+    private static final int HEADER_BYTES = 4 + 4 + 16 + 8 + 8 + 4 + 4 + 4;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Writes a catalog to a file, replacing it atomically.
+     *
+     * @param catalog The catalog to save.
+     * @param file The snapshot file; its directory is created if missing.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(Catalog catalog, Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(SCHEMA_VERSION);
+        out.writeLong(catalog.epoch.getMostSignificantBits());
+        out.writeLong(catalog.epoch.getLeastSignificantBits());
+        out.writeLong(catalog.maxChangeId);
+        out.writeLong(catalog.horizon);
+        out.writeInt(catalog.medicines.size());
+        out.writeInt(catalog.suppliers.size());
+        out.writeInt(catalog.offerCount());
+
+        for (CatalogMedicine medicine : catalog.medicines.values()) {
+            out.writeLong(medicine.id());
+            out.writeDouble(medicine.unitPrice());
+            writeString(out, medicine.name());
+        }
+        for (Supplier supplier : catalog.suppliers.values()) {
+            out.writeLong(supplier.id());
+            writeString(out, supplier.name());
+            writeString(out, supplier.address().country());
+            writeString(out, supplier.address().city());
+            writeString(out, supplier.address().street());
+            writeString(out, supplier.address().postalCode());
+        }
+        for (List<SupplierMedicine> offers : catalog.links.values()) {
+            for (SupplierMedicine link : offers) {
+                out.writeLong(link.supplierId());
+                out.writeLong(link.medicineId());
+                out.writeDouble(link.supplyPrice());
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Memory-maps and decodes a snapshot file.
+     *
+     * @param file The snapshot file.
+     * @return The catalog, or null if the file is missing, damaged or has another schema version.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    static Catalog read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 4 || size > Integer.MAX_VALUE) {
+                return invalid(file, "unexpected size");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC) {
+                return invalid(file, "not a catalog snapshot");
+            }
+            if (buffer.getInt(4) != SCHEMA_VERSION) {
+                return invalid(file, "schema version " + buffer.getInt(4) + ", expected " + SCHEMA_VERSION);
+            }
+            int contentBytes = (int) size - 4;
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(0, contentBytes));
+            if ((int) crc.getValue() != buffer.getInt(contentBytes)) {
+                return invalid(file, "checksum mismatch");
+            }
+            return decode(buffer.position(8).limit(contentBytes));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return invalid(file, "malformed content");
+        }
+    }
+
+    private static Catalog decode(ByteBuffer buffer) {
+        UUID epoch = new UUID(buffer.getLong(), buffer.getLong());
+        long maxChangeId = buffer.getLong();
+        long horizon = buffer.getLong();
+        int medicineCount = buffer.getInt();
+        int supplierCount = buffer.getInt();
+        int linkCount = buffer.getInt();
+
+        Map<Long, CatalogMedicine> medicines = new TreeMap<>();
+        for (int i = 0; i < medicineCount; i++) {
+            long id = buffer.getLong();
+            double unitPrice = buffer.getDouble();
+            medicines.put(id, new CatalogMedicine(id, readString(buffer), unitPrice));
+        }
+        Map<Long, Supplier> suppliers = new TreeMap<>();
+        for (int i = 0; i < supplierCount; i++) {
+            long id = buffer.getLong();
+            String name = readString(buffer);
+            Address address = new Address(readString(buffer), readString(buffer), readString(buffer), readString(buffer));
+            suppliers.put(id, new Supplier(id, name, address));
+        }
+        Map<Long, List<SupplierMedicine>> links = new TreeMap<>();
+        for (int i = 0; i < linkCount; i++) {
+            SupplierMedicine link = new SupplierMedicine(buffer.getLong(), buffer.getLong(), buffer.getDouble());
+            links.computeIfAbsent(link.medicineId(), id -> new ArrayList<>()).add(link);
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes in catalog snapshot.");
+        }
+        return new Catalog(epoch, maxChangeId, horizon, medicines, suppliers, links);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for a catalog snapshot: " + value.substring(0, 40) + "...");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Catalog invalid(Path file, String reason) {
+        System.out.printf("Ignoring catalog snapshot %s: %s.\n", file, reason);
+        return null;
+    }
+}
@@ -0,0 +1,109 @@
+package org.pharmacy.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One parsed line of a batch command file.
+ *
+ * @param lineNumber The 1-based line number in the input, used when reporting results.
+ * @param name The command name (e.g. {@code add-client}).
+ * @param args The command arguments, with quotes removed.
+ */
+public record BatchCommand(
+        long lineNumber,
+        String name,
+        List<String> args
+) {
+    /**
+     * Parses a command line. Arguments are separated by whitespace; an argument containing
+     * spaces can be wrapped in double quotes.
+     *
+     * @param lineNumber The line number of the input line.
+     * @param line The raw line (must not be blank or a comment).
+     * @return The parsed command.
+     * @throws IllegalArgumentException If a quoted argument is not terminated.
+     */
+    public static BatchCommand parse(long lineNumber, String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote on line " + lineNumber + ".");
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return new BatchCommand(lineNumber, tokens.getFirst().toLowerCase(), List.copyOf(tokens.subList(1, tokens.size())));
+    }
+
+    /**
+     * Checks the number of arguments.
+     *
+     * @param expected The required number of arguments.
+     * @param usage The usage text shown in the error message.
+     * @throws IllegalArgumentException If the argument count differs.
+     */
+    void requireArgs(int expected, String usage) {
+        if (args.size() != expected) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    /**
+     * Parses an argument as a long.
+     *
+     * @throws IllegalArgumentException If the argument is not a valid number.
+     */
+    long longArg(int index) {
+        try {
+            return Long.parseLong(args.get(index));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Argument '" + args.get(index) + "' is not a valid number.");
+        }
+    }
+
+    /**
+     * Parses an argument as an int.
+     *
+     * @throws IllegalArgumentException If the argument is not a valid number.
+     */
+    int intArg(int index) {
+        try {
+            return Integer.parseInt(args.get(index));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Argument '" + args.get(index) + "' is not a valid number.");
+        }
+    }
+
+    /**
+     * Parses an argument as a double.
+     *
+     * @throws IllegalArgumentException If the argument is not a valid number.
+     */
+    double doubleArg(int index) {
+        try {
+            return Double.parseDouble(args.get(index));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Argument '" + args.get(index) + "' is not a valid number.");
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package org.pharmacy.cli;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.model.Address;
+import org.pharmacy.model.Client;
+import org.pharmacy.model.OrderRequest;
+import org.pharmacy.model.OrderResult;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.repository.ClientRepository;
+import org.pharmacy.repository.MedicineRepository;
+import org.pharmacy.repository.OrderRepository;
+import org.pharmacy.repository.SupplierRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-interactive command mode: executes a script of repository commands read from a file or stdin.
+ * <p>
+ * Consecutive commands of the same kind are grouped (up to {@code batchSize} commands) and executed
+ * with one batched repository call, and each group is committed as one transaction window. If a
+ * whole group fails, it is rolled back and replayed one command at a time so that every command
+ * still gets its own result. Supported commands:
+ * </p>
+ * <pre>
+ * add-client    &lt;first&gt; &lt;last&gt; &lt;country&gt; &lt;city&gt; &lt;street&gt; &lt;postal&gt;
+ * create-order  &lt;clientId&gt; &lt;medicineId&gt;:&lt;quantity&gt; [&lt;medicineId&gt;:&lt;quantity&gt; ...]
+ * set-stock     &lt;medicineId&gt; &lt;stock&gt;
+ * link-supplier &lt;supplierId&gt; &lt;medicineId&gt; &lt;supplyPrice&gt;
+ * delete-order  &lt;orderId&gt;
+ * </pre>
+ * Blank lines and lines starting with {@code #} are ignored.
+ */
+public class BatchRunner {
+
+    /**
+     * Default maximum number of commands executed in one batched call / transaction window.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * Result of a single command.
+     *
+     * @param command The command that was executed.
+     * @param success Whether it succeeded.
+     * @param message A short description of the outcome.
+     */
+    public record CommandResult(BatchCommand command, boolean success, String message) {}
+
+    /**
+     * Totals for a whole batch run.
+     *
+     * @param commands Number of commands read.
+     * @param succeeded Number of commands that succeeded.
+     * @param failed Number of commands that failed.
+     * @param elapsedNanos Wall-clock duration of the run.
+     */
+    public record Summary(long commands, long succeeded, long failed, long elapsedNanos) {
+        /**
+         * @return The number of commands processed per second.
+         */
+        public double throughput() {
+            return elapsedNanos == 0 ? 0 : commands / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+
+    private final Connection conn;
+    private final ClientRepository clientRepo;
+    private final OrderRepository orderRepo;
+    private final MedicineRepository medicineRepo;
+    private final SupplierRepository supplierRepo;
+    private final PrintStream out;
+    private final int batchSize;
+
+    private long succeeded;
+    private long failed;
+
+    /**
+     * Creates a batch runner.
+     *
+     * @param conn The connection shared by the repositories (its transactions are managed by the runner).
+     * @param clientRepo The repository for client operations.
+     * @param orderRepo The repository for order operations.
+     * @param medicineRepo The repository for medicine operations.
+     * @param supplierRepo The repository for supplier operations.
+     * @param out Where per-command results and the summary are printed.
+     * @param batchSize The maximum number of commands per batched call (must be positive).
+     */
+    public BatchRunner(Connection conn, ClientRepository clientRepo, OrderRepository orderRepo,
+                       MedicineRepository medicineRepo, SupplierRepository supplierRepo,
+                       PrintStream out, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        this.conn = conn;
+        this.clientRepo = clientRepo;
+        this.orderRepo = orderRepo;
+        this.medicineRepo = medicineRepo;
+        this.supplierRepo = supplierRepo;
+        this.out = out;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads and executes every command from the input.
+     *
+     * @param input The command script.
+     * @return The totals for the run.
+     * @throws IOException If reading the input fails.
+     * @throws SQLException If a database error occurs that cannot be attributed to a single command.
+     */
+    public Summary run(Reader input) throws IOException, SQLException {
+        long started = System.nanoTime();
+        succeeded = 0;
+        failed = 0;
+
+        boolean previousAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            BufferedReader reader = new BufferedReader(input);
+            List<BatchCommand> group = new ArrayList<>();
+            String line;
+            long lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.strip();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+
+                BatchCommand command;
+                try {
+                    command = BatchCommand.parse(lineNumber, trimmed);
+                } catch (IllegalArgumentException e) {
+                    flush(group);
+                    report(new CommandResult(new BatchCommand(lineNumber, "?", List.of()), false, e.getMessage()));
+                    continue;
+                }
+
+                if (!group.isEmpty() && (!group.getFirst().name().equals(command.name()) || group.size() >= batchSize)) {
+                    flush(group);
+                }
+                group.add(command);
+            }
+            flush(group);
+        } catch (IOException | SQLException | RuntimeException e) {
+            // Restoring auto-commit below would otherwise commit a half-executed group
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(previousAutoCommit);
+        }
+
+        Summary summary = new Summary(succeeded + failed, succeeded, failed, System.nanoTime() - started);
+        out.printf("Batch finished: %d commands, %d succeeded, %d failed in %.2f s (%.1f commands/s).%n",
+                summary.commands(), summary.succeeded(), summary.failed(),
+                summary.elapsedNanos() / 1_000_000_000.0, summary.throughput());
+        return summary;
+    }
+
+    /**
+     * Executes and commits a group of same-kind commands, falling back to one-by-one execution
+     * if the batched call fails as a whole. Results are reported in input line order.
+     */
+    private void flush(List<BatchCommand> group) throws SQLException {
+        if (group.isEmpty()) {
+            return;
+        }
+        try {
+            List<CommandResult> results = new ArrayList<>(execute(group));
+            conn.commit();
+            // Commands rejected before the batched call come first in the results
+            results.sort(Comparator.comparingLong(result -> result.command().lineNumber()));
+            results.forEach(this::report);
+        } catch (SQLException | DataIntegrityViolationException | DataNotFoundException e) {
+            conn.rollback();
+            if (group.size() == 1) {
+                report(new CommandResult(group.getFirst(), false, e.getMessage()));
+            } else {
+                for (BatchCommand command : group) {
+                    flush(new ArrayList<>(List.of(command)));
+                }
+            }
+        }
+        group.clear();
+    }
+
+    /**
+     * Dispatches a group to the batched repository call for its command kind.
+     */
+    private List<CommandResult> execute(List<BatchCommand> group) throws SQLException {
+        return switch (group.getFirst().name()) {
+            case "add-client" -> addClients(group);
+            case "create-order" -> createOrders(group);
+            case "set-stock" -> setStocks(group);
+            case "link-supplier" -> linkSuppliers(group);
+            case "delete-order" -> deleteOrders(group);
+            default -> group.stream()
+                    .map(c -> new CommandResult(c, false, "Unknown command '" + c.name() + "'."))
+                    .toList();
+        };
+    }
+
+    private List<CommandResult> addClients(List<BatchCommand> group) throws SQLException {
+        List<CommandResult> results = new ArrayList<>();
+        List<Client> clients = new ArrayList<>();
+        List<BatchCommand> accepted = new ArrayList<>();
+
+        for (BatchCommand command : group) {
+            try {
+                command.requireArgs(6, "add-client <first> <last> <country> <city> <street> <postal>");
+                List<String> a = command.args();
+                clients.add(new Client(0, a.get(0), a.get(1), new Address(a.get(2), a.get(3), a.get(4), a.get(5))));
+                accepted.add(command);
+            } catch (IllegalArgumentException e) {
+                results.add(new CommandResult(command, false, e.getMessage()));
+            }
+        }
+
+        if (!clients.isEmpty()) {
+            clientRepo.addClients(clients);
+            for (BatchCommand command : accepted) {
+                results.add(new CommandResult(command, true, "client added"));
+            }
+        }
+        return results;
+    }
+
+    private List<CommandResult> createOrders(List<BatchCommand> group) throws SQLException {
+        List<CommandResult> results = new ArrayList<>();
+        List<OrderRequest> requests = new ArrayList<>();
+        List<BatchCommand> accepted = new ArrayList<>();
+
+        for (BatchCommand command : group) {
+            try {
+                if (command.args().size() < 2) {
+                    throw new IllegalArgumentException("Usage: create-order <clientId> <medicineId>:<quantity> [...]");
+                }
+                Map<Long, Integer> items = new HashMap<>();
+                for (String item : command.args().subList(1, command.args().size())) {
+                    String[] parts = item.split(":");
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("Item '" + item + "' must be <medicineId>:<quantity>.");
+                    }
+                    items.merge(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), Integer::sum);
+                }
+                requests.add(new OrderRequest(command.longArg(0), items));
+                accepted.add(command);
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException is an IllegalArgumentException as well
+                results.add(new CommandResult(command, false, e.getMessage()));
+            }
+        }
+
+        if (!requests.isEmpty()) {
+            List<OrderResult> orderResults = orderRepo.createOrders(requests);
+            for (int i = 0; i < orderResults.size(); i++) {
+                OrderResult result = orderResults.get(i);
+                results.add(result.success()
+                        ? new CommandResult(accepted.get(i), true, "order " + result.orderId() + " created")
+                        : new CommandResult(accepted.get(i), false, result.failureReason()));
+            }
+        }
+        return results;
+    }
+
+    private List<CommandResult> setStocks(List<BatchCommand> group) throws SQLException {
+        List<CommandResult> results = new ArrayList<>();
+        Map<Long, Integer> newStocks = new LinkedHashMap<>();
+        List<BatchCommand> accepted = new ArrayList<>();
+
+        for (BatchCommand command : group) {
+            try {
+                command.requireArgs(2, "set-stock <medicineId> <stock>");
+                long medicineId = command.longArg(0);
+                int stock = command.intArg(1);
+                if (medicineId <= 0 || stock < 0) {
+                    throw new IllegalArgumentException("Medicine ID must be positive and stock cannot be negative.");
+                }
+                // A later command for the same medicine wins, as it would when run sequentially
+                newStocks.remove(medicineId);
+                newStocks.put(medicineId, stock);
+                accepted.add(command);
+            } catch (IllegalArgumentException e) {
+                results.add(new CommandResult(command, false, e.getMessage()));
+            }
+        }
+
+        if (!newStocks.isEmpty()) {
+            List<Long> missing = medicineRepo.updateMedicineStocks(newStocks);
+            for (BatchCommand command : accepted) {
+                long medicineId = command.longArg(0);
+                results.add(missing.contains(medicineId)
+                        ? new CommandResult(command, false, "Medicine with ID " + medicineId + " was not found.")
+                        : new CommandResult(command, true, "stock set to " + command.intArg(1)));
+            }
+        }
+        return results;
+    }
+
+    private List<CommandResult> linkSuppliers(List<BatchCommand> group) throws SQLException {
+        List<CommandResult> results = new ArrayList<>();
+        List<SupplierMedicine> links = new ArrayList<>();
+        List<BatchCommand> accepted = new ArrayList<>();
+
+        for (BatchCommand command : group) {
+            try {
+                command.requireArgs(3, "link-supplier <supplierId> <medicineId> <supplyPrice>");
+                links.add(new SupplierMedicine(command.longArg(0), command.longArg(1), command.doubleArg(2)));
+                accepted.add(command);
+            } catch (IllegalArgumentException e) {
+                results.add(new CommandResult(command, false, e.getMessage()));
+            }
+        }
+
+        if (!links.isEmpty()) {
+            supplierRepo.addMedicinesToSupplier(links);
+            for (BatchCommand command : accepted) {
+                results.add(new CommandResult(command, true, "supply price set"));
+            }
+        }
+        return results;
+    }
+
+    private List<CommandResult> deleteOrders(List<BatchCommand> group) throws SQLException {
+        List<CommandResult> results = new ArrayList<>();
+        for (BatchCommand command : group) {
+            try {
+                command.requireArgs(1, "delete-order <orderId>");
+                long orderId = command.longArg(0);
+                results.add(orderRepo.deleteOrder(orderId)
+                        ? new CommandResult(command, true, "order deleted")
+                        : new CommandResult(command, false, "Order with ID " + orderId + " was not found."));
+            } catch (IllegalArgumentException e) {
+                results.add(new CommandResult(command, false, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Prints a command result and updates the totals.
+     */
+    private void report(CommandResult result) {
+        if (result.success()) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+        out.printf("line %d: %s %s - %s%n",
+                result.command().lineNumber(),
+                result.success() ? "OK  " : "FAIL",
+                result.command().name(),
+                result.message());
+    }
+}
@@ -0,0 +1,137 @@
+package org.pharmacy.clients;
+
+import org.pharmacy.model.Address;
+import org.pharmacy.model.Client;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily reads clients from a CSV file with the columns
+ * {@code first_name,last_name,country,city,street,postal_code}.
+ * <p>
+ * Rows are parsed one at a time, so the reader can feed very large files into
+ * {@link org.pharmacy.repository.ClientRepository#importClients(Iterator)} without
+ * loading them into memory. A header line is skipped if its first field is {@code first_name}.
+ * Fields may be wrapped in double quotes; embedded quotes are written as {@code ""}.
+ * </p>
+ */
+public class ClientCsvReader implements Iterator<Client>, Closeable {
+
+    private final BufferedReader reader;
+    private long lineNumber;
+    private Client next;
+
+    /**
+     * Opens the given CSV file for reading.
+     *
+     * @param file The path of the CSV file (UTF-8).
+     * @throws IOException If the file cannot be opened.
+     */
+    public ClientCsvReader(Path file) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks whether another client row is available.
+     *
+     * @throws UncheckedIOException If reading the file fails.
+     * @throws IllegalArgumentException If a row is malformed (the message contains the line number).
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = parseLine(line);
+                if (lineNumber == 1 && "first_name".equalsIgnoreCase(fields.getFirst())) {
+                    continue; // header
+                }
+                next = toClient(fields);
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Client next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Client client = next;
+        next = null;
+        return client;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Converts the parsed fields of one line into a validated Client.
+     */
+    private Client toClient(List<String> fields) {
+        if (fields.size() != 6) {
+            throw new IllegalArgumentException(
+                    String.format("Line %d: expected 6 fields but found %d.", lineNumber, fields.size()));
+        }
+        try {
+            Address address = new Address(fields.get(2), fields.get(3), fields.get(4), fields.get(5));
+            return new Client(0, fields.get(0), fields.get(1), address);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Splits a CSV line into fields, honouring double-quoted values.
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,337 @@
+package org.pharmacy.clients;
+
+import org.pharmacy.model.Client;
+import org.pharmacy.model.MergeCandidate;
+import org.pharmacy.repository.ClientRepository;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Finds client records that most likely describe the same person.
+ * <p>
+ * Clients are streamed from the database ordered by the {@link ClientRepository#scanKey} of their
+ * postal code and last name, and grouped into <em>blocks</em> of adjacent clients sharing both keys;
+ * only clients within a block are compared. Each block is scored pairwise on a {@link ForkJoinPool}
+ * while the next blocks are still being read.
+ * </p>
+ * <p>
+ * Every client read takes a permit out of {@code maxPendingClients} and holds it until its block has
+ * been compared, so the reader waits when the workers fall behind and memory use stays bounded
+ * regardless of the table size, even for a postal code shared by many clients. A block that reaches
+ * {@code maxPendingClients} clients is compared as it is and the rest of it starts a new block;
+ * pairs across those parts are not compared.
+ * </p>
+ */
+public class DuplicateClientDetector {
+
+    /**
+     * Summary of a detection run.
+     *
+     * @param clientsScanned Number of client rows read.
+     * @param blocks Number of blocks with at least two clients.
+     * @param comparisons Number of pairwise comparisons performed.
+     * @param candidates Number of merge candidates reported.
+     */
+    public record Result(long clientsScanned, long blocks, long comparisons, long candidates) {}
+
+    /**
+     * Default minimum score for a pair to be reported as a merge candidate.
+     */
+    public static final double DEFAULT_THRESHOLD = 0.88;
+
+    /**
+     * Default upper bound on the number of clients buffered or being compared at once, which is also
+     * the largest block compared as a whole.
+     */
+    public static final int DEFAULT_MAX_PENDING_CLIENTS = 200_000;
+
+    /**
+     * Number of pairwise comparisons below which a block is compared on a single thread.
+     */
+    private static final long SEQUENTIAL_COMPARISONS = 20_000;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{IsAlphabetic}\\p{IsDigit}]+");
+
+    private final ClientRepository clientRepo;
+    private final ForkJoinPool pool;
+    private final double threshold;
+    private final int maxPendingClients;
+
+    /**
+     * Creates a detector with the default threshold and memory bound, running on the common pool.
+     *
+     * @param clientRepo The repository used to stream clients.
+     */
+    public DuplicateClientDetector(ClientRepository clientRepo) {
+        this(clientRepo, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD, DEFAULT_MAX_PENDING_CLIENTS);
+    }
+
+    /**
+     * Creates a detector.
+     *
+     * @param clientRepo The repository used to stream clients.
+     * @param pool The fork-join pool on which blocks are compared.
+     * @param threshold The minimum score (0-1) for a pair to be reported.
+     * @param maxPendingClients The maximum number of clients buffered or being compared at once.
+     * @throws IllegalArgumentException If the threshold is outside [0, 1] or the bound is not positive.
+     */
+    public DuplicateClientDetector(ClientRepository clientRepo, ForkJoinPool pool, double threshold, int maxPendingClients) {
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException("Threshold must be between 0 and 1.");
+        }
+        if (maxPendingClients <= 0) {
+            throw new IllegalArgumentException("Pending client limit must be positive.");
+        }
+        this.clientRepo = clientRepo;
+        this.pool = pool;
+        this.threshold = threshold;
+        this.maxPendingClients = maxPendingClients;
+    }
+
+    /**
+     * Scans all clients and reports likely duplicates.
+     * <p>The sink is called concurrently from the pool's worker threads and must be thread-safe.
+     * Each pair is reported once, with the lower ID first.</p>
+     *
+     * @param sink Receives every merge candidate whose score reaches the threshold.
+     * @return Statistics about the run.
+     * @throws SQLException If reading the clients fails.
+     */
+    public Result detect(Consumer<MergeCandidate> sink) throws SQLException {
+        Semaphore pending = new Semaphore(maxPendingClients);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        LongAdder comparisons = new LongAdder();
+        LongAdder candidates = new LongAdder();
+        long[] scanned = {0};
+        long[] blocks = {0};
+
+        // The block's members already hold one permit each; they are given back once it is compared
+        Consumer<Block> submitBlock = block -> {
+            blocks[0]++;
+            pool.execute(() -> {
+                try {
+                    new BlockComparison(block.members(), 0, block.size(), sink, comparisons, candidates).invoke();
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    pending.release(block.size());
+                }
+            });
+        };
+
+        BlockBuffer buffer = new BlockBuffer(submitBlock, pending);
+        clientRepo.scanClientsByPostalCode(client -> {
+            scanned[0]++;
+            String postalKey = ClientRepository.scanKey(client.address().postalCode());
+            String lastNameKey = ClientRepository.scanKey(client.lastname());
+            if (!postalKey.equals(buffer.postalKey) || !lastNameKey.equals(buffer.lastNameKey)
+                    || buffer.members.size() == maxPendingClients) {
+                buffer.flush();
+                buffer.postalKey = postalKey;
+                buffer.lastNameKey = lastNameKey;
+            }
+            pending.acquireUninterruptibly();
+            buffer.members.add(Member.of(client));
+            if (failure.get() != null) {
+                throw new IllegalStateException("Duplicate detection aborted.", failure.get());
+            }
+        });
+        buffer.flush();
+
+        // Every running block holds permits; getting all of them back means every block is finished
+        pending.acquireUninterruptibly(maxPendingClients);
+        pending.release(maxPendingClients);
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Duplicate detection failed.", failure.get());
+        }
+        return new Result(scanned[0], blocks[0], comparisons.sum(), candidates.sum());
+    }
+
+    /**
+     * Normalizes a compared field: strips diacritics and punctuation and lower-cases the result.
+     * Unlike {@link ClientRepository#scanKey}, letters outside ASCII are kept.
+     *
+     * @param value The raw value (e.g. a first name or street).
+     * @return The normalized value.
+     */
+    static String normalizeKey(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        String stripped = DIACRITICS.matcher(decomposed).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(stripped).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Jaro-Winkler similarity between two strings, in [0, 1].
+     */
+    static double jaroWinkler(String a, String b) {
+        if (a.equals(b)) {
+            return 1.0;
+        }
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+
+        int matchWindow = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        boolean[] aMatched = new boolean[a.length()];
+        boolean[] bMatched = new boolean[b.length()];
+        int matches = 0;
+
+        for (int i = 0; i < a.length(); i++) {
+            int from = Math.max(0, i - matchWindow);
+            int to = Math.min(b.length(), i + matchWindow + 1);
+            for (int j = from; j < to; j++) {
+                if (!bMatched[j] && a.charAt(i) == b.charAt(j)) {
+                    aMatched[i] = true;
+                    bMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < a.length(); i++) {
+            if (aMatched[i]) {
+                while (!bMatched[j]) {
+                    j++;
+                }
+                if (a.charAt(i) != b.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+
+        double m = matches;
+        double jaro = (m / a.length() + m / b.length() + (m - transpositions / 2.0) / m) / 3.0;
+
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(a.length(), b.length())) && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1.0 - jaro);
+    }
+
+    /**
+     * Scores two clients from the same block (same last name and postal code).
+     */
+    static double score(Member a, Member b) {
+        double firstName = jaroWinkler(a.firstName(), b.firstName());
+        double street = jaroWinkler(a.street(), b.street());
+        double city = a.city().equals(b.city()) ? 1.0 : jaroWinkler(a.city(), b.city());
+        return Math.min(1.0, 0.5 * firstName + 0.3 * street + 0.2 * city);
+    }
+
+    /**
+     * A client reduced to its normalized comparison fields.
+     */
+    record Member(long id, String firstName, String street, String city) {
+        static Member of(Client client) {
+            return new Member(
+                    client.id(),
+                    normalizeKey(client.firstname()),
+                    normalizeKey(client.address().street()),
+                    normalizeKey(client.address().city()));
+        }
+    }
+
+    /**
+     * Clients sharing the scan keys of their last name and postal code.
+     */
+    record Block(Member[] members) {
+        int size() {
+            return members.length;
+        }
+    }
+
+    /**
+     * Collects the adjacent clients of one block; each holds a permit of {@code pending}.
+     */
+    private static final class BlockBuffer {
+        private final Consumer<Block> submitBlock;
+        private final Semaphore pending;
+        private final List<Member> members = new ArrayList<>();
+        private String postalKey;
+        private String lastNameKey;
+
+        BlockBuffer(Consumer<Block> submitBlock, Semaphore pending) {
+            this.submitBlock = submitBlock;
+            this.pending = pending;
+        }
+
+        void flush() {
+            if (members.size() > 1) {
+                submitBlock.accept(new Block(members.toArray(new Member[0])));
+            } else {
+                pending.release(members.size());
+            }
+            members.clear();
+        }
+    }
+
+    /**
+     * Compares every member in {@code [from, to)} with all later members of the block,
+     * splitting large ranges into parallel subtasks.
+     */
+    private final class BlockComparison extends RecursiveAction {
+        private final Member[] members;
+        private final int from;
+        private final int to;
+        private final Consumer<MergeCandidate> sink;
+        private final LongAdder comparisons;
+        private final LongAdder candidates;
+
+        BlockComparison(Member[] members, int from, int to, Consumer<MergeCandidate> sink,
+                        LongAdder comparisons, LongAdder candidates) {
+            this.members = members;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+            this.comparisons = comparisons;
+            this.candidates = candidates;
+        }
+
+        @Override
+        protected void compute() {
+            long work = (long) (to - from) * (members.length - from);
+            if (to - from > 1 && work > SEQUENTIAL_COMPARISONS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(
+                        new BlockComparison(members, from, mid, sink, comparisons, candidates),
+                        new BlockComparison(members, mid, to, sink, comparisons, candidates));
+                return;
+            }
+
+            long compared = 0;
+            for (int i = from; i < to; i++) {
+                for (int j = i + 1; j < members.length; j++) {
+                    compared++;
+                    double score = score(members[i], members[j]);
+                    if (score >= threshold) {
+                        long low = Math.min(members[i].id(), members[j].id());
+                        long high = Math.max(members[i].id(), members[j].id());
+                        sink.accept(new MergeCandidate(low, high, score));
+                        candidates.increment();
+                    }
+                }
+            }
+            comparisons.add(compared);
+        }
+    }
+}
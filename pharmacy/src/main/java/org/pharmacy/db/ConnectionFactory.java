@@ -0,0 +1,19 @@
+package org.pharmacy.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens new physical database connections, e.g. {@code DBConnector::getConnection}.
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+
+    /**
+     * Opens a new connection.
+     *
+     * @return A new, open connection.
+     * @throws SQLException If the connection cannot be established.
+     */
+    Connection connect() throws SQLException;
+}
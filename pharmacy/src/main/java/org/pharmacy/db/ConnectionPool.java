@@ -0,0 +1,265 @@
+package org.pharmacy.db;
+
+import org.postgresql.PGStatement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small, fixed-size pool of database connections.
+ * <p>
+ * Connections are opened lazily up to {@code maxSize}. {@link #getConnection()} hands out a wrapper
+ * whose {@code close()} returns the physical connection to the pool instead of closing it, so callers
+ * use the usual try-with-resources pattern. A connection returned with an open transaction is rolled
+ * back and switched back to auto-commit; a connection found to be broken is discarded and replaced.
+ * </p>
+ * <p>
+ * Prepared statements: the PostgreSQL driver already keeps a per-connection cache keyed by SQL text,
+ * so closing a statement and preparing the same SQL again reuses its server-side prepared statement.
+ * The driver only prepares on the server after a statement's fifth execution on a connection, though,
+ * so every new connection parses and plans each statement a few more times. The pool therefore
+ * counts how often each SQL text is prepared across all its connections; once it is hot (prepared
+ * {@value #HOT_STATEMENT_USES} times) its statements are prepared on the server at their first
+ * execution, on connections opened later too.
+ * </p>
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Seconds allowed for the validity check of an idle connection before it is handed out.
+     */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Preparations across the pool after which an SQL text is hot; the driver's default prepare threshold.
+     */
+    private static final int HOT_STATEMENT_USES = 5;
+
+    /**
+     * Distinct SQL texts counted; texts beyond it (e.g. generated SQL) are never hot.
+     */
+    private static final int MAX_COUNTED_STATEMENTS = 1024;
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Set<Connection> physical = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> statementUses = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool of connections to the configured database (see {@link DBConnector}).
+     *
+     * @param maxSize The maximum number of open connections (must be positive).
+     * @param borrowTimeoutMillis How long {@link #getConnection()} waits for a free connection.
+     */
+    public ConnectionPool(int maxSize, long borrowTimeoutMillis) {
+        this(DBConnector::getConnection, maxSize, borrowTimeoutMillis);
+    }
+
+    /**
+     * Creates a pool of connections opened by the given factory.
+     *
+     * @param factory Opens new physical connections.
+     * @param maxSize The maximum number of open connections (must be positive).
+     * @param borrowTimeoutMillis How long {@link #getConnection()} waits for a free connection.
+     * @throws IllegalArgumentException If maxSize is not positive or the timeout is negative.
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long borrowTimeoutMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive.");
+        }
+        if (borrowTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Borrow timeout cannot be negative.");
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured timeout if all connections are in use.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @return A pooled connection in auto-commit mode.
+     * @throws SQLException If the pool is closed, no connection became free in time, or a new
+     * connection cannot be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection.", "08001");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            Connection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return wrap(connection);
+                }
+                discard(connection);
+            }
+            connection = factory.connect();
+            physical.add(connection);
+            return wrap(connection);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The maximum number of connections this pool opens.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of connections currently borrowed.
+     */
+    public int activeCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * Closes all idle connections and prevents further borrowing. Connections still borrowed are
+     * closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Puts a physical connection back into the pool after resetting its transaction state.
+     */
+    private void release(Connection connection) {
+        try {
+            if (closed || connection.isClosed()) {
+                discard(connection);
+            } else {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                // Most recently used first: keeps a warm working set and lets idle extras age out
+                idle.offerFirst(connection);
+            }
+        } catch (SQLException e) {
+            discard(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(Connection connection) {
+        physical.remove(connection);
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // The connection is being thrown away; nothing useful can be done about a failed close
+        }
+    }
+
+    /**
+     * Counts a preparation of the statement's SQL and, once the SQL is hot, has the driver prepare
+     * the statement on the server at its first execution.
+     */
+    private void countPreparation(String sql, PreparedStatement statement) throws SQLException {
+        LongAdder uses = statementUses.get(sql);
+        if (uses == null) {
+            if (statementUses.size() >= MAX_COUNTED_STATEMENTS) {
+                return;
+            }
+            uses = statementUses.computeIfAbsent(sql, key -> new LongAdder());
+        }
+        uses.increment();
+        if (uses.sum() >= HOT_STATEMENT_USES && statement.isWrapperFor(PGStatement.class)) {
+            PGStatement pgStatement = statement.unwrap(PGStatement.class);
+            // A threshold of 0 means server-side prepares were switched off (prepareThreshold=0 in the URL)
+            if (pgStatement.getPrepareThreshold() > 1) {
+                pgStatement.setPrepareThreshold(1);
+            }
+        }
+    }
+
+    /**
+     * Wraps a physical connection so that {@code close()} returns it to the pool.
+     */
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(connection));
+    }
+
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection delegate;
+        private boolean returned;
+
+        PooledConnectionHandler(Connection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(delegate);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || delegate.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + delegate + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+            }
+            Object result;
+            try {
+                result = method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (method.getName().equals("prepareStatement")) {
+                countPreparation((String) args[0], (PreparedStatement) result);
+            }
+            return result;
+        }
+    }
+}
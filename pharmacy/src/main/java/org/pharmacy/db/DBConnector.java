@@ -1,5 +1,7 @@
 package org.pharmacy.db;
 
+import org.pharmacy.metrics.QueryInstrumentation;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -12,18 +14,21 @@ public class DBConnector {
 
     /**
      * The URL for the PostgreSQL database connection, specifying the host, port, and database name.
+     * Can be overridden with the {@code pharmacy.db.url} system property.
      */
-    private static final String DB_URL = "jdbc:postgresql://localhost:5432/pharmacy";
+    private static final String DB_URL = System.getProperty("pharmacy.db.url", "jdbc:postgresql://localhost:5432/pharmacy");
 
     /**
      * The database username used for connection authentication.
+     * Can be overridden with the {@code pharmacy.db.user} system property.
      */
-    private static final String USER = "postgres";
+    private static final String USER = System.getProperty("pharmacy.db.user", "postgres");
 
     /**
      * The database password used for connection authentication.
+     * Can be overridden with the {@code pharmacy.db.password} system property.
      */
-    private static final String PASS = "postgres!";
+    private static final String PASS = System.getProperty("pharmacy.db.password", "postgres!");
 
     /**
      * Establishes and returns a new active database connection instance.
@@ -36,6 +41,30 @@ public class DBConnector {
      * or if the JDBC driver cannot be loaded.
      */
     public static Connection getConnection() throws SQLException {
+        return getConnection(DB_URL);
+    }
+
+    /**
+     * Establishes and returns a new connection to the given database, using the configured credentials.
+     * The connection is instrumented when query listeners are active (see {@link QueryInstrumentation}).
+     *
+     * @param url The JDBC URL of the database to connect to.
+     * @return A new {@code Connection} object to the database.
+     * @throws SQLException If a database access error occurs or if the JDBC driver cannot be loaded.
+     */
+    public static Connection getConnection(String url) throws SQLException {
+        return QueryInstrumentation.instrument(getUninstrumentedConnection(url));
+    }
+
+    /**
+     * Establishes a connection that is never instrumented. Used by the instrumentation itself
+     * (e.g. to EXPLAIN slow queries), which must not observe its own statements.
+     *
+     * @param url The JDBC URL of the database to connect to.
+     * @return A new {@code Connection} object to the database.
+     * @throws SQLException If a database access error occurs or if the JDBC driver cannot be loaded.
+     */
+    public static Connection getUninstrumentedConnection(String url) throws SQLException {
         try {
             // Ensure the PostgreSQL JDBC driver is loaded
             Class.forName("org.postgresql.Driver");
@@ -46,6 +75,13 @@ public class DBConnector {
         }
 
         System.out.println("Connecting to PostgreSQL database...");
-        return DriverManager.getConnection(DB_URL, USER, PASS);
+        return DriverManager.getConnection(url, USER, PASS);
+    }
+
+    /**
+     * @return The JDBC URL of the configured application database.
+     */
+    public static String url() {
+        return DB_URL;
     }
-}
\ No newline at end of file
+}
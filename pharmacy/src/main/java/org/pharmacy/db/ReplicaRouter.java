@@ -0,0 +1,374 @@
+package org.pharmacy.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only repository calls to PostgreSQL streaming replicas (hot standbys) and everything
+ * else to the primary.
+ * <p>
+ * {@link #repository} wraps a repository interface: each call borrows a connection for just that
+ * call, from a replica if the interface method is marked {@link ReadOnly}, otherwise from the
+ * primary. A replica serves a read only if
+ * </p>
+ * <ul>
+ *     <li>it is reachable, in recovery, and its replay lag is at most {@code maxLagMillis}; and</li>
+ *     <li>it has replayed the WAL up to the {@link RoutingSession}'s position, so a session always
+ *     reads its own writes. After each write the session's position moves to the primary's WAL
+ *     insert position.</li>
+ * </ul>
+ * Otherwise the read runs on the primary. Replicas are tried round-robin.
+ * <p>
+ * A monitor thread samples the primary's WAL position and each replica's replay position every
+ * {@value #POLL_MILLIS} ms. A replica's lag is the age of the oldest primary position it has not
+ * replayed yet, so an idle primary does not make an up-to-date replica look stale (as the age of
+ * its last replayed transaction would).
+ * </p>
+ */
+public final class ReplicaRouter implements AutoCloseable {
+
+    public static final long DEFAULT_MAX_LAG_MILLIS = 1_000;
+
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Creates a repository for a connection, e.g. {@code JdbcClientRepository::new}.
+     */
+    @FunctionalInterface
+    public interface RepositoryFactory<T> {
+        T create(Connection conn) throws SQLException;
+    }
+
+    /**
+     * The state of one replica as last seen by the monitor.
+     *
+     * @param index The replica's position in the configured list.
+     * @param usable Whether reads may currently be sent to it.
+     * @param replayLsn The last WAL position it replayed, or 0 if unknown.
+     * @param lagMillis Its replay lag, or -1 if unknown.
+     * @param problem Why it is not usable, or null.
+     */
+    public record ReplicaStatus(int index, boolean usable, long replayLsn, long lagMillis, String problem) {}
+
+    private record Sample(long nanos, long lsn) {}
+
+    private static final class Replica {
+        final int index;
+        final ConnectionPool pool;
+        volatile boolean usable;
+        volatile long replayLsn;
+        volatile long lagNanos = -1;
+        volatile String problem = "not checked yet";
+
+        Replica(int index, ConnectionPool pool) {
+            this.index = index;
+            this.pool = pool;
+        }
+    }
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Thread monitor;
+    private volatile boolean closed;
+
+    // Primary WAL positions, oldest first, one entry per distinct position; monitor thread only
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+    private long droppedLsn = -1;
+
+    /**
+     * Creates the router and, if there are replicas, starts its monitor thread.
+     *
+     * @param primary The primary's connection pool; not closed by {@link #close()}.
+     * @param replicas The replicas' connection pools (may be empty); closed by {@link #close()}.
+     * @param maxLagMillis The largest replay lag at which a replica still serves reads.
+     */
+    public ReplicaRouter(ConnectionPool primary, List<ConnectionPool> replicas, long maxLagMillis) {
+        if (maxLagMillis <= 0) {
+            throw new IllegalArgumentException("Maximum replica lag must be positive.");
+        }
+        this.primary = primary;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+        for (ConnectionPool pool : replicas) {
+            this.replicas.add(new Replica(this.replicas.size(), pool));
+        }
+        if (this.replicas.isEmpty()) {
+            monitor = null;
+        } else {
+            monitor = Thread.ofPlatform().name("replica-monitor").daemon().start(this::monitor);
+        }
+    }
+
+    /**
+     * Creates a router for the replicas listed in the {@code pharmacy.db.replicas} system property
+     * (comma-separated JDBC URLs; none if unset), each with a pool of {@code pharmacy.db.poolSize}
+     * connections (default 8), and a maximum lag of {@code pharmacy.db.replicaMaxLagMillis}
+     * (default {@value #DEFAULT_MAX_LAG_MILLIS}).
+     *
+     * @param primary The primary's connection pool.
+     * @return The router.
+     */
+    public static ReplicaRouter configured(ConnectionPool primary) {
+        List<ConnectionPool> pools = new ArrayList<>();
+        String urls = System.getProperty("pharmacy.db.replicas");
+        if (urls != null && !urls.isBlank()) {
+            int poolSize = Integer.getInteger("pharmacy.db.poolSize", 8);
+            for (String url : Arrays.stream(urls.split(",")).map(String::trim).toList()) {
+                pools.add(new ConnectionPool(() -> DBConnector.getConnection(url), poolSize, 5_000));
+            }
+        }
+        return new ReplicaRouter(primary, pools, Long.getLong("pharmacy.db.replicaMaxLagMillis", DEFAULT_MAX_LAG_MILLIS));
+    }
+
+    /**
+     * @return The primary's connection pool.
+     */
+    public ConnectionPool primary() {
+        return primary;
+    }
+
+    /**
+     * @return Whether any replicas are configured.
+     */
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * Wraps a repository so that each call runs on a connection chosen for it (see the class
+     * description). The returned object can be kept and shared; it holds no connection between calls.
+     *
+     * @param type The repository interface; its read-only methods are marked {@link ReadOnly}.
+     * @param factory Creates the repository for a borrowed connection.
+     * @param session The session whose writes must stay visible to its reads, or null to route
+     *                reads by lag alone.
+     * @return The routing repository.
+     */
+    public <T> T repository(Class<T> type, RepositoryFactory<T> factory, RoutingSession session) {
+        InvocationHandler handler = (proxy, method, args) -> invoke(proxy, method, args, factory, session);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    /**
+     * Borrows a connection for reading only: from a replica that is usable and has caught up with
+     * the session, else from the primary.
+     *
+     * @param session The session whose writes must be visible, or null.
+     * @return A pooled connection; closing it returns it to its pool.
+     * @throws SQLException If no connection can be borrowed from the primary either.
+     */
+    public Connection readConnection(RoutingSession session) throws SQLException {
+        long required = session == null ? 0 : session.readAfterLsn();
+        int count = replicas.size();
+        int start = count == 0 ? 0 : Math.floorMod(nextReplica.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (!replica.usable) {
+                continue;
+            }
+            Connection conn;
+            try {
+                conn = replica.pool.getConnection();
+            } catch (SQLException e) {
+                // Pool exhausted or replica unreachable; the monitor decides whether it is down
+                continue;
+            }
+            if (replica.replayLsn >= required || caughtUp(conn, required)) {
+                return conn;
+            }
+            conn.close();
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * Records that the session's writes so far are committed on the primary, using the primary's
+     * current WAL insert position. Only needed for writes made outside {@link #repository}.
+     *
+     * @param conn A connection to the primary.
+     * @param session The session, or null.
+     */
+    public void recordWrite(Connection conn, RoutingSession session) throws SQLException {
+        if (session == null || replicas.isEmpty()) {
+            return;
+        }
+        final String SQLQuery = "SELECT pg_current_wal_insert_lsn()::TEXT";
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            session.recordWrite(RoutingSession.parseLsn(rs.getString(1)));
+        }
+    }
+
+    /**
+     * @return The state of each replica, in configured order.
+     */
+    public List<ReplicaStatus> status() {
+        List<ReplicaStatus> status = new ArrayList<>();
+        for (Replica replica : replicas) {
+            long lagNanos = replica.lagNanos;
+            status.add(new ReplicaStatus(replica.index, replica.usable, replica.replayLsn,
+                    lagNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(lagNanos), replica.problem));
+        }
+        return status;
+    }
+
+    /**
+     * Stops the monitor and closes the replicas' connection pools.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (monitor != null) {
+            monitor.interrupt();
+            try {
+                monitor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    private Object invoke(Object proxy, Method method, Object[] args, RepositoryFactory<?> factory,
+                          RoutingSession session) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "Routed" + Arrays.toString(proxy.getClass().getInterfaces());
+            };
+        }
+        boolean readOnly = method.isAnnotationPresent(ReadOnly.class);
+        try (Connection conn = readOnly ? readConnection(session) : primary.getConnection()) {
+            Object result;
+            try {
+                result = method.invoke(factory.create(conn), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (!readOnly) {
+                recordWrite(conn, session);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Asks a replica whose last polled position is behind the session whether it has caught up since.
+     */
+    private static boolean caughtUp(Connection replica, long required) {
+        final String SQLQuery = "SELECT pg_last_wal_replay_lsn()::TEXT";
+        try (PreparedStatement pstmt = replica.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            String lsn = rs.getString(1);
+            return lsn != null && RoutingSession.parseLsn(lsn) >= required;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void monitor() {
+        while (!closed) {
+            samplePrimary();
+            for (Replica replica : replicas) {
+                checkReplica(replica);
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void samplePrimary() {
+        final String SQLQuery = "SELECT pg_current_wal_lsn()::TEXT";
+        long now = System.nanoTime();
+        try (Connection conn = primary.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            long lsn = RoutingSession.parseLsn(rs.getString(1));
+            if (samples.isEmpty() || samples.peekLast().lsn() != lsn) {
+                samples.addLast(new Sample(now, lsn));
+            }
+        } catch (SQLException e) {
+            // Keep the samples taken so far; lag is measured against them until the primary is back
+        }
+        // Positions older than twice the limit only tell that a replica behind them is too far behind
+        while (samples.size() > 1 && now - samples.peekFirst().nanos() > 2 * maxLagNanos) {
+            droppedLsn = samples.removeFirst().lsn();
+        }
+    }
+
+    private void checkReplica(Replica replica) {
+        final String SQLQuery = "SELECT pg_is_in_recovery(), pg_last_wal_replay_lsn()::TEXT";
+        try (Connection conn = replica.pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            String lsn = rs.getString(2);
+            if (!rs.getBoolean(1) || lsn == null) {
+                markUnusable(replica, "not a streaming replica");
+                return;
+            }
+            long replayLsn = RoutingSession.parseLsn(lsn);
+            long lagNanos = lagNanos(replayLsn, System.nanoTime());
+            replica.replayLsn = replayLsn;
+            replica.lagNanos = lagNanos;
+            if (lagNanos > maxLagNanos) {
+                markUnusable(replica, "lagging " + TimeUnit.NANOSECONDS.toMillis(lagNanos) + " ms");
+            } else {
+                if (!replica.usable) {
+                    System.out.printf("Replica %d serves reads.\n", replica.index);
+                }
+                replica.problem = null;
+                replica.usable = true;
+            }
+        } catch (SQLException | RuntimeException e) {
+            markUnusable(replica, e.getMessage());
+        }
+    }
+
+    private void markUnusable(Replica replica, String problem) {
+        if (replica.usable) {
+            System.out.printf("Replica %d no longer serves reads: %s\n", replica.index, problem);
+        }
+        replica.usable = false;
+        replica.problem = problem;
+    }
+
+    /**
+     * @return How long ago the primary first reported a WAL position beyond {@code replayLsn}; 0 if
+     * the replica has replayed every sampled position.
+     */
+    private long lagNanos(long replayLsn, long now) {
+        if (replayLsn < droppedLsn) {
+            // Behind a position that was already dropped as too old
+            return Math.max(now - samples.peekFirst().nanos(), 2 * maxLagNanos);
+        }
+        for (Sample sample : samples) {
+            if (sample.lsn() > replayLsn) {
+                return now - sample.nanos();
+            }
+        }
+        return 0;
+    }
+}
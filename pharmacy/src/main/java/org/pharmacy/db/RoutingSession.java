@@ -0,0 +1,75 @@
+package org.pharmacy.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-your-writes state of one client session for {@link ReplicaRouter}: the WAL position
+ * (PostgreSQL LSN) that a replica must have replayed before it may serve the session's reads.
+ * <p>
+ * The position starts at the value the client presented (0 for none) and moves forward to the end
+ * of the WAL after each write the session makes on the primary. Sessions are cheap; an API request
+ * creates one per request and hands the position back to the client to carry it across requests.
+ * </p>
+ */
+public final class RoutingSession {
+
+    private final AtomicLong readAfterLsn;
+    private volatile boolean wrote;
+
+    public RoutingSession() {
+        this(0);
+    }
+
+    /**
+     * @param readAfterLsn The WAL position the session's reads must see, e.g. from an earlier write.
+     */
+    public RoutingSession(long readAfterLsn) {
+        this.readAfterLsn = new AtomicLong(readAfterLsn);
+    }
+
+    /**
+     * @return The WAL position a replica must have replayed to serve this session, or 0.
+     */
+    public long readAfterLsn() {
+        return readAfterLsn.get();
+    }
+
+    /**
+     * @return Whether a write of this session has been recorded.
+     */
+    public boolean wrote() {
+        return wrote;
+    }
+
+    /**
+     * Records a write that the primary has committed up to the given WAL position.
+     */
+    void recordWrite(long lsn) {
+        readAfterLsn.accumulateAndGet(lsn, Math::max);
+        wrote = true;
+    }
+
+    /**
+     * Parses an LSN in PostgreSQL's text form, e.g. {@code 16/B374D848}.
+     *
+     * @throws IllegalArgumentException If the text is not an LSN.
+     */
+    public static long parseLsn(String text) {
+        int slash = text.indexOf('/');
+        try {
+            if (slash < 1 || slash > 8 || text.length() - slash - 1 < 1 || text.length() - slash - 1 > 8) {
+                throw new NumberFormatException();
+            }
+            return Long.parseUnsignedLong(text, 0, slash, 16) << 32 | Long.parseUnsignedLong(text, slash + 1, text.length(), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid WAL position '" + text + "'.");
+        }
+    }
+
+    /**
+     * Formats an LSN in PostgreSQL's text form.
+     */
+    public static String formatLsn(long lsn) {
+        return String.format("%X/%X", lsn >>> 32, lsn & 0xFFFFFFFFL);
+    }
+}
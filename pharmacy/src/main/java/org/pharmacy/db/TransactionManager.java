@@ -0,0 +1,119 @@
+package org.pharmacy.db;
+
+import org.pharmacy.db.UnitOfWork.Isolation;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Starts {@link UnitOfWork units of work} on connections of a pool.
+ * <p>
+ * A unit is bound to the thread that began it until it is closed. {@link #inTransaction} runs work
+ * in a new unit and commits it, or, when the thread already has an open unit, runs the work inside
+ * that one, so a method that needs a transaction can be called both on its own and as one step of
+ * a larger workflow.
+ * </p>
+ */
+public final class TransactionManager {
+
+    /**
+     * Work done inside a unit of work.
+     */
+    @FunctionalInterface
+    public interface Work<R> {
+        R run(UnitOfWork unit) throws SQLException;
+    }
+
+    private final ConnectionPool pool;
+    private final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    /**
+     * @param pool The pool the units borrow their connections from.
+     */
+    public TransactionManager(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Begins a read-write READ COMMITTED unit of work.
+     *
+     * @see #begin(Isolation, boolean)
+     */
+    public UnitOfWork begin() throws SQLException {
+        return begin(Isolation.READ_COMMITTED, false);
+    }
+
+    /**
+     * Borrows a connection and begins a unit of work on it, bound to the current thread. Use it
+     * with try-with-resources and call {@link UnitOfWork#commit()} at the end of the block.
+     *
+     * @param isolation The transaction isolation level.
+     * @param readOnly Whether the transaction only reads; PostgreSQL then rejects any write.
+     * @return The new unit.
+     * @throws SQLException If no connection can be borrowed or configured.
+     * @throws IllegalStateException If the thread already has an open unit of this manager.
+     */
+    public UnitOfWork begin(Isolation isolation, boolean readOnly) throws SQLException {
+        if (current.get() != null) {
+            throw new IllegalStateException("This thread already has an open unit of work.");
+        }
+        Connection conn = pool.getConnection();
+        UnitOfWork unit;
+        try {
+            unit = new UnitOfWork(this, conn, isolation, readOnly);
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
+        }
+        current.set(unit);
+        return unit;
+    }
+
+    /**
+     * @return The unit of work open on the current thread, or null.
+     */
+    public UnitOfWork current() {
+        return current.get();
+    }
+
+    /**
+     * Runs the work in a read-write READ COMMITTED transaction.
+     *
+     * @see #inTransaction(Isolation, boolean, Work)
+     */
+    public <R> R inTransaction(Work<R> work) throws SQLException {
+        return inTransaction(Isolation.READ_COMMITTED, false, work);
+    }
+
+    /**
+     * Runs the work in a transaction. If the current thread has an open unit, the work joins it and
+     * its changes are committed with that unit; otherwise a new unit is begun, committed when the
+     * work returns and rolled back when it throws.
+     *
+     * @param isolation The isolation level the work needs.
+     * @param readOnly Whether the work only reads.
+     * @param work The work.
+     * @return The work's result.
+     * @throws SQLException If the work or the commit fails.
+     * @throws IllegalStateException If the open unit is read-only while the work is not, or has a
+     * weaker isolation level than the work needs.
+     */
+    public <R> R inTransaction(Isolation isolation, boolean readOnly, Work<R> work) throws SQLException {
+        UnitOfWork open = current.get();
+        if (open != null) {
+            open.checkJoinable(isolation, readOnly);
+            return work.run(open);
+        }
+        try (UnitOfWork unit = begin(isolation, readOnly)) {
+            R result = work.run(unit);
+            unit.commit();
+            return result;
+        }
+    }
+
+    void unbind(UnitOfWork unit) {
+        if (current.get() == unit) {
+            current.remove();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.pharmacy.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One database transaction on a pooled connection, shared by every repository created through it.
+ * <p>
+ * Units are started by {@link TransactionManager}; the connection stays bound to the unit until it
+ * is closed. The JDBC repositories join a transaction that is already open (auto-commit off)
+ * instead of committing on their own, so all calls made through {@link #repository} commit or roll
+ * back together. Operations that guard themselves with a savepoint, such as
+ * {@code OrderRepository.createOrder}, still undo only their own work when they fail.
+ * </p>
+ * <p>
+ * Writes whose outcome is not needed before commit can be {@linkplain #queue queued}: on
+ * {@link #flush()} or {@link #commit()}, consecutive queued writes with the same SQL are sent as one
+ * JDBC batch, in the order they were queued. Queued writes are not visible to queries in the unit
+ * until they are flushed.
+ * </p>
+ * <p>
+ * Closing a unit that was not committed rolls it back. Closing also restores the connection's
+ * isolation level and read-only flag before it goes back to the pool.
+ * </p>
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+    /**
+     * Transaction isolation levels, weakest first.
+     */
+    public enum Isolation {
+        READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+        REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+        SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+        private final int level;
+
+        Isolation(int level) {
+            this.level = level;
+        }
+    }
+
+    /**
+     * Sets the parameters of one queued write.
+     */
+    @FunctionalInterface
+    public interface ParameterSetter {
+        void set(PreparedStatement pstmt) throws SQLException;
+    }
+
+    private record QueuedWrite(String sql, ParameterSetter parameters) {}
+
+    private final TransactionManager manager;
+    private final Connection conn;
+    private final Isolation isolation;
+    private final boolean readOnly;
+    private final int previousIsolation;
+    private final List<QueuedWrite> queued = new ArrayList<>();
+    private boolean finished;
+    private boolean closed;
+
+    UnitOfWork(TransactionManager manager, Connection conn, Isolation isolation, boolean readOnly) throws SQLException {
+        this.manager = manager;
+        this.conn = conn;
+        this.isolation = isolation;
+        this.readOnly = readOnly;
+        conn.setAutoCommit(false);
+        // Reading the current level costs a round trip, so the default level is left untouched
+        if (isolation != Isolation.READ_COMMITTED) {
+            previousIsolation = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(isolation.level);
+        } else {
+            previousIsolation = -1;
+        }
+        if (readOnly) {
+            conn.setReadOnly(true);
+        }
+    }
+
+    /**
+     * @return The unit's isolation level.
+     */
+    public Isolation isolation() {
+        return isolation;
+    }
+
+    /**
+     * @return Whether the unit was started read-only.
+     */
+    public boolean readOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return The connection bound to this unit; valid until the unit is closed. It must not be
+     * committed, rolled back or closed directly.
+     */
+    public Connection connection() {
+        if (closed) {
+            throw new IllegalStateException("The unit of work is closed.");
+        }
+        return conn;
+    }
+
+    /**
+     * Creates a repository that runs on this unit's connection, e.g.
+     * {@code unit.repository(JdbcOrderRepository::new)}.
+     *
+     * @param factory Creates the repository for the connection.
+     * @return The repository; usable until the unit is closed.
+     * @throws SQLException If the factory fails.
+     */
+    public <T> T repository(ReplicaRouter.RepositoryFactory<T> factory) throws SQLException {
+        ensureActive();
+        return factory.create(conn);
+    }
+
+    /**
+     * Queues a write to be executed at the next {@link #flush()} or {@link #commit()}.
+     *
+     * @param sql The INSERT, UPDATE or DELETE statement.
+     * @param parameters Sets the statement's parameters for this write.
+     * @throws IllegalStateException If the unit is read-only, committed, rolled back or closed.
+     */
+    public void queue(String sql, ParameterSetter parameters) {
+        ensureActive();
+        if (readOnly) {
+            throw new IllegalStateException("A read-only unit of work cannot queue writes.");
+        }
+        queued.add(new QueuedWrite(sql, parameters));
+    }
+
+    /**
+     * Executes the queued writes, one batch per run of consecutive writes with the same SQL.
+     *
+     * @throws SQLException If a write fails; the remaining queued writes are dropped and the
+     * transaction can only be rolled back.
+     */
+    public void flush() throws SQLException {
+        ensureActive();
+        try {
+            int start = 0;
+            while (start < queued.size()) {
+                String sql = queued.get(start).sql();
+                int end = start;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    while (end < queued.size() && queued.get(end).sql().equals(sql)) {
+                        queued.get(end).parameters().set(pstmt);
+                        pstmt.addBatch();
+                        end++;
+                    }
+                    pstmt.executeBatch();
+                }
+                start = end;
+            }
+        } finally {
+            queued.clear();
+        }
+    }
+
+    /**
+     * Flushes the queued writes and commits the transaction. The unit cannot be used for further
+     * work afterwards; close it to release the connection.
+     *
+     * @throws SQLException If a queued write or the commit fails; the unit is then rolled back on close.
+     */
+    public void commit() throws SQLException {
+        flush();
+        conn.commit();
+        finished = true;
+    }
+
+    /**
+     * Discards the queued writes and rolls the transaction back.
+     *
+     * @throws SQLException If the rollback fails.
+     */
+    public void rollback() throws SQLException {
+        ensureActive();
+        queued.clear();
+        finished = true;
+        conn.rollback();
+    }
+
+    /**
+     * Rolls back unless committed, restores the connection settings and returns it to the pool. If
+     * the rollback or restoring a setting fails, the physical connection is closed, so the pool
+     * discards it instead of handing it out read-only or at this unit's isolation level.
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        manager.unbind(this);
+        SQLException failure = null;
+        try {
+            if (!finished) {
+                queued.clear();
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            failure = e;
+        }
+        try {
+            if (readOnly) {
+                conn.setReadOnly(false);
+            }
+            if (previousIsolation >= 0) {
+                conn.setTransactionIsolation(previousIsolation);
+            }
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) {
+            try {
+                // Closing the physical connection makes a pool discard the wrapper's connection
+                conn.unwrap(Connection.class).close();
+            } catch (SQLException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        conn.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Checks that work asking for the given settings may run inside this unit.
+     */
+    void checkJoinable(Isolation requested, boolean requestedReadOnly) {
+        ensureActive();
+        if (readOnly && !requestedReadOnly) {
+            throw new IllegalStateException("A read-write transaction cannot join a read-only unit of work.");
+        }
+        if (requested.compareTo(isolation) > 0) {
+            throw new IllegalStateException("A " + requested + " transaction cannot join a " + isolation + " unit of work.");
+        }
+    }
+
+    private void ensureActive() {
+        if (closed || finished) {
+            throw new IllegalStateException("The unit of work has already " + (closed ? "been closed." : "ended."));
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package org.pharmacy.drafts;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.model.DraftLine;
+import org.pharmacy.model.Medicine;
+import org.pharmacy.model.OrderDraft;
+import org.pharmacy.repository.MedicineRepository;
+import org.pharmacy.repository.OrderRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Order drafts kept in memory, with a short-lived stock hold per line.
+ * <p>
+ * Each line is checked when it is set: the medicine's stock is read and the quantity is held in
+ * {@link StockHolds}, so an unknown medicine or insufficient stock is reported at once, not when
+ * the finished order is rolled back. A hold lapses {@code holdMillis} after its line was last set;
+ * a sweeper thread gives lapsed holds back every {@value #SWEEP_MILLIS} ms. A draft whose holds
+ * lapsed is kept, and {@link #checkout} takes its holds again before it creates the order with a
+ * single {@link OrderRepository#createOrder} call, which stays the authority on stock. Only drafts
+ * that hold nothing and were not changed for the longer {@code idleMillis} are dropped.
+ * </p>
+ * <p>
+ * Holds only count against drafts of this process. Stock sold by other processes, or directly
+ * through {@link OrderRepository}, is seen the next time a line is checked, and at the latest by
+ * {@code createOrder}.
+ * </p>
+ */
+public final class OrderDrafts implements AutoCloseable {
+
+    public static final long DEFAULT_HOLD_MILLIS = 5 * 60_000;
+
+    public static final long DEFAULT_IDLE_MILLIS = 60 * 60_000;
+
+    private static final long SWEEP_MILLIS = 1_000;
+
+    private static final class Line {
+        int quantity;
+        boolean held;
+        long expiresAtMillis;
+    }
+
+    private static final class Draft {
+        final long id;
+        final long clientId;
+        // Not a monitor: checkout does database I/O while holding it, which would pin a virtual thread
+        final ReentrantLock lock = new ReentrantLock();
+        final TreeMap<Long, Line> lines = new TreeMap<>();
+        long changedMillis;
+        boolean ended;
+
+        Draft(long id, long clientId, long now) {
+            this.id = id;
+            this.clientId = clientId;
+            this.changedMillis = now;
+        }
+    }
+
+    private final MedicineRepository medicines;
+    private final long holdMillis;
+    private final long idleMillis;
+    private final StockHolds holds = new StockHolds();
+    private final ConcurrentHashMap<Long, Draft> drafts = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final Thread sweeper;
+    private volatile boolean closed;
+
+    /**
+     * Creates the drafts and starts the sweeper thread.
+     *
+     * @param medicines Reads the current stock of a medicine when a line is checked.
+     * @param holdMillis How long a line's stock hold lasts after the line was last set.
+     * @param idleMillis How long a draft that holds nothing is kept after it was last changed.
+     * @throws IllegalArgumentException If holdMillis is not positive, or idleMillis is shorter than holdMillis.
+     */
+    public OrderDrafts(MedicineRepository medicines, long holdMillis, long idleMillis) {
+        if (holdMillis <= 0) {
+            throw new IllegalArgumentException("Hold duration must be positive.");
+        }
+        if (idleMillis < holdMillis) {
+            throw new IllegalArgumentException("Idle timeout cannot be shorter than the hold duration.");
+        }
+        this.medicines = medicines;
+        this.holdMillis = holdMillis;
+        this.idleMillis = idleMillis;
+        this.sweeper = Thread.ofPlatform().name("draft-sweeper").daemon().start(this::sweepLoop);
+    }
+
+    /**
+     * Creates the drafts with the hold duration from {@code pharmacy.drafts.holdMillis}
+     * (default {@value #DEFAULT_HOLD_MILLIS}) and the idle timeout from {@code pharmacy.drafts.idleMillis}
+     * (default {@value #DEFAULT_IDLE_MILLIS}).
+     */
+    public static OrderDrafts configured(MedicineRepository medicines) {
+        return new OrderDrafts(medicines,
+                Long.getLong("pharmacy.drafts.holdMillis", DEFAULT_HOLD_MILLIS),
+                Long.getLong("pharmacy.drafts.idleMillis", DEFAULT_IDLE_MILLIS));
+    }
+
+    /**
+     * Starts an empty draft.
+     *
+     * @param clientId The client the order is for (must be positive).
+     * @return The new draft's ID.
+     * @throws IllegalArgumentException If the client ID is not positive.
+     */
+    public long create(long clientId) {
+        if (clientId <= 0) {
+            throw new IllegalArgumentException("Client ID must be positive.");
+        }
+        if (closed) {
+            throw new IllegalStateException("Order drafts are closed.");
+        }
+        long id = nextId.incrementAndGet();
+        drafts.put(id, new Draft(id, clientId, System.currentTimeMillis()));
+        return id;
+    }
+
+    /**
+     * @return The draft with its lines and holds.
+     * @throws DataNotFoundException If there is no such draft (or it expired, was checked out or discarded).
+     */
+    public OrderDraft get(long draftId) {
+        Draft draft = find(draftId);
+        draft.lock.lock();
+        try {
+            ensureOpen(draft);
+            return view(draft);
+        } finally {
+            draft.lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the quantity of one medicine in a draft and holds its stock. An increase is checked
+     * against the medicine's current stock minus all holds; a decrease gives stock back.
+     *
+     * @param draftId The draft.
+     * @param medicineId The medicine.
+     * @param quantity The new quantity; 0 removes the line.
+     * @return The updated draft.
+     * @throws SQLException If the medicine's stock cannot be read.
+     * @throws IllegalArgumentException If the quantity is negative.
+     * @throws DataNotFoundException If the draft or the medicine does not exist.
+     * @throws DataIntegrityViolationException If the stock not held by other drafts is insufficient;
+     * the line is then left as it was.
+     */
+    public OrderDraft setLine(long draftId, long medicineId, int quantity) throws SQLException {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        Draft draft = find(draftId);
+        draft.lock.lock();
+        try {
+            ensureOpen(draft);
+            long now = System.currentTimeMillis();
+            Line line = draft.lines.get(medicineId);
+            int alreadyHeld = line != null && line.held ? line.quantity : 0;
+
+            if (quantity == 0) {
+                if (line != null) {
+                    holds.release(medicineId, alreadyHeld);
+                    draft.lines.remove(medicineId);
+                }
+            } else {
+                if (quantity > alreadyHeld) {
+                    hold(medicineId, quantity - alreadyHeld, quantity);
+                } else {
+                    holds.release(medicineId, alreadyHeld - quantity);
+                }
+                if (line == null) {
+                    line = new Line();
+                    draft.lines.put(medicineId, line);
+                }
+                line.quantity = quantity;
+                line.held = true;
+                line.expiresAtMillis = now + holdMillis;
+            }
+            draft.changedMillis = now;
+            return view(draft);
+        } finally {
+            draft.lock.unlock();
+        }
+    }
+
+    /**
+     * Turns a draft into an order: lapsed holds are taken again, then the order is created in one
+     * call and the draft's holds are released.
+     *
+     * @param draftId The draft.
+     * @param orders Creates the order.
+     * @return The ID of the new order.
+     * @throws SQLException If the order cannot be created; the draft and its holds are kept.
+     * @throws IllegalArgumentException If the draft has no lines.
+     * @throws DataNotFoundException If the draft or one of its medicines no longer exists.
+     * @throws DataIntegrityViolationException If a lapsed hold cannot be taken again, or the order
+     * fails its stock check; the draft is kept.
+     */
+    public long checkout(long draftId, OrderRepository orders) throws SQLException {
+        Draft draft = find(draftId);
+        draft.lock.lock();
+        try {
+            ensureOpen(draft);
+            if (draft.lines.isEmpty()) {
+                throw new IllegalArgumentException("An order must contain at least one item.");
+            }
+            Map<Long, Integer> items = new LinkedHashMap<>();
+            for (Map.Entry<Long, Line> entry : draft.lines.entrySet()) {
+                Line line = entry.getValue();
+                if (!line.held) {
+                    hold(entry.getKey(), line.quantity, line.quantity);
+                    line.held = true;
+                    line.expiresAtMillis = System.currentTimeMillis() + holdMillis;
+                }
+                items.put(entry.getKey(), line.quantity);
+            }
+
+            long orderId = orders.createOrder(draft.clientId, items);
+            end(draft);
+            return orderId;
+        } finally {
+            draft.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a draft and releases its holds.
+     *
+     * @throws DataNotFoundException If there is no such draft.
+     */
+    public void discard(long draftId) {
+        Draft draft = find(draftId);
+        draft.lock.lock();
+        try {
+            ensureOpen(draft);
+            end(draft);
+        } finally {
+            draft.lock.unlock();
+        }
+    }
+
+    /**
+     * @return The quantity of a medicine held by all open drafts.
+     */
+    public int held(long medicineId) {
+        return holds.held(medicineId);
+    }
+
+    /**
+     * @return The number of open drafts.
+     */
+    public int size() {
+        return drafts.size();
+    }
+
+    /**
+     * Stops the sweeper and drops all drafts.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        sweeper.interrupt();
+        try {
+            sweeper.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drafts.clear();
+    }
+
+    /**
+     * Reads the medicine's stock and holds a further quantity of it.
+     *
+     * @param requested The line's full quantity, for the error message.
+     */
+    private void hold(long medicineId, int quantity, int requested) throws SQLException {
+        Medicine medicine = medicines.getMedicineById(medicineId);
+        if (medicine == null) {
+            throw new DataNotFoundException("Medicine with ID " + medicineId + " was not found.");
+        }
+        if (!holds.hold(medicineId, quantity, medicine.stock())) {
+            int available = Math.max(0, medicine.stock() - holds.held(medicineId) + (requested - quantity));
+            throw new DataIntegrityViolationException(String.format(
+                    "Insufficient stock for Medicine ID %d: %d available, %d requested.", medicineId, available, requested));
+        }
+    }
+
+    private Draft find(long draftId) {
+        Draft draft = drafts.get(draftId);
+        if (draft == null) {
+            throw new DataNotFoundException("Order draft with ID " + draftId + " was not found.");
+        }
+        return draft;
+    }
+
+    /**
+     * Checks, under the draft's lock, that it was not ended since it was looked up.
+     */
+    private static void ensureOpen(Draft draft) {
+        if (draft.ended) {
+            throw new DataNotFoundException("Order draft with ID " + draft.id + " was not found.");
+        }
+    }
+
+    private void end(Draft draft) {
+        for (Map.Entry<Long, Line> entry : draft.lines.entrySet()) {
+            if (entry.getValue().held) {
+                holds.release(entry.getKey(), entry.getValue().quantity);
+            }
+        }
+        draft.lines.clear();
+        draft.ended = true;
+        drafts.remove(draft.id);
+    }
+
+    private static OrderDraft view(Draft draft) {
+        List<DraftLine> lines = new ArrayList<>(draft.lines.size());
+        for (Map.Entry<Long, Line> entry : draft.lines.entrySet()) {
+            Line line = entry.getValue();
+            lines.add(new DraftLine(entry.getKey(), line.quantity, line.held, line.expiresAtMillis));
+        }
+        return new OrderDraft(draft.id, draft.clientId, lines);
+    }
+
+    private void sweepLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(SWEEP_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sweep(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Releases lapsed holds and drops drafts that hold nothing and have been idle for the idle timeout.
+     * Drafts busy in another call are left for the next sweep.
+     */
+    private void sweep(long now) {
+        for (Draft draft : drafts.values()) {
+            if (!draft.lock.tryLock()) {
+                continue;
+            }
+            try {
+                boolean holding = false;
+                for (Map.Entry<Long, Line> entry : draft.lines.entrySet()) {
+                    Line line = entry.getValue();
+                    if (line.held && line.expiresAtMillis <= now) {
+                        holds.release(entry.getKey(), line.quantity);
+                        line.held = false;
+                    }
+                    holding |= line.held;
+                }
+                if (!holding && !draft.ended && now - draft.changedMillis >= idleMillis) {
+                    end(draft);
+                }
+            } finally {
+                draft.lock.unlock();
+            }
+        }
+    }
+}
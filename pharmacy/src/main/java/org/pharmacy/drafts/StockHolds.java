@@ -0,0 +1,54 @@
+package org.pharmacy.drafts;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Quantity of each medicine held by open drafts.
+ * <p>
+ * A hold is granted only if the medicine's stock, as just read from storage, minus everything
+ * already held covers it. Check and increment are one compare-and-set, so drafts can never hold
+ * more than that stock between them.
+ * </p>
+ */
+final class StockHolds {
+
+    private final ConcurrentHashMap<Long, AtomicInteger> held = new ConcurrentHashMap<>();
+
+    /**
+     * Holds a further quantity of a medicine.
+     *
+     * @param stock The medicine's current stock.
+     * @return Whether the quantity was held; nothing is held otherwise.
+     */
+    boolean hold(long medicineId, int quantity, int stock) {
+        AtomicInteger medicineHeld = held.computeIfAbsent(medicineId, id -> new AtomicInteger());
+        while (true) {
+            int current = medicineHeld.get();
+            if (stock - current < quantity) {
+                return false;
+            }
+            if (medicineHeld.compareAndSet(current, current + quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a held quantity.
+     */
+    void release(long medicineId, int quantity) {
+        AtomicInteger medicineHeld = held.get(medicineId);
+        if (medicineHeld != null) {
+            medicineHeld.addAndGet(-quantity);
+        }
+    }
+
+    /**
+     * @return The quantity of the medicine held by all drafts.
+     */
+    int held(long medicineId) {
+        AtomicInteger medicineHeld = held.get(medicineId);
+        return medicineHeld == null ? 0 : medicineHeld.get();
+    }
+}
@@ -0,0 +1,206 @@
+package org.pharmacy.export;
+
+import org.pharmacy.db.ConnectionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams orders, order items and the medicine catalog out of the database as CSV.
+ * <p>
+ * Rows are produced by PostgreSQL's {@code COPY ... TO STDOUT} and copied straight from the socket to
+ * the target stream by the driver's {@link CopyManager}, so no row is ever materialized as a Java
+ * object and heap use stays constant whatever the table size. {@link #exportAll} exports the tables in
+ * parallel, each on its own connection, and all of them read the same snapshot of the database, so
+ * the files are consistent with each other (no order items without their order, for example).
+ * </p>
+ */
+public class DataExporter {
+
+    /**
+     * Buffer size for file and gzip streams.
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final ConnectionFactory connectionFactory;
+
+    /**
+     * @param connectionFactory Opens the connections used for exports (one per table in parallel exports).
+     */
+    public DataExporter(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Exports one table to a stream using an existing connection. The stream is not closed.
+     *
+     * @param conn The connection to export with.
+     * @param table The table to export.
+     * @param from First order date to include, or null for no lower bound.
+     * @param to Last order date to include, or null for no upper bound.
+     * @param out The destination of the CSV data (with a header row).
+     * @return The number of rows exported.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException If writing to the stream fails.
+     * @throws IllegalArgumentException If {@code from} is after {@code to}.
+     */
+    public static long export(Connection conn, ExportTable table, LocalDate from, LocalDate to, OutputStream out)
+            throws SQLException, IOException {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Export start date cannot be after the end date.");
+        }
+        CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+        return copyManager.copyOut(table.copySql(from, to), out);
+    }
+
+    /**
+     * Exports one table to a file, optionally gzip-compressed.
+     *
+     * @param table The table to export.
+     * @param from First order date to include, or null for no lower bound.
+     * @param to Last order date to include, or null for no upper bound.
+     * @param file The destination file (overwritten if it exists).
+     * @param gzip Whether to gzip-compress the output.
+     * @return The number of rows exported.
+     * @throws SQLException If a database access error occurs.
+     * @throws IOException If writing the file fails.
+     */
+    public long exportToFile(ExportTable table, LocalDate from, LocalDate to, Path file, boolean gzip)
+            throws SQLException, IOException {
+        try (Connection conn = connectionFactory.connect();
+             OutputStream out = open(file, gzip)) {
+            return export(conn, table, from, to, out);
+        }
+    }
+
+    /**
+     * Exports several tables into a directory in parallel, one connection and one file per table
+     * (e.g. {@code orders.csv.gz}). A coordinating REPEATABLE READ transaction exports its snapshot
+     * with {@code pg_export_snapshot()} and every table is copied in a transaction that imports it,
+     * so all files show the database at the same moment.
+     *
+     * @param tables The tables to export.
+     * @param from First order date to include, or null for no lower bound.
+     * @param to Last order date to include, or null for no upper bound.
+     * @param directory The target directory (created if missing).
+     * @param gzip Whether to gzip-compress the files.
+     * @return The number of rows exported per table.
+     * @throws SQLException If any export fails with a database error.
+     * @throws IOException If any file cannot be written.
+     */
+    public Map<ExportTable, Long> exportAll(List<ExportTable> tables, LocalDate from, LocalDate to,
+                                            Path directory, boolean gzip) throws SQLException, IOException {
+        Files.createDirectories(directory);
+        Map<ExportTable, Future<Long>> running = new EnumMap<>(ExportTable.class);
+        Map<ExportTable, Long> rows = new EnumMap<>(ExportTable.class);
+
+        // The snapshot can only be imported while the transaction that exported it is open
+        try (Connection coordinator = connectionFactory.connect()) {
+            int previousIsolation = beginSnapshotTransaction(coordinator);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                String snapshot;
+                try (Statement stmt = coordinator.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT pg_export_snapshot()")) {
+                    rs.next();
+                    snapshot = rs.getString(1);
+                }
+                for (ExportTable table : tables) {
+                    Path file = directory.resolve(table.fileName() + (gzip ? ".csv.gz" : ".csv"));
+                    running.put(table, executor.submit(() -> exportInSnapshot(snapshot, table, from, to, file, gzip)));
+                }
+
+                for (Map.Entry<ExportTable, Future<Long>> entry : running.entrySet()) {
+                    try {
+                        rows.put(entry.getKey(), entry.getValue().get());
+                    } catch (ExecutionException e) {
+                        running.values().forEach(f -> f.cancel(true));
+                        if (e.getCause() instanceof SQLException sqlException) {
+                            throw sqlException;
+                        }
+                        if (e.getCause() instanceof IOException ioException) {
+                            throw ioException;
+                        }
+                        throw new IllegalStateException("Export of " + entry.getKey() + " failed.", e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Export interrupted.", e);
+                    }
+                }
+            } finally {
+                endSnapshotTransaction(coordinator, previousIsolation);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Exports one table to a file on a new connection, in a transaction that reads the given snapshot.
+     */
+    private long exportInSnapshot(String snapshot, ExportTable table, LocalDate from, LocalDate to, Path file, boolean gzip)
+            throws SQLException, IOException {
+        try (Connection conn = connectionFactory.connect();
+             OutputStream out = open(file, gzip)) {
+            int previousIsolation = beginSnapshotTransaction(conn);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    // Must be the first statement of the transaction; the ID comes from pg_export_snapshot()
+                    stmt.execute("SET TRANSACTION SNAPSHOT '" + snapshot.replace("'", "''") + "'");
+                }
+                return export(conn, table, from, to, out);
+            } finally {
+                endSnapshotTransaction(conn, previousIsolation);
+            }
+        }
+    }
+
+    /**
+     * Switches the connection to read-only REPEATABLE READ transactions, which share a snapshot.
+     *
+     * @return The previous isolation level, for {@link #endSnapshotTransaction}.
+     */
+    private static int beginSnapshotTransaction(Connection conn) throws SQLException {
+        int previousIsolation = conn.getTransactionIsolation();
+        conn.setAutoCommit(false);
+        conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        conn.setReadOnly(true);
+        return previousIsolation;
+    }
+
+    /**
+     * Ends the snapshot transaction and restores the connection's settings, so a pooled connection
+     * goes back in its usual state.
+     */
+    private static void endSnapshotTransaction(Connection conn, int previousIsolation) throws SQLException {
+        conn.rollback();
+        conn.setReadOnly(false);
+        conn.setTransactionIsolation(previousIsolation);
+        conn.setAutoCommit(true);
+    }
+
+    private static OutputStream open(Path file, boolean gzip) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        if (gzip) {
+            // COPY delivers one small write per row; buffer before the deflater, not just after it
+            return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+}
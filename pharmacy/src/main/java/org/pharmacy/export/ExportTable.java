@@ -0,0 +1,80 @@
+package org.pharmacy.export;
+
+import java.time.LocalDate;
+
+/**
+ * The tables that can be exported, with the COPY statement used for each.
+ */
+public enum ExportTable {
+
+    ORDERS("orders") {
+        @Override
+        String copySql(LocalDate from, LocalDate to) {
+            if (from == null && to == null) {
+                return "COPY \"order\" (order_id, client_id, order_date, total_price) TO STDOUT WITH (FORMAT csv, HEADER)";
+            }
+            return "COPY (SELECT order_id, client_id, order_date, total_price FROM \"order\" o" +
+                    dateFilter(from, to) + ") TO STDOUT WITH (FORMAT csv, HEADER)";
+        }
+    },
+
+    ORDER_ITEMS("order_items") {
+        @Override
+        String copySql(LocalDate from, LocalDate to) {
+            if (from == null && to == null) {
+                return "COPY orderitem (orderitem_id, order_id, medicine_id, quantity, unit_price) TO STDOUT WITH (FORMAT csv, HEADER)";
+            }
+            return "COPY (SELECT oi.orderitem_id, oi.order_id, oi.medicine_id, oi.quantity, oi.unit_price " +
+                    "FROM orderitem oi JOIN \"order\" o ON o.order_id = oi.order_id" +
+                    dateFilter(from, to) + ") TO STDOUT WITH (FORMAT csv, HEADER)";
+        }
+    },
+
+    /**
+     * The medicine catalog. It has no dates, so the date range is ignored.
+     */
+    MEDICINES("medicines") {
+        @Override
+        String copySql(LocalDate from, LocalDate to) {
+            return "COPY medicine (medicine_id, name, unit_price, stock) TO STDOUT WITH (FORMAT csv, HEADER)";
+        }
+    };
+
+    private final String fileName;
+
+    ExportTable(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * @return The base file name used when exporting to a directory (without extension).
+     */
+    public String fileName() {
+        return fileName;
+    }
+
+    /**
+     * Builds the {@code COPY ... TO STDOUT} statement for this table.
+     *
+     * @param from First order date to include, or null for no lower bound.
+     * @param to Last order date to include, or null for no upper bound.
+     * @return The COPY statement.
+     */
+    abstract String copySql(LocalDate from, LocalDate to);
+
+    /**
+     * Builds the WHERE clause on {@code o.order_date}. COPY does not accept bind parameters, so the
+     * dates are inlined; {@link LocalDate#toString()} always yields a plain ISO date, which is safe
+     * to embed in a literal.
+     */
+    private static String dateFilter(LocalDate from, LocalDate to) {
+        StringBuilder where = new StringBuilder();
+        if (from != null) {
+            where.append(" WHERE o.order_date >= DATE '").append(from).append('\'');
+        }
+        if (to != null) {
+            where.append(from == null ? " WHERE" : " AND").append(" o.order_date <= DATE '").append(to).append('\'');
+        }
+        return where.toString();
+    }
+}
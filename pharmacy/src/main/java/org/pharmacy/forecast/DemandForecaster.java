@@ -0,0 +1,311 @@
+package org.pharmacy.forecast;
+
+import org.pharmacy.analytics.SalesAnalytics;
+import org.pharmacy.model.MedicineForecast;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Demand forecasts, safety stock and reorder points per medicine, kept in {@code medicine_forecast}.
+ * <p>
+ * Daily demand is forecast by simple exponential smoothing of the units sold per day, with an
+ * exponentially weighted variance of the forecast error alongside it. Days without sales count as
+ * zero demand. Safety stock is {@code serviceFactor * stdDev * sqrt(leadTimeDays)} and the reorder
+ * point is the demand over the lead time plus the safety stock.
+ * </p>
+ * <p>
+ * History is read from {@code daily_sales_rollup}, so it stays available after old orders are
+ * purged. Both smoothed values are stored with the forecast, and {@code forecast_state} records the
+ * last day processed, so each {@link #updateForecasts()} run only reads the days rolled up since
+ * the previous one. Those days are streamed in one query, ordered by medicine, and each medicine's
+ * series is smoothed on a worker thread as soon as it has been read.
+ * </p>
+ * <p>
+ * The smoothed state cannot be rewound to an earlier day. When a deleted order changes a rolled-up
+ * day that was already processed, it records the day in {@code forecast_state.recompute_from}, and
+ * the next run smooths the whole history again from the first day of the rollup.
+ * </p>
+ */
+public class DemandForecaster {
+
+    public static final double DEFAULT_ALPHA = 0.1;
+    public static final int DEFAULT_LEAD_TIME_DAYS = 7;
+    /** About 95% of lead times without a stock-out, assuming normally distributed demand. */
+    public static final double DEFAULT_SERVICE_FACTOR = 1.65;
+
+    /**
+     * Number of rollup rows fetched per round trip.
+     */
+    private static final int FETCH_SIZE = 10_000;
+
+    private record Forecast(long medicineId, double dailyDemand, double variance, int safetyStock, int reorderPoint) {}
+
+    private final Connection conn;
+    private final double alpha;
+    private final int leadTimeDays;
+    private final double serviceFactor;
+
+    /**
+     * @param conn The connection to the database holding the rollup and the forecasts. {@link #updateForecasts()}
+     * writes the rollup and the forecasts and needs the primary; {@link #getForecasts} also runs on a replica.
+     * @param alpha The smoothing factor (0 < alpha <= 1); larger values follow recent days more closely.
+     * @param leadTimeDays The days between placing a reorder and receiving it.
+     * @param serviceFactor The number of standard deviations of lead-time demand covered by the safety stock.
+     * @throws IllegalArgumentException If a parameter is out of range.
+     */
+    public DemandForecaster(Connection conn, double alpha, int leadTimeDays, double serviceFactor) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("Smoothing factor must be in (0, 1].");
+        }
+        if (leadTimeDays <= 0) {
+            throw new IllegalArgumentException("Lead time must be positive.");
+        }
+        if (serviceFactor < 0) {
+            throw new IllegalArgumentException("Service factor cannot be negative.");
+        }
+        this.conn = conn;
+        this.alpha = alpha;
+        this.leadTimeDays = leadTimeDays;
+        this.serviceFactor = serviceFactor;
+    }
+
+    /**
+     * Creates the forecaster with the settings from {@code pharmacy.forecast.alpha} (default
+     * {@value #DEFAULT_ALPHA}), {@code pharmacy.forecast.leadTimeDays} (default
+     * {@value #DEFAULT_LEAD_TIME_DAYS}) and {@code pharmacy.forecast.serviceFactor} (default
+     * {@value #DEFAULT_SERVICE_FACTOR}).
+     */
+    public static DemandForecaster configured(Connection conn) {
+        return new DemandForecaster(conn,
+                Double.parseDouble(System.getProperty("pharmacy.forecast.alpha", String.valueOf(DEFAULT_ALPHA))),
+                Integer.getInteger("pharmacy.forecast.leadTimeDays", DEFAULT_LEAD_TIME_DAYS),
+                Double.parseDouble(System.getProperty("pharmacy.forecast.serviceFactor", String.valueOf(DEFAULT_SERVICE_FACTOR))));
+    }
+
+    /**
+     * Rolls up closed days, then folds every rolled-up day not yet processed into the forecast of
+     * every medicine in the catalog, and writes the forecasts. If a processed day has changed since,
+     * all forecasts are recomputed from the first day of the rollup instead. Concurrent runs, and
+     * order deletions that change rolled-up days, are serialized by a row lock on {@code forecast_state}.
+     *
+     * @return The number of forecasts written, or 0 if the forecasts were up to date.
+     * @throws SQLException If a database access error occurs.
+     */
+    public int updateForecasts() throws SQLException {
+        new SalesAnalytics(conn).rollUpClosedDays();
+
+        final String stateSQL = "SELECT f.processed_through, r.rolled_through, " +
+                "(SELECT MIN(sales_date) FROM daily_sales_rollup), f.recompute_from " +
+                "FROM forecast_state f, sales_rollup_state r FOR UPDATE OF f";
+        final String medicinesSQL = "SELECT m.medicine_id, f.daily_demand, f.demand_variance " +
+                "FROM medicine m LEFT JOIN medicine_forecast f ON f.medicine_id = m.medicine_id";
+        final String historySQL = "SELECT medicine_id, sales_date, units FROM daily_sales_rollup " +
+                "WHERE sales_date BETWEEN ? AND ? ORDER BY medicine_id, sales_date";
+        final String upsertSQL = "INSERT INTO medicine_forecast(medicine_id, daily_demand, demand_variance, safety_stock, reorder_point, forecast_through) " +
+                "VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (medicine_id) DO UPDATE SET daily_demand = EXCLUDED.daily_demand, " +
+                "demand_variance = EXCLUDED.demand_variance, safety_stock = EXCLUDED.safety_stock, " +
+                "reorder_point = EXCLUDED.reorder_point, forecast_through = EXCLUDED.forecast_through";
+        final String advanceSQL = "UPDATE forecast_state SET processed_through = ?, recompute_from = NULL";
+
+        boolean ownsTransaction = conn.getAutoCommit();
+        if (ownsTransaction) {
+            // Also required for the history to be streamed through a cursor
+            conn.setAutoCommit(false);
+        }
+        try {
+            LocalDate processedThrough;
+            LocalDate rolledThrough;
+            LocalDate firstSales;
+            LocalDate recomputeFrom;
+            try (PreparedStatement pstmt = conn.prepareStatement(stateSQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("forecast_state is empty; run Lab2/schema.sql to initialize it.");
+                }
+                processedThrough = rs.getObject(1, LocalDate.class);
+                rolledThrough = rs.getObject(2, LocalDate.class);
+                firstSales = rs.getObject(3, LocalDate.class);
+                recomputeFrom = rs.getObject(4, LocalDate.class);
+            }
+            // Changes to days not processed yet are read by this run anyway
+            boolean restart = recomputeFrom != null && !recomputeFrom.isAfter(processedThrough);
+            if (!restart && !processedThrough.isBefore(rolledThrough)) {
+                if (ownsTransaction) {
+                    conn.commit();
+                }
+                return 0;
+            }
+
+            // The first run (processed through -infinity) and a restart begin at the first day with sales, if any
+            LocalDate from = restart || processedThrough.equals(LocalDate.MIN) ? firstSales : processedThrough.plusDays(1);
+            List<Forecast> forecasts = from == null ? List.of() : smoothAll(medicinesSQL, historySQL, from, rolledThrough, restart);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(upsertSQL)) {
+                for (Forecast forecast : forecasts) {
+                    pstmt.setLong(1, forecast.medicineId());
+                    pstmt.setDouble(2, forecast.dailyDemand());
+                    pstmt.setDouble(3, forecast.variance());
+                    pstmt.setInt(4, forecast.safetyStock());
+                    pstmt.setInt(5, forecast.reorderPoint());
+                    pstmt.setObject(6, rolledThrough);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(advanceSQL)) {
+                pstmt.setObject(1, rolledThrough);
+                pstmt.executeUpdate();
+            }
+            if (ownsTransaction) {
+                conn.commit();
+            }
+            System.out.printf("Demand forecasts updated through %s. Medicines: %d\n", rolledThrough, forecasts.size());
+            return forecasts.size();
+        } catch (SQLException | RuntimeException e) {
+            if (ownsTransaction) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownsTransaction) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the stored forecasts with the medicines' current stock, ordered by medicine ID.
+     *
+     * @param reorderOnly Whether to return only medicines whose stock is at or below their reorder point.
+     * @return The forecasts.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<MedicineForecast> getForecasts(boolean reorderOnly) throws SQLException {
+        final String SQLQuery = "SELECT m.medicine_id, m.name, m.stock, f.daily_demand, f.demand_variance, " +
+                "f.safety_stock, f.reorder_point, f.forecast_through " +
+                "FROM medicine_forecast f JOIN medicine m ON m.medicine_id = f.medicine_id " +
+                (reorderOnly ? "WHERE m.stock <= f.reorder_point " : "") +
+                "ORDER BY m.medicine_id";
+        List<MedicineForecast> forecasts = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                forecasts.add(new MedicineForecast(rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getDouble(4),
+                        Math.sqrt(rs.getDouble(5)), rs.getInt(6), rs.getInt(7), rs.getObject(8, LocalDate.class)));
+            }
+        }
+        return forecasts;
+    }
+
+    /**
+     * Streams the days [from, to] of the rollup, ordered by medicine, and smooths each medicine's
+     * series on a worker pool while the rest is still being read. Medicines without sales in the
+     * range are smoothed with zero demand on every day.
+     *
+     * @param restart Whether to ignore the stored forecasts and start every medicine afresh.
+     */
+    private List<Forecast> smoothAll(String medicinesSQL, String historySQL, LocalDate from, LocalDate to,
+                                     boolean restart) throws SQLException {
+        // Smoothing state per medicine in the catalog; null for medicines without a forecast yet
+        Map<Long, double[]> prior = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(medicinesSQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                long medicineId = rs.getLong(1);
+                double demand = rs.getDouble(2);
+                prior.put(medicineId, restart || rs.wasNull() ? null : new double[]{demand, rs.getDouble(3)});
+            }
+        }
+
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        List<Future<Forecast>> running = new ArrayList<>(prior.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            try (PreparedStatement pstmt = conn.prepareStatement(historySQL)) {
+                pstmt.setFetchSize(FETCH_SIZE);
+                pstmt.setObject(1, from);
+                pstmt.setObject(2, to);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    long medicineId = -1;
+                    long[] series = null;
+                    while (rs.next()) {
+                        long id = rs.getLong(1);
+                        if (id != medicineId) {
+                            submit(executor, running, prior, medicineId, series, days);
+                            medicineId = id;
+                            series = new long[days];
+                        }
+                        series[(int) ChronoUnit.DAYS.between(from, rs.getObject(2, LocalDate.class))] = rs.getLong(3);
+                    }
+                    submit(executor, running, prior, medicineId, series, days);
+                }
+            }
+            // Medicines left in the map had no sales in the range
+            for (Long medicineId : new ArrayList<>(prior.keySet())) {
+                submit(executor, running, prior, medicineId, null, days);
+            }
+
+            List<Forecast> forecasts = new ArrayList<>(running.size());
+            for (Future<Forecast> future : running) {
+                forecasts.add(future.get());
+            }
+            return forecasts;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Demand forecast failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Demand forecast interrupted.", e);
+        }
+    }
+
+    /**
+     * Queues a medicine's series for smoothing and removes the medicine from {@code prior}. Medicines
+     * no longer in the catalog are skipped.
+     */
+    private void submit(ExecutorService executor, List<Future<Forecast>> running, Map<Long, double[]> prior,
+                        long medicineId, long[] series, int days) {
+        if (!prior.containsKey(medicineId)) {
+            return;
+        }
+        double[] state = prior.remove(medicineId);
+        running.add(executor.submit(() -> smooth(medicineId, state, series, days)));
+    }
+
+    /**
+     * Smooths one medicine's daily demand over the days of the run, continuing from its stored state.
+     *
+     * @param state The stored {daily demand, variance}, or null to start from the first day's demand.
+     * @param series Units sold per day of the run, or null if none were sold.
+     */
+    private Forecast smooth(long medicineId, double[] state, long[] series, int days) {
+        double level = state == null ? 0 : state[0];
+        double variance = state == null ? 0 : state[1];
+        int start = 0;
+        if (state == null) {
+            level = series == null ? 0 : series[0];
+            start = 1;
+        }
+        for (int day = start; day < days; day++) {
+            double error = (series == null ? 0 : series[day]) - level;
+            level += alpha * error;
+            variance = (1 - alpha) * (variance + alpha * error * error);
+        }
+
+        int safetyStock = (int) Math.ceil(serviceFactor * Math.sqrt(variance * leadTimeDays));
+        int reorderPoint = (int) Math.ceil(level * leadTimeDays) + safetyStock;
+        return new Forecast(medicineId, level, variance, safetyStock, reorderPoint);
+    }
+}
@@ -0,0 +1,345 @@
+package org.pharmacy.journal;
+
+import org.pharmacy.db.ConnectionFactory;
+import org.pharmacy.model.OrderRequest;
+import org.pharmacy.model.OrderResult;
+import org.pharmacy.repository.JdbcOrderRepository;
+import org.pharmacy.repository.OrderRepository;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Background thread of an {@link OrderJournal}: applies durable entries to the database in order.
+ * <p>
+ * Entries are applied in batches of up to {@value #BATCH_SIZE} with one
+ * {@link OrderRepository#createOrders(List)} call, inside a transaction that also records rejected
+ * orders and advances the journal's applied sequence. If the transaction fails, the connection is
+ * reopened and the same batch retried, so every entry is applied exactly once. Before a retry the
+ * applied sequence is read again: a commit can succeed although the client saw an error, and the
+ * entries it covered are then skipped instead of retried. After each batch,
+ * and at least every {@value #STOCK_REFRESH_MILLIS} ms, the stock snapshot is refreshed from the database.
+ * </p>
+ */
+final class JournalApplier implements Runnable {
+
+    private static final int BATCH_SIZE = 500;
+    private static final long STOCK_REFRESH_MILLIS = 1_000;
+    private static final long RETRY_MILLIS = 1_000;
+
+    private final OrderJournal journal;
+    private final ConnectionFactory connections;
+    private final AtomicLong appliedSequence = new AtomicLong();
+    private final AtomicLong rejectedOrders = new AtomicLong();
+    private volatile boolean running = true;
+
+    private Connection conn;
+    /** Read cursor: the position after the last applied entry. */
+    private JournalSegment segment;
+    private int offset;
+    /** Position after the batch being applied. */
+    private JournalSegment pendingSegment;
+    private int pendingOffset;
+    private long lastStockRefresh;
+
+    JournalApplier(OrderJournal journal, ConnectionFactory connections) {
+        this.journal = journal;
+        this.connections = connections;
+    }
+
+    long appliedSequence() {
+        return appliedSequence.get();
+    }
+
+    long rejectedOrders() {
+        return rejectedOrders.get();
+    }
+
+    void recovered(long sequence) {
+        appliedSequence.set(sequence);
+        lastStockRefresh = System.currentTimeMillis();
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                long durable = journal.awaitDurable(appliedSequence.get(), STOCK_REFRESH_MILLIS);
+                List<JournalEntry> batch = readBatch(durable);
+                while (running && !batch.isEmpty()) {
+                    try {
+                        apply(batch);
+                        break;
+                    } catch (SQLException | RuntimeException e) {
+                        System.err.println("[JOURNAL] Applying entries " + batch.get(0).sequence() + "-"
+                                + batch.get(batch.size() - 1).sequence() + " failed, retrying: " + e.getMessage());
+                        closeConnection();
+                        Thread.sleep(RETRY_MILLIS);
+                        try {
+                            batch = skipApplied(batch);
+                        } catch (SQLException readFailure) {
+                            System.err.println("[JOURNAL] Could not read the applied sequence: " + readFailure.getMessage());
+                            closeConnection();
+                        }
+                    }
+                }
+                if (System.currentTimeMillis() - lastStockRefresh >= STOCK_REFRESH_MILLIS) {
+                    refreshStock();
+                }
+            } catch (InterruptedException e) {
+                if (running) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            } catch (SQLException e) {
+                System.err.println("[JOURNAL] Stock refresh failed: " + e.getMessage());
+                closeConnection();
+            }
+        }
+        closeConnection();
+    }
+
+    /**
+     * Reads the next entries after the applied sequence, up to the durable sequence.
+     */
+    private List<JournalEntry> readBatch(long durable) {
+        List<JournalEntry> batch = new ArrayList<>();
+        long after = appliedSequence.get();
+        if (segment == null) {
+            segment = journal.segments.isEmpty() ? null : journal.segments.firstEntry().getValue();
+            offset = 0;
+        }
+        int position = offset;
+        JournalSegment reading = segment;
+        while (reading != null && batch.size() < BATCH_SIZE) {
+            JournalEntry entry = JournalEntry.read(reading.buffer, position);
+            if (entry == null) {
+                // The end of a segment that has a successor is final; otherwise nothing more is written yet
+                Map.Entry<Long, JournalSegment> next = journal.segments.higherEntry(reading.firstSequence);
+                if (next == null) {
+                    break;
+                }
+                reading = next.getValue();
+                position = 0;
+                continue;
+            }
+            if (entry.sequence() > durable) {
+                break;
+            }
+            position += entry.encodedSize();
+            if (entry.sequence() > after) {
+                batch.add(entry);
+            }
+        }
+        // The cursor only moves once the batch is applied, so a failed batch is read again
+        pendingSegment = reading;
+        pendingOffset = position;
+        if (batch.isEmpty()) {
+            segment = reading;
+            offset = position;
+        }
+        return batch;
+    }
+
+    /**
+     * Applies a batch in one transaction and advances the cursor.
+     */
+    private void apply(List<JournalEntry> batch) throws SQLException {
+        if (conn == null) {
+            conn = connections.connect();
+        }
+        long lastSequence = batch.get(batch.size() - 1).sequence();
+        List<OrderRequest> requests = new ArrayList<>(batch.size());
+        for (JournalEntry entry : batch) {
+            requests.add(entry.request());
+        }
+
+        conn.setAutoCommit(false);
+        try {
+            OrderRepository orders = new JdbcOrderRepository(conn);
+            List<OrderResult> results = orders.createOrders(requests);
+            int rejected = insertRejects(batch, results);
+
+            final String SQLQuery = "UPDATE order_journal_state SET applied_sequence = ? " +
+                    "WHERE journal_id = ? AND applied_sequence < ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+                pstmt.setLong(1, lastSequence);
+                pstmt.setString(2, journal.journalId);
+                pstmt.setLong(3, batch.get(0).sequence());
+                if (pstmt.executeUpdate() == 0) {
+                    throw new IllegalStateException("Journal " + journal.journalId + " was applied by another process.");
+                }
+            }
+            conn.commit();
+            rejectedOrders.addAndGet(rejected);
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        for (JournalEntry entry : batch) {
+            journal.stock.applied(entry.request().itemQuantities());
+        }
+        advance(lastSequence);
+    }
+
+    /**
+     * Drops the leading entries of a failed batch that the database has applied anyway, e.g. because
+     * the commit succeeded but the connection broke before it was acknowledged.
+     *
+     * @return The entries still to apply; empty if the whole batch was applied and the cursor moved past it.
+     */
+    private List<JournalEntry> skipApplied(List<JournalEntry> batch) throws SQLException {
+        if (conn == null) {
+            conn = connections.connect();
+        }
+        long stored = readAppliedSequence(conn, journal.journalId);
+        int applied = 0;
+        while (applied < batch.size() && batch.get(applied).sequence() <= stored) {
+            applied++;
+        }
+        if (applied == 0) {
+            return batch;
+        }
+
+        long lastSequence = batch.get(applied - 1).sequence();
+        System.err.println("[JOURNAL] Entries " + batch.get(0).sequence() + "-" + lastSequence
+                + " were already applied, skipping them.");
+        for (JournalEntry entry : batch.subList(0, applied)) {
+            journal.stock.applied(entry.request().itemQuantities());
+        }
+        if (applied < batch.size()) {
+            // Only another applier commits part of a batch; the rest is retried from where it stopped
+            appliedSequence.set(lastSequence);
+            return new ArrayList<>(batch.subList(applied, batch.size()));
+        }
+        advance(lastSequence);
+        return List.of();
+    }
+
+    /**
+     * Moves the cursor past an applied batch, then refreshes the stock snapshot and deletes the
+     * segments no longer needed. Neither of those is retried here if it fails.
+     */
+    private void advance(long lastSequence) {
+        appliedSequence.set(lastSequence);
+        segment = pendingSegment;
+        offset = pendingOffset;
+        try {
+            refreshStock();
+        } catch (SQLException e) {
+            // Refreshed again by the run loop, as lastStockRefresh did not move
+            System.err.println("[JOURNAL] Stock refresh failed: " + e.getMessage());
+            closeConnection();
+        }
+        try {
+            journal.deleteAppliedSegments(lastSequence);
+        } catch (IOException e) {
+            System.err.println("[JOURNAL] Could not delete an applied segment: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records the orders the database rejected.
+     *
+     * @return The number of rejected orders.
+     */
+    private int insertRejects(List<JournalEntry> batch, List<OrderResult> results) throws SQLException {
+        final String SQLQuery = "INSERT INTO order_journal_reject(journal_id, sequence, client_id, items, reason, accepted_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        int rejected = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            for (int i = 0; i < batch.size(); i++) {
+                OrderResult result = results.get(i);
+                if (result.success()) {
+                    continue;
+                }
+                JournalEntry entry = batch.get(i);
+                pstmt.setString(1, journal.journalId);
+                pstmt.setLong(2, entry.sequence());
+                pstmt.setLong(3, entry.request().clientId());
+                pstmt.setString(4, new TreeMap<>(entry.request().itemQuantities()).entrySet().stream()
+                        .map(line -> line.getKey() + ":" + line.getValue())
+                        .collect(Collectors.joining(" ")));
+                pstmt.setString(5, result.failureReason());
+                pstmt.setTimestamp(6, new Timestamp(entry.acceptedAtMillis()));
+                pstmt.addBatch();
+                rejected++;
+            }
+            if (rejected > 0) {
+                pstmt.executeBatch();
+                System.err.printf("[JOURNAL] %d journaled order(s) rejected by the database.\n", rejected);
+            }
+        }
+        return rejected;
+    }
+
+    private void refreshStock() throws SQLException {
+        if (conn == null) {
+            conn = connections.connect();
+        }
+        journal.stock.refresh(readStock(conn));
+        lastStockRefresh = System.currentTimeMillis();
+    }
+
+    private void closeConnection() {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                // The connection is discarded either way
+            }
+            conn = null;
+        }
+    }
+
+    /**
+     * Reads how far a journal has been applied, registering the journal on first use.
+     */
+    static long readAppliedSequence(Connection conn, String journalId) throws SQLException {
+        final String registerSQL = "INSERT INTO order_journal_state(journal_id, applied_sequence) VALUES (?, 0) " +
+                "ON CONFLICT (journal_id) DO NOTHING";
+        try (PreparedStatement pstmt = conn.prepareStatement(registerSQL)) {
+            pstmt.setString(1, journalId);
+            pstmt.executeUpdate();
+        }
+
+        final String SQLQuery = "SELECT applied_sequence FROM order_journal_state WHERE journal_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setString(1, journalId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    static Map<Long, Integer> readStock(Connection conn) throws SQLException {
+        final String SQLQuery = "SELECT medicine_id, stock FROM medicine";
+        Map<Long, Integer> stock = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                stock.put(rs.getLong(1), rs.getInt(2));
+            }
+        }
+        return stock;
+    }
+}
@@ -0,0 +1,89 @@
+package org.pharmacy.journal;
+
+import org.pharmacy.model.OrderRequest;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * One accepted order in the journal.
+ * <p>
+ * On disk an entry is {@code [int payloadLength][int crc32c][payload]}, the payload being
+ * {@code [long sequence][long acceptedAtMillis][long clientId][int lineCount]} followed by
+ * {@code lineCount} times {@code [long medicineId][int quantity]}. A zero length marks the end of
+ * the written part of a segment; a checksum mismatch marks a torn write that was never acknowledged.
+ * </p>
+ *
+ * @param sequence The journal sequence number, increasing by one per entry.
+ * @param acceptedAtMillis When the order was accepted (epoch milliseconds).
+ * @param request The order.
+ */
+record JournalEntry(long sequence, long acceptedAtMillis, OrderRequest request) {
+
+    static final int HEADER_BYTES = 8;
+    private static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 8 + 4;
+    private static final int LINE_BYTES = 8 + 4;
+
+    int encodedSize() {
+        return HEADER_BYTES + FIXED_PAYLOAD_BYTES + LINE_BYTES * request.itemQuantities().size();
+    }
+
+    /**
+     * Encodes the entry at {@code offset}. The length is written last, so a partially written entry
+     * never looks complete.
+     */
+    void write(ByteBuffer buffer, int offset) {
+        int payloadLength = encodedSize() - HEADER_BYTES;
+        ByteBuffer payload = buffer.slice(offset + HEADER_BYTES, payloadLength);
+        payload.putLong(sequence).putLong(acceptedAtMillis).putLong(request.clientId()).putInt(request.itemQuantities().size());
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(request.itemQuantities()).entrySet()) {
+            payload.putLong(line.getKey()).putInt(line.getValue());
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload.flip());
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putInt(offset, payloadLength);
+    }
+
+    /**
+     * Decodes the entry at {@code offset}.
+     *
+     * @return The entry, or null if there is no complete, intact entry at that position.
+     */
+    static JournalEntry read(ByteBuffer buffer, int offset) {
+        if (offset + HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int payloadLength = buffer.getInt(offset);
+        if (payloadLength < FIXED_PAYLOAD_BYTES || payloadLength > buffer.capacity() - offset - HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer payload = buffer.slice(offset + HEADER_BYTES, payloadLength);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+            return null;
+        }
+
+        long sequence = payload.getLong();
+        long acceptedAtMillis = payload.getLong();
+        long clientId = payload.getLong();
+        int lineCount = payload.getInt();
+        if (lineCount <= 0 || payloadLength != FIXED_PAYLOAD_BYTES + lineCount * LINE_BYTES) {
+            return null;
+        }
+        Map<Long, Integer> items = new LinkedHashMap<>();
+        for (int i = 0; i < lineCount; i++) {
+            items.put(payload.getLong(), payload.getInt());
+        }
+        try {
+            return new JournalEntry(sequence, acceptedAtMillis, new OrderRequest(clientId, items));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.pharmacy.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * One memory-mapped journal file, named after the sequence number of its first entry.
+ * Segments are created at full size; unwritten space reads as zeros.
+ */
+final class JournalSegment {
+
+    private static final String PREFIX = "orders-";
+    private static final String SUFFIX = ".journal";
+    private static final int ZERO_BLOCK = 64;
+
+    final long firstSequence;
+    final Path path;
+    final MappedByteBuffer buffer;
+    private final FileChannel channel;
+
+    private JournalSegment(long firstSequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.firstSequence = firstSequence;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a new, empty segment and makes its directory entry durable.
+     */
+    static JournalSegment create(Path directory, long firstSequence, int size) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapping past the end of the file extends it
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        channel.force(true);
+        forceDirectory(directory);
+        return new JournalSegment(firstSequence, path, channel, buffer);
+    }
+
+    static JournalSegment open(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        long firstSequence = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        return new JournalSegment(firstSequence, path, channel, buffer);
+    }
+
+    /**
+     * @return The segment files in a directory, oldest first.
+     */
+    static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().forEach(segments::add);
+            return segments;
+        }
+    }
+
+    int size() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Writes the bytes in {@code [from, to)} through to the storage device.
+     */
+    void force(int from, int to) {
+        if (to > from) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    /**
+     * Zeroes a torn entry left at {@code offset} by a crash. An encoded entry never contains
+     * {@value #ZERO_BLOCK} consecutive zero bytes (every field is positive), so clearing stops at the
+     * first all-zero block instead of rewriting the whole unused tail.
+     */
+    void clearFrom(int offset) {
+        int position = offset;
+        while (position < buffer.capacity()) {
+            int end = Math.min(position + ZERO_BLOCK, buffer.capacity());
+            boolean zero = true;
+            for (int i = position; i < end; i++) {
+                if (buffer.get(i) != 0) {
+                    zero = false;
+                    buffer.put(i, (byte) 0);
+                }
+            }
+            if (zero) {
+                break;
+            }
+            position = end;
+        }
+        force(offset, position);
+    }
+
+    /**
+     * Closes and deletes the file. The mapping itself is released when the buffer is garbage collected.
+     */
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private static void forceDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform (e.g. Windows); the file data itself is still forced
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package org.pharmacy.journal;
+
+import org.pharmacy.db.ConnectionFactory;
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.model.OrderRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-ahead journal for orders: accepts an order as soon as it is durable on local disk and
+ * applies it to PostgreSQL in the background.
+ * <p>
+ * {@link #accept(OrderRequest)} pre-checks stock against a local {@link StockSnapshot}, appends the
+ * order to a memory-mapped segment file and returns once the entry has been forced to disk. A sync
+ * thread forces whatever has been appended since its last force in one call, so concurrent orders
+ * share one fsync (group commit) and order latency is local disk latency rather than a database
+ * commit. A {@link JournalApplier} thread replays durable entries into the database in batches
+ * through {@link org.pharmacy.repository.OrderRepository#createOrders(java.util.List)}.
+ * </p>
+ * <p>
+ * Each batch advances {@code order_journal_state.applied_sequence} in the same database transaction
+ * as its orders, so after a crash {@link #open} replays exactly the entries the database has not
+ * seen. An accepted order that the database rejects when applied (its stock was sold elsewhere, the
+ * client was deleted) is recorded in {@code order_journal_reject}. Fully applied segments are deleted.
+ * </p>
+ */
+public class OrderJournal implements AutoCloseable {
+
+    /** Default segment size; one segment holds about a million typical orders. */
+    public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+    private static final String ID_FILE = "journal.id";
+
+    final String journalId;
+    final StockSnapshot stock = new StockSnapshot();
+    final ConcurrentSkipListMap<Long, JournalSegment> segments = new ConcurrentSkipListMap<>();
+
+    private final Path directory;
+    private final int segmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    // Guarded by lock
+    private JournalSegment current;
+    private int writeOffset;
+    private int durableOffset;
+    private long nextSequence;
+    private long writtenSequence;
+    private long durableSequence;
+    private boolean closed;
+    private IOException failure;
+
+    private final JournalApplier applier;
+    private final Thread syncThread;
+    private final Thread applyThread;
+
+    private OrderJournal(Path directory, int segmentBytes, String journalId, ConnectionFactory connections) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.journalId = journalId;
+        this.applier = new JournalApplier(this, connections);
+        this.syncThread = Thread.ofPlatform().daemon().name("order-journal-sync").unstarted(this::syncLoop);
+        this.applyThread = Thread.ofPlatform().daemon().name("order-journal-apply").unstarted(applier);
+    }
+
+    /**
+     * Opens (or creates) the journal in a directory with the segment size from
+     * {@code pharmacy.journal.segmentBytes} (default {@value #DEFAULT_SEGMENT_BYTES}).
+     *
+     * @see #open(Path, ConnectionFactory, int)
+     */
+    public static OrderJournal open(Path directory, ConnectionFactory connections) throws IOException, SQLException {
+        return open(directory, connections, Integer.getInteger("pharmacy.journal.segmentBytes", DEFAULT_SEGMENT_BYTES));
+    }
+
+    /**
+     * Opens (or creates) the journal in a directory, recovers it and starts the sync and apply threads.
+     * <p>Recovery reads every segment up to its last intact entry, erases a torn entry at the end,
+     * and rebuilds the stock snapshot from the database minus the entries not yet applied. Those
+     * entries are then applied by the background thread before any newer ones.</p>
+     *
+     * @param directory The journal directory; created if missing. Use one directory per process.
+     * @param connections Opens the database connections used for recovery and by the applier.
+     * @param segmentBytes The size of each segment file.
+     * @return The running journal.
+     * @throws IOException If the journal files cannot be read or created.
+     * @throws SQLException If the database cannot be read.
+     */
+    public static OrderJournal open(Path directory, ConnectionFactory connections, int segmentBytes) throws IOException, SQLException {
+        Files.createDirectories(directory);
+        OrderJournal journal = new OrderJournal(directory, segmentBytes, readOrCreateId(directory), connections);
+        journal.recover(connections);
+        journal.syncThread.start();
+        journal.applyThread.start();
+        return journal;
+    }
+
+    /**
+     * Journals an order and waits until it is durable.
+     *
+     * @param request The order.
+     * @return The journal sequence number of the order.
+     * @throws DataIntegrityViolationException If a medicine is unknown or has insufficient stock locally.
+     * @throws IllegalArgumentException If the order has too many lines to fit in a segment.
+     * @throws IllegalStateException If the journal is closed.
+     * @throws IOException If the journal cannot be written or synced.
+     * @throws InterruptedException If interrupted while waiting for the sync; the order may still be applied.
+     */
+    public long accept(OrderRequest request) throws IOException, InterruptedException {
+        SortedMap<Long, Integer> lines = new TreeMap<>(request.itemQuantities());
+        long unavailable = stock.reserve(lines);
+        if (unavailable != -1) {
+            throw new DataIntegrityViolationException(
+                    String.format("Stock check failed for Medicine ID %d (not found or insufficient stock).", unavailable));
+        }
+
+        long sequence;
+        lock.lock();
+        try {
+            try {
+                if (failure != null) {
+                    throw new IOException("The order journal has failed.", failure);
+                }
+                if (closed) {
+                    throw new IllegalStateException("The order journal is closed.");
+                }
+                sequence = nextSequence;
+                append(new JournalEntry(sequence, System.currentTimeMillis(), request));
+            } catch (IOException | RuntimeException e) {
+                stock.release(lines);
+                throw e;
+            }
+            nextSequence++;
+            writtenSequence = sequence;
+            appended.signal();
+
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new IOException("The order journal could not be synced.", failure);
+                }
+                synced.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sequence;
+    }
+
+    /**
+     * @return The sequence number of the last journaled order.
+     */
+    public long appendedSequence() {
+        lock.lock();
+        try {
+            return writtenSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The sequence number up to which orders are durable on disk.
+     */
+    public long durableSequence() {
+        lock.lock();
+        try {
+            return durableSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The sequence number up to which orders have been applied to the database.
+     */
+    public long appliedSequence() {
+        return applier.appliedSequence();
+    }
+
+    /**
+     * @return The number of journaled orders rejected by the database since the journal was opened.
+     */
+    public long rejectedOrders() {
+        return applier.rejectedOrders();
+    }
+
+    /**
+     * Stops accepting orders and stops the background threads. Durable entries that are not applied
+     * yet stay in the journal and are applied after the next {@link #open}.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        syncThread.join();
+        applier.stop();
+        applyThread.interrupt();
+        applyThread.join();
+        for (JournalSegment segment : segments.values()) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                // Nothing is written through the channel; the mapping was forced by the sync thread
+            }
+        }
+    }
+
+    /**
+     * Waits until an entry after {@code sequence} is durable, the journal is closed or the timeout expires.
+     *
+     * @return The current durable sequence number.
+     */
+    long awaitDurable(long sequence, long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+            while (durableSequence <= sequence && !closed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                synced.awaitNanos(remaining);
+            }
+            return durableSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments whose entries are all applied, never the segment being written.
+     */
+    void deleteAppliedSegments(long appliedSequence) throws IOException {
+        for (JournalSegment segment : segments.values()) {
+            Long next = segments.higherKey(segment.firstSequence);
+            if (next == null || next - 1 > appliedSequence) {
+                return;
+            }
+            segments.remove(segment.firstSequence);
+            segment.delete();
+        }
+    }
+
+    /**
+     * Appends an entry, starting a new segment if it does not fit. Called with the lock held.
+     */
+    private void append(JournalEntry entry) throws IOException {
+        int size = entry.encodedSize();
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("The order has too many lines for the journal segment size.");
+        }
+        if (current == null || writeOffset + size > current.size()) {
+            if (current != null) {
+                // Everything before this entry becomes durable with the old segment
+                current.force(durableOffset, writeOffset);
+                durableSequence = writtenSequence;
+                synced.signalAll();
+            }
+            current = JournalSegment.create(directory, entry.sequence(), segmentBytes);
+            segments.put(entry.sequence(), current);
+            writeOffset = 0;
+            durableOffset = 0;
+        }
+        entry.write(current.buffer, writeOffset);
+        writeOffset += size;
+    }
+
+    /**
+     * Forces appended entries to disk, one force for everything appended while the previous one ran.
+     */
+    private void syncLoop() {
+        while (true) {
+            JournalSegment segment;
+            int from;
+            int to;
+            long target;
+            lock.lock();
+            try {
+                while (writtenSequence == durableSequence && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (writtenSequence == durableSequence) {
+                    return;
+                }
+                segment = current;
+                from = durableOffset;
+                to = writeOffset;
+                target = writtenSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                segment.force(from, to);
+            } catch (UncheckedIOException e) {
+                error = e.getCause();
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = Math.max(durableSequence, target);
+                    if (segment == current) {
+                        durableOffset = Math.max(durableOffset, to);
+                    }
+                }
+                synced.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the segments and the database state, and prepares appending after the last intact entry.
+     */
+    private void recover(ConnectionFactory connections) throws IOException, SQLException {
+        long appliedSequence;
+        try (Connection conn = connections.connect()) {
+            appliedSequence = JournalApplier.readAppliedSequence(conn, journalId);
+            applier.recovered(appliedSequence);
+
+            long lastSequence = appliedSequence;
+            for (Path path : JournalSegment.list(directory)) {
+                JournalSegment segment = JournalSegment.open(path);
+                segments.put(segment.firstSequence, segment);
+                int offset = 0;
+                JournalEntry entry;
+                while ((entry = JournalEntry.read(segment.buffer, offset)) != null) {
+                    if (entry.sequence() > appliedSequence) {
+                        stock.addPending(entry.request().itemQuantities());
+                    }
+                    lastSequence = Math.max(lastSequence, entry.sequence());
+                    offset += entry.encodedSize();
+                }
+                current = segment;
+                writeOffset = offset;
+            }
+            if (current != null) {
+                current.clearFrom(writeOffset);
+            }
+            durableOffset = writeOffset;
+            nextSequence = lastSequence + 1;
+            writtenSequence = lastSequence;
+            durableSequence = lastSequence;
+
+            stock.refresh(JournalApplier.readStock(conn));
+        }
+    }
+
+    private static String readOrCreateId(Path directory) throws IOException {
+        Path idFile = directory.resolve(ID_FILE);
+        if (Files.exists(idFile)) {
+            return Files.readString(idFile, StandardCharsets.UTF_8).trim();
+        }
+        String id = UUID.randomUUID().toString();
+        Files.writeString(idFile, id, StandardCharsets.UTF_8);
+        return id;
+    }
+}
@@ -0,0 +1,128 @@
+package org.pharmacy.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Local view of medicine stock used to pre-check journaled orders.
+ * <p>
+ * Available stock is the database stock minus the quantities of orders that are journaled but not
+ * yet applied ("pending"). Orders reserve available stock with compare-and-set, all lines or none.
+ * {@link #refresh(Map)} re-bases the view on fresh database stock (picking up restocks and new
+ * medicines); it holds the write lock so that no reservation is lost while the values are replaced.
+ * </p>
+ */
+final class StockSnapshot {
+
+    private final ConcurrentHashMap<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, AtomicInteger> pending = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Reserves stock for every line of an order.
+     *
+     * @param lines Medicine ID to quantity, in ascending medicine ID order.
+     * @return -1 if the order was reserved, otherwise the ID of the first medicine that is unknown
+     *         or has too little stock (nothing is reserved then).
+     */
+    long reserve(SortedMap<Long, Integer> lines) {
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            List<Map.Entry<Long, Integer>> reserved = new ArrayList<>(lines.size());
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                if (!take(line.getKey(), line.getValue())) {
+                    for (Map.Entry<Long, Integer> taken : reserved) {
+                        available.get(taken.getKey()).addAndGet(taken.getValue());
+                    }
+                    return line.getKey();
+                }
+                reserved.add(line);
+            }
+            addPending(lines);
+            return -1;
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Gives back a reservation whose order could not be journaled.
+     */
+    void release(Map<Long, Integer> lines) {
+        Lock shared = lock.readLock();
+        shared.lock();
+        try {
+            lines.forEach((medicineId, quantity) -> {
+                AtomicInteger stock = available.get(medicineId);
+                if (stock != null) {
+                    stock.addAndGet(quantity);
+                }
+            });
+            applied(lines);
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    /**
+     * Records quantities of a journaled order that is not yet in the database.
+     */
+    void addPending(Map<Long, Integer> lines) {
+        lines.forEach((medicineId, quantity) ->
+                pending.computeIfAbsent(medicineId, id -> new AtomicInteger()).addAndGet(quantity));
+    }
+
+    /**
+     * Records that an order left the journal backlog (applied or rejected by the database).
+     */
+    void applied(Map<Long, Integer> lines) {
+        lines.forEach((medicineId, quantity) -> {
+            AtomicInteger quantityPending = pending.get(medicineId);
+            if (quantityPending != null) {
+                quantityPending.addAndGet(-quantity);
+            }
+        });
+    }
+
+    /**
+     * Replaces the available stock with database stock minus pending quantities. Medicines missing
+     * from {@code databaseStock} are dropped.
+     */
+    void refresh(Map<Long, Integer> databaseStock) {
+        Lock exclusive = lock.writeLock();
+        exclusive.lock();
+        try {
+            available.keySet().retainAll(databaseStock.keySet());
+            databaseStock.forEach((medicineId, stock) -> {
+                AtomicInteger quantityPending = pending.get(medicineId);
+                int value = stock - (quantityPending == null ? 0 : quantityPending.get());
+                available.computeIfAbsent(medicineId, id -> new AtomicInteger()).set(value);
+            });
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    private boolean take(long medicineId, int quantity) {
+        AtomicInteger stock = available.get(medicineId);
+        if (stock == null) {
+            return false;
+        }
+        while (true) {
+            int current = stock.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (stock.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.pharmacy.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A minimal streaming JSON writer.
+ * <p>
+ * Values are written straight to the underlying {@link Writer}, so arbitrarily long arrays can be
+ * produced without building them in memory. The writer keeps track of nesting only to place commas;
+ * it does not validate that names and values alternate correctly.
+ * </p>
+ */
+public class JsonWriter {
+
+    private final Writer out;
+
+    /**
+     * For each open object/array: whether the next element needs a leading comma.
+     */
+    private final Deque<boolean[]> scopes = new ArrayDeque<>();
+
+    /**
+     * Set after {@link #name(String)}: the following value belongs to that name and takes no comma.
+     */
+    private boolean afterName;
+
+    /**
+     * @param out The destination of the JSON text.
+     */
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        scopes.push(new boolean[]{false});
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        scopes.pop();
+        out.write('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        scopes.push(new boolean[]{false});
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        scopes.pop();
+        out.write(']');
+        return this;
+    }
+
+    /**
+     * Writes an object member name; the next call must write its value.
+     */
+    public JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        beforeValue();
+        out.write(Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    /**
+     * Convenience for {@code name(name).value(value)}.
+     */
+    public JsonWriter field(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Convenience for {@code name(name).value(value)}.
+     */
+    public JsonWriter field(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Convenience for {@code name(name).value(value)}.
+     */
+    public JsonWriter field(String name, double value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Flushes the underlying writer.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        boolean[] scope = scopes.peek();
+        if (scope != null) {
+            if (scope[0]) {
+                out.write(',');
+            }
+            scope[0] = true;
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,34 @@
+package org.pharmacy.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for the stock check of an order. All lines of an order are checked by one batched guarded
+ * UPDATE, so one event times that batch and carries the outcome of every line.
+ */
+@Name("org.pharmacy.OrderStockCheck")
+@Label("Order Stock Check")
+@Category({"Pharmacy", "Orders"})
+@Description("Stock reservation of all lines of an order")
+@StackTrace(false)
+public class OrderStockCheckEvent extends Event {
+
+    @Label("Order Id")
+    public long orderId;
+
+    @Label("Lines")
+    public int lines;
+
+    @Label("Rejected Lines")
+    @Description("Lines whose medicine is missing or whose stock is too low")
+    public int rejectedLines;
+
+    @Label("Rejected Medicine Ids")
+    @Description("Comma-separated medicine ids of the rejected lines, empty if every line was reserved")
+    public String rejectedMedicineIds;
+}
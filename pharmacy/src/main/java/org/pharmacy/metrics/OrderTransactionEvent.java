@@ -0,0 +1,46 @@
+package org.pharmacy.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning one order creation, from the start of its transaction (or savepoint) until
+ * commit or rollback.
+ */
+@Name("org.pharmacy.OrderTransaction")
+@Label("Order Transaction")
+@Category({"Pharmacy", "Orders"})
+@Description("Creation of one order, from begin to commit or rollback")
+public class OrderTransactionEvent extends Event {
+
+    /** The transaction was committed. */
+    public static final String COMMIT = "commit";
+
+    /** The transaction was rolled back. */
+    public static final String ROLLBACK = "rollback";
+
+    /** The order joined an outer transaction and its savepoint was released. */
+    public static final String SAVEPOINT_RELEASED = "savepoint released";
+
+    /** The order joined an outer transaction and was rolled back to its savepoint. */
+    public static final String SAVEPOINT_ROLLBACK = "savepoint rollback";
+
+    @Label("Order Id")
+    @Description("ID of the created order, or -1 if none was created")
+    public long orderId = -1;
+
+    @Label("Client Id")
+    public long clientId;
+
+    @Label("Line Count")
+    public int lineCount;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Failure")
+    public String failure;
+}
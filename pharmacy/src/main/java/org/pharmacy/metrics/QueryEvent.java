@@ -0,0 +1,30 @@
+package org.pharmacy.metrics;
+
+import java.util.List;
+
+/**
+ * One completed SQL execution, as reported to {@link QueryListener}s.
+ *
+ * @param name The code that issued the statement, as {@code SimpleClassName.method} (e.g. {@code JdbcOrderRepository.createOrder}).
+ * @param sql The SQL text.
+ * @param parameters The bind parameters by position (index 0 is parameter 1; null for SQL NULL or unset).
+ * @param durationNanos Time spent in the driver: executing, plus fetching rows for queries.
+ * @param rows Rows read (queries) or affected (updates and batches).
+ * @param sqlState The SQLSTATE of the failure, or null if the statement succeeded.
+ */
+public record QueryEvent(
+        String name,
+        String sql,
+        List<Object> parameters,
+        long durationNanos,
+        long rows,
+        String sqlState
+) {
+
+    /**
+     * @return True if the statement failed.
+     */
+    public boolean failed() {
+        return sqlState != null;
+    }
+}
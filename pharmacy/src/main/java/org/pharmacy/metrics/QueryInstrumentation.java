@@ -0,0 +1,419 @@
+package org.pharmacy.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Times every SQL statement executed through a connection and reports it to the registered
+ * {@link QueryListener}s.
+ * <p>
+ * {@link #instrument(Connection)} wraps a connection in a proxy whose statements measure the time
+ * spent in the driver (executing, plus fetching each row for queries), count rows and remember bind
+ * parameters. Each statement is named after the code that prepared it, found by walking the stack
+ * to the first frame outside the JDBC plumbing, so {@code JdbcOrderRepository.createOrder} is reported
+ * as such without any change to the repositories. A query's event is published when its result
+ * set (or statement) is closed.
+ * </p>
+ * <p>
+ * With {@code -Dpharmacy.slowlog.thresholdMillis=N} slow statements are written to a {@link SlowQueryLog}.
+ * With {@code -Dpharmacy.jfr.enabled=true} every statement is also emitted as a {@link SqlStatementEvent}.
+ * When neither listeners nor JFR events are enabled, connections are returned unwrapped and cost nothing.
+ * The built-in {@link QueryMetrics} is enabled with {@code -Dpharmacy.metrics.enabled=true}; it is then
+ * exposed over JMX and, with {@code -Dpharmacy.metrics.dumpSeconds=N}, printed to stderr every N seconds.
+ * </p>
+ */
+public final class QueryInstrumentation {
+
+    private static final List<QueryListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private static final QueryMetrics METRICS = Boolean.getBoolean("pharmacy.metrics.enabled") ? startMetrics() : null;
+
+    /**
+     * Whether statements emit {@link SqlStatementEvent}s. They cost almost nothing unless a JFR
+     * recording enables them, but need the proxies, so they are opt-in.
+     */
+    private static final boolean JFR_EVENTS = Boolean.getBoolean("pharmacy.jfr.enabled");
+
+    private static final SlowQueryLog SLOW_QUERY_LOG = startSlowQueryLog();
+
+    private QueryInstrumentation() {
+    }
+
+    /**
+     * Registers a listener for all connections instrumented from now on.
+     */
+    public static void addListener(QueryListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(QueryListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * @return The metrics enabled by {@code pharmacy.metrics.enabled}, or null if they are disabled.
+     */
+    public static QueryMetrics metrics() {
+        return METRICS;
+    }
+
+    /**
+     * @return The slow query log enabled by {@code pharmacy.slowlog.thresholdMillis}, or null if it is disabled.
+     */
+    public static SlowQueryLog slowQueryLog() {
+        return SLOW_QUERY_LOG;
+    }
+
+    /**
+     * Wraps a connection so that its statements are timed, or returns it unchanged if there are
+     * no listeners and JFR events are disabled.
+     */
+    public static Connection instrument(Connection connection) {
+        if (LISTENERS.isEmpty() && !JFR_EVENTS) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private static QueryMetrics startMetrics() {
+        QueryMetrics metrics = new QueryMetrics(true);
+        LISTENERS.add(metrics);
+        long dumpSeconds = Long.getLong("pharmacy.metrics.dumpSeconds", 0);
+        if (dumpSeconds > 0) {
+            // stderr, so the dump does not mix with command output (e.g. batch mode results piped elsewhere)
+            metrics.startPeriodicDump(Duration.ofSeconds(dumpSeconds), System.err);
+        }
+        return metrics;
+    }
+
+    /**
+     * Starts the JFR event for a statement, or returns null if JFR events are disabled.
+     */
+    private static SqlStatementEvent beginJfrEvent() {
+        if (!JFR_EVENTS) {
+            return null;
+        }
+        SqlStatementEvent jfrEvent = new SqlStatementEvent();
+        jfrEvent.begin();
+        return jfrEvent;
+    }
+
+    private static SlowQueryLog startSlowQueryLog() {
+        try {
+            SlowQueryLog log = SlowQueryLog.fromSystemProperties();
+            if (log != null) {
+                LISTENERS.add(log);
+            }
+            return log;
+        } catch (IOException e) {
+            System.err.println("Slow query log disabled: cannot open log file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void publish(QueryEvent event, SqlStatementEvent jfrEvent) {
+        if (jfrEvent != null) {
+            jfrEvent.end();
+            if (jfrEvent.shouldCommit()) {
+                jfrEvent.origin = event.name();
+                jfrEvent.sql = event.sql();
+                jfrEvent.sqlId = event.sql() == null ? 0 : event.sql().hashCode();
+                jfrEvent.rows = event.rows();
+                jfrEvent.driverTime = event.durationNanos();
+                jfrEvent.sqlState = event.sqlState();
+                jfrEvent.commit();
+            }
+        }
+        for (QueryListener listener : LISTENERS) {
+            try {
+                listener.onQuery(event);
+            } catch (RuntimeException e) {
+                // A broken listener must not break the application's SQL
+                System.err.println("Query listener failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Names the code that is preparing a statement, as {@code SimpleClassName.method}.
+     */
+    private static String callerName() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> !isPlumbing(frame.getClassName()))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+
+    private static boolean isPlumbing(String className) {
+        return className.startsWith("org.pharmacy.metrics.")
+                || className.startsWith("org.pharmacy.db.")
+                || className.equals("org.pharmacy.repository.CursorScan")
+                || className.startsWith("java.")
+                || className.startsWith("jdk.")
+                || className.startsWith("sun.")
+                || className.startsWith("com.sun.")
+                || className.contains("$Proxy");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection delegate;
+
+        ConnectionHandler(Connection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "createStatement", "prepareStatement", "prepareCall" -> {
+                    Statement statement = (Statement) QueryInstrumentation.invoke(delegate, method, args);
+                    String sql = method.getName().equals("createStatement") ? null : (String) args[0];
+                    return Proxy.newProxyInstance(
+                            Connection.class.getClassLoader(),
+                            new Class<?>[]{method.getReturnType()},
+                            new StatementHandler(statement, callerName(), sql));
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Instrumented[" + delegate + "]";
+                }
+                default -> {
+                    return QueryInstrumentation.invoke(delegate, method, args);
+                }
+            }
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement delegate;
+        private final String name;
+        private final String preparedSql;
+        private Object[] parameters = new Object[0];
+        /** Highest parameter index bound so far; the array may be longer after growing. */
+        private int parameterCount;
+        private ResultSetHandler openResult;
+
+        StatementHandler(Statement delegate, String name, String preparedSql) {
+            this.delegate = delegate;
+            this.name = name;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if (preparedSql != null && methodName.startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer index) {
+                bind(index, methodName.equals("setNull") ? null : args[1]);
+                return QueryInstrumentation.invoke(delegate, method, args);
+            }
+            switch (methodName) {
+                case "clearParameters" -> {
+                    parameters = new Object[0];
+                    parameterCount = 0;
+                }
+                case "executeQuery" -> {
+                    return executeQuery(method, args);
+                }
+                case "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch", "execute" -> {
+                    return executeUpdate(method, args);
+                }
+                case "close" -> finishOpenResult();
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+            return QueryInstrumentation.invoke(delegate, method, args);
+        }
+
+        private Object executeQuery(Method method, Object[] args) throws Throwable {
+            finishOpenResult();
+            String sql = sqlOf(args);
+            List<Object> boundParameters = boundParameters();
+            SqlStatementEvent jfrEvent = beginJfrEvent();
+            long start = System.nanoTime();
+            ResultSet resultSet;
+            try {
+                resultSet = (ResultSet) QueryInstrumentation.invoke(delegate, method, args);
+            } catch (SQLException e) {
+                publish(new QueryEvent(name, sql, boundParameters, System.nanoTime() - start, 0, e.getSQLState()), jfrEvent);
+                throw e;
+            }
+            openResult = new ResultSetHandler(resultSet, name, sql, boundParameters, System.nanoTime() - start, jfrEvent);
+            return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, openResult);
+        }
+
+        private Object executeUpdate(Method method, Object[] args) throws Throwable {
+            finishOpenResult();
+            String sql = sqlOf(args);
+            List<Object> boundParameters = boundParameters();
+            SqlStatementEvent jfrEvent = beginJfrEvent();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = QueryInstrumentation.invoke(delegate, method, args);
+            } catch (SQLException e) {
+                publish(new QueryEvent(name, sql, boundParameters, System.nanoTime() - start, 0, e.getSQLState()), jfrEvent);
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            publish(new QueryEvent(name, sql, boundParameters, elapsed, rowsOf(result), null), jfrEvent);
+            return result;
+        }
+
+        private long rowsOf(Object result) throws SQLException {
+            if (result instanceof Integer count) {
+                return count;
+            }
+            if (result instanceof Long count) {
+                return count;
+            }
+            if (result instanceof Boolean) {
+                return Math.max(delegate.getUpdateCount(), 0);
+            }
+            long rows = 0;
+            if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return rows;
+        }
+
+        private void bind(int index, Object value) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private List<Object> boundParameters() {
+            return parameterCount == 0 ? List.of() : Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(parameters, parameterCount)));
+        }
+
+        private String sqlOf(Object[] args) {
+            return args != null && args.length > 0 && args[0] instanceof String sql ? sql : preparedSql;
+        }
+
+        /**
+         * A result set that was never closed is reported when its statement closes or runs again.
+         */
+        private void finishOpenResult() {
+            if (openResult != null) {
+                openResult.finish();
+                openResult = null;
+            }
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet delegate;
+        private final String name;
+        private final String sql;
+        private final List<Object> parameters;
+        private final SqlStatementEvent jfrEvent;
+        private long nanos;
+        private long rows;
+        private boolean finished;
+
+        ResultSetHandler(ResultSet delegate, String name, String sql, List<Object> parameters, long executeNanos,
+                         SqlStatementEvent jfrEvent) {
+            this.delegate = delegate;
+            this.name = name;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.nanos = executeNanos;
+            this.jfrEvent = jfrEvent;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next" -> {
+                    // Fetching further rows (e.g. the next cursor batch) is database time too
+                    long start = System.nanoTime();
+                    boolean hasRow;
+                    try {
+                        hasRow = delegate.next();
+                    } catch (SQLException e) {
+                        nanos += System.nanoTime() - start;
+                        publishOnce(e.getSQLState());
+                        throw e;
+                    }
+                    nanos += System.nanoTime() - start;
+                    if (hasRow) {
+                        rows++;
+                    }
+                    return hasRow;
+                }
+                case "close" -> {
+                    delegate.close();
+                    finish();
+                    return null;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    return QueryInstrumentation.invoke(delegate, method, args);
+                }
+            }
+        }
+
+        void finish() {
+            publishOnce(null);
+        }
+
+        private void publishOnce(String sqlState) {
+            if (!finished) {
+                finished = true;
+                publish(new QueryEvent(name, sql, parameters, nanos, rows, sqlState), jfrEvent);
+            }
+        }
+    }
+}
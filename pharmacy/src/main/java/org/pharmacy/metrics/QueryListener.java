@@ -0,0 +1,11 @@
+package org.pharmacy.metrics;
+
+/**
+ * Receives every SQL execution made through an instrumented connection.
+ * Called on the thread that ran the statement, so implementations must be fast and thread-safe.
+ */
+@FunctionalInterface
+public interface QueryListener {
+
+    void onQuery(QueryEvent event);
+}
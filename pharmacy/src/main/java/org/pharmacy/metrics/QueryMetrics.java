@@ -0,0 +1,132 @@
+package org.pharmacy.metrics;
+
+import org.pharmacy.json.JsonWriter;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link QueryListener} that keeps one {@link QueryTimer} per statement origin
+ * (e.g. {@code JdbcOrderRepository.createOrder}).
+ * <p>
+ * Timers can be registered as JMX MXBeans when they are created, and the whole table can be printed
+ * periodically, sorted by total time so the most expensive code paths come first.
+ * </p>
+ */
+public class QueryMetrics implements QueryListener {
+
+    public static final String JMX_DOMAIN = "org.pharmacy";
+
+    private final Map<String, QueryTimer> timers = new ConcurrentHashMap<>();
+    private final boolean registerMBeans;
+
+    /**
+     * @param registerMBeans Whether each timer is registered with the platform MBean server.
+     */
+    public QueryMetrics(boolean registerMBeans) {
+        this.registerMBeans = registerMBeans;
+    }
+
+    @Override
+    public void onQuery(QueryEvent event) {
+        QueryTimer timer = timers.get(event.name());
+        if (timer == null) {
+            timer = timers.computeIfAbsent(event.name(), this::createTimer);
+        }
+        timer.record(event);
+    }
+
+    /**
+     * @return All timers, most total time first.
+     */
+    public List<QueryTimer> timers() {
+        List<QueryTimer> sorted = new ArrayList<>(timers.values());
+        sorted.sort(Comparator.comparingDouble(QueryTimer::getTotalMillis).reversed());
+        return sorted;
+    }
+
+    /**
+     * Prints all timers as a text table, most total time first.
+     */
+    public void dump(PrintStream out) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-45s %9s %11s %9s %9s %9s %9s %10s %7s%n",
+                "query", "count", "total ms", "mean ms", "p50 ms", "p99 ms", "max ms", "rows", "errors"));
+        for (QueryTimer timer : timers()) {
+            table.append(String.format("%-45s %9d %11.1f %9.2f %9.2f %9.2f %9.2f %10d %7d%s%n",
+                    timer.name(), timer.getCount(), timer.getTotalMillis(), timer.getMeanMillis(),
+                    timer.getP50Millis(), timer.getP99Millis(), timer.getMaxMillis(), timer.getRows(),
+                    timer.getErrorCount(), timer.getErrorCount() == 0 ? "" : " " + timer.getErrorsBySqlState()));
+        }
+        // One print call, so concurrent output cannot split the table
+        out.print(table);
+    }
+
+    /**
+     * Prints the table every {@code period} on a daemon thread.
+     *
+     * @return The scheduler, which can be shut down to stop dumping.
+     */
+    public ScheduledExecutorService startPeriodicDump(Duration period, PrintStream out) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                task -> Thread.ofPlatform().name("query-metrics-dump").daemon().unstarted(task));
+        scheduler.scheduleAtFixedRate(() -> {
+            out.println("--- Query metrics ---");
+            dump(out);
+        }, period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    /**
+     * Writes all timers as a JSON object keyed by name, latencies in milliseconds.
+     */
+    public void write(JsonWriter json) throws IOException {
+        json.beginObject();
+        for (QueryTimer timer : timers()) {
+            json.name(timer.name()).beginObject()
+                    .field("count", timer.getCount())
+                    .field("rows", timer.getRows())
+                    .field("totalMs", timer.getTotalMillis())
+                    .field("meanMs", timer.getMeanMillis())
+                    .field("p50Ms", timer.getP50Millis())
+                    .field("p99Ms", timer.getP99Millis())
+                    .field("p999Ms", timer.getP999Millis())
+                    .field("maxMs", timer.getMaxMillis());
+            json.name("errors").beginObject();
+            for (Map.Entry<String, Long> error : timer.getErrorsBySqlState().entrySet()) {
+                json.field(error.getKey(), error.getValue());
+            }
+            json.endObject().endObject();
+        }
+        json.endObject();
+    }
+
+    private QueryTimer createTimer(String name) {
+        QueryTimer timer = new QueryTimer(name);
+        if (registerMBeans) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=QueryTimer,name=" + ObjectName.quote(name));
+                if (!server.isRegistered(objectName)) {
+                    server.registerMBean(timer, objectName);
+                }
+            } catch (JMException e) {
+                System.err.println("Could not register query timer " + name + " with JMX: " + e.getMessage());
+            }
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,101 @@
+package org.pharmacy.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram, row count and errors by SQLSTATE of all SQL executions issued from one place
+ * in the code. Safe for concurrent recording.
+ */
+public class QueryTimer implements QueryTimerMXBean {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public QueryTimer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one execution.
+     */
+    public void record(QueryEvent event) {
+        latency.record(event.durationNanos());
+        rows.add(Math.max(event.rows(), 0));
+        if (event.failed()) {
+            errors.computeIfAbsent(event.sqlState(), k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * @return The name of the code this timer measures (e.g. {@code JdbcOrderRepository.createOrder}).
+     */
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.count();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsBySqlState() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        errors.forEach((sqlState, count) -> snapshot.put(sqlState, count.sum()));
+        return snapshot;
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return latency.mean() * latency.count() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.mean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.percentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.percentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.percentile(99.9) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.max() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        rows.reset();
+        errors.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package org.pharmacy.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one {@link QueryTimer}. Registered as {@code org.pharmacy:type=QueryTimer,name="..."}.
+ */
+public interface QueryTimerMXBean {
+
+    long getCount();
+
+    long getRows();
+
+    long getErrorCount();
+
+    /**
+     * @return Failed executions per SQLSTATE.
+     */
+    Map<String, Long> getErrorsBySqlState();
+
+    double getTotalMillis();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    /**
+     * Clears all counters and the histogram.
+     */
+    void reset();
+}
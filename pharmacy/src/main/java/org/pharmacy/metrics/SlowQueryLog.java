@@ -0,0 +1,235 @@
+package org.pharmacy.metrics;
+
+import org.pharmacy.db.ConnectionFactory;
+import org.pharmacy.db.DBConnector;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * A {@link QueryListener} that writes statements slower than a threshold, with their bind
+ * parameters, to a rotating log file.
+ * <p>
+ * A sampled subset of slow statements is also explained on a separate, uninstrumented connection
+ * and the plan is appended to the log. Queries ({@code SELECT}/{@code WITH}) are explained with
+ * {@code EXPLAIN (ANALYZE, BUFFERS)}, which runs them again; data-modifying statements and locking
+ * reads only get a plain {@code EXPLAIN}, so that logging never changes data, fires triggers or waits for locks. Plans are captured
+ * on a background thread with a small queue (excess requests are dropped) and each SQL text is
+ * explained at most once per {@link #explainIntervalMillis}, so a storm of slow queries cannot
+ * overload the database a second time.
+ * </p>
+ * Enabled with {@code -Dpharmacy.slowlog.thresholdMillis=N}; further settings:
+ * {@code pharmacy.slowlog.file} (default {@code slow-queries.%g.log}), {@code pharmacy.slowlog.limitBytes}
+ * (default 10 MB per file), {@code pharmacy.slowlog.files} (default 5) and
+ * {@code pharmacy.slowlog.explainSampleRate} (default 0.1).
+ */
+public class SlowQueryLog implements QueryListener, AutoCloseable {
+
+    private static final int MAX_PARAMETER_LENGTH = 200;
+    private static final int EXPLAIN_QUEUE_SIZE = 16;
+
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final long thresholdNanos;
+    private final double explainSampleRate;
+    private final long explainIntervalMillis;
+    private final ConnectionFactory explainConnections;
+    private final Logger logger;
+    private final FileHandler fileHandler;
+    private final ThreadPoolExecutor explainer;
+    private final Map<String, Long> lastExplained = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private Connection explainConnection;
+
+    /**
+     * @param thresholdMillis Statements taking at least this long are logged.
+     * @param explainSampleRate Fraction (0-1) of slow statements whose plan is captured.
+     * @param explainIntervalMillis Minimum time between two plans of the same SQL text.
+     * @param filePattern Log file pattern for {@link FileHandler} ({@code %g} is the rotation number).
+     * @param limitBytes Size at which the log rotates to the next file.
+     * @param fileCount Number of rotated files to keep.
+     * @param explainConnections Opens the side connection used for EXPLAIN; it must not be instrumented.
+     * @throws IOException If the log file cannot be opened.
+     * @throws IllegalArgumentException If a setting is out of range.
+     */
+    public SlowQueryLog(long thresholdMillis, double explainSampleRate, long explainIntervalMillis,
+                        String filePattern, int limitBytes, int fileCount,
+                        ConnectionFactory explainConnections) throws IOException {
+        if (thresholdMillis < 0 || explainSampleRate < 0 || explainSampleRate > 1 || limitBytes <= 0 || fileCount <= 0) {
+            throw new IllegalArgumentException("Invalid slow query log settings.");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.explainSampleRate = explainSampleRate;
+        this.explainIntervalMillis = explainIntervalMillis;
+        this.explainConnections = explainConnections;
+
+        this.fileHandler = new FileHandler(filePattern, limitBytes, fileCount, true);
+        fileHandler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return TIMESTAMP.format(record.getInstant()) + " " + record.getMessage() + System.lineSeparator();
+            }
+        });
+        this.logger = Logger.getLogger("org.pharmacy.slowquery");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(fileHandler);
+
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(EXPLAIN_QUEUE_SIZE),
+                task -> Thread.ofPlatform().name("slow-query-explain").daemon().unstarted(task),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Creates the log from the {@code pharmacy.slowlog.*} system properties, or returns null if
+     * {@code pharmacy.slowlog.thresholdMillis} is not set.
+     *
+     * @throws IOException If the log file cannot be opened.
+     */
+    public static SlowQueryLog fromSystemProperties() throws IOException {
+        Long threshold = Long.getLong("pharmacy.slowlog.thresholdMillis");
+        if (threshold == null) {
+            return null;
+        }
+        return new SlowQueryLog(
+                threshold,
+                Double.parseDouble(System.getProperty("pharmacy.slowlog.explainSampleRate", "0.1")),
+                TimeUnit.MINUTES.toMillis(1),
+                System.getProperty("pharmacy.slowlog.file", "slow-queries.%g.log"),
+                Integer.getInteger("pharmacy.slowlog.limitBytes", 10 * 1024 * 1024),
+                Integer.getInteger("pharmacy.slowlog.files", 5),
+                () -> DBConnector.getUninstrumentedConnection(DBConnector.url()));
+    }
+
+    @Override
+    public void onQuery(QueryEvent event) {
+        if (event.durationNanos() < thresholdNanos) {
+            return;
+        }
+        long id = sequence.incrementAndGet();
+        logger.info(String.format(Locale.ROOT, "#%d SLOW %.1f ms rows=%d %s%s%n  SQL: %s%n  Parameters: %s",
+                id, event.durationNanos() / 1e6, event.rows(), event.name(),
+                event.failed() ? " FAILED sqlstate=" + event.sqlState() : "",
+                event.sql(), formatParameters(event.parameters())));
+
+        if (event.sql() != null && shouldExplain(event.sql())) {
+            explainer.execute(() -> explain(id, event));
+        }
+    }
+
+    /**
+     * Stops capturing plans and closes the side connection and the log file.
+     */
+    @Override
+    public void close() {
+        explainer.shutdownNow();
+        try {
+            explainer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeExplainConnection();
+        logger.removeHandler(fileHandler);
+        fileHandler.close();
+    }
+
+    private boolean shouldExplain(String sql) {
+        if (ThreadLocalRandom.current().nextDouble() >= explainSampleRate) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        Long previous = lastExplained.get(sql);
+        if (previous != null && now - previous < explainIntervalMillis) {
+            return false;
+        }
+        // Only the caller that moves the timestamp forward gets to explain
+        return previous == null ? lastExplained.putIfAbsent(sql, now) == null : lastExplained.replace(sql, previous, now);
+    }
+
+    /**
+     * Runs on the explain thread: captures the plan with the original bind parameters.
+     */
+    private void explain(long id, QueryEvent event) {
+        String explainSQL = (isQuery(event.sql()) ? "EXPLAIN (ANALYZE, BUFFERS) " : "EXPLAIN ") + event.sql();
+        StringBuilder plan = new StringBuilder();
+        try {
+            if (explainConnection == null || explainConnection.isClosed()) {
+                explainConnection = explainConnections.connect();
+            }
+            try (PreparedStatement pstmt = explainConnection.prepareStatement(explainSQL)) {
+                List<Object> parameters = event.parameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    pstmt.setObject(i + 1, parameters.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(System.lineSeparator()).append("    ").append(rs.getString(1));
+                    }
+                }
+            }
+            logger.info("#" + id + " PLAN " + event.name() + plan);
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "#" + id + " PLAN FAILED " + event.name() + ": " + e.getMessage());
+            closeExplainConnection();
+        }
+    }
+
+    private void closeExplainConnection() {
+        if (explainConnection != null) {
+            try {
+                explainConnection.close();
+            } catch (SQLException ignored) {
+                // Reopened on the next plan if needed
+            }
+            explainConnection = null;
+        }
+    }
+
+    private static boolean isQuery(String sql) {
+        String start = sql.stripLeading().toUpperCase(Locale.ROOT);
+        // WITH may wrap a data-modifying statement; only treat it as a query if it contains none
+        if (start.startsWith("WITH")) {
+            return !(start.contains("INSERT ") || start.contains("UPDATE ") || start.contains("DELETE "));
+        }
+        // Locking reads would take row locks again and could wait behind the application's transaction
+        return start.startsWith("SELECT") && !start.contains(" FOR UPDATE") && !start.contains(" FOR SHARE")
+                && !start.contains(" FOR NO KEY UPDATE") && !start.contains(" FOR KEY SHARE");
+    }
+
+    private static String formatParameters(List<Object> parameters) {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            Object value = parameters.get(i);
+            String rendered = value instanceof String string ? "'" + string + "'" : String.valueOf(value);
+            if (rendered.length() > MAX_PARAMETER_LENGTH) {
+                rendered = rendered.substring(0, MAX_PARAMETER_LENGTH) + "...";
+            }
+            text.append(rendered);
+        }
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,44 @@
+package org.pharmacy.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one SQL statement executed through an instrumented connection. For queries the event
+ * spans from execution until the result set is closed; {@link #driverTime} is the part spent in the driver.
+ */
+@Name("org.pharmacy.SqlStatement")
+@Label("SQL Statement")
+@Category({"Pharmacy", "JDBC"})
+@Description("A SQL statement issued by the pharmacy repositories")
+@StackTrace(false)
+public class SqlStatementEvent extends Event {
+
+    @Label("Origin")
+    @Description("Code that prepared the statement, e.g. JdbcOrderRepository.createOrder")
+    public String origin;
+
+    @Label("SQL Id")
+    @Description("Hash of the SQL text, for grouping executions of the same statement")
+    public int sqlId;
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Rows")
+    @Description("Rows read by a query or affected by an update or batch")
+    public long rows;
+
+    @Label("Driver Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long driverTime;
+
+    @Label("SQLSTATE")
+    @Description("Error code if the statement failed")
+    public String sqlState;
+}
@@ -0,0 +1,22 @@
+package org.pharmacy.model;
+
+import java.time.LocalDate;
+
+/**
+ * One order line read back from the columnar order archive.
+ *
+ * @param orderId The ID of the order.
+ * @param clientId The ID of the client who placed it.
+ * @param orderDate The date of the order.
+ * @param medicineId The ID of the medicine bought.
+ * @param quantity The number of units bought.
+ * @param unitPrice The price per unit at the time of the order.
+ */
+public record ArchivedOrderLine(
+        long orderId,
+        long clientId,
+        LocalDate orderDate,
+        long medicineId,
+        int quantity,
+        double unitPrice
+) {}
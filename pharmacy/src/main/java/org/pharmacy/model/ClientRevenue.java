@@ -0,0 +1,18 @@
+package org.pharmacy.model;
+
+/**
+ * Aggregated spending of one client over a date range.
+ *
+ * @param clientId The ID of the client.
+ * @param firstName The first name of the client.
+ * @param lastName The last name of the client.
+ * @param orders The number of orders placed.
+ * @param revenue The total value of those orders.
+ */
+public record ClientRevenue(
+        long clientId,
+        String firstName,
+        String lastName,
+        long orders,
+        double revenue
+) {}
@@ -0,0 +1,16 @@
+package org.pharmacy.model;
+
+import java.time.LocalDate;
+
+/**
+ * Total sales for one day.
+ *
+ * @param date The sales day.
+ * @param units The number of units sold that day.
+ * @param revenue The revenue of that day.
+ */
+public record DailyRevenue(
+        LocalDate date,
+        long units,
+        double revenue
+) {}
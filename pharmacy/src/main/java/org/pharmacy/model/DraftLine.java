@@ -0,0 +1,30 @@
+package org.pharmacy.model;
+
+/**
+ * One line of an {@link OrderDraft}.
+ *
+ * @param medicineId The ID of the medicine (must be positive).
+ * @param quantity The quantity wanted (must be positive).
+ * @param held Whether the quantity is currently held for the draft; a lapsed hold is taken again at checkout.
+ * @param holdExpiresAtMillis When the hold lapses (epoch milliseconds), or when it lapsed.
+ */
+public record DraftLine(
+        long medicineId,
+        int quantity,
+        boolean held,
+        long holdExpiresAtMillis
+) {
+    /**
+     * Compact constructor for the DraftLine record, enforcing a valid medicine and quantity.
+     *
+     * @throws IllegalArgumentException if the medicine ID or quantity is non-positive.
+     */
+    public DraftLine {
+        if (medicineId <= 0) {
+            throw new IllegalArgumentException("Medicine ID must be positive.");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.pharmacy.model;
+
+import java.time.LocalDate;
+
+/**
+ * Forecast demand and reorder point of one medicine.
+ *
+ * @param medicineId The ID of the medicine.
+ * @param medicineName The name of the medicine.
+ * @param stock The current stock.
+ * @param dailyDemand The forecast number of units sold per day.
+ * @param demandStdDev The standard deviation of daily demand around the forecast.
+ * @param safetyStock The units kept to cover demand above the forecast during the lead time.
+ * @param reorderPoint The stock at or below which the medicine should be reordered.
+ * @param forecastThrough The last sales day the forecast is based on.
+ */
+public record MedicineForecast(
+        long medicineId,
+        String medicineName,
+        int stock,
+        double dailyDemand,
+        double demandStdDev,
+        int safetyStock,
+        int reorderPoint,
+        LocalDate forecastThrough
+) {}
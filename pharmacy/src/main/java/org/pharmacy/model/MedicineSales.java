@@ -0,0 +1,16 @@
+package org.pharmacy.model;
+
+/**
+ * Aggregated sales of one medicine over a date range.
+ *
+ * @param medicineId The ID of the medicine.
+ * @param medicineName The name of the medicine (null if the medicine no longer exists).
+ * @param units The number of units sold.
+ * @param revenue The revenue from those units.
+ */
+public record MedicineSales(
+        long medicineId,
+        String medicineName,
+        long units,
+        double revenue
+) {}
@@ -0,0 +1,29 @@
+package org.pharmacy.model;
+
+/**
+ * A pair of client records that are likely to describe the same person and are
+ * candidates for being merged.
+ *
+ * @param clientId The ID of the first (lower ID) client.
+ * @param duplicateId The ID of the second client, suspected to be a duplicate of the first.
+ * @param score The similarity score between 0 and 1 (1 means an exact match).
+ */
+public record MergeCandidate(
+        long clientId,
+        long duplicateId,
+        double score
+) {
+    /**
+     * Compact constructor for the MergeCandidate record, enforcing distinct IDs and a valid score.
+     *
+     * @throws IllegalArgumentException if both IDs are equal or the score is outside [0, 1].
+     */
+    public MergeCandidate {
+        if (clientId == duplicateId) {
+            throw new IllegalArgumentException("A client cannot be a duplicate of itself.");
+        }
+        if (score < 0 || score > 1) {
+            throw new IllegalArgumentException("Score must be between 0 and 1.");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.pharmacy.model;
+
+import java.util.List;
+
+/**
+ * An order being put together: the client and the lines added so far, each with its stock hold.
+ *
+ * @param id The ID of the draft (must be positive); drafts are numbered separately from orders.
+ * @param clientId The ID of the client the order is for (must be positive).
+ * @param lines The lines, in ascending medicine ID order.
+ */
+public record OrderDraft(
+        long id,
+        long clientId,
+        List<DraftLine> lines
+) {
+    /**
+     * Compact constructor for the OrderDraft record. The line list is copied.
+     *
+     * @throws IllegalArgumentException if the draft or client ID is non-positive, or lines is null.
+     */
+    public OrderDraft {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Draft ID must be positive.");
+        }
+        if (clientId <= 0) {
+            throw new IllegalArgumentException("Client ID must be positive.");
+        }
+        if (lines == null) {
+            throw new IllegalArgumentException("Draft lines cannot be null.");
+        }
+        lines = List.copyOf(lines);
+    }
+}
@@ -0,0 +1,36 @@
+package org.pharmacy.model;
+
+import java.util.Map;
+
+/**
+ * A request to create an order: the client placing it and the quantity wanted per medicine.
+ *
+ * @param clientId The ID of the client placing the order (must be positive).
+ * @param itemQuantities Map of Medicine ID to Quantity (cannot be null or empty; quantities must be positive).
+ */
+public record OrderRequest(
+        long clientId,
+        Map<Long, Integer> itemQuantities
+) {
+    /**
+     * Compact constructor for the OrderRequest record, enforcing a valid client and at least one item.
+     * The item map is copied so later changes by the caller do not affect the request.
+     *
+     * @throws IllegalArgumentException if clientId is non-positive, the item map is null or empty,
+     * or any quantity is non-positive.
+     */
+    public OrderRequest {
+        if (clientId <= 0) {
+            throw new IllegalArgumentException("Client ID must be positive.");
+        }
+        if (itemQuantities == null || itemQuantities.isEmpty()) {
+            throw new IllegalArgumentException("An order must contain at least one item.");
+        }
+        for (Integer quantity : itemQuantities.values()) {
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive.");
+            }
+        }
+        itemQuantities = Map.copyOf(itemQuantities);
+    }
+}
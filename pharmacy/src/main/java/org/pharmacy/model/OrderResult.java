@@ -0,0 +1,21 @@
+package org.pharmacy.model;
+
+/**
+ * The outcome of one order request processed as part of a batch.
+ *
+ * @param request The request that was processed.
+ * @param orderId The ID of the created order, or -1 if the order was rejected.
+ * @param failureReason The reason the order was rejected, or null on success.
+ */
+public record OrderResult(
+        OrderRequest request,
+        long orderId,
+        String failureReason
+) {
+    /**
+     * @return true if the order was created.
+     */
+    public boolean success() {
+        return failureReason == null;
+    }
+}
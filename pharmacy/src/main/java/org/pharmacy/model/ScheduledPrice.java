@@ -0,0 +1,20 @@
+package org.pharmacy.model;
+
+import java.time.Instant;
+
+/**
+ * A selling price scheduled for a medicine that has not been copied into the catalog yet.
+ *
+ * @param medicineId The ID of the medicine.
+ * @param medicineName The name of the medicine.
+ * @param currentPrice The unit price in the medicine table.
+ * @param unitPrice The scheduled unit price.
+ * @param effectiveFrom The moment orders start being priced at the scheduled price.
+ */
+public record ScheduledPrice(
+        long medicineId,
+        String medicineName,
+        double currentPrice,
+        double unitPrice,
+        Instant effectiveFrom
+) {}
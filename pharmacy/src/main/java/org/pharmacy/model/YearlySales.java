@@ -0,0 +1,16 @@
+package org.pharmacy.model;
+
+/**
+ * Total sales for one calendar year.
+ *
+ * @param year The year.
+ * @param orders The number of orders placed.
+ * @param units The number of units sold.
+ * @param revenue The revenue of those units.
+ */
+public record YearlySales(
+        int year,
+        long orders,
+        long units,
+        double revenue
+) {}
@@ -0,0 +1,299 @@
+package org.pharmacy.pricing;
+
+import org.pharmacy.model.ScheduledPrice;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk repricing of medicines through scheduled prices in {@code medicine_price}.
+ * <p>
+ * A repricing rule is written as one {@code INSERT ... SELECT} of new prices with a common effective
+ * time, at least {@code minimumLead} ahead of the database clock, in its own transaction. The clock is
+ * checked again right before the commit, so a rule is committed before any transaction can see it
+ * take effect. The {@code trg_set_orderitem_unit_price} trigger prices every
+ * order line at the latest scheduled price in effect at the start of its transaction, so all lines
+ * of an order are priced from the same version whether it started before or after the change.
+ * Scheduling reads {@code medicine} but does not update it, so it takes no row locks that orders
+ * would wait for.
+ * </p>
+ * <p>
+ * {@link #applyDuePrices()} then copies prices that have been in effect for {@code applyDelay} into
+ * {@code medicine.unit_price}, where the catalog, the exports and the change log read them, and
+ * deletes them from the schedule. It updates at most {@code batchSize} medicines per transaction,
+ * so repricing the whole catalog never holds many medicine rows locked at once. An order that is
+ * still open when a price it did not see is applied gets the new price for its later lines.
+ * </p>
+ */
+public class PriceSchedule {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final long DEFAULT_MINIMUM_LEAD_SECONDS = 5;
+    public static final long DEFAULT_APPLY_DELAY_SECONDS = 60;
+
+    /**
+     * Outcome of scheduling a repricing rule.
+     *
+     * @param medicines The number of medicines given a new price.
+     * @param effectiveFrom The moment the new prices take effect.
+     */
+    public record Result(int medicines, Instant effectiveFrom) {}
+
+    /**
+     * The unit price of medicine {@code m} in effect at the time bound to the first parameter.
+     */
+    private static final String PRICE_AT = "COALESCE((SELECT p.unit_price FROM medicine_price p " +
+            "WHERE p.medicine_id = m.medicine_id AND p.effective_from <= ? " +
+            "ORDER BY p.effective_from DESC LIMIT 1), m.unit_price)";
+
+    private final Connection conn;
+    private final int batchSize;
+    private final Duration minimumLead;
+    private final Duration applyDelay;
+
+    /**
+     * @param conn The connection to the primary.
+     * @param batchSize The maximum number of medicines updated per transaction by {@link #applyDuePrices()}.
+     * @param minimumLead How far ahead of the database clock a price change must take effect.
+     * @param applyDelay How long a price stays in effect before it is copied into the medicine table.
+     * @throws IllegalArgumentException If the batch size is not positive or a duration is negative.
+     */
+    public PriceSchedule(Connection conn, int batchSize, Duration minimumLead, Duration applyDelay) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        if (minimumLead.isNegative() || applyDelay.isNegative()) {
+            throw new IllegalArgumentException("Lead time and apply delay cannot be negative.");
+        }
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.minimumLead = minimumLead;
+        this.applyDelay = applyDelay;
+    }
+
+    /**
+     * Creates the schedule with the settings from {@code pharmacy.pricing.batchSize} (default
+     * {@value #DEFAULT_BATCH_SIZE}), {@code pharmacy.pricing.minimumLeadSeconds} (default
+     * {@value #DEFAULT_MINIMUM_LEAD_SECONDS}) and {@code pharmacy.pricing.applyDelaySeconds}
+     * (default {@value #DEFAULT_APPLY_DELAY_SECONDS}).
+     */
+    public static PriceSchedule configured(Connection conn) {
+        return new PriceSchedule(conn,
+                Integer.getInteger("pharmacy.pricing.batchSize", DEFAULT_BATCH_SIZE),
+                Duration.ofSeconds(Long.getLong("pharmacy.pricing.minimumLeadSeconds", DEFAULT_MINIMUM_LEAD_SECONDS)),
+                Duration.ofSeconds(Long.getLong("pharmacy.pricing.applyDelaySeconds", DEFAULT_APPLY_DELAY_SECONDS)));
+    }
+
+    /**
+     * Schedules a percentage change of the selling price of every medicine whose name matches a
+     * pattern. The change applies to the price in effect at the effective time; prices scheduled
+     * later than that are not adjusted. New prices are rounded to the cent and kept at least 0.01.
+     *
+     * @param namePattern A case-insensitive SQL {@code LIKE} pattern for the medicine names (e.g.
+     * {@code "%ibuprofen%"}), or null for the whole catalog.
+     * @param percent The change in percent, e.g. 5 for a 5% increase or -10 for a 10% discount.
+     * @param effectiveFrom When the new prices take effect, or null for the earliest allowed moment.
+     * @return The number of medicines repriced and the effective time.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the percentage is -100 or lower, or the effective time is too soon.
+     * @throws IllegalStateException If the connection is not in auto-commit mode.
+     */
+    public Result schedulePercentChange(String namePattern, BigDecimal percent, Instant effectiveFrom) throws SQLException {
+        if (percent.compareTo(BigDecimal.valueOf(-100)) <= 0) {
+            throw new IllegalArgumentException("A price cannot be lowered by 100% or more.");
+        }
+        final String candidatesSQL = "SELECT m.medicine_id, " + PRICE_AT + " AS old_price, " +
+                "GREATEST(ROUND(" + PRICE_AT + " * ?, 2), 0.01) AS new_price " +
+                "FROM medicine m" + (namePattern == null ? "" : " WHERE m.name ILIKE ?");
+        BigDecimal factor = BigDecimal.ONE.add(percent.movePointLeft(2));
+
+        return schedule(candidatesSQL, (pstmt, effective) -> {
+            pstmt.setObject(2, effective);
+            pstmt.setObject(3, effective);
+            pstmt.setBigDecimal(4, factor);
+            if (namePattern != null) {
+                pstmt.setString(5, namePattern);
+            }
+        }, effectiveFrom);
+    }
+
+    /**
+     * Schedules supplier cost plus a margin as the selling price of every medicine a supplier offers,
+     * or, without a supplier, of every medicine at its cheapest supplier's price. New prices are
+     * rounded to the cent.
+     *
+     * @param supplierId The supplier whose prices are the cost, or null for the cheapest offer of each medicine.
+     * @param marginPercent The margin on top of the cost in percent, e.g. 30 for cost * 1.3.
+     * @param effectiveFrom When the new prices take effect, or null for the earliest allowed moment.
+     * @return The number of medicines repriced and the effective time.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the margin is negative or the effective time is too soon.
+     * @throws IllegalStateException If the connection is not in auto-commit mode.
+     */
+    public Result scheduleCostPlusMargin(Long supplierId, BigDecimal marginPercent, Instant effectiveFrom) throws SQLException {
+        if (marginPercent.signum() < 0) {
+            throw new IllegalArgumentException("Margin cannot be negative.");
+        }
+        final String candidatesSQL = "SELECT m.medicine_id, " + PRICE_AT + " AS old_price, " +
+                "GREATEST(ROUND(c.supply_price * ?, 2), 0.01) AS new_price " +
+                "FROM medicine m JOIN (SELECT medicine_id, MIN(supply_price) AS supply_price FROM suppliermedicine " +
+                (supplierId == null ? "" : "WHERE supplier_id = ? ") +
+                "GROUP BY medicine_id) c ON c.medicine_id = m.medicine_id";
+        BigDecimal factor = BigDecimal.ONE.add(marginPercent.movePointLeft(2));
+
+        return schedule(candidatesSQL, (pstmt, effective) -> {
+            pstmt.setObject(2, effective);
+            pstmt.setBigDecimal(3, factor);
+            if (supplierId != null) {
+                pstmt.setLong(4, supplierId);
+            }
+        }, effectiveFrom);
+    }
+
+    @FunctionalInterface
+    private interface CandidateBinder {
+        void bind(PreparedStatement pstmt, OffsetDateTime effectiveFrom) throws SQLException;
+    }
+
+    /**
+     * Inserts the candidates' new prices, where they differ from the price in effect, in one
+     * statement. Parameter 1 is the effective time of the inserted rows; the binder sets the rest.
+     * The transaction is its own: one opened by the caller could commit long after the effective time.
+     */
+    private Result schedule(String candidatesSQL, CandidateBinder binder, Instant effectiveFrom) throws SQLException {
+        final String clockSQL = "SELECT clock_timestamp()";
+        final String insertSQL = "INSERT INTO medicine_price(medicine_id, effective_from, unit_price) " +
+                "SELECT c.medicine_id, ?, c.new_price FROM (" + candidatesSQL + ") c " +
+                "WHERE c.new_price <> c.old_price " +
+                "ON CONFLICT (medicine_id, effective_from) DO UPDATE SET unit_price = EXCLUDED.unit_price";
+        final String stillAheadSQL = "SELECT clock_timestamp() < ?";
+
+        if (!conn.getAutoCommit()) {
+            throw new IllegalStateException("Price changes are committed on their own and cannot be scheduled inside a transaction.");
+        }
+        conn.setAutoCommit(false);
+        try {
+            Instant earliest;
+            try (PreparedStatement pstmt = conn.prepareStatement(clockSQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                earliest = rs.getObject(1, OffsetDateTime.class).toInstant().plus(minimumLead);
+            }
+            if (effectiveFrom == null) {
+                effectiveFrom = earliest;
+            } else if (effectiveFrom.isBefore(earliest)) {
+                throw new IllegalArgumentException("Price changes must take effect at least " +
+                        minimumLead.toSeconds() + " s from now, not at " + effectiveFrom + ".");
+            }
+            OffsetDateTime effective = effectiveFrom.atOffset(ZoneOffset.UTC);
+
+            int medicines;
+            try (PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
+                pstmt.setObject(1, effective);
+                binder.bind(pstmt, effective);
+                medicines = pstmt.executeUpdate();
+            }
+
+            // A change committed after it took effect would reprice orders already in progress,
+            // so nothing runs between this check and the commit
+            try (PreparedStatement pstmt = conn.prepareStatement(stillAheadSQL)) {
+                pstmt.setObject(1, effective);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    if (!rs.getBoolean(1)) {
+                        throw new IllegalArgumentException("The price change could not be written before " +
+                                effectiveFrom + "; schedule it further ahead.");
+                    }
+                }
+            }
+            conn.commit();
+            return new Result(medicines, effectiveFrom);
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Copies every scheduled price that has been in effect for at least {@code applyDelay} into
+     * {@code medicine.unit_price} and removes it from the schedule, one batch of medicines per
+     * transaction. Each medicine gets the latest of its due prices. If the job fails, the batches
+     * committed so far stay applied and it can simply be run again.
+     *
+     * @return The number of medicines whose price changed.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalStateException If the connection is not in auto-commit mode.
+     */
+    public int applyDuePrices() throws SQLException {
+        if (!conn.getAutoCommit()) {
+            throw new IllegalStateException("Due prices are applied per batch and cannot be applied inside a transaction.");
+        }
+        final String batchSQL = "WITH due AS (SELECT DISTINCT medicine_id FROM medicine_price " +
+                "WHERE effective_from <= now() - make_interval(secs => ?) AND medicine_id > ? " +
+                "ORDER BY medicine_id LIMIT ?), " +
+                "gone AS (DELETE FROM medicine_price p USING due d " +
+                "WHERE p.medicine_id = d.medicine_id AND p.effective_from <= now() - make_interval(secs => ?) " +
+                "RETURNING p.medicine_id, p.effective_from, p.unit_price), " +
+                "latest AS (SELECT DISTINCT ON (medicine_id) medicine_id, unit_price FROM gone " +
+                "ORDER BY medicine_id, effective_from DESC), " +
+                "updated AS (UPDATE medicine m SET unit_price = l.unit_price FROM latest l " +
+                "WHERE m.medicine_id = l.medicine_id AND m.unit_price <> l.unit_price RETURNING m.medicine_id) " +
+                "SELECT (SELECT MAX(medicine_id) FROM due), (SELECT COUNT(*) FROM updated)";
+
+        double delaySeconds = applyDelay.toMillis() / 1000.0;
+        int repriced = 0;
+        long lastId = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(batchSQL)) {
+            while (true) {
+                pstmt.setDouble(1, delaySeconds);
+                pstmt.setLong(2, lastId);
+                pstmt.setInt(3, batchSize);
+                pstmt.setDouble(4, delaySeconds);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    long maxId = rs.getLong(1);
+                    if (rs.wasNull()) {
+                        return repriced;
+                    }
+                    lastId = maxId;
+                    repriced += rs.getInt(2);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The scheduled prices not yet applied to the medicine table, by effective time and medicine ID.
+     * @throws SQLException If a database access error occurs.
+     */
+    public List<ScheduledPrice> getScheduledPrices() throws SQLException {
+        final String SQLQuery = "SELECT p.medicine_id, m.name, m.unit_price, p.unit_price, p.effective_from " +
+                "FROM medicine_price p JOIN medicine m ON m.medicine_id = p.medicine_id " +
+                "ORDER BY p.effective_from, p.medicine_id";
+
+        List<ScheduledPrice> prices = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                prices.add(new ScheduledPrice(
+                        rs.getLong(1),
+                        rs.getString(2),
+                        rs.getDouble(3),
+                        rs.getDouble(4),
+                        rs.getObject(5, OffsetDateTime.class).toInstant()));
+            }
+        }
+        return prices;
+    }
+}
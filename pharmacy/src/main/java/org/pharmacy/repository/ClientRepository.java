@@ -1,144 +1,122 @@
 package org.pharmacy.repository;
 
+import org.pharmacy.db.ReadOnly;
+import org.pharmacy.exceptions.DataIntegrityViolationException;
 import org.pharmacy.exceptions.DataNotFoundException;
 import org.pharmacy.model.Address;
 import org.pharmacy.model.Client;
-import org.pharmacy.exceptions.DataIntegrityViolationException;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.text.Normalizer;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
-public class ClientRepository {
-    Connection conn;
-
-    /**
-     * Initializes the repository with a database connection.
-     * @param conn The active SQL connection object.
-     */
-    public ClientRepository(Connection conn){
-        this.conn = conn;
-    }
+/**
+ * Storage of pharmacy clients.
+ * Implemented by {@link JdbcClientRepository} (PostgreSQL),
+ * {@link org.pharmacy.repository.sharding.ShardedClientRepository} (several PostgreSQL databases) and
+ * {@link org.pharmacy.repository.memory.InMemoryClientRepository}.
+ */
+public interface ClientRepository {
 
     /**
-     * Adds a new client record to the database.
-     * <p>Note: Assumes client address details are stored directly within the client table.</p>
+     * Adds a new client. Its ID is ignored; a new one is generated.
      *
      * @param client The Client object containing all details.
-     * @throws SQLException If a database access error occurs.
+     * @return The generated ID of the new client.
+     * @throws SQLException If a storage access error occurs.
      * @throws IllegalArgumentException If the client object provided is null.
      */
-    public void addClient(Client client) throws SQLException {
-        if (client == null){
-            throw new IllegalArgumentException("Client object cannot be null.");
-        }
-
-        final String SQLQuery = "INSERT INTO client(first_name, last_name, country, city, street, postal_code) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
+    long addClient(Client client) throws SQLException;
 
-        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
-            pstmt.setString(1, client.firstname());
-            pstmt.setString(2, client.lastname());
-            pstmt.setString(3, client.address().country());
-            pstmt.setString(4, client.address().city());
-            pstmt.setString(5, client.address().street());
-            pstmt.setString(6, client.address().postalCode());
-
-            int affectedRows = pstmt.executeUpdate();
-            System.out.println("Client " + client.firstname() + " " + client.lastname() + " successfully added. Rows changed: " + affectedRows);
-        }
-    }
+    /**
+     * Adds several clients in one call.
+     *
+     * @param clients The clients to add (their IDs are ignored).
+     * @return The number of clients added.
+     * @throws SQLException If a storage access error occurs or a row is rejected.
+     * @throws IllegalArgumentException If the list or any client in it is null.
+     */
+    int addClients(List<Client> clients) throws SQLException;
 
     /**
-     * Deletes a client record from the database by ID.
+     * Deletes a client by ID.
      *
      * @param clientId The ID of the client to delete.
-     * @throws SQLException If a database access error occurs (other than integrity violation).
+     * @throws SQLException If a storage access error occurs.
      * @throws IllegalArgumentException If the client ID provided is not positive.
      * @throws DataNotFoundException If the client with the given ID was not found.
-     * @throws DataIntegrityViolationException If the client has associated orders (Foreign Key violation).
+     * @throws DataIntegrityViolationException If the client still has orders.
      */
-    public void deleteClient(long clientId) throws SQLException {
-        // Validation check for the ID itself (Repository responsibility)
-        if (clientId <= 0) {
-            throw new IllegalArgumentException("Client ID must be positive for deletion.");
-        }
-
-        final String SQLQuery = "DELETE FROM client WHERE client_id = ?";
-
-        try(PreparedStatement pstmt = conn.prepareStatement(SQLQuery)){
-            pstmt.setLong(1, clientId);
-            int affectedRows = pstmt.executeUpdate();
-
-            if (affectedRows == 0) {
-                throw new DataNotFoundException("Client with ID " + clientId + " was not found.");
-            }
-            System.out.printf("Client with ID %d successfully deleted.\n", clientId);
-
-        } catch (SQLException e) {
-            // PostgreSQL Foreign Key Violation state code
-            if ("23503".equals(e.getSQLState())) {
-                throw new DataIntegrityViolationException(
-                        String.format("Client with ID %d cannot be deleted because there are existing orders associated with this client. Please delete the orders first.", clientId), e);
-            }
-            throw e;
-        }
-    }
+    void deleteClient(long clientId) throws SQLException;
 
     /**
-     * Updates the address details for a specific client.
+     * Replaces the address of a client.
      *
      * @param clientId The ID of the client whose address is to be updated.
-     * @param address The new Address object containing the updated details.
-     * @throws SQLException If a database access error occurs.
+     * @param address The new address.
+     * @throws SQLException If a storage access error occurs.
+     * @throws DataNotFoundException If the client with the given ID was not found.
      */
-    public void updateClientAddress(long clientId, Address address) throws SQLException {
-        final String SQLQuery = "UPDATE client SET country = ?, city = ?, street = ?, postal_code = ? WHERE client_id = ?";
+    void updateClientAddress(long clientId, Address address) throws SQLException;
 
-        try(PreparedStatement pstmt = conn.prepareStatement(SQLQuery)){
-            pstmt.setString(1, address.country());
-            pstmt.setString(2, address.city());
-            pstmt.setString(3, address.street());
-            pstmt.setString(4, address.postalCode());
-            pstmt.setLong(5, clientId);
+    /**
+     * @return All clients, in no particular order.
+     * @throws SQLException If a storage access error occurs.
+     */
+    @ReadOnly
+    List<Client> getAllCLients() throws SQLException;
 
-            int affectedRows = pstmt.executeUpdate();
-            System.out.println("Client with id " + clientId + " adddress updated. Rows affected: " + affectedRows);
-        }
-    }
+    /**
+     * Bulk-loads clients as one all-or-nothing operation.
+     *
+     * @param clients The clients to import (their IDs are ignored; new IDs are generated).
+     * @return The number of clients loaded.
+     * @throws SQLException If a storage access error occurs or a row is rejected.
+     * @throws IllegalArgumentException If the iterator is null.
+     */
+    long importClients(Iterator<Client> clients) throws SQLException;
 
     /**
-     * Retrieves all client records from the database.
-     * <p>Maps flat table structure back into Client model containing the nested Address record.</p>
+     * Streams every client, ordered by ID, to the consumer without building a list.
      *
-     * @return A list of all Client objects.
-     * @throws SQLException If a database access error occurs.
+     * @param consumer Callback invoked for each client.
+     * @throws SQLException If a storage access error occurs.
      */
-    public List<Client> getAllCLients() throws SQLException {
-        ArrayList<Client> clients = new ArrayList<>();
-        final String SQLQuery = "SELECT * FROM client";
+    @ReadOnly
+    void forEachClient(Consumer<Client> consumer) throws SQLException;
 
-        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
-             ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                Address address = new Address(
-                        rs.getString("country"),
-                        rs.getString("city"),
-                        rs.getString("street"),
-                        rs.getString("postal_code")
-                );
+    /**
+     * Streams every client ordered by the {@link #scanKey} of the postal code, then of the last name,
+     * comparing keys as {@link String#compareTo} does. Clients whose keys are equal are therefore
+     * adjacent. This is the access path for duplicate detection.
+     *
+     * @param consumer Callback invoked for each client, in order.
+     * @throws SQLException If a storage access error occurs.
+     */
+    @ReadOnly
+    void scanClientsByPostalCode(Consumer<Client> consumer) throws SQLException;
 
-                clients.add(new Client(
-                        rs.getLong("client_id"),
-                        rs.getString("first_name"),
-                        rs.getString("last_name"),
-                        address
-                ));
+    /**
+     * Normalizes a value to the key {@link #scanClientsByPostalCode} orders by: decomposed (NFD),
+     * reduced to ASCII letters and digits, which drops diacritics and punctuation, and lower-cased.
+     * {@link JdbcClientRepository} computes the same key in SQL.
+     *
+     * @param value The raw value (e.g. a postal code or last name).
+     * @return The key.
+     */
+    static String scanKey(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder key = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                key.append(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                key.append((char) (c + ('a' - 'A')));
             }
         }
-        return clients;
+        return key.toString();
     }
-}
\ No newline at end of file
+}
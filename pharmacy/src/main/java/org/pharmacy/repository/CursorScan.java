@@ -0,0 +1,62 @@
+package org.pharmacy.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Helper for streaming large query results row by row through a server-side cursor.
+ */
+final class CursorScan {
+
+    /**
+     * Default number of rows fetched per round trip.
+     */
+    static final int DEFAULT_FETCH_SIZE = 1_000;
+
+    private CursorScan() {
+    }
+
+    /**
+     * Runs the query and hands every mapped row to the consumer as it arrives.
+     * <p>The PostgreSQL driver only uses a cursor (and honours the fetch size) inside a transaction,
+     * so auto-commit is switched off for the duration of the scan and restored afterwards. If the
+     * caller already has a transaction open, the scan simply runs inside it.</p>
+     *
+     * @param conn The connection to use.
+     * @param sql The query (without parameters).
+     * @param fetchSize Number of rows fetched per round trip.
+     * @param mapper Maps each row to a model object.
+     * @param consumer Receives each mapped row, in result order.
+     * @throws SQLException If a database access error occurs.
+     */
+    static <T> void forEach(Connection conn, String sql, int fetchSize, RowMapper<T> mapper, Consumer<T> consumer)
+            throws SQLException {
+        boolean ownsTransaction = conn.getAutoCommit();
+        if (ownsTransaction) {
+            conn.setAutoCommit(false);
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setFetchSize(fetchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(mapper.map(rs));
+                }
+            }
+            if (ownsTransaction) {
+                conn.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (ownsTransaction) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownsTransaction) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package org.pharmacy.repository;
+
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.model.Address;
+import org.pharmacy.model.Client;
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * PostgreSQL implementation of {@link ClientRepository}, including COPY-based bulk import.
+ */
+public class JdbcClientRepository implements ClientRepository {
+    /**
+     * Size of the buffer used when streaming COPY data to the server.
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Number of rows fetched per round trip when scanning the client table with a cursor.
+     */
+    private static final int SCAN_FETCH_SIZE = 5_000;
+
+    /**
+     * Columns read by {@link #mapResultSetToClient}, in the order it reads them.
+     */
+    private static final String CLIENT_COLUMNS = "client_id, first_name, last_name, country, city, street, postal_code";
+
+    Connection conn;
+
+    /**
+     * Initializes the repository with a database connection.
+     * @param conn The active SQL connection object.
+     */
+    public JdbcClientRepository(Connection conn){
+        this.conn = conn;
+    }
+
+    /**
+     * Maps a current row from the ResultSet to a Client record object,
+     * including the nested Address record. Columns are read by position, so the row must have been
+     * selected with {@link #CLIENT_COLUMNS}.
+     *
+     * @param rs The ResultSet containing client and address data.
+     * @return A fully populated Client object.
+     * @throws SQLException If a database access error occurs during reading.
+     */
+    private static Client mapResultSetToClient(ResultSet rs) throws SQLException {
+        Address address = new Address(rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7));
+        return new Client(rs.getLong(1), rs.getString(2), rs.getString(3), address);
+    }
+
+    /**
+     * Adds a new client record to the database.
+     * <p>Note: Assumes client address details are stored directly within the client table.</p>
+     *
+     * @param client The Client object containing all details.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the client object provided is null.
+     */
+    @Override
+    public long addClient(Client client) throws SQLException {
+        if (client == null){
+            throw new IllegalArgumentException("Client object cannot be null.");
+        }
+
+        final String SQLQuery = "INSERT INTO client(first_name, last_name, country, city, street, postal_code) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, client.firstname());
+            pstmt.setString(2, client.lastname());
+            pstmt.setString(3, client.address().country());
+            pstmt.setString(4, client.address().city());
+            pstmt.setString(5, client.address().street());
+            pstmt.setString(6, client.address().postalCode());
+
+            int affectedRows = pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Failed to create client, no ID returned.");
+                }
+                long generatedId = keys.getLong(1);
+                System.out.println("Client " + client.firstname() + " " + client.lastname() + " successfully added with ID " + generatedId + ". Rows changed: " + affectedRows);
+                return generatedId;
+            }
+        }
+    }
+
+    /**
+     * Adds several clients with a single JDBC batch (one round trip for the whole list).
+     * <p>The batch is not split into a separate transaction: with auto-commit enabled each row
+     * commits on its own, inside a caller transaction the rows commit together.</p>
+     *
+     * @param clients The clients to add (their IDs are ignored).
+     * @return The number of rows inserted.
+     * @throws SQLException If a database access error occurs or a row is rejected.
+     * @throws IllegalArgumentException If the list or any client in it is null.
+     */
+    @Override
+    public int addClients(List<Client> clients) throws SQLException {
+        if (clients == null || clients.contains(null)) {
+            throw new IllegalArgumentException("Client list cannot be null or contain null clients.");
+        }
+
+        final String SQLQuery = "INSERT INTO client(first_name, last_name, country, city, street, postal_code) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            for (Client client : clients) {
+                pstmt.setString(1, client.firstname());
+                pstmt.setString(2, client.lastname());
+                pstmt.setString(3, client.address().country());
+                pstmt.setString(4, client.address().city());
+                pstmt.setString(5, client.address().street());
+                pstmt.setString(6, client.address().postalCode());
+                pstmt.addBatch();
+            }
+
+            int affectedRows = 0;
+            for (int rows : pstmt.executeBatch()) {
+                affectedRows += Math.max(rows, 0);
+            }
+            return affectedRows;
+        }
+    }
+
+    /**
+     * Deletes a client record from the database by ID.
+     *
+     * @param clientId The ID of the client to delete.
+     * @throws SQLException If a database access error occurs (other than integrity violation).
+     * @throws IllegalArgumentException If the client ID provided is not positive.
+     * @throws DataNotFoundException If the client with the given ID was not found.
+     * @throws DataIntegrityViolationException If the client has associated orders (Foreign Key violation).
+     */
+    @Override
+    public void deleteClient(long clientId) throws SQLException {
+        // Validation check for the ID itself (Repository responsibility)
+        if (clientId <= 0) {
+            throw new IllegalArgumentException("Client ID must be positive for deletion.");
+        }
+
+        final String SQLQuery = "DELETE FROM client WHERE client_id = ?";
+
+        try(PreparedStatement pstmt = conn.prepareStatement(SQLQuery)){
+            pstmt.setLong(1, clientId);
+            int affectedRows = pstmt.executeUpdate();
+
+            if (affectedRows == 0) {
+                throw new DataNotFoundException("Client with ID " + clientId + " was not found.");
+            }
+            System.out.printf("Client with ID %d successfully deleted.\n", clientId);
+
+        } catch (SQLException e) {
+            // PostgreSQL Foreign Key Violation state code
+            if ("23503".equals(e.getSQLState())) {
+                throw new DataIntegrityViolationException(
+                        String.format("Client with ID %d cannot be deleted because there are existing orders associated with this client. Please delete the orders first.", clientId), e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Updates the address details for a specific client.
+     *
+     * @param clientId The ID of the client whose address is to be updated.
+     * @param address The new Address object containing the updated details.
+     * @throws SQLException If a database access error occurs.
+     * @throws DataNotFoundException If the client with the given ID was not found.
+     */
+    @Override
+    public void updateClientAddress(long clientId, Address address) throws SQLException {
+        final String SQLQuery = "UPDATE client SET country = ?, city = ?, street = ?, postal_code = ? WHERE client_id = ?";
+
+        try(PreparedStatement pstmt = conn.prepareStatement(SQLQuery)){
+            pstmt.setString(1, address.country());
+            pstmt.setString(2, address.city());
+            pstmt.setString(3, address.street());
+            pstmt.setString(4, address.postalCode());
+            pstmt.setLong(5, clientId);
+
+            int affectedRows = pstmt.executeUpdate();
+            if (affectedRows == 0) {
+                throw new DataNotFoundException("Client with ID " + clientId + " was not found. Address update failed.");
+            }
+            System.out.println("Client with id " + clientId + " adddress updated. Rows affected: " + affectedRows);
+        }
+    }
+
+    /**
+     * Retrieves all client records from the database.
+     * <p>Maps flat table structure back into Client model containing the nested Address record.</p>
+     *
+     * @return A list of all Client objects.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<Client> getAllCLients() throws SQLException {
+        ArrayList<Client> clients = new ArrayList<>();
+        final String SQLQuery = "SELECT " + CLIENT_COLUMNS + " FROM client";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                clients.add(mapResultSetToClient(rs));
+            }
+        }
+        return clients;
+    }
+
+    /**
+     * Bulk-loads clients through PostgreSQL's {@code COPY ... FROM STDIN} protocol.
+     * <p>Rows are encoded as CSV and streamed to the server in fixed-size chunks, so memory use
+     * does not depend on the number of clients. The whole import is one statement: either every
+     * row is loaded or none is.</p>
+     *
+     * @param clients The clients to import (their IDs are ignored; new IDs are generated).
+     * @return The number of rows loaded.
+     * @throws SQLException If a database access error occurs or a row is rejected by the server.
+     * @throws IllegalArgumentException If the iterator is null.
+     */
+    @Override
+    public long importClients(Iterator<Client> clients) throws SQLException {
+        if (clients == null) {
+            throw new IllegalArgumentException("Client source cannot be null.");
+        }
+
+        final String copySQL = "COPY client(first_name, last_name, country, city, street, postal_code) " +
+                "FROM STDIN WITH (FORMAT csv)";
+
+        PGCopyOutputStream copyStream = new PGCopyOutputStream(conn.unwrap(PGConnection.class), copySQL, COPY_BUFFER_SIZE);
+        Writer out = new BufferedWriter(new OutputStreamWriter(copyStream, StandardCharsets.UTF_8), COPY_BUFFER_SIZE);
+        long importedRows;
+        try {
+            while (clients.hasNext()) {
+                Client client = clients.next();
+                writeCsvField(out, client.firstname()).write(',');
+                writeCsvField(out, client.lastname()).write(',');
+                writeCsvField(out, client.address().country()).write(',');
+                writeCsvField(out, client.address().city()).write(',');
+                writeCsvField(out, client.address().street()).write(',');
+                writeCsvField(out, client.address().postalCode()).write('\n');
+            }
+            out.flush();
+            importedRows = copyStream.endCopy();
+        } catch (IOException e) {
+            cancelCopy(copyStream);
+            // PGCopyOutputStream reports server-side COPY failures as IOExceptions wrapping the SQLException
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Client import failed: " + e.getMessage(), e);
+        } catch (SQLException | RuntimeException e) {
+            cancelCopy(copyStream);
+            throw e;
+        }
+
+        System.out.println("Client import finished. Rows loaded: " + importedRows);
+        return importedRows;
+    }
+
+    /**
+     * Streams every client to the consumer through a server-side cursor, without building a list.
+     *
+     * @param consumer Callback invoked for each client.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public void forEachClient(Consumer<Client> consumer) throws SQLException {
+        final String SQLQuery = "SELECT " + CLIENT_COLUMNS + " FROM client ORDER BY client_id";
+        CursorScan.forEach(conn, SQLQuery, CursorScan.DEFAULT_FETCH_SIZE, JdbcClientRepository::mapResultSetToClient, consumer);
+    }
+
+    /**
+     * Streams every client to the consumer ordered by normalized postal code, then last name.
+     * <p>A server-side cursor is used (fetch size {@value #SCAN_FETCH_SIZE}), so only one fetch
+     * window of rows is held in memory at a time. This is the access path for duplicate detection,
+     * which processes one postal-code block at a time.</p>
+     *
+     * @param consumer Callback invoked for each client, in order.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public void scanClientsByPostalCode(Consumer<Client> consumer) throws SQLException {
+        final String SQLQuery = "SELECT " + CLIENT_COLUMNS + " FROM client " +
+                "ORDER BY " + scanKeySQL("postal_code") + ", " + scanKeySQL("last_name");
+
+        CursorScan.forEach(conn, SQLQuery, SCAN_FETCH_SIZE, JdbcClientRepository::mapResultSetToClient, consumer);
+    }
+
+    /**
+     * SQL equivalent of {@link ClientRepository#scanKey} for a column, in the C collation so that
+     * keys compare like {@link String#compareTo}.
+     */
+    private static String scanKeySQL(String column) {
+        return "translate(regexp_replace(normalize(" + column + ", NFD), '[^A-Za-z0-9]', '', 'g'), " +
+                "'ABCDEFGHIJKLMNOPQRSTUVWXYZ', 'abcdefghijklmnopqrstuvwxyz') COLLATE \"C\"";
+    }
+
+    /**
+     * Aborts a COPY that is still in progress so the connection can be reused.
+     */
+    private static void cancelCopy(PGCopyOutputStream copyStream) throws SQLException {
+        if (copyStream.isActive()) {
+            copyStream.cancelCopy();
+        }
+    }
+
+    /**
+     * Writes a single value as a quoted CSV field, doubling any embedded quotes.
+     */
+    private static Writer writeCsvField(Writer out, String value) throws IOException {
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+        return out;
+    }
+}
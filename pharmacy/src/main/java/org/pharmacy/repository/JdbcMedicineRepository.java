@@ -0,0 +1,251 @@
+package org.pharmacy.repository;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.model.Medicine;
+import org.pharmacy.exceptions.DataNotFoundException; // Assuming this exception is created
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * PostgreSQL implementation of {@link MedicineRepository}.
+ * Handles database interactions, including stock updates and foreign key checks.
+ */
+public class JdbcMedicineRepository implements MedicineRepository {
+
+    /**
+     * Columns read by {@link #mapResultSetToMedicine}, in the order it reads them.
+     */
+    private static final String MEDICINE_COLUMNS = "medicine_id, name, unit_price, stock";
+
+    private final Connection conn;
+
+    /**
+     * Initializes the repository with an active database connection.
+     * @param conn The active SQL connection object.
+     */
+    public JdbcMedicineRepository(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Maps a current row from the ResultSet to a Medicine record object.
+     * Columns are read by position, so the row must have been selected with {@link #MEDICINE_COLUMNS}.
+     *
+     * @param rs The ResultSet containing the medicine data.
+     * @return A fully populated Medicine object.
+     * @throws SQLException If a database access error occurs during reading.
+     */
+    private static Medicine mapResultSetToMedicine(ResultSet rs) throws SQLException {
+        return new Medicine(rs.getLong(1), rs.getString(2), rs.getDouble(3), rs.getInt(4));
+    }
+
+    /**
+     * Retrieves all medicine records from the database, ordered by name.
+     *
+     * @return A list of all available Medicine objects.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<Medicine> getAllMedicines() throws SQLException {
+        List<Medicine> medicines = new ArrayList<>();
+        final String SQLQuery = "SELECT " + MEDICINE_COLUMNS + " FROM medicine ORDER BY name";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                medicines.add(mapResultSetToMedicine(rs));
+            }
+        }
+        return medicines;
+    }
+
+    /**
+     * Retrieves a single medicine record by its ID.
+     *
+     * @param medicineId The ID of the medicine to retrieve.
+     * @return The Medicine object if found, or null if the ID is invalid or not found.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public Medicine getMedicineById(long medicineId) throws SQLException {
+        if (medicineId <= 0) {
+            return null;
+        }
+        final String SQLQuery = "SELECT " + MEDICINE_COLUMNS + " FROM medicine WHERE medicine_id = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setLong(1, medicineId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapResultSetToMedicine(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Streams all medicine records (ordered by name) to the consumer through a server-side cursor.
+     *
+     * @param consumer Callback invoked for each medicine.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public void forEachMedicine(Consumer<Medicine> consumer) throws SQLException {
+        final String SQLQuery = "SELECT " + MEDICINE_COLUMNS + " FROM medicine ORDER BY name";
+        CursorScan.forEach(conn, SQLQuery, CursorScan.DEFAULT_FETCH_SIZE, JdbcMedicineRepository::mapResultSetToMedicine, consumer);
+    }
+
+    /**
+     * Adds a new medicine record to the database and retrieves the generated ID.
+     *
+     * @param medicine The Medicine object containing name, price, and initial stock.
+     * @return The auto-generated ID of the newly added medicine.
+     * @throws SQLException If a database access error occurs or if no ID was returned.
+     */
+    @Override
+    public long addMedicine(Medicine medicine) throws SQLException {
+        final String SQLQuery = "INSERT INTO medicine(name, unit_price, stock) VALUES (?, ?, ?)";
+        long generatedId = -1;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery, Statement.RETURN_GENERATED_KEYS)) {
+
+            pstmt.setString(1, medicine.name());
+            pstmt.setDouble(2, medicine.unitPrice());
+            pstmt.setInt(3, medicine.stock());
+
+            int affectedRows = pstmt.executeUpdate();
+
+            if (affectedRows > 0) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        generatedId = keys.getLong(1);
+                        System.out.printf("Medicine '%s' successfully added with ID: %d\n", medicine.name(), generatedId);
+                        return generatedId;
+                    }
+                }
+            } else {
+                throw new SQLException("Failed to create medicine, no rows affected.");
+            }
+        }
+        return generatedId;
+    }
+
+    /**
+     * Deletes a medicine record from the database by ID.
+     *
+     * @param medicineId The ID of the medicine to delete (must be positive).
+     * @throws SQLException If a general database access error occurs.
+     * @throws IllegalArgumentException If the medicine ID is not positive.
+     * @throws DataNotFoundException If the medicine with the given ID was not found.
+     * @throws DataIntegrityViolationException If the medicine is referenced by existing orders or suppliers (Foreign Key).
+     */
+    @Override
+    public void deleteMedicine(long medicineId) throws SQLException {
+        if (medicineId <= 0) {
+            throw new IllegalArgumentException("Medicine ID must be positive for deletion.");
+        }
+
+        final String SQLQuery = "DELETE FROM medicine WHERE medicine_id = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setLong(1, medicineId);
+
+            int affectedRows = pstmt.executeUpdate();
+
+            if (affectedRows == 0) {
+                throw new DataNotFoundException("Medicine with ID " + medicineId + " was not found.");
+            }
+
+            System.out.printf("Medicine with ID %d successfully deleted.\n", medicineId);
+
+        } catch (SQLException e) {
+            // Check for Foreign Key Violation (e.g., PostgreSQL code "23503")
+            if ("23503".equals(e.getSQLState())) {
+                throw new DataIntegrityViolationException(
+                        String.format("Medicine ID %d cannot be deleted because it is linked to existing orders or suppliers.", medicineId), e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Updates the stock quantity for a specific medicine ID.
+     *
+     * @param medicineId The ID of the medicine to update (must be positive).
+     * @param newStock The new stock quantity (cannot be negative).
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If medicineId is non-positive or newStock is negative.
+     * @throws DataNotFoundException If the medicine with the given ID was not found.
+     */
+    @Override
+    public void updateMedicineStock(long medicineId, int newStock) throws SQLException, DataNotFoundException {
+        if (medicineId <= 0) {
+            throw new IllegalArgumentException("Medicine ID must be positive for stock update.");
+        }
+        if (newStock < 0) {
+            throw new IllegalArgumentException("Stock quantity cannot be negative.");
+        }
+
+        // SQL Execution
+        final String SQLQuery = "UPDATE medicine SET stock = ? WHERE medicine_id = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setInt(1, newStock);
+            pstmt.setLong(2, medicineId);
+
+            int affectedRows = pstmt.executeUpdate();
+
+            // 3. Result Check
+            if (affectedRows == 0) {
+                throw new DataNotFoundException("Medicine with ID " + medicineId + " was not found. Stock update failed.");
+            }
+        }
+    }
+
+    /**
+     * Sets the stock of several medicines with a single JDBC batch.
+     *
+     * @param newStocks Map of Medicine ID to the new stock quantity.
+     * @return The IDs of medicines that were not found (empty if every update matched a row).
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If any ID is non-positive or any stock is negative.
+     */
+    @Override
+    public List<Long> updateMedicineStocks(Map<Long, Integer> newStocks) throws SQLException {
+        for (Map.Entry<Long, Integer> entry : newStocks.entrySet()) {
+            if (entry.getKey() <= 0) {
+                throw new IllegalArgumentException("Medicine ID must be positive for stock update.");
+            }
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Stock quantity cannot be negative.");
+            }
+        }
+
+        final String SQLQuery = "UPDATE medicine SET stock = ? WHERE medicine_id = ?";
+        List<Long> missing = new ArrayList<>();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            List<Long> order = new ArrayList<>(newStocks.keySet());
+            for (Long medicineId : order) {
+                pstmt.setInt(1, newStocks.get(medicineId));
+                pstmt.setLong(2, medicineId);
+                pstmt.addBatch();
+            }
+
+            int[] affectedRows = pstmt.executeBatch();
+            for (int i = 0; i < affectedRows.length; i++) {
+                if (affectedRows[i] == 0) {
+                    missing.add(order.get(i));
+                }
+            }
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,522 @@
+package org.pharmacy.repository;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.metrics.OrderStockCheckEvent;
+import org.pharmacy.metrics.OrderTransactionEvent;
+import org.pharmacy.model.Order;
+import org.pharmacy.model.OrderItem;
+import org.pharmacy.model.OrderRequest;
+import org.pharmacy.model.OrderResult;
+import org.pharmacy.model.OrderSummary;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * PostgreSQL implementation of {@link OrderRepository}. Item prices and order totals are
+ * maintained by the {@code orderitem} triggers.
+ */
+public class JdbcOrderRepository implements OrderRepository {
+
+    /**
+     * Columns read by {@link #mapResultSetToOrder}, in the order it reads them.
+     */
+    private static final String ORDER_COLUMNS = "order_id, client_id, order_date, total_price";
+
+    /**
+     * Columns of the 'detailed_order_summary' view read by {@link #mapResultSetToOrderSummary}, in
+     * the order it reads them.
+     */
+    private static final String ORDER_SUMMARY_COLUMNS =
+            "order_id, order_date, client_first_name, client_last_name, total_price, total_items_count";
+
+    Connection conn;
+
+    /**
+     * Initializes the repository with a database connection.
+     * @param conn The active SQL connection object.
+     * @throws SQLException If a database access error occurs.
+     */
+    public JdbcOrderRepository(Connection conn) throws SQLException {
+        this.conn = conn;
+    }
+
+    /**
+     * Retrieves a single Order object by its ID.
+     * @param orderId The ID of the order to retrieve.
+     * @return The Order object if found, or null if the ID is invalid or not found.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public Order getOrderById(long orderId) throws SQLException{
+        if(orderId <= 0){
+            return null;
+        }
+        String SQLQuery = "SELECT " + ORDER_COLUMNS + " FROM \"order\" WHERE order_id = ?;";
+
+        try(PreparedStatement pstmt = conn.prepareStatement(SQLQuery)){
+            pstmt.setLong(1, orderId);
+            try (ResultSet res = pstmt.executeQuery()) {
+
+                if (!res.next()) {
+                    return null; // order not found
+                }
+
+                return mapResultSetToOrder(res);
+            }
+        }
+    }
+
+    /**
+     * Retrieves all orders associated with a specific client ID, ordered by date descending.
+     * @param clientId The ID of the client whose orders are to be retrieved.
+     * @return A list of Order objects. Returns an empty list if client ID is invalid or no orders are found.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<Order> getOrdersByClient(long clientId) throws SQLException{
+        if(clientId <= 0){
+            return new ArrayList<>();
+        }
+
+        final String SQLQuery = "SELECT " + ORDER_COLUMNS + " FROM \"order\" WHERE client_id = ? ORDER BY order_date DESC";
+        List<Order> clientOrders = new ArrayList<>();
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setLong(1, clientId);
+            try (ResultSet res = pstmt.executeQuery()) {
+                while (res.next()) {
+                    clientOrders.add(mapResultSetToOrder(res));
+                }
+            }
+        }
+        return clientOrders;
+    }
+
+    /**
+     * Inserts one order with all its items inside the caller's transaction.
+     * <p>Stock is reserved first with a single batched guarded UPDATE (one row per medicine, in
+     * ascending medicine ID order so that concurrent orders lock rows in the same order and cannot
+     * deadlock), then all item rows are inserted with one batched INSERT. Each line's stock check is
+     * recorded as an {@link OrderStockCheckEvent}.</p>
+     *
+     * @param clientId The ID of the client placing the order.
+     * @param itemQuantities Map of Medicine ID to Quantity.
+     * @return The ID of the newly created order.
+     * @throws SQLException If a database access error occurs.
+     * @throws DataIntegrityViolationException If a medicine does not exist or has insufficient stock.
+     */
+    private long insertOrder(long clientId, Map<Long, Integer> itemQuantities) throws SQLException {
+        long orderID;
+        String insertOrderSQL = "INSERT INTO \"order\"(client_id, order_date, total_price) VALUES(?, CURRENT_DATE, 0.00)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insertOrderSQL, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            pstmt.setLong(1, clientId);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Failed to create order, no ID obtained.");
+                }
+                orderID = keys.getLong(1);
+            }
+        }
+
+        SortedMap<Long, Integer> lines = new TreeMap<>(itemQuantities);
+
+        final String updateStockSQL = "UPDATE medicine SET stock = stock - ? " +
+                "WHERE medicine_id = ? AND stock >= ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(updateStockSQL)) {
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                pstmt.setInt(1, line.getValue());
+                pstmt.setLong(2, line.getKey());
+                pstmt.setInt(3, line.getValue());
+                pstmt.addBatch();
+            }
+            OrderStockCheckEvent checkEvent = new OrderStockCheckEvent();
+            checkEvent.begin();
+            int[] affectedRows = pstmt.executeBatch();
+            checkEvent.end();
+
+            // The guarded UPDATE matched nothing for these: the medicine is missing or its stock is too low
+            List<Long> rejected = new ArrayList<>();
+            int i = 0;
+            for (Long medicineId : lines.keySet()) {
+                if (affectedRows[i++] == 0) {
+                    rejected.add(medicineId);
+                }
+            }
+            if (checkEvent.shouldCommit()) {
+                checkEvent.orderId = orderID;
+                checkEvent.lines = lines.size();
+                checkEvent.rejectedLines = rejected.size();
+                checkEvent.rejectedMedicineIds = rejected.stream().map(String::valueOf).collect(Collectors.joining(","));
+                checkEvent.commit();
+            }
+            if (!rejected.isEmpty()) {
+                throw new DataIntegrityViolationException(
+                        String.format("Stock check failed for Medicine ID %d (not found or insufficient stock).", rejected.get(0)));
+            }
+        }
+
+        final String insertItemSQL = "INSERT INTO orderitem(order_id, medicine_id, quantity) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insertItemSQL)) {
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                pstmt.setLong(1, orderID);
+                pstmt.setLong(2, line.getKey());
+                pstmt.setInt(3, line.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        return orderID;
+    }
+
+    /**
+     * Creates a new order. If any single item fails (not found, insufficient stock),
+     * the entire order is rolled back.
+     * <p>When called with auto-commit enabled the order runs in its own transaction. When the caller
+     * already has a transaction open, the order joins it: a failure only rolls back to a savepoint
+     * taken at the start of the order, and committing is left to the caller.</p>
+     * <p>The order is recorded as an {@link OrderTransactionEvent} in JFR recordings.</p>
+     *
+     * @param clientId The ID of the client placing the order.
+     * @param itemQuantities Map of Medicine ID to Quantity.
+     * @return The ID of the newly created order.
+     * @throws SQLException If a database access error occurs.
+     * @throws DataIntegrityViolationException If any item fails to be processed, forcing a rollback.
+     */
+    @Override
+    public long createOrder(long clientId, Map<Long, Integer> itemQuantities) throws SQLException {
+        OrderTransactionEvent event = new OrderTransactionEvent();
+        event.begin();
+        event.clientId = clientId;
+        event.lineCount = itemQuantities.size();
+
+        boolean ownsTransaction = conn.getAutoCommit();
+        Savepoint savepoint = null;
+        if (ownsTransaction) {
+            conn.setAutoCommit(false);
+        } else {
+            savepoint = conn.setSavepoint();
+        }
+
+        try {
+            long orderID = insertOrder(clientId, itemQuantities);
+            event.orderId = orderID;
+            if (ownsTransaction) {
+                conn.commit();
+                event.outcome = OrderTransactionEvent.COMMIT;
+            } else {
+                conn.releaseSavepoint(savepoint);
+                event.outcome = OrderTransactionEvent.SAVEPOINT_RELEASED;
+            }
+            System.out.printf("  [SUCCESS] Order ID %d created with %d item(s).\n", orderID, itemQuantities.size());
+            return orderID;
+
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("[FAIL] Order could not be created: " + e.getMessage());
+            event.failure = e.getMessage();
+            if (ownsTransaction) {
+                event.outcome = OrderTransactionEvent.ROLLBACK;
+                conn.rollback();
+            } else {
+                event.outcome = OrderTransactionEvent.SAVEPOINT_ROLLBACK;
+                conn.rollback(savepoint);
+            }
+            throw e;
+        } finally {
+            if (ownsTransaction) {
+                conn.setAutoCommit(true);
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Creates several orders in one transaction window.
+     * <p>Each order is protected by its own savepoint, so a rejected order (unknown medicine,
+     * insufficient stock, unknown client) is rolled back on its own and the remaining orders are
+     * still created. If auto-commit is enabled the whole batch is committed once at the end;
+     * otherwise the caller's transaction is used and left open.</p>
+     *
+     * @param requests The orders to create, processed in list order.
+     * @return One result per request, in the same order.
+     * @throws SQLException If a database access error occurs that is not specific to a single order.
+     */
+    @Override
+    public List<OrderResult> createOrders(List<OrderRequest> requests) throws SQLException {
+        List<OrderResult> results = new ArrayList<>(requests.size());
+        boolean ownsTransaction = conn.getAutoCommit();
+        if (ownsTransaction) {
+            conn.setAutoCommit(false);
+        }
+
+        try {
+            for (OrderRequest request : requests) {
+                OrderTransactionEvent event = new OrderTransactionEvent();
+                event.begin();
+                event.clientId = request.clientId();
+                event.lineCount = request.itemQuantities().size();
+                event.outcome = OrderTransactionEvent.SAVEPOINT_ROLLBACK;
+
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    long orderID = insertOrder(request.clientId(), request.itemQuantities());
+                    conn.releaseSavepoint(savepoint);
+                    event.orderId = orderID;
+                    event.outcome = OrderTransactionEvent.SAVEPOINT_RELEASED;
+                    results.add(new OrderResult(request, orderID, null));
+                } catch (DataIntegrityViolationException e) {
+                    conn.rollback(savepoint);
+                    event.failure = e.getMessage();
+                    results.add(new OrderResult(request, -1, e.getMessage()));
+                } catch (SQLException e) {
+                    // Constraint violations (e.g. unknown client) only reject this order
+                    if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                        throw e;
+                    }
+                    conn.rollback(savepoint);
+                    event.failure = e.getMessage();
+                    results.add(new OrderResult(request, -1, e.getMessage()));
+                } finally {
+                    event.commit();
+                }
+            }
+            if (ownsTransaction) {
+                conn.commit();
+            }
+            return results;
+
+        } catch (SQLException | RuntimeException e) {
+            if (ownsTransaction) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownsTransaction) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Deletes an order and associated items (cascading assumed).
+     * <p>If the order's day has already been folded into {@code daily_sales_rollup}, its lines are
+     * subtracted from the rollup in the same transaction, so pre-aggregated sales stay exact, and the
+     * day is recorded in {@code forecast_state} so the demand forecasts are recomputed.</p>
+     * @param orderId The ID of the order to delete.
+     * @return Whether an order was deleted.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the order ID is not positive.
+     */
+    @Override
+    public boolean deleteOrder(long orderId) throws SQLException {
+        if (orderId <= 0) {
+            throw new IllegalArgumentException("Order ID must be positive.");
+        }
+        // Share-locking the rollup state serializes this delete with a concurrent day roll-up,
+        // so the order is either subtracted from the rollup or never folded into it
+        final String lockRollupSQL = "SELECT rolled_through FROM sales_rollup_state FOR SHARE";
+        final String subtractRollupSQL = "UPDATE daily_sales_rollup r " +
+                "SET units = r.units - d.units, revenue = r.revenue - d.revenue, order_lines = r.order_lines - d.order_lines " +
+                "FROM (SELECT o.order_date, oi.medicine_id, SUM(oi.quantity) AS units, " +
+                "             SUM(oi.quantity * oi.unit_price) AS revenue, COUNT(*) AS order_lines " +
+                "      FROM \"order\" o JOIN orderitem oi ON oi.order_id = o.order_id " +
+                "      WHERE o.order_id = ? AND o.order_date <= (SELECT rolled_through FROM sales_rollup_state) " +
+                "      GROUP BY o.order_date, oi.medicine_id) d " +
+                "WHERE r.sales_date = d.order_date AND r.medicine_id = d.medicine_id";
+        final String markForecastSQL = "UPDATE forecast_state f SET recompute_from = LEAST(f.recompute_from, o.order_date) " +
+                "FROM \"order\" o WHERE o.order_id = ?";
+        final String SQLQuery = "DELETE FROM \"order\" WHERE order_id = ?";
+
+        boolean ownsTransaction = conn.getAutoCommit();
+        if (ownsTransaction) {
+            conn.setAutoCommit(false);
+        }
+        try {
+            try (PreparedStatement pstmt = conn.prepareStatement(lockRollupSQL)) {
+                pstmt.executeQuery().close();
+            }
+            int subtractedRows;
+            try (PreparedStatement pstmt = conn.prepareStatement(subtractRollupSQL)) {
+                pstmt.setLong(1, orderId);
+                subtractedRows = pstmt.executeUpdate();
+            }
+            if (subtractedRows > 0) {
+                try (PreparedStatement pstmt = conn.prepareStatement(markForecastSQL)) {
+                    pstmt.setLong(1, orderId);
+                    pstmt.executeUpdate();
+                }
+            }
+
+            int affectedRows;
+            try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+                pstmt.setLong(1, orderId);
+                affectedRows = pstmt.executeUpdate();
+            }
+            if (ownsTransaction) {
+                conn.commit();
+            }
+            return affectedRows > 0;
+        } catch (SQLException | RuntimeException e) {
+            if (ownsTransaction) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownsTransaction) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Retrieves all items belonging to a specific order.
+     * @param orderId The ID of the order.
+     * @return A list of OrderItem objects.
+     * @throws SQLException If a database access error occurs.
+     * @throws DataNotFoundException If no items are found for the given order ID.
+     */
+    @Override
+    public List<OrderItem> getOrderItemsByOrderId(long orderId) throws SQLException {
+        List<OrderItem> items = new ArrayList<>();
+
+        final String SQLQuery = "SELECT order_id, medicine_id, quantity, unit_price FROM orderitem WHERE order_id = ?";
+
+        boolean found = false;
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setLong(1, orderId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    found = true;
+                    items.add(new OrderItem(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getDouble(4)));
+                }
+            }
+        }
+        if (!found) {
+            throw new DataNotFoundException("Order items associated with ID " + orderId + " were not found.");
+        }
+
+        return items;
+    }
+
+    /**
+     * Retrieves all orders in the database, ordered by date descending.
+     * @return A list of all Order objects.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<Order> getAllOrders() throws SQLException {
+        final String SQLQuery = "SELECT " + ORDER_COLUMNS + " FROM \"order\" ORDER BY order_date DESC, order_id DESC";
+        List<Order> allOrders = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            try (ResultSet res = pstmt.executeQuery()) {
+                while (res.next()) {
+                    allOrders.add(mapResultSetToOrder(res));
+                }
+            }
+        }
+        return allOrders;
+    }
+
+    /**
+     * Retrieves detailed summaries of all orders using the 'detailed_order_summary' view.
+     * @return A list of OrderSummary objects.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<OrderSummary> getAllDetailedOrders() throws SQLException {
+        List<OrderSummary> summaries = new ArrayList<>();
+        final String SQLQuery = "SELECT " + ORDER_SUMMARY_COLUMNS + " FROM detailed_order_summary ORDER BY order_date DESC";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                summaries.add(mapResultSetToOrderSummary(rs));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Streams detailed summaries of all orders (newest first) to the consumer through a server-side
+     * cursor, so even a very large order history is never held in memory at once.
+     *
+     * @param consumer Callback invoked for each order summary.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public void forEachDetailedOrder(Consumer<OrderSummary> consumer) throws SQLException {
+        final String SQLQuery = "SELECT " + ORDER_SUMMARY_COLUMNS + " FROM detailed_order_summary ORDER BY order_date DESC";
+        CursorScan.forEach(conn, SQLQuery, CursorScan.DEFAULT_FETCH_SIZE, JdbcOrderRepository::mapResultSetToOrderSummary, consumer);
+    }
+
+    /**
+     * Maps a current row from the ResultSet to an Order record.
+     * Columns are read by position, so the row must have been selected with {@link #ORDER_COLUMNS}.
+     *
+     * @param rs The ResultSet containing the order data.
+     * @return A fully populated Order object.
+     * @throws SQLException If a database access error occurs during reading.
+     */
+    private static Order mapResultSetToOrder(ResultSet rs) throws SQLException {
+        return new Order(rs.getLong(1), rs.getLong(2), rs.getDate(3), rs.getDouble(4));
+    }
+
+    /**
+     * Maps a current row of the 'detailed_order_summary' view to an OrderSummary record.
+     * Columns are read by position, so the row must have been selected with {@link #ORDER_SUMMARY_COLUMNS}.
+     *
+     * @param rs The ResultSet containing the summary data.
+     * @return A fully populated OrderSummary object.
+     * @throws SQLException If a database access error occurs during reading.
+     */
+    private static OrderSummary mapResultSetToOrderSummary(ResultSet rs) throws SQLException {
+        return new OrderSummary(rs.getLong(1), rs.getDate(2), rs.getString(3), rs.getString(4), rs.getDouble(5), rs.getLong(6));
+    }
+
+    /**
+     * Retrieves detailed summaries of orders for a specific client using the 'detailed_order_summary' view.
+     * @param clientId The ID of the client.
+     * @return A list of OrderSummary objects.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalArgumentException If the client ID is not positive.
+     * @throws DataNotFoundException If the client has no orders or does not exist.
+     */
+    @Override
+    public List<OrderSummary> getClientOrderSummaries(long clientId) throws SQLException {
+
+        if (clientId <= 0) {
+            throw new IllegalArgumentException("Client ID must be positive.");
+        }
+
+        List<OrderSummary> summaries = new ArrayList<>();
+        final String SQLQuery = "SELECT " + ORDER_SUMMARY_COLUMNS + " FROM detailed_order_summary " +
+                "WHERE client_id = ? ORDER BY order_date DESC";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setLong(1, clientId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(mapResultSetToOrderSummary(rs));
+                }
+            }
+        }
+        if (summaries.isEmpty()) {
+            throw new DataNotFoundException("Client with ID " + clientId + " has no orders or does not exist.");
+        }
+        return summaries;
+    }
+}
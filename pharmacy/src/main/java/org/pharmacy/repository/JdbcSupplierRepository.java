@@ -0,0 +1,244 @@
+package org.pharmacy.repository;
+
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.model.Address;
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * PostgreSQL implementation of {@link SupplierRepository}.
+ * Handles database interactions, including address mapping and foreign key checks.
+ */
+public class JdbcSupplierRepository implements SupplierRepository {
+
+    /**
+     * Columns read by {@link #mapResultSetToSupplier}, in the order it reads them.
+     */
+    private static final String SUPPLIER_COLUMNS = "supplier_id, name, country, city, street, postal_code";
+
+    private final Connection conn;
+
+    /**
+     * Initializes the repository with an active database connection.
+     * @param conn The active SQL connection object.
+     */
+    public JdbcSupplierRepository(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Maps a current row from the ResultSet to a Supplier record object,
+     * including the nested Address record. Columns are read by position, so the row must have been
+     * selected with {@link #SUPPLIER_COLUMNS}.
+     *
+     * @param rs The ResultSet containing supplier and address data.
+     * @return A fully populated Supplier object.
+     * @throws SQLException If a database access error occurs during reading.
+     */
+    private static Supplier mapResultSetToSupplier(ResultSet rs) throws SQLException {
+        Address address = new Address(rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6));
+        return new Supplier(rs.getLong(1), rs.getString(2), address);
+    }
+
+    /**
+     * Retrieves all supplier records from the database, ordered by name.
+     * Assumes the supplier table contains all necessary address columns.
+     *
+     * @return A list of all Supplier objects.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<Supplier> getAllSuppliers() throws SQLException {
+        List<Supplier> suppliers = new ArrayList<>();
+        final String SQLQuery = "SELECT " + SUPPLIER_COLUMNS + " FROM supplier ORDER BY name";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                suppliers.add(mapResultSetToSupplier(rs));
+            }
+        }
+        return suppliers;
+    }
+
+    /**
+     * Streams all supplier records (ordered by name) to the consumer through a server-side cursor.
+     *
+     * @param consumer Callback invoked for each supplier.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public void forEachSupplier(Consumer<Supplier> consumer) throws SQLException {
+        final String SQLQuery = "SELECT " + SUPPLIER_COLUMNS + " FROM supplier ORDER BY name";
+        CursorScan.forEach(conn, SQLQuery, CursorScan.DEFAULT_FETCH_SIZE, JdbcSupplierRepository::mapResultSetToSupplier, consumer);
+    }
+
+    /**
+     * Adds a new supplier record to the database.
+     *
+     * @param supplier The Supplier object containing name and address details.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public void addSupplier(Supplier supplier) throws SQLException {
+        final String SQLQuery = "INSERT INTO supplier(name, country, city, street, postal_code) VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+
+            pstmt.setString(1, supplier.name());
+            pstmt.setString(2, supplier.address().country());
+            pstmt.setString(3, supplier.address().city());
+            pstmt.setString(4, supplier.address().street());
+            pstmt.setString(5, supplier.address().postalCode());
+
+            int affectedRows = pstmt.executeUpdate();
+            System.out.printf("Supplier '%s' successfully added. Rows changed: %d\n", supplier.name(), affectedRows);
+        }
+    }
+
+    /**
+     * Deletes a supplier record from the database by ID.
+     *
+     * @param supplierId The ID of the supplier to delete (must be positive).
+     * @throws SQLException If a general database access error occurs.
+     * @throws IllegalArgumentException If the supplier ID is not positive.
+     * @throws DataNotFoundException If the supplier with the given ID was not found.
+     * @throws DataIntegrityViolationException If the supplier is linked to existing medicines (Foreign Key violation).
+     */
+    @Override
+    public void deleteSupplier(long supplierId) throws SQLException {
+        if (supplierId <= 0) {
+            throw new IllegalArgumentException("Supplier ID must be positive for deletion.");
+        }
+
+        final String SQLQuery = "DELETE FROM supplier WHERE supplier_id = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setLong(1, supplierId);
+
+            int affectedRows = pstmt.executeUpdate();
+
+            if (affectedRows == 0) {
+                throw new DataNotFoundException("Supplier with ID " + supplierId + " was not found.");
+            }
+
+            System.out.printf("Supplier with ID %d successfully deleted.\n", supplierId);
+
+        } catch (SQLException e) {
+            // Check for Foreign Key Violation (PostgreSQL specific code: 23503)
+            if ("23503".equals(e.getSQLState())) {
+                throw new DataIntegrityViolationException(
+                        String.format("Supplier ID %d cannot be deleted because it supplies existing medicines (suppliermedicine entry exists).", supplierId), e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the medicine linkages (SupplierMedicine records) for a given supplier ID.
+     *
+     * @param supplierId The ID of the supplier (must be positive).
+     * @return A list of SupplierMedicine objects supplied by this supplier. Returns an empty list if ID is invalid or no links are found.
+     * @throws SQLException If a database access error occurs.
+     */
+    @Override
+    public List<SupplierMedicine> getMedicineBySupplierId(long supplierId) throws SQLException {
+        if (supplierId <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<SupplierMedicine> supplierMedicines = new ArrayList<>();
+        final String SQLQuery = "SELECT supplier_id, medicine_id, supply_price FROM suppliermedicine WHERE supplier_id = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            pstmt.setLong(1, supplierId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    supplierMedicines.add(new SupplierMedicine(rs.getLong(1), rs.getLong(2), rs.getDouble(3)));
+                }
+            }
+        }
+        return supplierMedicines;
+    }
+
+    /**
+     * Links a medicine to a supplier, or updates the supply price if the link already exists.
+     * Uses PostgreSQL's {@code ON CONFLICT DO UPDATE} clause (UPSERT operation).
+     *
+     * @param supplierMedicine The SupplierMedicine object containing supplier ID, medicine ID, and supply price.
+     * @throws SQLException If a general database access error occurs.
+     * @throws DataIntegrityViolationException If either the Supplier ID or the Medicine ID does not exist in the database (Foreign Key constraint).
+     */
+    @Override
+    public void addMedicineToSupplier(SupplierMedicine supplierMedicine) throws SQLException {
+        final String SQLQuery = "INSERT INTO suppliermedicine(supplier_id, medicine_id, supply_price) " +
+                "VALUES (?, ?, ?) " +
+                "ON CONFLICT (supplier_id, medicine_id) DO UPDATE SET supply_price = EXCLUDED.supply_price";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+
+            pstmt.setLong(1, supplierMedicine.supplierId());
+            pstmt.setLong(2, supplierMedicine.medicineId());
+            pstmt.setDouble(3, supplierMedicine.supplyPrice());
+
+            int affectedRows = pstmt.executeUpdate();
+            System.out.printf("Link established/updated: Supplier ID %d supplies Medicine ID %d at price %.2f. Rows affected: %d\n",
+                    supplierMedicine.supplierId(), supplierMedicine.medicineId(), supplierMedicine.supplyPrice(), affectedRows);
+
+        } catch (SQLException e) {
+            if ("23503".equals(e.getSQLState())) {
+                throw new DataIntegrityViolationException(
+                        "Cannot link medicine to supplier: Either Supplier ID or Medicine ID does not exist in the database.", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Links or re-prices several supplier/medicine pairs with a single batched UPSERT.
+     *
+     * @param supplierMedicines The links to insert or update.
+     * @return The number of rows inserted or updated.
+     * @throws SQLException If a general database access error occurs.
+     * @throws DataIntegrityViolationException If any Supplier ID or Medicine ID does not exist (Foreign Key constraint).
+     */
+    @Override
+    public int addMedicinesToSupplier(List<SupplierMedicine> supplierMedicines) throws SQLException {
+        final String SQLQuery = "INSERT INTO suppliermedicine(supplier_id, medicine_id, supply_price) " +
+                "VALUES (?, ?, ?) " +
+                "ON CONFLICT (supplier_id, medicine_id) DO UPDATE SET supply_price = EXCLUDED.supply_price";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            for (SupplierMedicine link : supplierMedicines) {
+                pstmt.setLong(1, link.supplierId());
+                pstmt.setLong(2, link.medicineId());
+                pstmt.setDouble(3, link.supplyPrice());
+                pstmt.addBatch();
+            }
+
+            int affectedRows = 0;
+            for (int rows : pstmt.executeBatch()) {
+                affectedRows += Math.max(rows, 0);
+            }
+            return affectedRows;
+
+        } catch (SQLException e) {
+            if ("23503".equals(e.getSQLState()) || (e.getNextException() != null && "23503".equals(e.getNextException().getSQLState()))) {
+                throw new DataIntegrityViolationException(
+                        "Cannot link medicines to supplier: a Supplier ID or Medicine ID does not exist in the database.", e);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.pharmacy.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a ResultSet to a model object.
+ *
+ * @param <T> The model type produced.
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+
+    /**
+     * @param rs The ResultSet positioned on the row to map.
+     * @return The mapped object.
+     * @throws SQLException If a database access error occurs during reading.
+     */
+    T map(ResultSet rs) throws SQLException;
+}
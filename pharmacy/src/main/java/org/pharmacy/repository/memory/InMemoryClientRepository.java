@@ -0,0 +1,137 @@
+package org.pharmacy.repository.memory;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.model.Address;
+import org.pharmacy.model.Client;
+import org.pharmacy.repository.ClientRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * {@link ClientRepository} backed by an {@link InMemoryStore}.
+ */
+public class InMemoryClientRepository implements ClientRepository {
+
+    /**
+     * Same order as the PostgreSQL scan: scan key of the postal code, then of the last name.
+     */
+    private static final Comparator<Client> BY_POSTAL_CODE = Comparator
+            .comparing((Client client) -> ClientRepository.scanKey(client.address().postalCode()))
+            .thenComparing(client -> ClientRepository.scanKey(client.lastname()))
+            .thenComparingLong(Client::id);
+
+    private final InMemoryStore store;
+
+    public InMemoryClientRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public long addClient(Client client) {
+        if (client == null) {
+            throw new IllegalArgumentException("Client object cannot be null.");
+        }
+        long clientId = insert(client);
+        System.out.println("Client " + client.firstname() + " " + client.lastname() + " successfully added with ID " + clientId + ". Rows changed: 1");
+        return clientId;
+    }
+
+    @Override
+    public int addClients(List<Client> clients) {
+        if (clients == null || clients.contains(null)) {
+            throw new IllegalArgumentException("Client list cannot be null or contain null clients.");
+        }
+        for (Client client : clients) {
+            insert(client);
+        }
+        return clients.size();
+    }
+
+    @Override
+    public void deleteClient(long clientId) {
+        if (clientId <= 0) {
+            throw new IllegalArgumentException("Client ID must be positive for deletion.");
+        }
+
+        Lock lock = store.references.writeLock();
+        lock.lock();
+        try {
+            if (!store.clients.containsKey(clientId)) {
+                throw new DataNotFoundException("Client with ID " + clientId + " was not found.");
+            }
+            Set<Long> orders = store.ordersByClient.get(clientId);
+            if (orders != null && !orders.isEmpty()) {
+                throw new DataIntegrityViolationException(
+                        String.format("Client with ID %d cannot be deleted because there are existing orders associated with this client. Please delete the orders first.", clientId));
+            }
+            store.clients.remove(clientId);
+            store.ordersByClient.remove(clientId);
+        } finally {
+            lock.unlock();
+        }
+        System.out.printf("Client with ID %d successfully deleted.\n", clientId);
+    }
+
+    @Override
+    public void updateClientAddress(long clientId, Address address) {
+        Client updated = store.clients.computeIfPresent(clientId,
+                (id, client) -> new Client(id, client.firstname(), client.lastname(), address));
+        if (updated == null) {
+            throw new DataNotFoundException("Client with ID " + clientId + " was not found. Address update failed.");
+        }
+        System.out.println("Client with id " + clientId + " adddress updated. Rows affected: 1");
+    }
+
+    @Override
+    public List<Client> getAllCLients() {
+        return new ArrayList<>(store.clients.values());
+    }
+
+    /**
+     * Imports all clients or none: the source is read completely before anything is stored.
+     */
+    @Override
+    public long importClients(Iterator<Client> clients) {
+        if (clients == null) {
+            throw new IllegalArgumentException("Client source cannot be null.");
+        }
+        List<Client> rows = new ArrayList<>();
+        while (clients.hasNext()) {
+            Client client = clients.next();
+            if (client == null) {
+                throw new IllegalArgumentException("Client source cannot contain null clients.");
+            }
+            rows.add(client);
+        }
+        for (Client client : rows) {
+            insert(client);
+        }
+        System.out.println("Client import finished. Rows loaded: " + rows.size());
+        return rows.size();
+    }
+
+    @Override
+    public void forEachClient(Consumer<Client> consumer) {
+        store.clients.values().forEach(consumer);
+    }
+
+    @Override
+    public void scanClientsByPostalCode(Consumer<Client> consumer) {
+        List<Client> sorted = new ArrayList<>(store.clients.values());
+        sorted.sort(BY_POSTAL_CODE);
+        sorted.forEach(consumer);
+    }
+
+    private long insert(Client client) {
+        long id = store.clientIds.incrementAndGet();
+        store.clients.put(id, new Client(id, client.firstname(), client.lastname(), client.address()));
+        return id;
+    }
+}
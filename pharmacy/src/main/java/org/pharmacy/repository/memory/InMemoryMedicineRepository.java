@@ -0,0 +1,116 @@
+package org.pharmacy.repository.memory;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.model.Medicine;
+import org.pharmacy.repository.MedicineRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * {@link MedicineRepository} backed by an {@link InMemoryStore}.
+ */
+public class InMemoryMedicineRepository implements MedicineRepository {
+
+    private static final Comparator<Medicine> BY_NAME = Comparator.comparing(Medicine::name).thenComparingLong(Medicine::id);
+
+    private final InMemoryStore store;
+
+    public InMemoryMedicineRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<Medicine> getAllMedicines() {
+        List<Medicine> medicines = new ArrayList<>(store.medicines.values());
+        medicines.sort(BY_NAME);
+        return medicines;
+    }
+
+    @Override
+    public Medicine getMedicineById(long medicineId) {
+        return store.medicines.get(medicineId);
+    }
+
+    @Override
+    public void forEachMedicine(Consumer<Medicine> consumer) {
+        getAllMedicines().forEach(consumer);
+    }
+
+    @Override
+    public long addMedicine(Medicine medicine) {
+        long id = store.medicineIds.incrementAndGet();
+        store.medicines.put(id, new Medicine(id, medicine.name(), InMemoryStore.money(medicine.unitPrice()), medicine.stock()));
+        System.out.printf("Medicine '%s' successfully added with ID: %d\n", medicine.name(), id);
+        return id;
+    }
+
+    @Override
+    public void deleteMedicine(long medicineId) {
+        if (medicineId <= 0) {
+            throw new IllegalArgumentException("Medicine ID must be positive for deletion.");
+        }
+
+        Lock lock = store.references.writeLock();
+        lock.lock();
+        try {
+            if (!store.medicines.containsKey(medicineId)) {
+                throw new DataNotFoundException("Medicine with ID " + medicineId + " was not found.");
+            }
+            Set<Long> suppliers = store.suppliersByMedicine.get(medicineId);
+            if (store.orderLinesByMedicine.containsKey(medicineId) || (suppliers != null && !suppliers.isEmpty())) {
+                throw new DataIntegrityViolationException(
+                        String.format("Medicine ID %d cannot be deleted because it is linked to existing orders or suppliers.", medicineId));
+            }
+            store.medicines.remove(medicineId);
+            store.suppliersByMedicine.remove(medicineId);
+        } finally {
+            lock.unlock();
+        }
+        System.out.printf("Medicine with ID %d successfully deleted.\n", medicineId);
+    }
+
+    @Override
+    public void updateMedicineStock(long medicineId, int newStock) {
+        if (medicineId <= 0) {
+            throw new IllegalArgumentException("Medicine ID must be positive for stock update.");
+        }
+        if (newStock < 0) {
+            throw new IllegalArgumentException("Stock quantity cannot be negative.");
+        }
+        if (!setStock(medicineId, newStock)) {
+            throw new DataNotFoundException("Medicine with ID " + medicineId + " was not found. Stock update failed.");
+        }
+    }
+
+    @Override
+    public List<Long> updateMedicineStocks(Map<Long, Integer> newStocks) {
+        for (Map.Entry<Long, Integer> entry : newStocks.entrySet()) {
+            if (entry.getKey() <= 0) {
+                throw new IllegalArgumentException("Medicine ID must be positive for stock update.");
+            }
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Stock quantity cannot be negative.");
+            }
+        }
+
+        List<Long> missing = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : newStocks.entrySet()) {
+            if (!setStock(entry.getKey(), entry.getValue())) {
+                missing.add(entry.getKey());
+            }
+        }
+        return missing;
+    }
+
+    private boolean setStock(long medicineId, int newStock) {
+        return store.medicines.computeIfPresent(medicineId,
+                (id, medicine) -> new Medicine(id, medicine.name(), medicine.unitPrice(), newStock)) != null;
+    }
+}
@@ -0,0 +1,278 @@
+package org.pharmacy.repository.memory;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.model.Client;
+import org.pharmacy.model.Medicine;
+import org.pharmacy.model.Order;
+import org.pharmacy.model.OrderItem;
+import org.pharmacy.model.OrderRequest;
+import org.pharmacy.model.OrderResult;
+import org.pharmacy.model.OrderSummary;
+import org.pharmacy.repository.OrderRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * {@link OrderRepository} backed by an {@link InMemoryStore}.
+ * <p>Stock is reserved line by line in ascending medicine ID order with compare-and-set on the
+ * medicine row; if a line cannot be reserved, the lines already reserved are given back, so an
+ * order either takes all its stock or none. Concurrent readers may briefly see stock reserved by
+ * an order that then fails. Items are priced at the medicine's unit price at the moment its stock
+ * was reserved, as the {@code trg_set_orderitem_unit_price} trigger does.</p>
+ */
+public class InMemoryOrderRepository implements OrderRepository {
+
+    /** Newest first: order date descending, then order ID descending. */
+    private static final Comparator<StoredOrder> NEWEST_FIRST = Comparator
+            .comparing(StoredOrder::orderDate, Comparator.reverseOrder())
+            .thenComparing(StoredOrder::orderId, Comparator.reverseOrder());
+
+    private final InMemoryStore store;
+
+    public InMemoryOrderRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Order getOrderById(long orderId) {
+        if (orderId <= 0) {
+            return null;
+        }
+        StoredOrder order = store.orders.get(orderId);
+        return order == null ? null : order.toOrder();
+    }
+
+    @Override
+    public List<Order> getOrdersByClient(long clientId) {
+        List<Order> clientOrders = new ArrayList<>();
+        if (clientId <= 0) {
+            return clientOrders;
+        }
+        for (StoredOrder order : ordersOf(clientId)) {
+            clientOrders.add(order.toOrder());
+        }
+        return clientOrders;
+    }
+
+    @Override
+    public long createOrder(long clientId, Map<Long, Integer> itemQuantities) {
+        try {
+            long orderID = insertOrder(clientId, itemQuantities);
+            System.out.printf("  [SUCCESS] Order ID %d created with %d item(s).\n", orderID, itemQuantities.size());
+            return orderID;
+        } catch (RuntimeException e) {
+            System.err.println("[FAIL] Order could not be created: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderResult> createOrders(List<OrderRequest> requests) {
+        List<OrderResult> results = new ArrayList<>(requests.size());
+        for (OrderRequest request : requests) {
+            try {
+                long orderID = insertOrder(request.clientId(), request.itemQuantities());
+                results.add(new OrderResult(request, orderID, null));
+            } catch (DataIntegrityViolationException e) {
+                results.add(new OrderResult(request, -1, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public boolean deleteOrder(long orderId) {
+        if (orderId <= 0) {
+            throw new IllegalArgumentException("Order ID must be positive.");
+        }
+        StoredOrder order = store.orders.remove(orderId);
+        if (order == null) {
+            return false;
+        }
+        Set<Long> clientOrders = store.ordersByClient.get(order.clientId());
+        if (clientOrders != null) {
+            clientOrders.remove(orderId);
+        }
+        for (OrderItem item : order.items()) {
+            store.orderLinesByMedicine.merge(item.medicineId(), -1, (lines, change) -> lines + change == 0 ? null : lines + change);
+        }
+        return true;
+    }
+
+    @Override
+    public List<OrderItem> getOrderItemsByOrderId(long orderId) {
+        StoredOrder order = store.orders.get(orderId);
+        if (order == null || order.items().isEmpty()) {
+            throw new DataNotFoundException("Order items associated with ID " + orderId + " were not found.");
+        }
+        return new ArrayList<>(order.items());
+    }
+
+    @Override
+    public List<Order> getAllOrders() {
+        List<Order> allOrders = new ArrayList<>();
+        for (StoredOrder order : newestFirst(store.orders.values())) {
+            allOrders.add(order.toOrder());
+        }
+        return allOrders;
+    }
+
+    @Override
+    public List<OrderSummary> getAllDetailedOrders() {
+        List<OrderSummary> summaries = new ArrayList<>();
+        forEachDetailedOrder(summaries::add);
+        return summaries;
+    }
+
+    @Override
+    public void forEachDetailedOrder(Consumer<OrderSummary> consumer) {
+        for (StoredOrder order : newestFirst(store.orders.values())) {
+            OrderSummary summary = summarize(order);
+            if (summary != null) {
+                consumer.accept(summary);
+            }
+        }
+    }
+
+    @Override
+    public List<OrderSummary> getClientOrderSummaries(long clientId) {
+        if (clientId <= 0) {
+            throw new IllegalArgumentException("Client ID must be positive.");
+        }
+
+        List<OrderSummary> summaries = new ArrayList<>();
+        for (StoredOrder order : ordersOf(clientId)) {
+            OrderSummary summary = summarize(order);
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        if (summaries.isEmpty()) {
+            throw new DataNotFoundException("Client with ID " + clientId + " has no orders or does not exist.");
+        }
+        return summaries;
+    }
+
+    /**
+     * Reserves stock for every line and stores the order, or changes nothing.
+     *
+     * @throws DataIntegrityViolationException If the client or a medicine does not exist, a quantity
+     *         is not positive or a medicine has insufficient stock.
+     */
+    private long insertOrder(long clientId, Map<Long, Integer> itemQuantities) {
+        SortedMap<Long, Integer> lines = new TreeMap<>(itemQuantities);
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            if (line.getValue() <= 0) {
+                throw new DataIntegrityViolationException(
+                        String.format("Quantity for Medicine ID %d must be positive.", line.getKey()));
+            }
+        }
+
+        Lock lock = store.references.readLock();
+        lock.lock();
+        try {
+            if (!store.clients.containsKey(clientId)) {
+                throw new DataIntegrityViolationException(String.format("Client with ID %d does not exist.", clientId));
+            }
+
+            List<Medicine> reserved = new ArrayList<>(lines.size());
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                Medicine medicine = reserve(line.getKey(), line.getValue());
+                if (medicine == null) {
+                    for (Medicine taken : reserved) {
+                        release(taken.id(), lines.get(taken.id()));
+                    }
+                    throw new DataIntegrityViolationException(
+                            String.format("Stock check failed for Medicine ID %d (not found or insufficient stock).", line.getKey()));
+                }
+                reserved.add(medicine);
+            }
+
+            long orderID = store.orderIds.incrementAndGet();
+            List<OrderItem> items = new ArrayList<>(reserved.size());
+            BigDecimal total = BigDecimal.ZERO;
+            for (Medicine medicine : reserved) {
+                int quantity = lines.get(medicine.id());
+                items.add(new OrderItem(orderID, medicine.id(), quantity, medicine.unitPrice()));
+                total = total.add(BigDecimal.valueOf(medicine.unitPrice()).multiply(BigDecimal.valueOf(quantity)));
+                store.orderLinesByMedicine.merge(medicine.id(), 1, Integer::sum);
+            }
+            store.ordersByClient.computeIfAbsent(clientId, id -> new ConcurrentSkipListSet<>()).add(orderID);
+            store.orders.put(orderID, new StoredOrder(orderID, clientId, LocalDate.now(), List.copyOf(items), total.doubleValue()));
+            return orderID;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes {@code quantity} units of a medicine's stock.
+     *
+     * @return The medicine as it was before the reservation, or null if it does not exist or has too little stock.
+     */
+    private Medicine reserve(long medicineId, int quantity) {
+        while (true) {
+            Medicine current = store.medicines.get(medicineId);
+            if (current == null || current.stock() < quantity) {
+                return null;
+            }
+            Medicine updated = new Medicine(medicineId, current.name(), current.unitPrice(), current.stock() - quantity);
+            if (store.medicines.replace(medicineId, current, updated)) {
+                return current;
+            }
+        }
+    }
+
+    private void release(long medicineId, int quantity) {
+        store.medicines.computeIfPresent(medicineId,
+                (id, medicine) -> new Medicine(id, medicine.name(), medicine.unitPrice(), medicine.stock() + quantity));
+    }
+
+    private List<StoredOrder> ordersOf(long clientId) {
+        Set<Long> orderIds = store.ordersByClient.get(clientId);
+        if (orderIds == null) {
+            return List.of();
+        }
+        List<StoredOrder> orders = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            StoredOrder order = store.orders.get(orderId);
+            if (order != null) {
+                orders.add(order);
+            }
+        }
+        orders.sort(NEWEST_FIRST);
+        return orders;
+    }
+
+    private static List<StoredOrder> newestFirst(Iterable<StoredOrder> orders) {
+        List<StoredOrder> sorted = new ArrayList<>();
+        orders.forEach(sorted::add);
+        sorted.sort(NEWEST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * The {@code detailed_order_summary} row of an order, or null if the view would not list it
+     * (an order without items).
+     */
+    private OrderSummary summarize(StoredOrder order) {
+        Client client = store.clients.get(order.clientId());
+        if (order.items().isEmpty() || client == null) {
+            return null;
+        }
+        return new OrderSummary(order.orderId(), java.sql.Date.valueOf(order.orderDate()),
+                client.firstname(), client.lastname(), order.totalPrice(), order.totalQuantity());
+    }
+}
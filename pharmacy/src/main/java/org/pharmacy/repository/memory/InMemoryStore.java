@@ -0,0 +1,84 @@
+package org.pharmacy.repository.memory;
+
+import org.pharmacy.model.Client;
+import org.pharmacy.model.Medicine;
+import org.pharmacy.model.Supplier;
+import org.pharmacy.repository.ClientRepository;
+import org.pharmacy.repository.MedicineRepository;
+import org.pharmacy.repository.OrderRepository;
+import org.pharmacy.repository.SupplierRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory storage engine: the pharmacy tables as concurrent maps, shared by the in-memory
+ * repositories it hands out.
+ * <p>
+ * The repositories enforce what the PostgreSQL schema and triggers enforce: non-negative stock,
+ * all-or-nothing stock reservation per order, item prices copied from the medicine, order totals,
+ * unique supplier names and {@code RESTRICT}/{@code NO ACTION} foreign keys on delete. Rows are
+ * immutable records replaced atomically, so reads never block. Statements that add a reference to
+ * a parent row (orders, supplier links) hold {@link #references} shared; deletes of parent rows
+ * hold it exclusively, so a parent can never disappear under a child that is being inserted.
+ * </p>
+ * Safe for use by any number of threads. Nothing is persisted.
+ */
+public class InMemoryStore {
+
+    final ConcurrentSkipListMap<Long, Client> clients = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Long, Medicine> medicines = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Long, Supplier> suppliers = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Long, StoredOrder> orders = new ConcurrentSkipListMap<>();
+
+    /** Client ID to the IDs of its orders (the {@code idx_order_client_id} equivalent). */
+    final ConcurrentHashMap<Long, Set<Long>> ordersByClient = new ConcurrentHashMap<>();
+    /** Medicine ID to the number of order lines referencing it. */
+    final ConcurrentHashMap<Long, Integer> orderLinesByMedicine = new ConcurrentHashMap<>();
+    /** Supplier ID to (medicine ID to supply price): the {@code suppliermedicine} table. */
+    final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Double>> supplyPrices = new ConcurrentHashMap<>();
+    /** Medicine ID to the suppliers linked to it, for the foreign key check on medicine deletion. */
+    final ConcurrentHashMap<Long, Set<Long>> suppliersByMedicine = new ConcurrentHashMap<>();
+    /** The {@code uix_supplier_name} unique index. */
+    final Set<String> supplierNames = ConcurrentHashMap.newKeySet();
+
+    final AtomicLong clientIds = new AtomicLong();
+    final AtomicLong medicineIds = new AtomicLong();
+    final AtomicLong supplierIds = new AtomicLong();
+    final AtomicLong orderIds = new AtomicLong();
+
+    final ReentrantReadWriteLock references = new ReentrantReadWriteLock();
+
+    private final ClientRepository clientRepository = new InMemoryClientRepository(this);
+    private final MedicineRepository medicineRepository = new InMemoryMedicineRepository(this);
+    private final OrderRepository orderRepository = new InMemoryOrderRepository(this);
+    private final SupplierRepository supplierRepository = new InMemorySupplierRepository(this);
+
+    public ClientRepository clients() {
+        return clientRepository;
+    }
+
+    public MedicineRepository medicines() {
+        return medicineRepository;
+    }
+
+    public OrderRepository orders() {
+        return orderRepository;
+    }
+
+    public SupplierRepository suppliers() {
+        return supplierRepository;
+    }
+
+    /**
+     * Rounds a price the way a {@code DECIMAL(10, 2)} column stores it.
+     */
+    static double money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,140 @@
+package org.pharmacy.repository.memory;
+
+import org.pharmacy.exceptions.DataIntegrityViolationException;
+import org.pharmacy.exceptions.DataNotFoundException;
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+import org.pharmacy.repository.SupplierRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * {@link SupplierRepository} backed by an {@link InMemoryStore}.
+ */
+public class InMemorySupplierRepository implements SupplierRepository {
+
+    private static final Comparator<Supplier> BY_NAME = Comparator.comparing(Supplier::name).thenComparingLong(Supplier::id);
+
+    private final InMemoryStore store;
+
+    public InMemorySupplierRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<Supplier> getAllSuppliers() {
+        List<Supplier> suppliers = new ArrayList<>(store.suppliers.values());
+        suppliers.sort(BY_NAME);
+        return suppliers;
+    }
+
+    @Override
+    public void forEachSupplier(Consumer<Supplier> consumer) {
+        getAllSuppliers().forEach(consumer);
+    }
+
+    @Override
+    public void addSupplier(Supplier supplier) {
+        if (!store.supplierNames.add(supplier.name())) {
+            throw new DataIntegrityViolationException(
+                    String.format("Supplier '%s' cannot be added because a supplier with that name already exists.", supplier.name()));
+        }
+        long id = store.supplierIds.incrementAndGet();
+        store.suppliers.put(id, new Supplier(id, supplier.name(), supplier.address()));
+        System.out.printf("Supplier '%s' successfully added. Rows changed: %d\n", supplier.name(), 1);
+    }
+
+    @Override
+    public void deleteSupplier(long supplierId) {
+        if (supplierId <= 0) {
+            throw new IllegalArgumentException("Supplier ID must be positive for deletion.");
+        }
+
+        Lock lock = store.references.writeLock();
+        lock.lock();
+        try {
+            Supplier supplier = store.suppliers.get(supplierId);
+            if (supplier == null) {
+                throw new DataNotFoundException("Supplier with ID " + supplierId + " was not found.");
+            }
+            Map<Long, Double> links = store.supplyPrices.get(supplierId);
+            if (links != null && !links.isEmpty()) {
+                throw new DataIntegrityViolationException(
+                        String.format("Supplier ID %d cannot be deleted because it supplies existing medicines (suppliermedicine entry exists).", supplierId));
+            }
+            store.suppliers.remove(supplierId);
+            store.supplyPrices.remove(supplierId);
+            store.supplierNames.remove(supplier.name());
+        } finally {
+            lock.unlock();
+        }
+        System.out.printf("Supplier with ID %d successfully deleted.\n", supplierId);
+    }
+
+    @Override
+    public List<SupplierMedicine> getMedicineBySupplierId(long supplierId) {
+        List<SupplierMedicine> supplierMedicines = new ArrayList<>();
+        Map<Long, Double> links = supplierId <= 0 ? null : store.supplyPrices.get(supplierId);
+        if (links != null) {
+            links.forEach((medicineId, price) -> supplierMedicines.add(new SupplierMedicine(supplierId, medicineId, price)));
+            supplierMedicines.sort(Comparator.comparingLong(SupplierMedicine::medicineId));
+        }
+        return supplierMedicines;
+    }
+
+    @Override
+    public void addMedicineToSupplier(SupplierMedicine supplierMedicine) {
+        Lock lock = store.references.readLock();
+        lock.lock();
+        try {
+            if (!store.suppliers.containsKey(supplierMedicine.supplierId()) || !store.medicines.containsKey(supplierMedicine.medicineId())) {
+                throw new DataIntegrityViolationException(
+                        "Cannot link medicine to supplier: Either Supplier ID or Medicine ID does not exist in the database.");
+            }
+            link(supplierMedicine);
+        } finally {
+            lock.unlock();
+        }
+        System.out.printf("Link established/updated: Supplier ID %d supplies Medicine ID %d at price %.2f. Rows affected: %d\n",
+                supplierMedicine.supplierId(), supplierMedicine.medicineId(), supplierMedicine.supplyPrice(), 1);
+    }
+
+    /**
+     * Links all pairs or none: every supplier and medicine is checked before anything is stored.
+     */
+    @Override
+    public int addMedicinesToSupplier(List<SupplierMedicine> supplierMedicines) {
+        Lock lock = store.references.readLock();
+        lock.lock();
+        try {
+            for (SupplierMedicine link : supplierMedicines) {
+                if (!store.suppliers.containsKey(link.supplierId()) || !store.medicines.containsKey(link.medicineId())) {
+                    throw new DataIntegrityViolationException(
+                            "Cannot link medicines to supplier: a Supplier ID or Medicine ID does not exist in the database.");
+                }
+            }
+            for (SupplierMedicine link : supplierMedicines) {
+                link(link);
+            }
+            return supplierMedicines.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts or re-prices one link; the caller holds the shared reference lock.
+     */
+    private void link(SupplierMedicine supplierMedicine) {
+        store.supplyPrices.computeIfAbsent(supplierMedicine.supplierId(), id -> new ConcurrentHashMap<>())
+                .put(supplierMedicine.medicineId(), InMemoryStore.money(supplierMedicine.supplyPrice()));
+        store.suppliersByMedicine.computeIfAbsent(supplierMedicine.medicineId(), id -> ConcurrentHashMap.newKeySet())
+                .add(supplierMedicine.supplierId());
+    }
+}
@@ -0,0 +1,27 @@
+package org.pharmacy.repository.memory;
+
+import org.pharmacy.model.Order;
+import org.pharmacy.model.OrderItem;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * An order row together with its items, which are always created and deleted with it.
+ *
+ * @param totalPrice The sum of quantity times unit price over the items.
+ */
+record StoredOrder(long orderId, long clientId, LocalDate orderDate, List<OrderItem> items, double totalPrice) {
+
+    Order toOrder() {
+        return new Order(orderId, clientId, java.sql.Date.valueOf(orderDate), totalPrice);
+    }
+
+    long totalQuantity() {
+        long total = 0;
+        for (OrderItem item : items) {
+            total += item.quantity();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,140 @@
+package org.pharmacy.repository.sharding;
+
+import org.pharmacy.catalog.Catalog;
+import org.pharmacy.catalog.CatalogLoader;
+import org.pharmacy.catalog.CatalogMedicine;
+import org.pharmacy.model.Supplier;
+import org.pharmacy.model.SupplierMedicine;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies the catalog (medicines, suppliers, supplier links) from shard 0 to every other shard.
+ * <p>
+ * Catalog changes are made on shard 0 with the ordinary repositories; {@link #replicate()} then
+ * brings the other shards to the same catalog in one transaction per shard: rows are upserted by ID
+ * (unchanged rows are not rewritten) and rows no longer on shard 0 are deleted. Stock is not part of
+ * the catalog: a medicine new to a shard starts there with no stock, and existing stock is kept.
+ * Deleting a medicine that a shard's orders still reference fails that shard's transaction.
+ * </p>
+ */
+public final class CatalogReplicator {
+
+    private final ShardMap shards;
+
+    public CatalogReplicator(ShardMap shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Replicates the current catalog of shard 0 to all other shards, in parallel.
+     *
+     * @return The catalog that was replicated.
+     * @throws SQLException If shard 0 cannot be read or a shard cannot be updated; the other shards
+     * are still updated.
+     */
+    public Catalog replicate() throws SQLException {
+        Catalog catalog = shards.onShard(0, CatalogLoader::readFull);
+        List<Integer> replicas = new ArrayList<>();
+        for (int shard = 1; shard < shards.size(); shard++) {
+            replicas.add(shard);
+        }
+        if (!replicas.isEmpty()) {
+            shards.onShards(replicas, shard -> shards.onShard(shard, conn -> {
+                apply(conn, catalog);
+                return null;
+            }));
+            System.out.printf("Catalog (change %d) replicated to %d shard(s).\n", catalog.maxChangeId(), replicas.size());
+        }
+        return catalog;
+    }
+
+    private static void apply(Connection conn, Catalog catalog) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            List<Long> medicineIds = new ArrayList<>();
+            final String medicineSQL = "INSERT INTO medicine(medicine_id, name, unit_price, stock) VALUES (?, ?, ?, 0) " +
+                    "ON CONFLICT (medicine_id) DO UPDATE SET name = EXCLUDED.name, unit_price = EXCLUDED.unit_price " +
+                    "WHERE (medicine.name, medicine.unit_price) IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.unit_price)";
+            try (PreparedStatement pstmt = conn.prepareStatement(medicineSQL)) {
+                for (CatalogMedicine medicine : catalog.medicines()) {
+                    pstmt.setLong(1, medicine.id());
+                    pstmt.setString(2, medicine.name());
+                    pstmt.setDouble(3, medicine.unitPrice());
+                    pstmt.addBatch();
+                    medicineIds.add(medicine.id());
+                }
+                pstmt.executeBatch();
+            }
+
+            List<Long> supplierIds = new ArrayList<>();
+            final String supplierSQL = "INSERT INTO supplier(supplier_id, name, country, city, street, postal_code) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (supplier_id) DO UPDATE SET name = EXCLUDED.name, country = EXCLUDED.country, " +
+                    "city = EXCLUDED.city, street = EXCLUDED.street, postal_code = EXCLUDED.postal_code " +
+                    "WHERE (supplier.name, supplier.country, supplier.city, supplier.street, supplier.postal_code) " +
+                    "IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.country, EXCLUDED.city, EXCLUDED.street, EXCLUDED.postal_code)";
+            try (PreparedStatement pstmt = conn.prepareStatement(supplierSQL)) {
+                for (Supplier supplier : catalog.suppliers()) {
+                    pstmt.setLong(1, supplier.id());
+                    pstmt.setString(2, supplier.name());
+                    pstmt.setString(3, supplier.address().country());
+                    pstmt.setString(4, supplier.address().city());
+                    pstmt.setString(5, supplier.address().street());
+                    pstmt.setString(6, supplier.address().postalCode());
+                    pstmt.addBatch();
+                    supplierIds.add(supplier.id());
+                }
+                pstmt.executeBatch();
+            }
+
+            List<Long> linkSupplierIds = new ArrayList<>();
+            List<Long> linkMedicineIds = new ArrayList<>();
+            final String linkSQL = "INSERT INTO suppliermedicine(supplier_id, medicine_id, supply_price) VALUES (?, ?, ?) " +
+                    "ON CONFLICT (supplier_id, medicine_id) DO UPDATE SET supply_price = EXCLUDED.supply_price " +
+                    "WHERE suppliermedicine.supply_price IS DISTINCT FROM EXCLUDED.supply_price";
+            try (PreparedStatement pstmt = conn.prepareStatement(linkSQL)) {
+                for (CatalogMedicine medicine : catalog.medicines()) {
+                    for (SupplierMedicine link : catalog.offers(medicine.id())) {
+                        pstmt.setLong(1, link.supplierId());
+                        pstmt.setLong(2, link.medicineId());
+                        pstmt.setDouble(3, link.supplyPrice());
+                        pstmt.addBatch();
+                        linkSupplierIds.add(link.supplierId());
+                        linkMedicineIds.add(link.medicineId());
+                    }
+                }
+                pstmt.executeBatch();
+            }
+
+            final String deleteLinksSQL = "DELETE FROM suppliermedicine sm WHERE NOT EXISTS (" +
+                    "SELECT 1 FROM unnest(?::BIGINT[], ?::BIGINT[]) AS kept(supplier_id, medicine_id) " +
+                    "WHERE kept.supplier_id = sm.supplier_id AND kept.medicine_id = sm.medicine_id)";
+            try (PreparedStatement pstmt = conn.prepareStatement(deleteLinksSQL)) {
+                pstmt.setArray(1, conn.createArrayOf("bigint", linkSupplierIds.toArray()));
+                pstmt.setArray(2, conn.createArrayOf("bigint", linkMedicineIds.toArray()));
+                pstmt.executeUpdate();
+            }
+            final String deleteSuppliersSQL = "DELETE FROM supplier WHERE supplier_id <> ALL(?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(deleteSuppliersSQL)) {
+                pstmt.setArray(1, conn.createArrayOf("bigint", supplierIds.toArray()));
+                pstmt.executeUpdate();
+            }
+            final String deleteMedicinesSQL = "DELETE FROM medicine WHERE medicine_id <> ALL(?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(deleteMedicinesSQL)) {
+                pstmt.setArray(1, conn.createArrayOf("bigint", medicineIds.toArray()));
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
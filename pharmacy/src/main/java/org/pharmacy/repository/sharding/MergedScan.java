@@ -0,0 +1,155 @@
+package org.pharmacy.repository.sharding;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Scatter-gather of an ordered scan: runs the scan on every shard at once and merges the rows into
+ * one stream in the same order.
+ * <p>
+ * Each shard's scan runs on its own virtual thread and hands rows over through a small bounded
+ * queue, so memory use does not grow with the result size; the caller's thread performs a k-way
+ * merge of the queue heads. The per-shard scans must already be sorted by the merge comparator.
+ * </p>
+ */
+final class MergedScan {
+
+    /** Rows buffered per shard before its scan waits for the merge. */
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final Object END = new Object();
+
+    /**
+     * A scan of one shard that passes its rows, in order, to a consumer.
+     */
+    @FunctionalInterface
+    interface ShardScan<T> {
+        void scan(Connection conn, Consumer<T> consumer) throws SQLException;
+    }
+
+    private record Failure(Exception exception) {}
+
+    private record Head<T>(T row, int shard) {}
+
+    private MergedScan() {
+    }
+
+    /**
+     * Runs the scan on every shard and passes all rows to the consumer in merged order. If the
+     * consumer throws, the shard scans are cancelled and the exception is rethrown.
+     *
+     * @throws SQLException The first failure of a shard scan.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void forEach(ShardMap shards, ShardScan<T> scan, Comparator<? super T> order,
+                            Consumer<? super T> consumer) throws SQLException {
+        int count = shards.size();
+        if (count == 1) {
+            shards.onShard(0, conn -> {
+                scan.scan(conn, consumer::accept);
+                return null;
+            });
+            return;
+        }
+
+        List<BlockingQueue<Object>> queues = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            queues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+        }
+        Cancellation cancellation = new Cancellation();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                int shard = i;
+                BlockingQueue<Object> queue = queues.get(shard);
+                executor.execute(() -> {
+                    Object last = END;
+                    try {
+                        shards.onShard(shard, conn -> {
+                            scan.scan(conn, row -> cancellation.put(queue, row));
+                            return null;
+                        });
+                    } catch (CancellationException e) {
+                        return;
+                    } catch (SQLException | RuntimeException e) {
+                        last = new Failure(e);
+                    }
+                    cancellation.put(queue, last);
+                });
+            }
+
+            try {
+                PriorityQueue<Head<T>> heads = new PriorityQueue<>(count, (a, b) -> order.compare(a.row(), b.row()));
+                for (int shard = 0; shard < count; shard++) {
+                    Object next = take(queues.get(shard));
+                    if (next != END) {
+                        heads.add(new Head<>((T) next, shard));
+                    }
+                }
+                while (!heads.isEmpty()) {
+                    Head<T> head = heads.poll();
+                    consumer.accept(head.row());
+                    Object next = take(queues.get(head.shard()));
+                    if (next != END) {
+                        heads.add(new Head<>((T) next, head.shard()));
+                    }
+                }
+            } finally {
+                // Releases scans still waiting to hand over rows after a failure or an early exit
+                cancellation.cancel();
+            }
+        }
+    }
+
+    private static Object take(BlockingQueue<Object> queue) throws SQLException {
+        Object next;
+        try {
+            next = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while merging shard scans.", e);
+        }
+        if (next instanceof Failure failure) {
+            if (failure.exception() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw (RuntimeException) failure.exception();
+        }
+        return next;
+    }
+
+    private static final class Cancellation {
+        private volatile boolean cancelled;
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Hands a row to the merge, aborting the scan with a {@link CancellationException} once the
+         * merge has stopped.
+         */
+        void put(BlockingQueue<Object> queue, Object row) {
+            try {
+                while (!queue.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.pharmacy.repository.sharding;
+
+import org.pharmacy.db.ConnectionPool;
+import org.pharmacy.db.DBConnector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The databases ("shards") that together hold the pharmacy's clients and orders, and the rules for
+ * which shard holds what.
+ * <ul>
+ *     <li>A client and all its orders live on shard {@link #shardOfClient(long)}, a stable hash of
+ *     the client ID. Client IDs are drawn from the client sequence of shard 0, so they are unique
+ *     across shards.</li>
+ *     <li>Order IDs are generated by each shard with a stride: shard {@code k} of {@code n} issues
+ *     {@code k+1, k+1+n, k+1+2n, ...} (set up by {@link #prepare()}), so {@link #shardOfOrder(long)}
+ *     finds an order without asking any database.</li>
+ *     <li>The catalog (medicines, suppliers, supplier links) is maintained on shard 0 and copied to
+ *     the others by {@link CatalogReplicator}. Stock is not copied: every shard keeps the stock of
+ *     its own branches.</li>
+ * </ul>
+ * Each shard is accessed through its own {@link ConnectionPool}.
+ */
+public final class ShardMap implements AutoCloseable {
+
+    private final List<ConnectionPool> shards;
+
+    /**
+     * @param shards One connection pool per shard, in shard order. The order must never change
+     *               for existing data.
+     * @throws IllegalArgumentException If the list is empty.
+     */
+    public ShardMap(List<ConnectionPool> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required.");
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    /**
+     * Creates the shards listed in the {@code pharmacy.db.shards} system property (comma-separated
+     * JDBC URLs), each with a pool of {@code pharmacy.db.poolSize} connections (default 8).
+     *
+     * @return The shard map.
+     * @throws IllegalStateException If the property is not set.
+     */
+    public static ShardMap configured() {
+        String urls = System.getProperty("pharmacy.db.shards");
+        if (urls == null || urls.isBlank()) {
+            throw new IllegalStateException("pharmacy.db.shards is not set.");
+        }
+        return fromUrls(Arrays.stream(urls.split(",")).map(String::trim).toList(),
+                Integer.getInteger("pharmacy.db.poolSize", 8), 5_000);
+    }
+
+    /**
+     * @param urls The JDBC URLs of the shards, in shard order.
+     * @param poolSize The maximum number of connections per shard.
+     * @param borrowTimeoutMillis How long a call waits for a free connection of a shard.
+     * @return The shard map.
+     */
+    public static ShardMap fromUrls(List<String> urls, int poolSize, long borrowTimeoutMillis) {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String url : urls) {
+            pools.add(new ConnectionPool(() -> DBConnector.getConnection(url), poolSize, borrowTimeoutMillis));
+        }
+        return new ShardMap(pools);
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * @param index The shard index.
+     * @return The connection pool of the shard.
+     */
+    public ConnectionPool shard(int index) {
+        return shards.get(index);
+    }
+
+    /**
+     * The shard holding a client and its orders: a 64-bit mix (MurmurHash3's finalizer) of the ID,
+     * modulo the shard count. Changing this function strands existing data.
+     *
+     * @param clientId The client ID.
+     * @return The shard index.
+     */
+    public int shardOfClient(long clientId) {
+        long h = clientId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) shards.size());
+    }
+
+    /**
+     * @param orderId The order ID.
+     * @return The shard that generated (and holds) the order.
+     */
+    public int shardOfOrder(long orderId) {
+        return (int) Math.floorMod(orderId - 1, (long) shards.size());
+    }
+
+    /**
+     * Work done with a connection of one shard.
+     */
+    @FunctionalInterface
+    public interface ShardCall<R> {
+        R call(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs a call with a pooled connection of one shard.
+     */
+    public <R> R onShard(int index, ShardCall<R> call) throws SQLException {
+        try (Connection conn = shards.get(index).getConnection()) {
+            return call.call(conn);
+        }
+    }
+
+    /**
+     * Runs a call on every shard in parallel (one virtual thread per shard).
+     *
+     * @return The results, in shard order.
+     * @throws SQLException The first failure; failures of other shards are attached as suppressed.
+     */
+    public <R> List<R> onAllShards(ShardCall<R> call) throws SQLException {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            indexes.add(i);
+        }
+        return onShards(indexes, index -> onShard(index, call));
+    }
+
+    /**
+     * Work done for one shard index.
+     */
+    @FunctionalInterface
+    interface IndexedCall<R> {
+        R call(int index) throws SQLException;
+    }
+
+    /**
+     * Runs a call for each of the given shard indexes in parallel.
+     */
+    <R> List<R> onShards(List<Integer> indexes, IndexedCall<R> call) throws SQLException {
+        if (indexes.size() == 1) {
+            return List.of(call.call(indexes.get(0)));
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<R>> futures = new ArrayList<>();
+            for (int index : indexes) {
+                futures.add(executor.submit(() -> call.call(index)));
+            }
+            List<R> results = new ArrayList<>();
+            Exception failure = null;
+            for (Future<R> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ex ? ex : new RuntimeException(e.getCause());
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for the shards.", e);
+                }
+            }
+            if (failure instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (failure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Records the shard layout in every shard's {@code shard_info} and sets up the order ID stride.
+     * Safe to call on every start: shards already set up are only checked.
+     *
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalStateException If a database is registered as a different shard, or holds
+     * orders that belong to another shard.
+     */
+    public void prepare() throws SQLException {
+        int count = shards.size();
+        for (int index = 0; index < count; index++) {
+            final int shardIndex = index;
+            onShard(index, conn -> {
+                prepareShard(conn, shardIndex, count);
+                return null;
+            });
+        }
+    }
+
+    private static void prepareShard(Connection conn, int index, int count) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            final String SQLQuery = "SELECT shard_index, shard_count FROM shard_info FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    if (rs.getInt("shard_index") != index || rs.getInt("shard_count") != count) {
+                        throw new IllegalStateException(String.format("Database configured as shard %d is registered as shard %d of %d.",
+                                index, rs.getInt("shard_index"), rs.getInt("shard_count")));
+                    }
+                    conn.commit();
+                    return;
+                }
+            }
+
+            final String misplacedSQL = "SELECT COUNT(*), COALESCE(MAX(order_id), 0) FROM \"order\"";
+            long next = index + 1;
+            try (PreparedStatement pstmt = conn.prepareStatement(misplacedSQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                if (rs.getLong(1) > 0 && count > 1) {
+                    throw new IllegalStateException("Shard " + index + " already holds orders; shards must start without orders.");
+                }
+                long max = rs.getLong(2);
+                while (next <= max) {
+                    next += count;
+                }
+            }
+            try (Statement stmt = conn.createStatement()) {
+                // DDL takes no bind parameters; both values are integers computed here
+                stmt.execute("ALTER TABLE \"order\" ALTER COLUMN order_id SET INCREMENT BY " + count + " RESTART WITH " + next);
+            }
+            final String registerSQL = "INSERT INTO shard_info(shard_index, shard_count) VALUES (?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(registerSQL)) {
+                pstmt.setInt(1, index);
+                pstmt.setInt(2, count);
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+            System.out.printf("Shard %d of %d prepared (order IDs from %d, step %d).\n", index, count, next, count);
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Closes the connection pools of all shards.
+     */
+    @Override
+    public void close() {
+        for (ConnectionPool pool : shards) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.pharmacy.repository.sharding;
+
+import org.pharmacy.model.Address;
+import org.pharmacy.model.Client;
+import org.pharmacy.repository.ClientRepository;
+import org.pharmacy.repository.JdbcClientRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * {@link ClientRepository} over a {@link ShardMap}. New clients get their ID from shard 0's client
+ * sequence and are stored on the shard that ID hashes to; every other call for one client runs on
+ * its shard through {@link JdbcClientRepository}, and scans over all clients merge the shards.
+ */
+public class ShardedClientRepository implements ClientRepository {
+
+    /** Rows per batch when importing. */
+    private static final int IMPORT_BATCH_SIZE = 5_000;
+
+    /**
+     * Order of {@link #scanClientsByPostalCode}: scan key of the postal code, then of the last name.
+     * Each shard sorts the keys in the C collation, which orders them like {@link String#compareTo}.
+     */
+    private static final Comparator<Client> BY_POSTAL_CODE = Comparator
+            .comparing((Client client) -> ClientRepository.scanKey(client.address().postalCode()))
+            .thenComparing(client -> ClientRepository.scanKey(client.lastname()));
+
+    private final ShardMap shards;
+
+    public ShardedClientRepository(ShardMap shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public long addClient(Client client) throws SQLException {
+        if (client == null) {
+            throw new IllegalArgumentException("Client object cannot be null.");
+        }
+        Map.Entry<Integer, List<Client>> placed = shards.onShard(0, conn -> assignIds(conn, List.of(client)))
+                .entrySet().iterator().next();
+        shards.onShard(placed.getKey(), conn -> insertClients(conn, placed.getValue()));
+        long clientId = placed.getValue().get(0).id();
+        System.out.println("Client " + client.firstname() + " " + client.lastname() + " successfully added with ID " + clientId + ".");
+        return clientId;
+    }
+
+    /**
+     * Adds the clients with one batch per shard, all shards in parallel. Each shard commits on its own.
+     */
+    @Override
+    public int addClients(List<Client> clients) throws SQLException {
+        if (clients == null || clients.contains(null)) {
+            throw new IllegalArgumentException("Client list cannot be null or contain null clients.");
+        }
+        if (clients.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, List<Client>> byShard = shards.onShard(0, conn -> assignIds(conn, clients));
+        int added = 0;
+        for (int rows : shards.onShards(new ArrayList<>(byShard.keySet()),
+                shard -> shards.onShard(shard, conn -> insertClients(conn, byShard.get(shard))))) {
+            added += rows;
+        }
+        return added;
+    }
+
+    @Override
+    public void deleteClient(long clientId) throws SQLException {
+        shards.onShard(shards.shardOfClient(clientId), conn -> {
+            new JdbcClientRepository(conn).deleteClient(clientId);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateClientAddress(long clientId, Address address) throws SQLException {
+        shards.onShard(shards.shardOfClient(clientId), conn -> {
+            new JdbcClientRepository(conn).updateClientAddress(clientId, address);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Client> getAllCLients() throws SQLException {
+        List<Client> clients = new ArrayList<>();
+        for (List<Client> shardClients : shards.onAllShards(conn -> new JdbcClientRepository(conn).getAllCLients())) {
+            clients.addAll(shardClients);
+        }
+        return clients;
+    }
+
+    /**
+     * Imports the clients in batches, keeping one transaction open per shard and committing them
+     * only after every row is stored. A failure before that point leaves no client behind; a
+     * failure while committing can leave the shards committed so far.
+     */
+    @Override
+    public long importClients(Iterator<Client> clients) throws SQLException {
+        if (clients == null) {
+            throw new IllegalArgumentException("Client iterator cannot be null.");
+        }
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                Connection conn = shards.shard(shard).getConnection();
+                connections.add(conn);
+                conn.setAutoCommit(false);
+            }
+
+            long imported = 0;
+            List<Client> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+            while (clients.hasNext()) {
+                batch.add(clients.next());
+                if (batch.size() == IMPORT_BATCH_SIZE || !clients.hasNext()) {
+                    for (Map.Entry<Integer, List<Client>> shardBatch : assignIds(connections.get(0), batch).entrySet()) {
+                        imported += insertClients(connections.get(shardBatch.getKey()), shardBatch.getValue());
+                    }
+                    batch.clear();
+                }
+            }
+            for (Connection conn : connections) {
+                conn.commit();
+            }
+            return imported;
+        } catch (SQLException | RuntimeException e) {
+            for (Connection conn : connections) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+            }
+            throw e;
+        } finally {
+            for (Connection conn : connections) {
+                // Returning the connection to its pool restores auto-commit
+                conn.close();
+            }
+        }
+    }
+
+    @Override
+    public void forEachClient(Consumer<Client> consumer) throws SQLException {
+        MergedScan.forEach(shards, (conn, sink) -> new JdbcClientRepository(conn).forEachClient(sink),
+                Comparator.comparingLong(Client::id), consumer);
+    }
+
+    @Override
+    public void scanClientsByPostalCode(Consumer<Client> consumer) throws SQLException {
+        MergedScan.forEach(shards, (conn, sink) -> new JdbcClientRepository(conn).scanClientsByPostalCode(sink),
+                BY_POSTAL_CODE, consumer);
+    }
+
+    /**
+     * Draws new client IDs from shard 0 (sequence values are not transactional, so {@code shard0}
+     * may be inside a transaction) and groups the clients, with those IDs, by target shard.
+     */
+    private Map<Integer, List<Client>> assignIds(Connection shard0, List<Client> clients) throws SQLException {
+        final String SQLQuery = "SELECT nextval(pg_get_serial_sequence('client', 'client_id')) FROM generate_series(1, ?)";
+        List<Long> ids = new ArrayList<>(clients.size());
+        try (PreparedStatement pstmt = shard0.prepareStatement(SQLQuery)) {
+            pstmt.setInt(1, clients.size());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+
+        Map<Integer, List<Client>> byShard = new TreeMap<>();
+        for (int i = 0; i < clients.size(); i++) {
+            Client client = clients.get(i);
+            long id = ids.get(i);
+            byShard.computeIfAbsent(shards.shardOfClient(id), shard -> new ArrayList<>())
+                    .add(new Client(id, client.firstname(), client.lastname(), client.address()));
+        }
+        return byShard;
+    }
+
+    private static int insertClients(Connection conn, List<Client> clients) throws SQLException {
+        final String SQLQuery = "INSERT INTO client(client_id, first_name, last_name, country, city, street, postal_code) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery)) {
+            for (Client client : clients) {
+                pstmt.setLong(1, client.id());
+                pstmt.setString(2, client.firstname());
+                pstmt.setString(3, client.lastname());
+                pstmt.setString(4, client.address().country());
+                pstmt.setString(5, client.address().city());
+                pstmt.setString(6, client.address().street());
+                pstmt.setString(7, client.address().postalCode());
+                pstmt.addBatch();
+            }
+            int affectedRows = 0;
+            for (int rows : pstmt.executeBatch()) {
+                affectedRows += Math.max(rows, 0);
+            }
+            return affectedRows;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.pharmacy.repository.sharding;
+
+import org.pharmacy.model.Order;
+import org.pharmacy.model.OrderItem;
+import org.pharmacy.model.OrderRequest;
+import org.pharmacy.model.OrderResult;
+import org.pharmacy.model.OrderSummary;
+import org.pharmacy.repository.JdbcOrderRepository;
+import org.pharmacy.repository.OrderRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * {@link OrderRepository} over a {@link ShardMap}: every call for one client or one order runs on
+ * that client's or order's shard through {@link JdbcOrderRepository}; calls over all orders query
+ * every shard in parallel and merge the results in the documented order.
+ */
+public class ShardedOrderRepository implements OrderRepository {
+
+    /** Order of {@link #getAllOrders()}: same as {@code ORDER BY order_date DESC, order_id DESC}. */
+    private static final Comparator<Order> NEWEST_ORDER_FIRST = Comparator
+            .comparing(Order::orderDate).thenComparingLong(Order::orderId).reversed();
+
+    private static final Comparator<OrderSummary> NEWEST_SUMMARY_FIRST = Comparator
+            .comparing(OrderSummary::orderDate).reversed();
+
+    private final ShardMap shards;
+
+    public ShardedOrderRepository(ShardMap shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public Order getOrderById(long orderId) throws SQLException {
+        return shards.onShard(shards.shardOfOrder(orderId), conn -> new JdbcOrderRepository(conn).getOrderById(orderId));
+    }
+
+    @Override
+    public List<Order> getOrdersByClient(long clientId) throws SQLException {
+        return shards.onShard(shards.shardOfClient(clientId), conn -> new JdbcOrderRepository(conn).getOrdersByClient(clientId));
+    }
+
+    @Override
+    public long createOrder(long clientId, Map<Long, Integer> itemQuantities) throws SQLException {
+        return shards.onShard(shards.shardOfClient(clientId),
+                conn -> new JdbcOrderRepository(conn).createOrder(clientId, itemQuantities));
+    }
+
+    /**
+     * Splits the requests by shard and creates each shard's orders in one batch, all shards in
+     * parallel. Each shard commits on its own: if one shard fails, orders on the others may
+     * already be committed.
+     */
+    @Override
+    public List<OrderResult> createOrders(List<OrderRequest> requests) throws SQLException {
+        Map<Integer, List<Integer>> positionsByShard = new TreeMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            positionsByShard.computeIfAbsent(shards.shardOfClient(requests.get(i).clientId()), shard -> new ArrayList<>()).add(i);
+        }
+        if (positionsByShard.isEmpty()) {
+            return List.of();
+        }
+
+        List<Integer> shardIndexes = new ArrayList<>(positionsByShard.keySet());
+        List<List<OrderResult>> shardResults = shards.onShards(shardIndexes, shard -> {
+            List<OrderRequest> shardRequests = new ArrayList<>();
+            for (int position : positionsByShard.get(shard)) {
+                shardRequests.add(requests.get(position));
+            }
+            return shards.onShard(shard, conn -> new JdbcOrderRepository(conn).createOrders(shardRequests));
+        });
+
+        OrderResult[] results = new OrderResult[requests.size()];
+        for (int i = 0; i < shardIndexes.size(); i++) {
+            List<Integer> positions = positionsByShard.get(shardIndexes.get(i));
+            List<OrderResult> resultsOfShard = shardResults.get(i);
+            for (int j = 0; j < positions.size(); j++) {
+                results[positions.get(j)] = resultsOfShard.get(j);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public boolean deleteOrder(long orderId) throws SQLException {
+        return shards.onShard(shards.shardOfOrder(orderId), conn -> new JdbcOrderRepository(conn).deleteOrder(orderId));
+    }
+
+    @Override
+    public List<OrderItem> getOrderItemsByOrderId(long orderId) throws SQLException {
+        return shards.onShard(shards.shardOfOrder(orderId), conn -> new JdbcOrderRepository(conn).getOrderItemsByOrderId(orderId));
+    }
+
+    @Override
+    public List<Order> getAllOrders() throws SQLException {
+        List<Order> orders = new ArrayList<>();
+        for (List<Order> shardOrders : shards.onAllShards(conn -> new JdbcOrderRepository(conn).getAllOrders())) {
+            orders.addAll(shardOrders);
+        }
+        // The shard lists are already sorted, which the list sort merges in linear time
+        orders.sort(NEWEST_ORDER_FIRST);
+        return orders;
+    }
+
+    @Override
+    public List<OrderSummary> getAllDetailedOrders() throws SQLException {
+        List<OrderSummary> summaries = new ArrayList<>();
+        forEachDetailedOrder(summaries::add);
+        return summaries;
+    }
+
+    /**
+     * Streams the summaries of all shards merged newest first, holding only a small buffer per shard.
+     */
+    @Override
+    public void forEachDetailedOrder(Consumer<OrderSummary> consumer) throws SQLException {
+        MergedScan.forEach(shards, (conn, sink) -> new JdbcOrderRepository(conn).forEachDetailedOrder(sink),
+                NEWEST_SUMMARY_FIRST, consumer);
+    }
+
+    @Override
+    public List<OrderSummary> getClientOrderSummaries(long clientId) throws SQLException {
+        return shards.onShard(shards.shardOfClient(clientId),
+                conn -> new JdbcOrderRepository(conn).getClientOrderSummaries(clientId));
+    }
+}
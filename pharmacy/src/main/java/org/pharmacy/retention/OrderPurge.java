@@ -0,0 +1,250 @@
+package org.pharmacy.retention;
+
+import org.pharmacy.analytics.SalesAnalytics;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retention job that deletes old orders and their items in bounded batches, optionally copying them
+ * to {@code order_archive} and {@code orderitem_archive} first.
+ * <p>
+ * Each batch is its own short transaction: it locks up to {@code batchSize} orders (skipping any that
+ * another transaction holds), deletes their items and then the orders, and commits. Row locks are
+ * held only for one batch and dead rows become reclaimable by autovacuum as the job goes, instead of
+ * one long transaction pinning them all. Batches walk the orders by {@code (order_date, order_id)}
+ * from where the previous one stopped, so they never rescan the dead index entries left behind.
+ * The per-row {@code trg_update_order_total} trigger is bypassed inside the batches: it would only
+ * recompute totals of orders that are deleted in the same statement sequence.
+ * </p>
+ * <p>
+ * Purged days stay counted in {@code daily_sales_rollup}. The job first rolls up closed days and
+ * never purges past {@code sales_rollup_state.rolled_through}, so analytics over purged days keep
+ * answering from the rollup. After each batch it pauses, and with a lag limit set it also waits
+ * until every streaming replica has replayed to within that many bytes of the primary's WAL.
+ * </p>
+ * <p>
+ * The job works on one database; in a sharded deployment it is run once per shard.
+ * </p>
+ */
+public class OrderPurge {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Interval at which replication lag is polled while the job waits for replicas.
+     */
+    private static final long LAG_POLL_MILLIS = 100;
+
+    /**
+     * Outcome of a purge.
+     *
+     * @param orders The number of orders deleted.
+     * @param items The number of order items deleted.
+     * @param batches The number of batches committed.
+     * @param purgedBefore The effective cutoff: orders dated before it were purged.
+     * @param elapsedNanos The wall-clock duration of the purge.
+     */
+    public record Result(long orders, long items, int batches, LocalDate purgedBefore, long elapsedNanos) {}
+
+    private final Connection conn;
+    private final int batchSize;
+    private final boolean archive;
+    private final long pauseMillis;
+    private final long maxLagBytes;
+
+    /**
+     * @param conn The connection to the primary; it must be in auto-commit mode, since the job commits every batch.
+     * @param batchSize The maximum number of orders deleted per transaction.
+     * @param archive Whether orders and items are copied to the archive tables before they are deleted.
+     * @param pauseMillis How long to sleep after each batch (0 for no pause).
+     * @param maxLagBytes The replication lag, in bytes of WAL, the job waits out after each batch (0 to not wait).
+     * @throws IllegalArgumentException If the batch size is not positive or a limit is negative.
+     */
+    public OrderPurge(Connection conn, int batchSize, boolean archive, long pauseMillis, long maxLagBytes) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        if (pauseMillis < 0 || maxLagBytes < 0) {
+            throw new IllegalArgumentException("Pause and replication lag limit cannot be negative.");
+        }
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.archive = archive;
+        this.pauseMillis = pauseMillis;
+        this.maxLagBytes = maxLagBytes;
+    }
+
+    /**
+     * Creates the job with the settings from {@code pharmacy.purge.batchSize} (default
+     * {@value #DEFAULT_BATCH_SIZE}), {@code pharmacy.purge.pauseMillis} (default 0) and
+     * {@code pharmacy.purge.maxLagBytes} (default 0, no limit).
+     */
+    public static OrderPurge configured(Connection conn, boolean archive) {
+        return new OrderPurge(conn,
+                Integer.getInteger("pharmacy.purge.batchSize", DEFAULT_BATCH_SIZE),
+                archive,
+                Long.getLong("pharmacy.purge.pauseMillis", 0),
+                Long.getLong("pharmacy.purge.maxLagBytes", 0));
+    }
+
+    /**
+     * Deletes (and optionally archives) every order dated before the cutoff, batch by batch. Orders
+     * locked by other transactions are skipped and left for the next run. If the job fails, the
+     * batches committed so far stay purged and it can simply be run again.
+     *
+     * @param cutoff Orders dated before this day are purged. It is lowered to the day after
+     * {@code sales_rollup_state.rolled_through} if that is earlier.
+     * @return The counts of the purge.
+     * @throws SQLException If a database access error occurs.
+     * @throws IllegalStateException If the connection is not in auto-commit mode.
+     */
+    public Result purgeOrdersBefore(LocalDate cutoff) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            throw new IllegalStateException("The order purge commits per batch and cannot run inside a transaction.");
+        }
+        long started = System.nanoTime();
+
+        new SalesAnalytics(conn).rollUpClosedDays();
+        LocalDate effectiveCutoff = capToRollup(cutoff);
+
+        final String selectSQL = "SELECT order_id, order_date FROM \"order\" " +
+                "WHERE order_date < ? AND (order_date, order_id) > (?, ?) " +
+                "ORDER BY order_date, order_id LIMIT ? FOR UPDATE SKIP LOCKED";
+        final String bypassSQL = "SELECT set_config('pharmacy.bypass_total_recalc', 'on', true)";
+        final String itemsSQL = archive
+                ? "WITH gone AS (DELETE FROM orderitem WHERE order_id = ANY(?) " +
+                  "RETURNING orderitem_id, order_id, medicine_id, quantity, unit_price) " +
+                  "INSERT INTO orderitem_archive(orderitem_id, order_id, medicine_id, quantity, unit_price) " +
+                  "SELECT orderitem_id, order_id, medicine_id, quantity, unit_price FROM gone"
+                : "DELETE FROM orderitem WHERE order_id = ANY(?)";
+        final String ordersSQL = archive
+                ? "WITH gone AS (DELETE FROM \"order\" WHERE order_id = ANY(?) " +
+                  "RETURNING order_id, client_id, order_date, total_price) " +
+                  "INSERT INTO order_archive(order_id, client_id, order_date, total_price) " +
+                  "SELECT order_id, client_id, order_date, total_price FROM gone"
+                : "DELETE FROM \"order\" WHERE order_id = ANY(?)";
+
+        long orders = 0;
+        long items = 0;
+        int batches = 0;
+        // LocalDate.MIN is sent as -infinity, before every order
+        LocalDate lastDate = LocalDate.MIN;
+        long lastId = 0;
+
+        while (true) {
+            conn.setAutoCommit(false);
+            try {
+                List<Long> ids = new ArrayList<>(batchSize);
+                try (PreparedStatement pstmt = conn.prepareStatement(selectSQL)) {
+                    pstmt.setObject(1, effectiveCutoff);
+                    pstmt.setObject(2, lastDate);
+                    pstmt.setLong(3, lastId);
+                    pstmt.setInt(4, batchSize);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                            lastDate = rs.getObject(2, LocalDate.class);
+                        }
+                    }
+                }
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(bypassSQL);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                }
+                Array idArray = conn.createArrayOf("bigint", ids.toArray());
+                try (PreparedStatement pstmt = conn.prepareStatement(itemsSQL)) {
+                    pstmt.setArray(1, idArray);
+                    items += pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(ordersSQL)) {
+                    pstmt.setArray(1, idArray);
+                    orders += pstmt.executeUpdate();
+                }
+                conn.commit();
+                batches++;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            throttle();
+        }
+
+        System.out.printf("Purged %d orders and %d order items dated before %s in %d batches.\n",
+                orders, items, effectiveCutoff, batches);
+        return new Result(orders, items, batches, effectiveCutoff, System.nanoTime() - started);
+    }
+
+    /**
+     * @return The cutoff, lowered to the first day that is not yet rolled up.
+     */
+    private LocalDate capToRollup(LocalDate cutoff) throws SQLException {
+        final String SQLQuery = "SELECT rolled_through FROM sales_rollup_state";
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("sales_rollup_state is empty; run Lab2/schema.sql to initialize it.");
+            }
+            // -infinity (nothing rolled up yet) is read as LocalDate.MIN
+            LocalDate firstLive = rs.getObject(1, LocalDate.class).plusDays(1);
+            if (firstLive.isBefore(cutoff)) {
+                System.out.printf("Orders from %s on are not rolled up yet; purging only orders before it.\n", firstLive);
+                return firstLive;
+            }
+            return cutoff;
+        }
+    }
+
+    /**
+     * Sleeps for the configured pause, then waits while any streaming replica lags more than the limit.
+     */
+    private void throttle() throws SQLException {
+        try {
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+            if (maxLagBytes > 0) {
+                boolean reported = false;
+                long lag;
+                while ((lag = replicationLagBytes()) > maxLagBytes) {
+                    if (!reported) {
+                        System.out.printf("Replication lag is %d bytes; waiting for replicas to catch up.\n", lag);
+                        reported = true;
+                    }
+                    Thread.sleep(LAG_POLL_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("The order purge was interrupted.", e);
+        }
+    }
+
+    /**
+     * @return The largest replay lag of the primary's streaming replicas, in bytes, or 0 without replicas.
+     */
+    private long replicationLagBytes() throws SQLException {
+        final String SQLQuery = "SELECT COALESCE(MAX(pg_wal_lsn_diff(pg_current_wal_lsn(), replay_lsn)), 0)::bigint " +
+                "FROM pg_stat_replication";
+        try (PreparedStatement pstmt = conn.prepareStatement(SQLQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}